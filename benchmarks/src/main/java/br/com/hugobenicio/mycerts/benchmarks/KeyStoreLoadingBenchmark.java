@@ -0,0 +1,53 @@
+package br.com.hugobenicio.mycerts.benchmarks;
+
+import br.com.hugobenicio.mycerts.benchmarks.fixtures.Fixtures;
+import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
+import br.com.hugobenicio.mycerts.core.LoadingCertificateException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KeyStoreLoadingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int certificatesCount;
+
+    private Path jksFile;
+
+    private Path p12File;
+
+    @Setup
+    public void setup() throws IOException {
+        jksFile = Fixtures.jksFile(certificatesCount);
+        p12File = Fixtures.p12File(certificatesCount);
+    }
+
+    @Benchmark
+    public void loadCertificatesFromJksInputStream(Blackhole blackhole) throws IOException, LoadingCertificateException {
+        var certificateAnalyzer = new CertificateAnalyzer();
+        try (InputStream is = Files.newInputStream(jksFile)) {
+            certificateAnalyzer.loadCertificatesFromJksInputStream(is, jksFile, Fixtures.PASSWORD);
+        }
+        blackhole.consume(certificateAnalyzer.getCertificates());
+    }
+
+    @Benchmark
+    public void loadCertificatesFromP12InputStream(Blackhole blackhole) throws IOException, LoadingCertificateException {
+        var certificateAnalyzer = new CertificateAnalyzer();
+        try (InputStream is = Files.newInputStream(p12File)) {
+            certificateAnalyzer.loadCertificatesFromP12InputStream(is, p12File, Fixtures.PASSWORD);
+        }
+        blackhole.consume(certificateAnalyzer.getCertificates());
+    }
+}
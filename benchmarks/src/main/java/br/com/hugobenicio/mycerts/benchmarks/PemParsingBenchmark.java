@@ -0,0 +1,77 @@
+package br.com.hugobenicio.mycerts.benchmarks;
+
+import br.com.hugobenicio.mycerts.benchmarks.fixtures.Fixtures;
+import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
+import br.com.hugobenicio.mycerts.core.LoadingCertificateException;
+import br.com.hugobenicio.mycerts.core.pem.DerBlock;
+import br.com.hugobenicio.mycerts.core.pem.PemReader;
+import br.com.hugobenicio.mycerts.core.pem.PemSplitter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regex based {@link PemSplitter} vs the streaming {@link PemReader}, plus the whole PEM loading path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PemParsingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int certificatesCount;
+
+    private Path pemFile;
+
+    private String pemContents;
+
+    @Setup
+    public void setup() throws IOException {
+        pemFile = Fixtures.pemFile(certificatesCount);
+        pemContents = Files.readString(pemFile);
+    }
+
+    @Benchmark
+    public void pemSplitterSplit(Blackhole blackhole) {
+        blackhole.consume(new PemSplitter().split(pemContents));
+    }
+
+    @Benchmark
+    public void pemSplitterReadAndSplit(Blackhole blackhole) throws IOException {
+        blackhole.consume(new PemSplitter().split(Files.readString(pemFile)));
+    }
+
+    @Benchmark
+    public void pemReaderChannel(Blackhole blackhole) throws IOException {
+        try (var pemReader = new PemReader(FileChannel.open(pemFile, StandardOpenOption.READ))) {
+            for (DerBlock block = pemReader.readBlock(); block != null; block = pemReader.readBlock()) {
+                blackhole.consume(block);
+            }
+        }
+    }
+
+    @Benchmark
+    public void pemReaderOpen(Blackhole blackhole) throws IOException {
+        try (var pemReader = PemReader.open(pemFile)) {
+            for (DerBlock block = pemReader.readBlock(); block != null; block = pemReader.readBlock()) {
+                blackhole.consume(block);
+            }
+        }
+    }
+
+    @Benchmark
+    public void loadCertificatesFromPemFile(Blackhole blackhole) throws LoadingCertificateException {
+        var certificateAnalyzer = new CertificateAnalyzer();
+        certificateAnalyzer.loadCertificatesFromPemFile(pemFile);
+        blackhole.consume(certificateAnalyzer.getCertificates());
+    }
+}
@@ -0,0 +1,53 @@
+package br.com.hugobenicio.mycerts.benchmarks;
+
+import br.com.hugobenicio.mycerts.benchmarks.fixtures.Fixtures;
+import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reports print to stdout, which is swapped by a discarding stream while measuring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReportingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int certificatesCount;
+
+    private CertificateAnalyzer certificateAnalyzer;
+
+    private PrintStream stdout;
+
+    @Setup
+    public void setup() throws IOException {
+        certificateAnalyzer = new CertificateAnalyzer();
+        certificateAnalyzer.getCertificates().addAll(Fixtures.certificates(certificatesCount));
+
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void expirationReport() {
+        certificateAnalyzer.expirationReport();
+    }
+
+    @Benchmark
+    public void individualReport() {
+        certificateAnalyzer.individualReport();
+    }
+}
@@ -0,0 +1,43 @@
+package br.com.hugobenicio.mycerts.benchmarks;
+
+import br.com.hugobenicio.mycerts.benchmarks.fixtures.Fixtures;
+import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SavingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int certificatesCount;
+
+    private CertificateAnalyzer certificateAnalyzer;
+
+    private File outputFile;
+
+    @Setup
+    public void setup() throws IOException {
+        certificateAnalyzer = new CertificateAnalyzer();
+        certificateAnalyzer.getCertificates().addAll(Fixtures.certificates(certificatesCount));
+        outputFile = Files.createTempFile("mycerts-bench-", ".jks").toFile();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputFile.toPath());
+    }
+
+    @Benchmark
+    public void saveCertsToFile() throws IOException {
+        certificateAnalyzer.saveCertsToFile(outputFile, Fixtures.PASSWORD);
+    }
+}
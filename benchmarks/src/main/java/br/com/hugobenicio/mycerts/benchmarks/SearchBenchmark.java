@@ -0,0 +1,81 @@
+package br.com.hugobenicio.mycerts.benchmarks;
+
+import br.com.hugobenicio.mycerts.benchmarks.fixtures.Fixtures;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.search.CertificateIndex;
+import br.com.hugobenicio.mycerts.core.search.SearchField;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index lookups against the linear scan they replace (rebuilding the subject DN string of every certificate)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SearchBenchmark {
+
+    @Param({"1000", "100000"})
+    private int certificatesCount;
+
+    private List<X509Certificate> certificates;
+
+    private CertificateIndex index;
+
+    private String host;
+
+    private String fingerprintPrefix;
+
+    @Setup
+    public void setup() throws IOException {
+        certificates = Fixtures.certificates(certificatesCount);
+        index = new CertificateIndex();
+        for (int id = 0; id < certificates.size(); id++) {
+            index.add(id, certificates.get(id));
+        }
+        int target = certificatesCount / 2;
+        host = "host-" + target + ".bench.mycerts.test";
+        fingerprintPrefix = Fingerprint.of(certificates.get(target)).toHex().substring(0, 8);
+        // merges the pending fingerprints, so the first measured query doesn't pay for it
+        index.search(SearchField.FINGERPRINT, fingerprintPrefix);
+    }
+
+    @Benchmark
+    public int[] subjectWords() {
+        return index.search(SearchField.SUBJECT, host);
+    }
+
+    @Benchmark
+    public int[] sanHost() {
+        return index.search(SearchField.SAN, host);
+    }
+
+    @Benchmark
+    public int[] sanDomain() {
+        return index.search(SearchField.SAN, ".svc-42.bench.mycerts.test");
+    }
+
+    @Benchmark
+    public int[] fingerprintPrefix() {
+        return index.search(SearchField.FINGERPRINT, fingerprintPrefix);
+    }
+
+    @Benchmark
+    public int linearSubjectScan() {
+        int matches = 0;
+        for (X509Certificate certificate : certificates) {
+            if (certificate.getSubjectX500Principal().getName().toLowerCase(Locale.ROOT).contains(host)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
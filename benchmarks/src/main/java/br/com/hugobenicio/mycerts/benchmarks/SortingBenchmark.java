@@ -0,0 +1,109 @@
+package br.com.hugobenicio.mycerts.benchmarks;
+
+import br.com.hugobenicio.mycerts.benchmarks.fixtures.Fixtures;
+import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
+import br.com.hugobenicio.mycerts.core.utils.LongIntArrays;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expiration sorting (primitive keys, parallel for big lists) and top-K selection against the {@code Date}
+ * comparator sort they replace
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SortingBenchmark {
+
+    private static final int TOP = 100;
+
+    @Param({"10", "1000", "100000"})
+    private int certificatesCount;
+
+    private List<X509Certificate> shuffled;
+
+    private CertificateAnalyzer certificateAnalyzer;
+
+    private long[] shuffledNotAfters;
+
+    private long[] notAfters;
+
+    private int[] order;
+
+    @Setup
+    public void setup() throws IOException {
+        shuffled = new ArrayList<>(Fixtures.certificates(certificatesCount));
+        Collections.shuffle(shuffled, new Random(42));
+        certificateAnalyzer = new CertificateAnalyzer();
+        shuffledNotAfters = new long[shuffled.size()];
+        for (int i = 0; i < shuffled.size(); i++) {
+            shuffledNotAfters[i] = shuffled.get(i).getNotAfter().getTime();
+        }
+        notAfters = new long[shuffled.size()];
+        order = new int[shuffled.size()];
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        certificateAnalyzer.getCertificates().clear();
+        certificateAnalyzer.getCertificates().addAll(shuffled);
+        System.arraycopy(shuffledNotAfters, 0, notAfters, 0, notAfters.length);
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+    }
+
+    /**
+     * The previous implementation: two {@code getNotAfter()} calls (two {@code Date} clones) per comparison
+     */
+    @Benchmark
+    public List<X509Certificate> dateComparatorSort() {
+        List<X509Certificate> certificates = certificateAnalyzer.getCertificates();
+        certificates.sort((c1, c2) -> {
+            Date c1NotAfter = c1.getNotAfter();
+            Date c2NotAfter = c2.getNotAfter();
+            if (c1NotAfter.before(c2NotAfter)) {
+                return -1;
+            }
+            if (c1NotAfter.after(c2NotAfter)) {
+                return 1;
+            }
+            return 0;
+        });
+        return certificates;
+    }
+
+    @Benchmark
+    public List<X509Certificate> sortCertificatesByNotAfterDateAscending() {
+        certificateAnalyzer.sortCertificatesByNotAfterDateAscending();
+        return certificateAnalyzer.getCertificates();
+    }
+
+    @Benchmark
+    public List<X509Certificate> soonestExpiring() {
+        return certificateAnalyzer.soonestExpiring(TOP);
+    }
+
+    @Benchmark
+    public int[] sortKeys() {
+        LongIntArrays.sort(notAfters, order, 0, notAfters.length);
+        return order;
+    }
+
+    @Benchmark
+    public int[] parallelSortKeys() {
+        LongIntArrays.parallelSort(notAfters, order, 0, notAfters.length);
+        return order;
+    }
+}
@@ -0,0 +1,118 @@
+package br.com.hugobenicio.mycerts.benchmarks;
+
+import br.com.hugobenicio.mycerts.benchmarks.fixtures.Fixtures;
+import br.com.hugobenicio.mycerts.core.scan.FleetScanner;
+import br.com.hugobenicio.mycerts.core.scan.ScanOptions;
+import br.com.hugobenicio.mycerts.core.scan.ScanSummary;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+import br.com.hugobenicio.mycerts.core.tls.NioTlsCertificateFetcher;
+import br.com.hugobenicio.mycerts.core.tls.SocketTlsCertificateFetcher;
+import org.openjdk.jmh.annotations.*;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking socket fetcher vs the NIO one, scanning a batch of targets spread over local TLS servers.
+ * Both go through {@link FleetScanner}, so the numbers include its scheduling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TlsFetchBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Param({"4"})
+    private int serversCount;
+
+    @Param({"256", "2048"})
+    private int targetsCount;
+
+    private final List<SSLServerSocket> servers = new ArrayList<>();
+
+    private List<ScanTarget> targets;
+
+    private ScanOptions scanOptions;
+
+    private NioTlsCertificateFetcher nioFetcher;
+
+    private SocketTlsCertificateFetcher socketFetcher;
+
+    @Setup
+    public void setup() throws IOException, GeneralSecurityException {
+        var keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(Fixtures.serverKeyStore(), Fixtures.PASSWORD.toCharArray());
+        var sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+
+        targets = new ArrayList<>(targetsCount);
+        for (int i = 0; i < serversCount; i++) {
+            var server = (SSLServerSocket) sslContext.getServerSocketFactory().createServerSocket(0, 4096);
+            servers.add(server);
+            Thread.ofPlatform().daemon(true).name("tls-server-" + i).start(() -> serve(server));
+        }
+        for (int i = 0; i < targetsCount; i++) {
+            targets.add(new ScanTarget("localhost", servers.get(i % serversCount).getLocalPort()));
+        }
+
+        scanOptions = new ScanOptions(targetsCount, targetsCount, TIMEOUT, TIMEOUT);
+        socketFetcher = new SocketTlsCertificateFetcher(TIMEOUT, TIMEOUT);
+        nioFetcher = new NioTlsCertificateFetcher(Runtime.getRuntime().availableProcessors(), TIMEOUT);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        nioFetcher.close();
+        for (var server : servers) {
+            server.close();
+        }
+    }
+
+    @Benchmark
+    public ScanSummary socketFetcher() throws InterruptedException {
+        return scan(new FleetScanner(socketFetcher, scanOptions));
+    }
+
+    @Benchmark
+    public ScanSummary nioFetcher() throws InterruptedException {
+        return scan(new FleetScanner(nioFetcher, scanOptions));
+    }
+
+    private ScanSummary scan(FleetScanner scanner) throws InterruptedException {
+        ScanSummary summary = scanner.scan(targets, result -> {});
+        if (summary.failed() > 0) {
+            throw new IllegalStateException("scan had failures: " + summary);
+        }
+        return summary;
+    }
+
+    private static void serve(SSLServerSocket server) {
+        while (!server.isClosed()) {
+            try {
+                var socket = (SSLSocket) server.accept();
+                Thread.ofVirtual().start(() -> {
+                    try (socket) {
+                        socket.startHandshake();
+                        socket.getInputStream().read();
+                    } catch (IOException e) {
+                        // clients drop the connection as soon as they have the certificates
+                    }
+                });
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package br.com.hugobenicio.mycerts.benchmarks.fixtures;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.List;
+
+import static br.com.hugobenicio.mycerts.benchmarks.fixtures.DerWriter.*;
+
+/**
+ * Generates X.509 v3 certificates offline, signed with ECDSA P-256 (fast enough for hundreds of thousands of
+ * fixtures). Only the JDK is needed.
+ */
+public class CertificateGenerator {
+
+    private static final String OID_ECDSA_WITH_SHA256 = "1.2.840.10045.4.3.2";
+    private static final String OID_COMMON_NAME = "2.5.4.3";
+    private static final String OID_ORGANIZATION = "2.5.4.10";
+    private static final String OID_SUBJECT_ALT_NAME = "2.5.29.17";
+    private static final String OID_BASIC_CONSTRAINTS = "2.5.29.19";
+
+    private static final byte[] DER_TRUE = { 0x01, 0x01, (byte) 0xFF };
+
+    private final CertificateFactory certificateFactory;
+
+    public CertificateGenerator() {
+        try {
+            this.certificateFactory = CertificateFactory.getInstance("X.509");
+        } catch (GeneralSecurityException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public static KeyPair newKeyPair() {
+        try {
+            var keyPairGenerator = KeyPairGenerator.getInstance("EC");
+            keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+            return keyPairGenerator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @param subjectCommonName subject CN
+     * @param issuerCommonName issuer CN
+     * @param subjectKey the certified public key
+     * @param issuerKeyPair the key pair signing the certificate
+     * @param serial serial number
+     * @param notBefore start of validity
+     * @param notAfter end of validity
+     * @param dnsNames subject alternative dns names (may be empty)
+     * @param isCa whether to add basicConstraints cA=true
+     * @return the generated certificate
+     */
+    public X509Certificate generate(String subjectCommonName, String issuerCommonName, PublicKey subjectKey,
+                                    KeyPair issuerKeyPair, BigInteger serial, Instant notBefore, Instant notAfter,
+                                    List<String> dnsNames, boolean isCa) throws GeneralSecurityException {
+
+        byte[] signatureAlgorithm = sequence(oid(OID_ECDSA_WITH_SHA256));
+
+        byte[] extensions = dnsNames.isEmpty() ? new byte[0] : sequence(oid(OID_SUBJECT_ALT_NAME), octetString(subjectAltNames(dnsNames)));
+        if (isCa) {
+            extensions = concat(extensions, sequence(oid(OID_BASIC_CONSTRAINTS), DER_TRUE, octetString(sequence(DER_TRUE))));
+        }
+
+        byte[] tbsCertificate = sequence(
+                explicit(0, integer(BigInteger.TWO)),
+                integer(serial),
+                signatureAlgorithm,
+                name(issuerCommonName),
+                sequence(time(notBefore), time(notAfter)),
+                name(subjectCommonName),
+                subjectKey.getEncoded(),
+                extensions.length == 0 ? new byte[0] : explicit(3, sequence(extensions))
+        );
+
+        var signer = Signature.getInstance("SHA256withECDSA");
+        signer.initSign(issuerKeyPair.getPrivate());
+        signer.update(tbsCertificate);
+        byte[] signature = signer.sign();
+
+        byte[] certificate = sequence(tbsCertificate, signatureAlgorithm, bitString(signature));
+        return (X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(certificate));
+    }
+
+    private static byte[] name(String commonName) {
+        return sequence(
+                set(sequence(oid(OID_ORGANIZATION), utf8String("MyCerts Benchmarks"))),
+                set(sequence(oid(OID_COMMON_NAME), utf8String(commonName)))
+        );
+    }
+
+    private static byte[] subjectAltNames(List<String> dnsNames) {
+        byte[] names = new byte[0];
+        for (String dnsName : dnsNames) {
+            names = concat(names, implicit(2, dnsName.getBytes(StandardCharsets.US_ASCII)));
+        }
+        return sequence(names);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = new byte[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+package br.com.hugobenicio.mycerts.benchmarks.fixtures;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Just enough DER encoding to build X.509 certificates for fixtures.
+ */
+final class DerWriter {
+
+    static final int TAG_INTEGER = 0x02;
+    static final int TAG_BIT_STRING = 0x03;
+    static final int TAG_OCTET_STRING = 0x04;
+    static final int TAG_OID = 0x06;
+    static final int TAG_UTF8_STRING = 0x0C;
+    static final int TAG_UTC_TIME = 0x17;
+    static final int TAG_GENERALIZED_TIME = 0x18;
+    static final int TAG_SEQUENCE = 0x30;
+    static final int TAG_SET = 0x31;
+
+    private static final DateTimeFormatter UTC_TIME = DateTimeFormatter.ofPattern("yyMMddHHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter GENERALIZED_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private DerWriter() {}
+
+    static byte[] tlv(int tag, byte[]... contents) {
+        int length = 0;
+        for (byte[] content : contents) {
+            length += content.length;
+        }
+
+        var out = new ByteArrayOutputStream(length + 6);
+        out.write(tag);
+        if (length < 0x80) {
+            out.write(length);
+        } else {
+            int lengthBytes = (Integer.SIZE - Integer.numberOfLeadingZeros(length) + 7) / 8;
+            out.write(0x80 | lengthBytes);
+            for (int i = lengthBytes - 1; i >= 0; i--) {
+                out.write(length >>> (i * 8));
+            }
+        }
+        for (byte[] content : contents) {
+            out.writeBytes(content);
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] sequence(byte[]... contents) {
+        return tlv(TAG_SEQUENCE, contents);
+    }
+
+    static byte[] set(byte[]... contents) {
+        return tlv(TAG_SET, contents);
+    }
+
+    /**
+     * Context-specific constructed tag, e.g. [0] EXPLICIT
+     */
+    static byte[] explicit(int tagNumber, byte[]... contents) {
+        return tlv(0xA0 | tagNumber, contents);
+    }
+
+    /**
+     * Context-specific primitive tag, e.g. [2] IMPLICIT IA5String for a dNSName
+     */
+    static byte[] implicit(int tagNumber, byte[] content) {
+        return tlv(0x80 | tagNumber, content);
+    }
+
+    static byte[] integer(BigInteger value) {
+        return tlv(TAG_INTEGER, value.toByteArray());
+    }
+
+    static byte[] utf8String(String value) {
+        return tlv(TAG_UTF8_STRING, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static byte[] octetString(byte[] value) {
+        return tlv(TAG_OCTET_STRING, value);
+    }
+
+    static byte[] bitString(byte[] value) {
+        byte[] content = new byte[value.length + 1];
+        System.arraycopy(value, 0, content, 1, value.length);
+        return tlv(TAG_BIT_STRING, content);
+    }
+
+    /**
+     * RFC 5280 4.1.2.5: UTCTime through 2049, GeneralizedTime from 2050 on.
+     */
+    static byte[] time(Instant instant) {
+        int year = instant.atZone(ZoneOffset.UTC).getYear();
+        if (year >= 1950 && year < 2050) {
+            return tlv(TAG_UTC_TIME, UTC_TIME.format(instant).getBytes(StandardCharsets.US_ASCII));
+        }
+        return tlv(TAG_GENERALIZED_TIME, GENERALIZED_TIME.format(instant).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static byte[] oid(String dotted) {
+        String[] arcs = dotted.split("\\.");
+        var out = new ByteArrayOutputStream();
+        out.write(Integer.parseInt(arcs[0]) * 40 + Integer.parseInt(arcs[1]));
+        for (int i = 2; i < arcs.length; i++) {
+            long arc = Long.parseLong(arcs[i]);
+            int groups = Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(arc) + 6) / 7);
+            for (int g = groups - 1; g >= 0; g--) {
+                int bits = (int) ((arc >>> (g * 7)) & 0x7F);
+                out.write(g == 0 ? bits : bits | 0x80);
+            }
+        }
+        return tlv(TAG_OID, out.toByteArray());
+    }
+}
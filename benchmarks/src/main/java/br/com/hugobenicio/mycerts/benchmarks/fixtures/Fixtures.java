@@ -0,0 +1,169 @@
+package br.com.hugobenicio.mycerts.benchmarks.fixtures;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Certificate fixtures shared by the benchmarks. Files are generated once under {@code target/fixtures}
+ * (or the {@code mycerts.fixtures.dir} system property) and reused by later runs and forks.
+ *
+ * <p>Pre-generating them: {@code java -cp target/benchmarks.jar br.com.hugobenicio.mycerts.benchmarks.fixtures.Fixtures 10 1000 100000}
+ */
+public final class Fixtures {
+
+    public static final String PASSWORD = "changeit";
+
+    private static final int ISSUERS_COUNT = 10;
+
+    private static final Map<Integer, List<X509Certificate>> certificatesByCount = new HashMap<>();
+
+    private Fixtures() {}
+
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            int count = Integer.parseInt(arg);
+            System.out.printf("fixtures ready: %s %s %s%n", pemFile(count), jksFile(count), p12File(count));
+        }
+    }
+
+    public static Path directory() {
+        return Path.of(System.getProperty("mycerts.fixtures.dir", "target/fixtures"));
+    }
+
+    /**
+     * @return count leaf certificates, with expiration dates spread from 30 days ago to 2 years ahead
+     */
+    public static synchronized List<X509Certificate> certificates(int count) throws IOException {
+        List<X509Certificate> certificates = certificatesByCount.get(count);
+        if (certificates == null) {
+            Path pemFile = directory().resolve("certs-" + count + ".pem");
+            certificates = Files.exists(pemFile) ? readPem(pemFile) : generate(count);
+            certificatesByCount.put(count, certificates);
+        }
+        return certificates;
+    }
+
+    public static synchronized Path pemFile(int count) throws IOException {
+        Path path = directory().resolve("certs-" + count + ".pem");
+        if (!Files.exists(path)) {
+            List<X509Certificate> certificates = certificates(count);
+            Files.createDirectories(path.getParent());
+            var encoder = Base64.getMimeEncoder(64, new byte[]{'\n'});
+            try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+                for (var certificate : certificates) {
+                    writer.write("subject=" + certificate.getSubjectX500Principal().getName() + "\n");
+                    writer.write("-----BEGIN CERTIFICATE-----\n");
+                    writer.write(encoder.encodeToString(certificate.getEncoded()));
+                    writer.write("\n-----END CERTIFICATE-----\n");
+                }
+            } catch (GeneralSecurityException e) {
+                throw new AssertionError(e);
+            }
+        }
+        return path;
+    }
+
+    public static Path jksFile(int count) throws IOException {
+        return keyStoreFile(count, "JKS", "jks");
+    }
+
+    public static Path p12File(int count) throws IOException {
+        return keyStoreFile(count, "PKCS12", "p12");
+    }
+
+    /**
+     * @return an in-memory PKCS12 key store with a fresh key and a self-signed certificate for localhost
+     */
+    public static KeyStore serverKeyStore() {
+        try {
+            KeyPair keyPair = CertificateGenerator.newKeyPair();
+            Instant now = Instant.now();
+            X509Certificate certificate = new CertificateGenerator().generate("localhost", "localhost",
+                    keyPair.getPublic(), keyPair, BigInteger.ONE, now.minus(Duration.ofDays(1)), now.plus(Duration.ofDays(30)),
+                    List.of("localhost"), false);
+
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(null, null);
+            keyStore.setKeyEntry("server", keyPair.getPrivate(), PASSWORD.toCharArray(), new Certificate[]{ certificate });
+            return keyStore;
+        } catch (GeneralSecurityException | IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static synchronized Path keyStoreFile(int count, String type, String extension) throws IOException {
+        Path path = directory().resolve("certs-" + count + "." + extension);
+        if (!Files.exists(path)) {
+            List<X509Certificate> certificates = certificates(count);
+            Files.createDirectories(path.getParent());
+            try (OutputStream os = Files.newOutputStream(path)) {
+                KeyStore keyStore = KeyStore.getInstance(type);
+                keyStore.load(null, null);
+                for (int i = 0; i < certificates.size(); i++) {
+                    keyStore.setCertificateEntry("cert-" + i, certificates.get(i));
+                }
+                keyStore.store(os, PASSWORD.toCharArray());
+            } catch (GeneralSecurityException e) {
+                throw new AssertionError(e);
+            }
+        }
+        return path;
+    }
+
+    private static List<X509Certificate> generate(int count) {
+        var generator = new CertificateGenerator();
+        KeyPair issuerKeyPair = CertificateGenerator.newKeyPair();
+        KeyPair leafKeyPair = CertificateGenerator.newKeyPair();
+        var random = new Random(count);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+        List<X509Certificate> certificates = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                String host = "host-" + i + ".bench.mycerts.test";
+                String wildcard = "*.svc-" + (i % 100) + ".bench.mycerts.test";
+                Instant notAfter = now.plus(random.nextInt(-30, 730), ChronoUnit.DAYS)
+                        .plusSeconds(random.nextInt(86_400));
+                certificates.add(generator.generate(host, "MyCerts Bench CA " + (i % ISSUERS_COUNT),
+                        leafKeyPair.getPublic(), issuerKeyPair, BigInteger.valueOf(i + 1L),
+                        notAfter.minus(Duration.ofDays(397)), notAfter, List.of(host, wildcard), false));
+            }
+        } catch (GeneralSecurityException e) {
+            throw new AssertionError(e);
+        }
+        return certificates;
+    }
+
+    private static List<X509Certificate> readPem(Path path) throws IOException {
+        try (InputStream is = Files.newInputStream(path)) {
+            List<X509Certificate> certificates = new ArrayList<>();
+            for (Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(is)) {
+                certificates.add((X509Certificate) certificate);
+            }
+            return certificates;
+        } catch (GeneralSecurityException e) {
+            throw new UncheckedIOException(new IOException("failed to read fixture. path=\"" + path + "\"", e));
+        }
+    }
+}
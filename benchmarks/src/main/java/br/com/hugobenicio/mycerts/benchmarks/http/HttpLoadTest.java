@@ -0,0 +1,142 @@
+package br.com.hugobenicio.mycerts.benchmarks.http;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Closed-loop load test of a running server: {@code concurrency} clients request the given urls back to back (round
+ * robin) for a while, then the latency percentiles are printed. Unlike the JMH benchmarks, this measures the whole
+ * http path (routing, rendering, compression, the network stack), which is where tail latency shows up.
+ *
+ * <p>Usage: {@code java -cp target/benchmarks.jar br.com.hugobenicio.mycerts.benchmarks.http.HttpLoadTest
+ * <concurrency> <duration> <url>...}, e.g. {@code 64 PT30S http://localhost:8080/ http://localhost:8080/webjars/bootstrap/5.3.6/css/bootstrap.min.css}.
+ * The first fifth of the duration is warm up and isn't measured.
+ */
+public final class HttpLoadTest {
+
+    private HttpLoadTest() {}
+
+    /**
+     * Latencies (in nanoseconds) and outcomes recorded by one client
+     */
+    private static final class Recorder {
+        private long[] latencies = new long[1 << 14];
+        private int count;
+        private long bytes;
+        private int errors;
+
+        void record(long latencyNanos, long responseBytes) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            bytes += responseBytes;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        if (args.length < 3) {
+            System.err.println("usage: HttpLoadTest <concurrency> <duration (e.g. PT30S)> <url>...");
+            System.exit(2);
+        }
+        int concurrency = Integer.parseInt(args[0]);
+        Duration duration = Duration.parse(args[1]);
+        List<HttpRequest> requests = Arrays.stream(args, 2, args.length)
+                .map(url -> HttpRequest.newBuilder(URI.create(url))
+                        .header("Accept-Encoding", "gzip")
+                        .GET()
+                        .build())
+                .toList();
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + duration.toNanos() / 5;
+        long endNanos = startNanos + duration.toNanos();
+
+        List<Future<Recorder>> clients = new ArrayList<>(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                final int first = i;
+                clients.add(executor.submit(() -> run(client, requests, first, measureFromNanos, endNanos)));
+            }
+        }
+
+        var total = new Recorder();
+        for (Future<Recorder> future : clients) {
+            Recorder recorder = future.get();
+            for (int i = 0; i < recorder.count; i++) {
+                total.record(recorder.latencies[i], 0);
+            }
+            total.bytes += recorder.bytes;
+            total.errors += recorder.errors;
+        }
+        report(total, Duration.ofNanos(endNanos - measureFromNanos), concurrency);
+    }
+
+    private static Recorder run(HttpClient client, List<HttpRequest> requests, int first, long measureFromNanos,
+                                long endNanos) {
+        var recorder = new Recorder();
+        for (int i = first; ; i++) {
+            long requestStartNanos = System.nanoTime();
+            if (requestStartNanos >= endNanos) {
+                return recorder;
+            }
+            HttpRequest request = requests.get(i % requests.size());
+            try {
+                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                long latencyNanos = System.nanoTime() - requestStartNanos;
+                if (requestStartNanos < measureFromNanos) {
+                    continue;
+                }
+                if (response.statusCode() >= 400) {
+                    recorder.errors++;
+                } else {
+                    recorder.record(latencyNanos, response.body().length);
+                }
+            } catch (IOException e) {
+                recorder.errors++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return recorder;
+            }
+        }
+    }
+
+    private static void report(Recorder total, Duration measured, int concurrency) {
+        long[] latencies = Arrays.copyOf(total.latencies, total.count);
+        Arrays.sort(latencies);
+
+        System.out.printf("concurrency=%d requests=%d errors=%d throughput=%.1f req/s transferred=%d KiB%n",
+                concurrency, latencies.length, total.errors, latencies.length / (measured.toNanos() / 1e9),
+                total.bytes / 1024);
+        if (latencies.length == 0) {
+            return;
+        }
+        System.out.printf("latency ms: p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f%n",
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                percentile(latencies, 99.9), latencies[latencies.length - 1] / 1e6);
+    }
+
+    /**
+     * @return the given percentile of sorted latencies, in milliseconds (nearest rank)
+     */
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+        return sortedLatencies[Math.max(0, rank - 1)] / 1e6;
+    }
+}
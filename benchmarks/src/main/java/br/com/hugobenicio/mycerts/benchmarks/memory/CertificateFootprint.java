@@ -0,0 +1,59 @@
+package br.com.hugobenicio.mycerts.benchmarks.memory;
+
+import br.com.hugobenicio.mycerts.benchmarks.fixtures.Fixtures;
+import br.com.hugobenicio.mycerts.core.compact.CertificateArena;
+import br.com.hugobenicio.mycerts.core.compact.CompactCertificateFactory;
+import br.com.hugobenicio.mycerts.core.ingest.CertificateFileLoader;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+/**
+ * Retained heap per certificate of the full {@code X509Certificate}s vs the {@code CompactCertificate} views (with
+ * their DER on and off heap), measured as the heap growth, after full GCs, of holding a loaded fixture. JMH's
+ * {@code -prof gc} tells allocation rates, not what stays reachable, hence a plain main.
+ *
+ * <p>Usage: {@code java -cp target/benchmarks.jar br.com.hugobenicio.mycerts.benchmarks.memory.CertificateFootprint
+ * [certificates count, default 100000]}
+ */
+public final class CertificateFootprint {
+
+    private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    private CertificateFootprint() {}
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path pemFile = Fixtures.pemFile(count);
+
+        measure("X509Certificate", count, () ->
+                new CertificateFileLoader().loadPemFile(pemFile));
+        measure("CompactCertificate (on heap)", count, () ->
+                new CompactCertificateFactory(CertificateArena.onHeap()).load(pemFile, null));
+
+        var offHeapFactory = new CompactCertificateFactory(CertificateArena.offHeap());
+        measure("CompactCertificate (off heap)", count, () -> offHeapFactory.load(pemFile, null));
+        System.out.printf("    plus %d bytes/certificate off heap%n", offHeapFactory.getArena().size() / count);
+    }
+
+    private static void measure(String name, int count, Callable<Object> load) throws Exception {
+        long before = usedHeapAfterGc();
+        Object loaded = load.call();
+        long after = usedHeapAfterGc();
+        System.out.printf("%-30s %8d bytes/certificate retained on heap%n", name, (after - before) / count);
+        // keeps the loaded certificates reachable until measured
+        if (loaded.hashCode() == System.identityHashCode(memory)) {
+            System.out.println();
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
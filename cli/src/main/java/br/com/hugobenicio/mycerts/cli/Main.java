@@ -6,10 +6,8 @@ import picocli.CommandLine;
 public class Main {
     public static void main(String[] args) {
         var cli = new CommandLine(new RootCommand());
-        cli.execute(args);
-        // NOTE: If the command was `mycerts server start`, we can't call System.exit(cli.execute(args)) here because
-        //       this command here is executed while the server thread is still starting/running.
-        //       For more details, see
-        //       https://stackoverflow.com/questions/76461848/picocli-with-long-running-javalin-thread
+        // every command (even the long-running ones, like watch) returns only when it's done: its result is the exit
+        // code (e.g. 1 when something failed, 2 for bad arguments)
+        System.exit(cli.execute(args));
     }
 }
@@ -0,0 +1,256 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
+import br.com.hugobenicio.mycerts.core.compact.CertificateArena;
+import br.com.hugobenicio.mycerts.core.compact.CompactCertificate;
+import br.com.hugobenicio.mycerts.core.compact.CompactCertificateFactory;
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryBuckets;
+import br.com.hugobenicio.mycerts.core.expiry.SoonestExpiring;
+import br.com.hugobenicio.mycerts.core.ingest.DirectoryIngestor;
+import br.com.hugobenicio.mycerts.core.ingest.FileIngestion;
+import br.com.hugobenicio.mycerts.core.ingest.IngestionResult;
+import br.com.hugobenicio.mycerts.core.ingest.IngestionSummary;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.inventory.Observation;
+import br.com.hugobenicio.mycerts.core.inventory.store.InventoryStore;
+import br.com.hugobenicio.mycerts.core.report.CertificateReports;
+import br.com.hugobenicio.mycerts.core.report.ReportEntry;
+import br.com.hugobenicio.mycerts.core.report.ReportSink;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+@Command(
+        name = "analyze",
+        description = "Analyzes the certificates found in pem, jks and p12 files"
+)
+public class AnalyzeCommand implements Callable<Integer> {
+
+    @Option(
+            names = {"--dir", "-d"},
+            description = "Directory recursively searched for certificate files",
+            required = true
+    )
+    private Path dir;
+
+    @Option(
+            names = {"--password"},
+            description = "Password used for jks and p12 files",
+            defaultValue = "changeit",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private String password;
+
+    @Option(
+            names = {"--threads"},
+            description = "Number of threads parsing files (defaults to the number of cpus)"
+    )
+    private Integer threads;
+
+    @Option(
+            names = {"--report"},
+            description = "Report kind: ${COMPLETION-CANDIDATES}",
+            defaultValue = "expiration",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Report report;
+
+    @Option(
+            names = {"--expiry-buckets"},
+            description = "Comma separated \"expiring within\" bucket days of the expiration report",
+            defaultValue = "7,30,90,180",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private String expiryBuckets;
+
+    @Option(
+            names = {"--expiring-within"},
+            description = "Only reports the certificates expiring within this many days"
+    )
+    private Integer expiringWithin;
+
+    @Option(
+            names = {"--format"},
+            description = "Output format: ${COMPLETION-CANDIDATES}. jsonl and csv stream every certificate as soon as its file is parsed, without deduplicating, sorting or reporting",
+            defaultValue = "text",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private OutputFormat format;
+
+    @Option(
+            names = {"--inventory"},
+            description = "Inventory directory. Files unchanged since the last run are not parsed again"
+    )
+    private Path inventory;
+
+    @Option(
+            names = {"--top"},
+            description = "Only lists the given number of certificates expiring sooner, selected while the files are "
+                    + "parsed instead of loading and sorting every certificate"
+    )
+    private Integer top;
+
+    @Option(
+            names = {"--compact"},
+            description = "Only keeps the validity, names and encoding of each certificate, cutting memory usage on "
+                    + "large directories. Expiration reports only, without --inventory"
+    )
+    private boolean compact;
+
+    public enum Report { expiration, individual }
+
+    @Override
+    public Integer call() throws IOException {
+        ExpiryBuckets buckets = ExpiryBuckets.parse(this.expiryBuckets);
+        int parallelism = this.threads != null ? this.threads : Runtime.getRuntime().availableProcessors();
+        var ingestor = new DirectoryIngestor(this.password, parallelism);
+        if (this.top != null) {
+            return top(ingestor);
+        }
+        if (this.format != OutputFormat.text) {
+            return stream(ingestor);
+        }
+        if (this.compact) {
+            return compact(ingestor, buckets);
+        }
+
+        final IngestionResult result;
+        if (this.inventory != null) {
+            try (var store = InventoryStore.open(this.inventory)) {
+                result = ingestor.ingest(this.dir, store);
+            }
+        } else {
+            result = ingestor.ingest(this.dir);
+        }
+
+        result.failures().forEach(AnalyzeCommand::printFailure);
+
+        var certificateAnalyzer = new CertificateAnalyzer();
+        certificateAnalyzer.addObservations(result.observations());
+        System.out.printf("loaded %d certificate(s) from %d file(s) (%d unchanged), %d unique%n",
+                certificateAnalyzer.getRegistry().totalObservations(), result.files().size(), result.reusedCount(),
+                certificateAnalyzer.getRegistry().size());
+        certificateAnalyzer.sortCertificatesByNotAfterDateAscending();
+
+        if (this.expiringWithin != null) {
+            certificateAnalyzer.expiringWithinReport(Duration.ofDays(this.expiringWithin));
+        } else {
+            switch (this.report) {
+                case expiration -> certificateAnalyzer.expirationReport(buckets);
+                case individual -> certificateAnalyzer.individualReport();
+            }
+        }
+        return result.failures().isEmpty() ? 0 : 1;
+    }
+
+    private int stream(DirectoryIngestor ingestor) throws IOException {
+        ReportSink sink = this.format.newSink(System.out);
+        Consumer<FileIngestion> listener = ingestion -> {
+            if (!ingestion.isSuccess()) {
+                printFailure(ingestion);
+                return;
+            }
+            try {
+                for (var observation : ingestion.observations()) {
+                    sink.write(ReportEntry.of(observation));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        IngestionSummary summary = ingest(ingestor, listener);
+        sink.flush();
+
+        // stdout only carries the report, so it can be piped to other tools
+        System.err.printf("streamed %d certificate(s) from %d file(s) (%d unchanged)%n",
+                summary.certificates(), summary.files(), summary.reused());
+        return summary.failures() == 0 ? 0 : 1;
+    }
+
+    /**
+     * Keeps only the certificates expiring sooner while streaming the files, then lists them in the chosen format
+     */
+    private int top(DirectoryIngestor ingestor) throws IOException {
+        if (this.top <= 0) {
+            System.err.println("--top must be positive");
+            return 2;
+        }
+        var selection = new SoonestExpiring<Observation>(this.top, o -> Fingerprint.of(o.certificate()));
+        IngestionSummary summary = ingest(ingestor, ingestion -> {
+            if (!ingestion.isSuccess()) {
+                printFailure(ingestion);
+                return;
+            }
+            for (var observation : ingestion.observations()) {
+                selection.offer(observation, observation.certificate().getNotAfter().getTime());
+            }
+        });
+
+        ReportSink sink = this.format.newSink(System.out);
+        for (var observation : selection.toList()) {
+            sink.write(ReportEntry.of(observation));
+        }
+        sink.flush();
+
+        System.err.printf("selected %d of %d certificate(s) from %d file(s) (%d unchanged)%n",
+                selection.size(), summary.certificates(), summary.files(), summary.reused());
+        return summary.failures() == 0 ? 0 : 1;
+    }
+
+    /**
+     * Expiration reports over {@link CompactCertificate}s: no certificate is kept decoded
+     */
+    private int compact(DirectoryIngestor ingestor, ExpiryBuckets buckets) throws IOException {
+        if (this.inventory != null || (this.expiringWithin == null && this.report != Report.expiration)) {
+            System.err.println("--compact only supports the expiration reports, without --inventory");
+            return 2;
+        }
+        var failures = new AtomicInteger();
+        var factory = new CompactCertificateFactory(CertificateArena.offHeap());
+        List<CompactCertificate> certificates = ingestor.ingestCompact(this.dir, factory, failure -> {
+            failures.incrementAndGet();
+            printFailure(failure);
+        });
+        System.out.printf("loaded %d unique certificate(s)%n", certificates.size());
+
+        var out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024), false);
+        if (this.expiringWithin != null) {
+            CertificateReports.expiringWithin(certificates, Duration.ofDays(this.expiringWithin), Instant.now(), out);
+        } else {
+            CertificateReports.expiration(certificates, buckets, Instant.now(), out);
+        }
+        out.flush();
+        return failures.get() == 0 ? 0 : 1;
+    }
+
+    private IngestionSummary ingest(DirectoryIngestor ingestor, Consumer<FileIngestion> listener) throws IOException {
+        try {
+            if (this.inventory != null) {
+                try (var store = InventoryStore.open(this.inventory)) {
+                    return ingestor.ingest(this.dir, store, listener);
+                }
+            }
+            return ingestor.ingest(this.dir, listener);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void printFailure(FileIngestion failure) {
+        System.err.printf("failed to load file. path=\"%s\" error=\"%s\"%n", failure.path(), failure.error().getMessage());
+    }
+}
@@ -0,0 +1,100 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
+import br.com.hugobenicio.mycerts.core.diff.CertificateDiff;
+import br.com.hugobenicio.mycerts.core.diff.DiffEvent;
+import br.com.hugobenicio.mycerts.core.diff.DiffInput;
+import br.com.hugobenicio.mycerts.core.diff.DiffOptions;
+import br.com.hugobenicio.mycerts.core.diff.DiffSummary;
+import br.com.hugobenicio.mycerts.core.inventory.store.InventoryStore;
+import br.com.hugobenicio.mycerts.core.snapshot.Snapshot;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "diff",
+        description = "Shows what changed between two snapshots or inventories (e.g. of two nightly scans): "
+                + "certificates added and removed, endpoints added, removed, rotated or moved to another CA, and "
+                + "key store entries replaced"
+)
+public class DiffCommand implements Callable<Integer> {
+
+    @Option(
+            names = {"--before"},
+            description = "The old snapshot file or inventory directory",
+            required = true
+    )
+    private Path before;
+
+    @Option(
+            names = {"--after"},
+            description = "The new snapshot file or inventory directory",
+            required = true
+    )
+    private Path after;
+
+    @Option(
+            names = {"--by"},
+            description = "What is compared: ${COMPLETION-CANDIDATES}",
+            defaultValue = "fingerprint,endpoint,alias",
+            split = ",",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private List<DiffBy> by;
+
+    @Option(
+            names = {"--format"},
+            description = "Output format: ${COMPLETION-CANDIDATES}",
+            defaultValue = "text",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Format format;
+
+    public enum DiffBy { fingerprint, endpoint, alias }
+
+    public enum Format { text, jsonl }
+
+    @Override
+    public Integer call() throws IOException {
+        var options = new DiffOptions(this.by.contains(DiffBy.fingerprint), this.by.contains(DiffBy.endpoint),
+                this.by.contains(DiffBy.alias));
+
+        var out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024), false);
+        DiffSummary summary = new CertificateDiff(options).diff(open(this.before), open(this.after),
+                event -> out.println(this.format == Format.jsonl ? event.toJson() : event.toString()));
+        out.flush();
+
+        // stdout only carries the changes, so they can be piped to other tools
+        System.err.printf("%d change(s). before=%d after=%d unchanged=%d%n", summary.totalChanges(),
+                summary.beforeCertificates(), summary.afterCertificates(), summary.unchangedCertificates());
+        summary.changes().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(change -> System.err.printf("     %-20s %d%n", change.getKey(), change.getValue()));
+        return summary.totalChanges() == 0 ? 0 : 1;
+    }
+
+    /**
+     * Snapshots are diffed straight from their mapped files. Inventories are loaded in memory first.
+     */
+    private static DiffInput open(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return DiffInput.of(Snapshot.open(path));
+        }
+        var certificateAnalyzer = new CertificateAnalyzer();
+        try (var store = InventoryStore.open(path)) {
+            certificateAnalyzer.addObservations(store.observations());
+        }
+        return DiffInput.of(certificateAnalyzer.snapshot());
+    }
+}
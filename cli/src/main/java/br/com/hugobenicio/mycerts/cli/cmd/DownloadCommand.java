@@ -2,6 +2,8 @@ package br.com.hugobenicio.mycerts.cli.cmd;
 
 import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
 import br.com.hugobenicio.mycerts.core.LoadingCertificateException;
+import br.com.hugobenicio.mycerts.core.export.ExportOptions;
+import br.com.hugobenicio.mycerts.core.tls.ServerNames;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
@@ -57,19 +59,28 @@ public class DownloadCommand implements Runnable {
     )
     private String password;
 
+    @Option(
+            names = {"--format"},
+            description = "Output format: ${COMPLETION-CANDIDATES}",
+            defaultValue = "p12",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private ExportFileFormat format;
+
     @Override
     public void run() {
 
         // if sni is not given, use sni = host
         String serverNameIndicator = Optional.ofNullable(this.sni)
-                .filter(String::isBlank)
+                .filter(sni -> !sni.isBlank())
                 .map(String::trim)
-                .orElse(this.host);
+                .orElseGet(() -> ServerNames.defaultFor(this.host));
 
         var certificateAnalyzer = new CertificateAnalyzer();
         try {
             certificateAnalyzer.loadCertificatesFromRemoteServer(this.host, this.port, serverNameIndicator);
-            certificateAnalyzer.saveCertsToFile(this.outputFile, this.password);
+            certificateAnalyzer.export(this.outputFile.toPath(),
+                    ExportOptions.of(this.format.toExportFormat(), this.password));
             //certificateAnalyzer.expirationReport();
         } catch (LoadingCertificateException | IOException e) {
             throw new RuntimeException(e);
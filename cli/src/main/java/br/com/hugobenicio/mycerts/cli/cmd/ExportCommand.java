@@ -0,0 +1,101 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryBuckets;
+import br.com.hugobenicio.mycerts.core.export.ExportOptions;
+import br.com.hugobenicio.mycerts.core.export.ExportSummary;
+import br.com.hugobenicio.mycerts.core.ingest.DirectoryIngestor;
+import br.com.hugobenicio.mycerts.core.ingest.IngestionResult;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "export",
+        description = "Exports the certificates found in pem, jks and p12 files to key stores, pem bundles or pem files"
+)
+public class ExportCommand implements Callable<Integer> {
+
+    @Option(
+            names = {"--dir", "-d"},
+            description = "Directory recursively searched for certificate files",
+            required = true
+    )
+    private Path dir;
+
+    @Option(
+            names = {"--password"},
+            description = "Password used for jks and p12 files",
+            defaultValue = "changeit",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private String password;
+
+    @Option(
+            names = {"--threads"},
+            description = "Number of threads parsing files (defaults to the number of cpus)"
+    )
+    private Integer threads;
+
+    @Option(
+            names = {"--output", "-o"},
+            description = "Output file (or directory, for pemfiles or when sharding)",
+            required = true
+    )
+    private Path output;
+
+    @Option(
+            names = {"--format"},
+            description = "Output format: ${COMPLETION-CANDIDATES}",
+            defaultValue = "p12",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private ExportFileFormat format;
+
+    @Option(
+            names = {"--shard-by"},
+            description = "Splits the output in one file per: ${COMPLETION-CANDIDATES}",
+            defaultValue = "none",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private ShardBy shardBy;
+
+    @Option(
+            names = {"--expiry-buckets"},
+            description = "Comma separated \"expiring within\" bucket days used by --shard-by=expiry",
+            defaultValue = "7,30,90,180",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private String expiryBuckets;
+
+    @Option(
+            names = {"--store-password"},
+            description = "Password of the exported key stores",
+            defaultValue = "changeit",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private String storePassword;
+
+    @Override
+    public Integer call() throws IOException {
+        int parallelism = this.threads != null ? this.threads : Runtime.getRuntime().availableProcessors();
+        IngestionResult result = new DirectoryIngestor(this.password, parallelism).ingest(this.dir);
+        result.failures().forEach(failure -> System.err.printf("failed to load file. path=\"%s\" error=\"%s\"%n",
+                failure.path(), failure.error().getMessage()));
+
+        var certificateAnalyzer = new CertificateAnalyzer();
+        certificateAnalyzer.addObservations(result.observations());
+
+        var options = new ExportOptions(this.format.toExportFormat(), this.shardBy.toExportSharding(),
+                ExpiryBuckets.parse(this.expiryBuckets), this.storePassword, Instant.now());
+        ExportSummary summary = certificateAnalyzer.export(this.output, options);
+        System.out.printf("exported %d certificate(s) to %d file(s). path=\"%s\"%n", summary.certificates(),
+                summary.files(), this.output);
+        return result.failures().isEmpty() ? 0 : 1;
+    }
+}
@@ -0,0 +1,19 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.export.ExportFormat;
+
+/**
+ * Values of the {@code --format} option of commands exporting certificates
+ */
+public enum ExportFileFormat {
+    jks, p12, pem, pemfiles;
+
+    public ExportFormat toExportFormat() {
+        return switch (this) {
+            case jks -> ExportFormat.JKS;
+            case p12 -> ExportFormat.PKCS12;
+            case pem -> ExportFormat.PEM;
+            case pemfiles -> ExportFormat.PEM_FILES;
+        };
+    }
+}
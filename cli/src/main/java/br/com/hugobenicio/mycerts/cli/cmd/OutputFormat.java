@@ -0,0 +1,32 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.report.ReportFormat;
+import br.com.hugobenicio.mycerts.core.report.ReportSink;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Values of the {@code --format} option of commands producing certificate reports
+ */
+public enum OutputFormat {
+    text, jsonl, csv;
+
+    public ReportFormat toReportFormat() {
+        return switch (this) {
+            case text -> ReportFormat.TEXT;
+            case jsonl -> ReportFormat.JSON_LINES;
+            case csv -> ReportFormat.CSV;
+        };
+    }
+
+    /**
+     * @return a sink writing to the given stream. Machine readable formats are always UTF-8
+     */
+    public ReportSink newSink(OutputStream out) {
+        var charset = this == text ? Charset.defaultCharset() : StandardCharsets.UTF_8;
+        return toReportFormat().newSink(new OutputStreamWriter(out, charset));
+    }
+}
@@ -1,18 +1,32 @@
 package br.com.hugobenicio.mycerts.cli.cmd;
 
+import br.com.hugobenicio.mycerts.core.metrics.LatencyHistogram;
+import br.com.hugobenicio.mycerts.core.poke.PokeOptions;
+import br.com.hugobenicio.mycerts.core.poke.PokeResult;
 import br.com.hugobenicio.mycerts.core.poke.TlsPokeService;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+import br.com.hugobenicio.mycerts.core.tls.ServerNames;
+import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 
-@Command(name = "poke", description = "Pokes a server to test SSL connectivity (aka SSLPoke)")
+@Command(
+        name = "poke",
+        description = "Pokes servers to test TLS connectivity (aka SSLPoke), timing handshakes and probing the TLS "
+                + "versions and cipher suites they accept"
+)
 public class PokeCommand implements Callable<Integer> {
 
     @Option(
             names = {"--host"},
-            required = true,
             description = "The server's hostname"
     )
     private String host;
@@ -25,10 +39,135 @@ public class PokeCommand implements Callable<Integer> {
     )
     private Integer port;
 
+    @Option(
+            names = {"--sni"},
+            description = "Server Name Indication (SNI)",
+            required = false
+    )
+    private String sni;
+
+    @Option(
+            names = {"--targets-file", "-f"},
+            description = "File with one target per line: host[:port] [sni]"
+    )
+    private Path targetsFile;
+
+    @Option(
+            names = {"--handshakes", "-n"},
+            description = "Number of timed handshakes per server",
+            defaultValue = "1",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Integer handshakes;
+
+    @Option(
+            names = {"--concurrency"},
+            description = "Max number of handshakes in flight against each server",
+            defaultValue = "1",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Integer concurrency;
+
+    @Option(
+            names = {"--max-concurrency"},
+            description = "Max number of handshakes in flight across all servers",
+            defaultValue = "" + PokeOptions.MAX_CONCURRENCY_DEFAULT,
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Integer maxConcurrency;
+
+    @Option(
+            names = {"--connect-timeout"},
+            description = "Connect timeout (ISO-8601 duration)",
+            defaultValue = "PT10S",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration connectTimeout;
+
+    @Option(
+            names = {"--read-timeout"},
+            description = "Handshake and first byte read timeout (ISO-8601 duration)",
+            defaultValue = "PT10S",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration readTimeout;
+
+    @Option(
+            names = {"--insecure"},
+            description = "Accepts any server certificate in the timed handshakes"
+    )
+    private boolean insecure;
+
+    @Option(
+            names = {"--first-byte"},
+            negatable = true,
+            defaultValue = "true",
+            description = "Sends a HEAD http request after each timed handshake and times the first response byte"
+    )
+    private boolean firstByte;
+
+    @Option(
+            names = {"--protocols"},
+            description = "Probes the TLS versions each server accepts"
+    )
+    private boolean protocols;
+
+    @Option(
+            names = {"--ciphers"},
+            description = "Probes the cipher suites each server accepts, for each TLS version"
+    )
+    private boolean ciphers;
+
     @Override
-    public Integer call() throws IOException {
-        var tlsPokeService = new TlsPokeService(this.host, this.port);
-        tlsPokeService.poke();
-        return 0;
+    public Integer call() throws IOException, InterruptedException {
+        List<ScanTarget> targets = new ArrayList<>();
+        if (this.host != null) {
+            String serverNameIndicator = Optional.ofNullable(this.sni)
+                    .filter(sni -> !sni.isBlank())
+                    .map(String::trim)
+                    .orElseGet(() -> ServerNames.defaultFor(this.host));
+            targets.add(new ScanTarget(this.host, this.port, serverNameIndicator));
+        }
+        if (this.targetsFile != null) {
+            targets.addAll(ScanTarget.readAll(this.targetsFile));
+        }
+        if (targets.isEmpty()) {
+            System.err.println("nothing to poke: give a --host and/or a --targets-file");
+            return 2;
+        }
+
+        var options = new PokeOptions(this.handshakes, this.concurrency, this.maxConcurrency, this.connectTimeout,
+                this.readTimeout, !this.insecure, this.firstByte, this.protocols, this.ciphers);
+        List<PokeResult> results = new TlsPokeService(options).poke(targets);
+
+        int failed = 0;
+        for (PokeResult result : results) {
+            print(result);
+            if (!result.allSucceeded()) {
+                failed++;
+            }
+        }
+        return failed == 0 ? 0 : 1;
+    }
+
+    private static void print(PokeResult result) {
+        System.out.printf("%s %s (%d ms): %d/%d handshakes succeeded%s%n", result.allSucceeded() ? "OK  " : "FAIL",
+                result.target(), result.elapsed().toMillis(), result.succeeded(), result.attempts(),
+                result.protocol() != null ? " " + result.protocol() + " " + result.cipherSuite() : "");
+        printLatencies("connect", result.connect());
+        printLatencies("handshake", result.handshake());
+        printLatencies("first_byte", result.firstByte());
+        result.errors().forEach((error, count) -> System.out.printf("     %dx %s%n", count, error));
+        result.acceptedCipherSuites().forEach((protocol, cipherSuites) ->
+                System.out.printf("     %-10s %s%n", protocol, String.join(",", cipherSuites)));
+    }
+
+    private static void printLatencies(String name, LatencyHistogram.Snapshot latencies) {
+        if (latencies.count() == 0) {
+            return;
+        }
+        System.out.printf("     %-10s p50=%.1fms p99=%.1fms max=%.1fms%n", name,
+                latencies.valueAtQuantile(0.5) / 1e6, latencies.valueAtQuantile(0.99) / 1e6,
+                latencies.maxNanos() / 1e6);
     }
 }
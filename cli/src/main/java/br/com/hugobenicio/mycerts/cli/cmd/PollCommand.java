@@ -0,0 +1,191 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.inventory.store.InventoryStore;
+import br.com.hugobenicio.mycerts.core.poll.EndpointPoller;
+import br.com.hugobenicio.mycerts.core.poll.PollerOptions;
+import br.com.hugobenicio.mycerts.core.scan.FleetScanner;
+import br.com.hugobenicio.mycerts.core.scan.ScanOptions;
+import br.com.hugobenicio.mycerts.core.scan.ScanResult;
+import br.com.hugobenicio.mycerts.core.scan.ScanSummary;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "poll",
+        description = "Periodically fetches the certificate chains of many servers, reporting changes and failures"
+)
+public class PollCommand implements Callable<Integer> {
+
+    @Option(
+            names = {"--targets-file", "-f"},
+            description = "File with one target per line: host[:port] [sni]",
+            required = true
+    )
+    private Path targetsFile;
+
+    @Option(
+            names = {"--interval"},
+            description = "Time between the start of two polling rounds (ISO-8601 duration)",
+            defaultValue = "PT5M",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration interval;
+
+    @Option(
+            names = {"--rounds"},
+            description = "Number of polling rounds (0 polls forever)",
+            defaultValue = "0",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Integer rounds;
+
+    @Option(
+            names = {"--concurrency"},
+            description = "Max number of handshakes in flight",
+            defaultValue = "" + ScanOptions.MAX_CONCURRENCY_DEFAULT,
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Integer concurrency;
+
+    @Option(
+            names = {"--connect-timeout"},
+            description = "Connect timeout (ISO-8601 duration)",
+            defaultValue = "PT10S",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration connectTimeout;
+
+    @Option(
+            names = {"--handshake-timeout"},
+            description = "Handshake read timeout (ISO-8601 duration)",
+            defaultValue = "PT10S",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration handshakeTimeout;
+
+    @Option(
+            names = {"--dns-ttl"},
+            description = "How long resolved addresses are reused (ISO-8601 duration)",
+            defaultValue = "PT5M",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration dnsTtl;
+
+    @Option(
+            names = {"--session-timeout"},
+            description = "How long a tls session may be resumed (ISO-8601 duration)",
+            defaultValue = "PT1H",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration sessionTimeout;
+
+    @Option(
+            names = {"--reverify-interval"},
+            description = "How often a full handshake is forced to re-verify each chain (ISO-8601 duration)",
+            defaultValue = "PT1H",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration reverifyInterval;
+
+    @Option(
+            names = {"--session-ticket-wait"},
+            description = "How long to wait for the tls 1.3 session ticket after each full handshake, so the next poll "
+                    + "can resume the session. Zero never waits (ISO-8601 duration)",
+            defaultValue = "PT0.01S",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration sessionTicketWait;
+
+    @Option(
+            names = {"--inventory"},
+            description = "Inventory directory where the fetched chains are recorded. Only changed chains are written"
+    )
+    private Path inventory;
+
+    @Override
+    public Integer call() throws IOException, InterruptedException {
+        if (this.inventory == null) {
+            return poll(null);
+        }
+        try (var store = InventoryStore.open(this.inventory)) {
+            return poll(store);
+        }
+    }
+
+    private int poll(InventoryStore store) throws IOException, InterruptedException {
+        List<ScanTarget> targets = ScanTarget.readAll(this.targetsFile);
+
+        var poller = new EndpointPoller(new PollerOptions(this.connectTimeout, this.handshakeTimeout, this.dnsTtl,
+                Math.max(PollerOptions.DNS_CACHE_SIZE_DEFAULT, targets.size()),
+                Math.max(PollerOptions.SESSION_CACHE_SIZE_DEFAULT, targets.size()),
+                this.sessionTimeout, this.reverifyInterval, this.sessionTicketWait));
+        var scanner = new FleetScanner(poller, new ScanOptions(this.concurrency,
+                ScanOptions.MAX_CONCURRENCY_PER_HOST_DEFAULT, this.connectTimeout, this.handshakeTimeout));
+
+        // results are delivered one at a time, so this needs no synchronization
+        Map<ScanTarget, Fingerprint> leaves = new HashMap<>();
+        int failedRounds = 0;
+        for (int round = 1; this.rounds == 0 || round <= this.rounds; round++) {
+            final long roundStartNanos = System.nanoTime();
+            final Instant now = Instant.now();
+
+            ScanSummary summary = scanner.scan(targets, result -> onResult(result, leaves, store, now));
+            if (store != null) {
+                store.flush();
+            }
+            if (summary.failed() > 0) {
+                failedRounds++;
+            }
+            System.out.printf("round %d: %d succeeded, %d failed in %s. %s%n",
+                    round, summary.succeeded(), summary.failed(), summary.elapsed(), poller.stats());
+
+            if (this.rounds != 0 && round == this.rounds) {
+                break;
+            }
+            long sleepNanos = this.interval.toNanos() - (System.nanoTime() - roundStartNanos);
+            if (sleepNanos > 0) {
+                Thread.sleep(Duration.ofNanos(sleepNanos));
+            }
+        }
+        return failedRounds == 0 ? 0 : 1;
+    }
+
+    private static void onResult(ScanResult result, Map<ScanTarget, Fingerprint> leaves, InventoryStore store, Instant now) {
+        if (!result.isSuccess()) {
+            System.out.printf("FAIL    %s: %s%n", result.target(), result.error());
+            return;
+        }
+
+        List<X509Certificate> chain = result.certificates();
+        Fingerprint leaf = chain.isEmpty() ? null : Fingerprint.of(chain.getFirst());
+        boolean known = leaves.containsKey(result.target());
+        Fingerprint previous = leaves.put(result.target(), leaf);
+        if (known && leaf != null && !leaf.equals(previous)) {
+            X509Certificate certificate = chain.getFirst();
+            System.out.printf("CHANGED %s: notAfter=%s subject=%s fingerprint=%s%n", result.target(),
+                    certificate.getNotAfter().toInstant(), certificate.getSubjectX500Principal().getName(), leaf);
+        }
+
+        if (store != null) {
+            var target = result.target();
+            try {
+                store.recordEndpoint(target.host(), target.port(), target.sni(), chain, now);
+            } catch (IOException e) {
+                System.err.printf("failed to record in inventory. target=%s error=\"%s\"%n", target, e.getMessage());
+            }
+        }
+    }
+}
@@ -10,12 +10,31 @@ import picocli.CommandLine.HelpCommand;
  * $ mycerts download --host=www.google.com
  * $ mycerts download --host=www.google.com --port=443
  * $ mycerts poke --host=www.google.com --port=443
+ * $ mycerts scan --targets-file=targets.txt --concurrency=512
+ * $ mycerts poll --targets-file=targets.txt --interval=PT5M
+ * $ mycerts watch --targets-file=targets.txt --rate=20
+ * $ mycerts analyze --dir=/etc/ssl
+ * $ mycerts snapshot --file=inventory.mcs --dir=/etc/ssl
+ * $ mycerts snapshot --file=inventory.mcs --expiring-within=30
+ * $ mycerts search --dir=/etc/ssl --by=san --query=.payments.example.com
+ * $ mycerts validate --dir=/etc/ssl --host=www.google.com
+ * $ mycerts diff --before=monday.mcs --after=tuesday.mcs
+ * $ mycerts export --dir=/etc/ssl --output=certs.p12 --store-password=changeit
  */
 @Command(
         name = "mycerts",
         subcommands = {
+                AnalyzeCommand.class,
+                DiffCommand.class,
                 DownloadCommand.class,
+                ExportCommand.class,
                 PokeCommand.class,
+                PollCommand.class,
+                ScanCommand.class,
+                SearchCommand.class,
+                SnapshotCommand.class,
+                ValidateCommand.class,
+                WatchCommand.class,
                 AutoComplete.GenerateCompletion.class,
                 HelpCommand.class,
         }
@@ -0,0 +1,193 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.inventory.Observation;
+import br.com.hugobenicio.mycerts.core.inventory.store.InventoryStore;
+import br.com.hugobenicio.mycerts.core.report.ReportEntry;
+import br.com.hugobenicio.mycerts.core.report.ReportSink;
+import br.com.hugobenicio.mycerts.core.scan.FleetScanner;
+import br.com.hugobenicio.mycerts.core.scan.ScanOptions;
+import br.com.hugobenicio.mycerts.core.scan.ScanResult;
+import br.com.hugobenicio.mycerts.core.scan.ScanSummary;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+import br.com.hugobenicio.mycerts.core.tls.NioTlsCertificateFetcher;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+@Command(
+        name = "scan",
+        description = "Fetches the certificate chains of many servers in parallel"
+)
+public class ScanCommand implements Callable<Integer> {
+
+    @Option(
+            names = {"--targets-file", "-f"},
+            description = "File with one target per line: host[:port] [sni]",
+            required = true
+    )
+    private Path targetsFile;
+
+    @Option(
+            names = {"--concurrency"},
+            description = "Max number of handshakes in flight",
+            defaultValue = "" + ScanOptions.MAX_CONCURRENCY_DEFAULT,
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Integer concurrency;
+
+    @Option(
+            names = {"--concurrency-per-host"},
+            description = "Max number of handshakes in flight against the same host",
+            defaultValue = "" + ScanOptions.MAX_CONCURRENCY_PER_HOST_DEFAULT,
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Integer concurrencyPerHost;
+
+    @Option(
+            names = {"--connect-timeout"},
+            description = "Connect timeout (ISO-8601 duration)",
+            defaultValue = "PT10S",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration connectTimeout;
+
+    @Option(
+            names = {"--handshake-timeout"},
+            description = "Handshake timeout (ISO-8601 duration)",
+            defaultValue = "PT10S",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration handshakeTimeout;
+
+    @Option(
+            names = {"--engine"},
+            description = "Handshake engine: ${COMPLETION-CANDIDATES}. nio multiplexes handshakes over a few selector threads and drops each connection right after the server certificates arrive",
+            defaultValue = "socket",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Engine engine;
+
+    @Option(
+            names = {"--selector-threads"},
+            description = "Number of selector threads used by the nio engine (defaults to the number of cpus)"
+    )
+    private Integer selectorThreads;
+
+    @Option(
+            names = {"--format"},
+            description = "Output format: ${COMPLETION-CANDIDATES}. jsonl and csv write one entry per certificate of each fetched chain, failures go to stderr",
+            defaultValue = "text",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private OutputFormat format;
+
+    @Option(
+            names = {"--inventory"},
+            description = "Inventory directory where the fetched chains are recorded. Only changed chains are written"
+    )
+    private Path inventory;
+
+    public enum Engine { socket, nio }
+
+    @Override
+    public Integer call() throws IOException, InterruptedException {
+        if (this.inventory == null) {
+            return scan(null);
+        }
+        try (var store = InventoryStore.open(this.inventory)) {
+            return scan(store);
+        }
+    }
+
+    private int scan(InventoryStore store) throws IOException, InterruptedException {
+        List<ScanTarget> targets = ScanTarget.readAll(this.targetsFile);
+        final Instant now = Instant.now();
+        final ReportSink sink = this.format != OutputFormat.text ? this.format.newSink(System.out) : null;
+        final var sinkError = new AtomicReference<IOException>();
+        Consumer<ScanResult> onResult = result -> {
+            if (sink == null) {
+                printResult(result);
+            } else if (sinkError.get() == null) {
+                try {
+                    writeResult(sink, result);
+                } catch (IOException e) {
+                    sinkError.set(e);
+                }
+            }
+            if (store != null && result.isSuccess()) {
+                var target = result.target();
+                try {
+                    store.recordEndpoint(target.host(), target.port(), target.sni(), result.certificates(), now);
+                } catch (IOException e) {
+                    System.err.printf("failed to record in inventory. target=%s error=\"%s\"%n", target, e.getMessage());
+                }
+            }
+        };
+
+        var options = new ScanOptions(this.concurrency, this.concurrencyPerHost, this.connectTimeout, this.handshakeTimeout);
+        final ScanSummary summary;
+        if (this.engine == Engine.nio) {
+            int threads = this.selectorThreads != null ? this.selectorThreads : Runtime.getRuntime().availableProcessors();
+            try (var fetcher = new NioTlsCertificateFetcher(threads, this.connectTimeout.plus(this.handshakeTimeout))) {
+                summary = new FleetScanner(fetcher, options).scan(targets, onResult);
+            }
+        } else {
+            summary = new FleetScanner(options).scan(targets, onResult);
+        }
+
+        if (sink != null) {
+            if (sinkError.get() != null) {
+                throw sinkError.get();
+            }
+            sink.flush();
+        }
+
+        // with machine readable formats, stdout only carries the report
+        var summaryOut = sink == null ? System.out : System.err;
+        summaryOut.printf("scanned %d target(s) in %s: %d succeeded, %d failed%n",
+                summary.total(), summary.elapsed(), summary.succeeded(), summary.failed());
+        return summary.failed() == 0 ? 0 : 1;
+    }
+
+    private static void printResult(ScanResult result) {
+        if (!result.isSuccess()) {
+            System.out.printf("FAIL %s (%d ms): %s%n", result.target(), result.elapsed().toMillis(), result.error());
+            return;
+        }
+
+        List<X509Certificate> chain = result.certificates();
+        if (chain.isEmpty()) {
+            System.out.printf("OK   %s (%d ms): no certificates%n", result.target(), result.elapsed().toMillis());
+            return;
+        }
+
+        X509Certificate leaf = chain.getFirst();
+        System.out.printf("OK   %s (%d ms): chain=%d notAfter=%s subject=%s%n",
+                result.target(), result.elapsed().toMillis(), chain.size(),
+                leaf.getNotAfter().toInstant(), leaf.getSubjectX500Principal().getName());
+    }
+
+    private static void writeResult(ReportSink sink, ScanResult result) throws IOException {
+        if (!result.isSuccess()) {
+            System.err.printf("FAIL %s (%d ms): %s%n", result.target(), result.elapsed().toMillis(), result.error());
+            return;
+        }
+
+        var target = result.target();
+        var source = CertificateSource.endpoint(target.host(), target.port(), target.sni());
+        for (X509Certificate certificate : result.certificates()) {
+            sink.write(ReportEntry.of(new Observation(certificate, source)));
+        }
+    }
+}
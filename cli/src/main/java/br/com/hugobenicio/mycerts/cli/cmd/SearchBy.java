@@ -0,0 +1,21 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.search.SearchField;
+
+/**
+ * Values of the {@code --by} option of the search command
+ */
+public enum SearchBy {
+    any, subject, issuer, san, serial, fingerprint;
+
+    public SearchField toSearchField() {
+        return switch (this) {
+            case any -> SearchField.ANY;
+            case subject -> SearchField.SUBJECT;
+            case issuer -> SearchField.ISSUER;
+            case san -> SearchField.SAN;
+            case serial -> SearchField.SERIAL;
+            case fingerprint -> SearchField.FINGERPRINT;
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
+import br.com.hugobenicio.mycerts.core.ingest.DirectoryIngestor;
+import br.com.hugobenicio.mycerts.core.ingest.FileIngestion;
+import br.com.hugobenicio.mycerts.core.ingest.IngestionResult;
+import br.com.hugobenicio.mycerts.core.report.ReportEntry;
+import br.com.hugobenicio.mycerts.core.report.ReportSink;
+import br.com.hugobenicio.mycerts.core.search.CertificateIndex;
+import br.com.hugobenicio.mycerts.core.snapshot.Snapshot;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "search",
+        description = "Searches certificates by subject, issuer, SAN, serial number or fingerprint"
+)
+public class SearchCommand implements Callable<Integer> {
+
+    @Option(
+            names = {"--query", "-q"},
+            description = "What to search for. Subject and issuer queries match words (a trailing * makes a word a "
+                    + "prefix); SAN queries match host names (*.example.com matches the wildcard certificates covering "
+                    + "it, .example.com every name under example.com); serial and fingerprint queries match hex "
+                    + "prefixes",
+            required = true
+    )
+    private String query;
+
+    @Option(
+            names = {"--by"},
+            description = "Field searched: ${COMPLETION-CANDIDATES}",
+            defaultValue = "any",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private SearchBy by;
+
+    @Option(
+            names = {"--dir", "-d"},
+            description = "Directory recursively searched for certificate files"
+    )
+    private Path dir;
+
+    @Option(
+            names = {"--snapshot"},
+            description = "Snapshot file (see the snapshot command) to search"
+    )
+    private Path snapshot;
+
+    @Option(
+            names = {"--password"},
+            description = "Password used for jks and p12 files",
+            defaultValue = "changeit",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private String password;
+
+    @Option(
+            names = {"--threads"},
+            description = "Number of threads parsing files (defaults to the number of cpus)"
+    )
+    private Integer threads;
+
+    @Option(
+            names = {"--format"},
+            description = "Output format: ${COMPLETION-CANDIDATES}",
+            defaultValue = "text",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private OutputFormat format;
+
+    @Override
+    public Integer call() throws IOException {
+        if (this.dir == null && this.snapshot == null) {
+            System.err.println("nothing to search: give a --dir and/or a --snapshot");
+            return 2;
+        }
+
+        ReportSink sink = this.format.newSink(System.out);
+        int failures = 0;
+        if (this.dir != null) {
+            failures += searchDir(sink);
+        }
+        if (this.snapshot != null) {
+            searchSnapshot(sink);
+        }
+        sink.flush();
+        return failures == 0 ? 0 : 1;
+    }
+
+    /**
+     * @return number of files that failed to load
+     */
+    private int searchDir(ReportSink sink) throws IOException {
+        int parallelism = this.threads != null ? this.threads : Runtime.getRuntime().availableProcessors();
+        IngestionResult result = new DirectoryIngestor(this.password, parallelism).ingest(this.dir);
+        for (FileIngestion failure : result.failures()) {
+            System.err.printf("failed to load file. path=\"%s\" error=\"%s\"%n", failure.path(),
+                    failure.error().getMessage());
+        }
+
+        var certificateAnalyzer = new CertificateAnalyzer();
+        certificateAnalyzer.addObservations(result.observations());
+
+        final long startNanos = System.nanoTime();
+        List<X509Certificate> matches = certificateAnalyzer.search(this.by.toSearchField(), this.query);
+        // stdout only carries the report, so it can be piped to other tools
+        System.err.printf("found %d of %d certificate(s) in %d ms (including indexing). dir=\"%s\"%n", matches.size(),
+                certificateAnalyzer.getRegistry().size(), (System.nanoTime() - startNanos) / 1_000_000, this.dir);
+
+        for (X509Certificate certificate : matches) {
+            sink.write(ReportEntry.of(certificateAnalyzer.getRegistry().get(certificate)));
+        }
+        return result.failures().size();
+    }
+
+    private void searchSnapshot(ReportSink sink) throws IOException {
+        Snapshot snapshot = Snapshot.open(this.snapshot);
+
+        final long startNanos = System.nanoTime();
+        var index = new CertificateIndex();
+        for (int id = 0; id < snapshot.size(); id++) {
+            index.add(id, snapshot.certificate(id), snapshot.fingerprint(id));
+        }
+        final long indexedNanos = System.nanoTime();
+        int[] matches = index.search(this.by.toSearchField(), this.query);
+        System.err.printf("found %d of %d certificate(s) in %d us (indexed in %d ms). snapshot=\"%s\"%n",
+                matches.length, snapshot.size(), (System.nanoTime() - indexedNanos) / 1_000,
+                (indexedNanos - startNanos) / 1_000_000, this.snapshot);
+
+        for (int id : matches) {
+            sink.write(snapshot.entry(id));
+        }
+    }
+}
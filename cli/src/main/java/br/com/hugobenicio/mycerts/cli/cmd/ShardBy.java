@@ -0,0 +1,18 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.export.ExportSharding;
+
+/**
+ * Values of the {@code --shard-by} option of commands exporting certificates
+ */
+public enum ShardBy {
+    none, issuer, expiry;
+
+    public ExportSharding toExportSharding() {
+        return switch (this) {
+            case none -> ExportSharding.NONE;
+            case issuer -> ExportSharding.ISSUER;
+            case expiry -> ExportSharding.EXPIRY;
+        };
+    }
+}
@@ -0,0 +1,237 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
+import br.com.hugobenicio.mycerts.core.LoadingCertificateException;
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryBuckets;
+import br.com.hugobenicio.mycerts.core.export.CertificateExporter;
+import br.com.hugobenicio.mycerts.core.export.ExportEntry;
+import br.com.hugobenicio.mycerts.core.export.ExportFormat;
+import br.com.hugobenicio.mycerts.core.export.ExportOptions;
+import br.com.hugobenicio.mycerts.core.export.ExportSummary;
+import br.com.hugobenicio.mycerts.core.ingest.CertificateFileLoader;
+import br.com.hugobenicio.mycerts.core.ingest.DirectoryIngestor;
+import br.com.hugobenicio.mycerts.core.ingest.FileIngestion;
+import br.com.hugobenicio.mycerts.core.ingest.IngestionResult;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.report.CertificateReports;
+import br.com.hugobenicio.mycerts.core.report.ReportSink;
+import br.com.hugobenicio.mycerts.core.snapshot.Snapshot;
+import br.com.hugobenicio.mycerts.core.snapshot.SnapshotWriter;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.IntStream;
+
+@Command(
+        name = "snapshot",
+        description = "Creates, queries and exports memory-mapped inventory snapshots"
+)
+public class SnapshotCommand implements Callable<Integer> {
+
+    @Option(
+            names = {"--file", "-f"},
+            description = "Snapshot file",
+            required = true
+    )
+    private Path file;
+
+    @Option(
+            names = {"--dir", "-d"},
+            description = "Creates (or replaces) the snapshot from the certificate files found in this directory"
+    )
+    private Path dir;
+
+    @Option(
+            names = {"--import"},
+            description = "Creates (or replaces) the snapshot from these pem, jks or p12 files",
+            split = ","
+    )
+    private List<Path> imports;
+
+    @Option(
+            names = {"--password"},
+            description = "Password used for jks and p12 files",
+            defaultValue = "changeit",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private String password;
+
+    @Option(
+            names = {"--threads"},
+            description = "Number of threads parsing files (defaults to the number of cpus)"
+    )
+    private Integer threads;
+
+    @Option(
+            names = {"--report"},
+            description = "Report kind: ${COMPLETION-CANDIDATES}",
+            defaultValue = "expiration",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private AnalyzeCommand.Report report;
+
+    @Option(
+            names = {"--expiry-buckets"},
+            description = "Comma separated \"expiring within\" bucket days of the expiration report",
+            defaultValue = "7,30,90,180",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private String expiryBuckets;
+
+    @Option(
+            names = {"--expiring-within"},
+            description = "Only reports the certificates expiring within this many days"
+    )
+    private Integer expiringWithin;
+
+    @Option(
+            names = {"--fingerprint"},
+            description = "Only reports the certificate with this SHA-256 fingerprint (hex)"
+    )
+    private String fingerprint;
+
+    @Option(
+            names = {"--format"},
+            description = "Output format of the individual report: ${COMPLETION-CANDIDATES}",
+            defaultValue = "text",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private OutputFormat format;
+
+    @Option(
+            names = {"--export"},
+            description = "Exports every certificate of the snapshot to a pem, jks or p12 file (or to one pem file "
+                    + "per certificate, when given a path without extension) instead of reporting"
+    )
+    private Path export;
+
+    @Option(
+            names = {"--shard-by"},
+            description = "Splits the export in one file per: ${COMPLETION-CANDIDATES}",
+            defaultValue = "none",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private ShardBy shardBy;
+
+    @Override
+    public Integer call() throws IOException, LoadingCertificateException {
+        int failures = 0;
+        if (this.dir != null || this.imports != null) {
+            failures = create();
+        }
+
+        final long startNanos = System.nanoTime();
+        Snapshot snapshot = Snapshot.open(this.file);
+        System.err.printf("opened snapshot with %d certificate(s) in %d ms. created_at=%s%n", snapshot.size(),
+                (System.nanoTime() - startNanos) / 1_000_000, snapshot.createdAt());
+
+        if (this.export != null) {
+            return export(snapshot) && failures == 0 ? 0 : 1;
+        } else if (this.fingerprint != null) {
+            int id = snapshot.indexOf(Fingerprint.fromHex(this.fingerprint));
+            if (id < 0) {
+                System.err.printf("certificate not found. fingerprint=%s%n", this.fingerprint);
+                return 1;
+            }
+            ReportSink sink = this.format.newSink(System.out);
+            sink.write(snapshot.entry(id));
+            sink.flush();
+        } else if (this.expiringWithin != null) {
+            PrintWriter out = bufferedStdout();
+            CertificateReports.expiringWithin(snapshot, Duration.ofDays(this.expiringWithin), Instant.now(), out);
+            out.flush();
+        } else {
+            switch (this.report) {
+                case expiration -> {
+                    PrintWriter out = bufferedStdout();
+                    ExpiryBuckets buckets = ExpiryBuckets.parse(this.expiryBuckets);
+                    CertificateReports.expiration(snapshot, buckets, Instant.now(), out);
+                    out.flush();
+                }
+                case individual -> {
+                    ReportSink sink = this.format.newSink(System.out);
+                    CertificateReports.individual(snapshot, sink);
+                    sink.flush();
+                }
+            }
+        }
+        return failures == 0 ? 0 : 1;
+    }
+
+    /**
+     * Loads the certificates and writes the snapshot
+     *
+     * @return number of files that failed to load
+     */
+    private int create() throws IOException, LoadingCertificateException {
+        var certificateAnalyzer = new CertificateAnalyzer();
+        int failures = 0;
+        if (this.dir != null) {
+            int parallelism = this.threads != null ? this.threads : Runtime.getRuntime().availableProcessors();
+            IngestionResult result = new DirectoryIngestor(this.password, parallelism).ingest(this.dir);
+            for (FileIngestion failure : result.failures()) {
+                System.err.printf("failed to load file. path=\"%s\" error=\"%s\"%n", failure.path(),
+                        failure.error().getMessage());
+                failures++;
+            }
+            certificateAnalyzer.addObservations(result.observations());
+        }
+        if (this.imports != null) {
+            var certificateFileLoader = new CertificateFileLoader();
+            char[] passwordChars = this.password.toCharArray();
+            for (Path path : this.imports) {
+                certificateAnalyzer.addObservations(certificateFileLoader.observeFile(path, passwordChars));
+            }
+        }
+
+        int written = SnapshotWriter.write(this.file, certificateAnalyzer.snapshot());
+        System.err.printf("snapshot written. path=\"%s\" certificates=%d bytes=%d%n", this.file, written,
+                Files.size(this.file));
+        return failures;
+    }
+
+    /**
+     * Streams the certificates straight from the mapped DER section: no certificate is decoded
+     *
+     * @return false if the export file extension is not supported
+     */
+    private boolean export(Snapshot snapshot) throws IOException {
+        ExportFormat exportFormat = switch (CertificateFileLoader.fileExtension(this.export)) {
+            case "pem" -> ExportFormat.PEM;
+            case "jks" -> ExportFormat.JKS;
+            case "p12" -> ExportFormat.PKCS12;
+            case "" -> ExportFormat.PEM_FILES;
+            default -> null;
+        };
+        if (exportFormat == null) {
+            System.err.printf("unsupported export file extension. path=\"%s\"%n", this.export);
+            return false;
+        }
+
+        var options = new ExportOptions(exportFormat, this.shardBy.toExportSharding(),
+                ExpiryBuckets.parse(this.expiryBuckets), this.password, Instant.now());
+        Iterator<ExportEntry> entries = IntStream.range(0, snapshot.size())
+                .mapToObj(id -> ExportEntry.of(snapshot, id))
+                .iterator();
+        ExportSummary summary = new CertificateExporter(options).export(entries, this.export);
+        System.err.printf("snapshot exported. path=\"%s\" certificates=%d files=%d%n", this.export,
+                summary.certificates(), summary.files());
+        return true;
+    }
+
+    private static PrintWriter bufferedStdout() {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024), false);
+    }
+}
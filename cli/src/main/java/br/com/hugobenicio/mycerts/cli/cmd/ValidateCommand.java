@@ -0,0 +1,183 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.LoadingCertificateException;
+import br.com.hugobenicio.mycerts.core.chain.ChainIssue;
+import br.com.hugobenicio.mycerts.core.chain.ChainValidation;
+import br.com.hugobenicio.mycerts.core.chain.ChainValidator;
+import br.com.hugobenicio.mycerts.core.chain.TrustAnchors;
+import br.com.hugobenicio.mycerts.core.chain.ValidationOptions;
+import br.com.hugobenicio.mycerts.core.ingest.DirectoryIngestor;
+import br.com.hugobenicio.mycerts.core.ingest.FileIngestion;
+import br.com.hugobenicio.mycerts.core.ingest.IngestionResult;
+import br.com.hugobenicio.mycerts.core.inventory.CertificateRegistry;
+import br.com.hugobenicio.mycerts.core.inventory.RegisteredCertificate;
+import br.com.hugobenicio.mycerts.core.tls.SocketTlsCertificateFetcher;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "validate",
+        description = "Builds and validates the chains of the leaf certificates found in files or presented by a server"
+)
+public class ValidateCommand implements Callable<Integer> {
+
+    @Option(
+            names = {"--dir", "-d"},
+            description = "Directory recursively searched for certificate files. Its CAs are used as intermediates"
+    )
+    private Path dir;
+
+    @Option(
+            names = {"--password"},
+            description = "Password used for jks and p12 files",
+            defaultValue = "changeit",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private String password;
+
+    @Option(
+            names = {"--threads"},
+            description = "Number of threads parsing files (defaults to the number of cpus)"
+    )
+    private Integer threads;
+
+    @Option(
+            names = {"--host"},
+            description = "Also validates the chain presented by this server"
+    )
+    private String host;
+
+    @Option(
+            names = {"--port"},
+            description = "The server's port",
+            defaultValue = "443",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Integer port;
+
+    @Option(
+            names = {"--sni"},
+            description = "Server Name Indication (SNI). Defaults to the host"
+    )
+    private String sni;
+
+    @Option(
+            names = {"--trust-store"},
+            description = "pem, jks or p12 file with the trust anchors (defaults to the JVM ones)"
+    )
+    private Path trustStore;
+
+    @Option(
+            names = {"--trust-store-password"},
+            description = "Password of the jks or p12 trust store",
+            defaultValue = "changeit",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private String trustStorePassword;
+
+    @Option(
+            names = {"--weak-algorithms"},
+            description = "Comma separated digests of signature algorithms flagged as weak",
+            defaultValue = "MD2,MD5,SHA1",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS,
+            split = ","
+    )
+    private Set<String> weakAlgorithms;
+
+    @Option(
+            names = {"--all"},
+            description = "Also lists the valid chains (by default, only the ones with issues)"
+    )
+    private boolean all;
+
+    @Override
+    public Integer call() throws IOException, LoadingCertificateException {
+        if (this.dir == null && this.host == null) {
+            System.err.println("either --dir or --host must be given");
+            return 2;
+        }
+
+        TrustAnchors trustAnchors = this.trustStore != null
+                ? TrustAnchors.load(this.trustStore, this.trustStorePassword.toCharArray())
+                : TrustAnchors.jdkDefault();
+        var options = new ValidationOptions(this.weakAlgorithms, ValidationOptions.MAX_DEPTH_DEFAULT);
+        var validator = new ChainValidator(trustAnchors, options);
+
+        boolean failures = false;
+        var registry = new CertificateRegistry();
+        if (this.dir != null) {
+            int parallelism = this.threads != null ? this.threads : Runtime.getRuntime().availableProcessors();
+            IngestionResult result = new DirectoryIngestor(this.password, parallelism).ingest(this.dir);
+            for (FileIngestion failure : result.failures()) {
+                System.err.printf("failed to load file. path=\"%s\" error=\"%s\"%n", failure.path(),
+                        failure.error().getMessage());
+                failures = true;
+            }
+            for (var observation : result.observations()) {
+                registry.register(observation);
+            }
+            validator.addIntermediates(registry.entries().stream().map(RegisteredCertificate::certificate).toList());
+        }
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024), false);
+        Instant now = Instant.now();
+        int validated = 0;
+        int invalid = 0;
+        for (RegisteredCertificate registered : registry.entries()) {
+            if (!ChainValidator.isLeaf(registered.certificate())) {
+                continue;
+            }
+            ChainValidation validation = validator.validate(registered.certificate(), registered.fingerprint(), now);
+            validated++;
+            if (!validation.isValid()) {
+                invalid++;
+            }
+            print(out, registered.sources().isEmpty() ? null : registered.sources().getFirst().toString(), validation);
+        }
+
+        if (this.host != null) {
+            String serverName = this.sni != null ? this.sni : this.host;
+            X509Certificate[] presented = new SocketTlsCertificateFetcher().fetch(this.host, this.port, serverName);
+            if (presented.length == 0) {
+                System.err.printf("server presented no certificates. host=%s port=%d%n", this.host, this.port);
+                failures = true;
+            } else {
+                ChainValidation validation = validator.validateChain(List.of(presented), now);
+                validated++;
+                if (!validation.isValid()) {
+                    invalid++;
+                }
+                print(out, "endpoint:" + this.host + ":" + this.port + "#" + serverName, validation);
+            }
+        }
+
+        out.printf("validated %d chain(s): %d valid, %d with issues (%d signature verification(s), %d memoized)%n",
+                validated, validated - invalid, invalid, validator.signatureVerifications(),
+                validator.memoizedVerifications());
+        out.flush();
+        return failures || invalid > 0 ? 1 : 0;
+    }
+
+    private void print(PrintWriter out, String source, ChainValidation validation) {
+        if (validation.isValid() && !this.all) {
+            return;
+        }
+        out.printf("%s %s%s%n", validation.isValid() ? "OK  " : "FAIL",
+                validation.leaf().getSubjectX500Principal().getName(), source != null ? " @ " + source : "");
+        for (ChainIssue issue : validation.issues()) {
+            out.printf("    %s%n", issue);
+        }
+    }
+}
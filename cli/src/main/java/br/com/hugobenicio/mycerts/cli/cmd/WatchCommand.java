@@ -0,0 +1,189 @@
+package br.com.hugobenicio.mycerts.cli.cmd;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.inventory.store.InventoryStore;
+import br.com.hugobenicio.mycerts.core.poll.EndpointPoller;
+import br.com.hugobenicio.mycerts.core.poll.PollerOptions;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+import br.com.hugobenicio.mycerts.core.watch.WatchEvent;
+import br.com.hugobenicio.mycerts.core.watch.WatchOptions;
+import br.com.hugobenicio.mycerts.core.watch.Watcher;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@Command(
+        name = "watch",
+        description = "Keeps checking the certificate chains of many servers, more often the closer they are to expiry"
+)
+public class WatchCommand implements Callable<Integer> {
+
+    @Option(
+            names = {"--targets-file", "-f"},
+            description = "File with one target per line: host[:port] [sni]",
+            required = true
+    )
+    private Path targetsFile;
+
+    @Option(
+            names = {"--check-interval"},
+            description = "Time between two checks of a healthy server (ISO-8601 duration)",
+            defaultValue = "PT6H",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration checkInterval;
+
+    @Option(
+            names = {"--min-interval"},
+            description = "Shortest time between two checks of the same server (ISO-8601 duration)",
+            defaultValue = "PT5M",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration minInterval;
+
+    @Option(
+            names = {"--expiry-window"},
+            description = "Servers whose certificate expires within this number of days are checked more often",
+            defaultValue = "30",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Integer expiryWindow;
+
+    @Option(
+            names = {"--max-backoff"},
+            description = "Longest time between two checks of an unreachable server (ISO-8601 duration)",
+            defaultValue = "PT6H",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration maxBackoff;
+
+    @Option(
+            names = {"--rate"},
+            description = "Max number of checks started per second",
+            defaultValue = "" + WatchOptions.CHECKS_PER_SECOND_DEFAULT,
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Double rate;
+
+    @Option(
+            names = {"--concurrency"},
+            description = "Max number of checks in flight",
+            defaultValue = "" + WatchOptions.MAX_CONCURRENCY_DEFAULT,
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Integer concurrency;
+
+    @Option(
+            names = {"--connect-timeout"},
+            description = "Connect timeout (ISO-8601 duration)",
+            defaultValue = "PT10S",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration connectTimeout;
+
+    @Option(
+            names = {"--handshake-timeout"},
+            description = "Handshake read timeout (ISO-8601 duration)",
+            defaultValue = "PT10S",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS
+    )
+    private Duration handshakeTimeout;
+
+    @Option(
+            names = {"--inventory"},
+            description = "Inventory directory where the fetched chains are recorded. Only changed chains are written"
+    )
+    private Path inventory;
+
+    @Override
+    public Integer call() throws IOException, InterruptedException {
+        // counted down once the watcher and the store are closed, for the shutdown hook to wait for
+        var stopped = new CountDownLatch(1);
+        try {
+            if (this.inventory == null) {
+                watch(null, stopped);
+                return 0;
+            }
+            try (var store = InventoryStore.open(this.inventory)) {
+                watch(store, stopped);
+                return 0;
+            }
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    private void watch(InventoryStore store, CountDownLatch stopped) throws IOException, InterruptedException {
+        List<ScanTarget> targets = ScanTarget.readAll(this.targetsFile);
+
+        var poller = new EndpointPoller(new PollerOptions(this.connectTimeout, this.handshakeTimeout,
+                PollerOptions.DNS_TTL_DEFAULT, Math.max(PollerOptions.DNS_CACHE_SIZE_DEFAULT, targets.size()),
+                Math.max(PollerOptions.SESSION_CACHE_SIZE_DEFAULT, targets.size()),
+                PollerOptions.SESSION_TIMEOUT_DEFAULT, PollerOptions.REVERIFY_INTERVAL_DEFAULT,
+                PollerOptions.SESSION_TICKET_WAIT_DEFAULT));
+        var options = new WatchOptions(this.checkInterval, this.minInterval, Duration.ofDays(this.expiryWindow),
+                this.maxBackoff, this.rate, this.concurrency);
+
+        try (var watcher = new Watcher(poller, options)) {
+            targets.forEach(watcher::add);
+
+            // on ctrl+c, let the checks in flight finish so their results get recorded. Not joining the main thread:
+            // it may be the one blocked in System.exit, waiting for this hook
+            Thread shutdownHook = new Thread(() -> {
+                watcher.close();
+                try {
+                    stopped.await(this.handshakeTimeout.plus(this.connectTimeout).toMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+            watcher.run(event -> onEvent(event, options, store));
+        }
+    }
+
+    private static void onEvent(WatchEvent event, WatchOptions options, InventoryStore store) {
+        ScanTarget target = event.target();
+        if (!event.result().isSuccess()) {
+            System.out.printf("FAIL     %s: %s (failures=%d next_check=%s)%n", target, event.result().error(),
+                    event.consecutiveFailures(), event.nextCheck());
+            return;
+        }
+
+        X509Certificate leaf = event.leaf();
+        if (leaf != null) {
+            Instant notAfter = leaf.getNotAfter().toInstant();
+            if (event.changed()) {
+                System.out.printf("CHANGED  %s: notAfter=%s subject=%s fingerprint=%s%n", target, notAfter,
+                        leaf.getSubjectX500Principal().getName(), Fingerprint.of(leaf));
+            }
+            boolean expiringSoon = notAfter.isBefore(Instant.now().plus(options.expiryWindow()));
+            if (expiringSoon && (event.firstCheck() || event.changed())) {
+                System.out.printf("EXPIRING %s: notAfter=%s subject=%s next_check=%s%n", target, notAfter,
+                        leaf.getSubjectX500Principal().getName(), event.nextCheck());
+            }
+        }
+
+        if (store != null) {
+            try {
+                if (store.recordEndpoint(target.host(), target.port(), target.sni(), event.result().certificates(),
+                        Instant.now())) {
+                    store.flush();
+                }
+            } catch (IOException e) {
+                System.err.printf("failed to record in inventory. target=%s error=\"%s\"%n", target, e.getMessage());
+            }
+        }
+    }
+}
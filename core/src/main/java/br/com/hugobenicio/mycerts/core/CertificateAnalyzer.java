@@ -1,27 +1,49 @@
 package br.com.hugobenicio.mycerts.core;
 
-import br.com.hugobenicio.mycerts.core.pem.PemBlock;
-import br.com.hugobenicio.mycerts.core.pem.PemSplitter;
-import br.com.hugobenicio.mycerts.core.tls.InsecureX509TrustManager;
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryBuckets;
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryIndex;
+import br.com.hugobenicio.mycerts.core.expiry.SoonestExpiring;
+import br.com.hugobenicio.mycerts.core.export.CertificateExporter;
+import br.com.hugobenicio.mycerts.core.export.ExportEntry;
+import br.com.hugobenicio.mycerts.core.export.ExportFormat;
+import br.com.hugobenicio.mycerts.core.export.ExportOptions;
+import br.com.hugobenicio.mycerts.core.export.ExportSummary;
+import br.com.hugobenicio.mycerts.core.ingest.CertificateFileLoader;
+import br.com.hugobenicio.mycerts.core.inventory.CertificateRegistry;
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.inventory.Observation;
+import br.com.hugobenicio.mycerts.core.inventory.RegisteredCertificate;
+import br.com.hugobenicio.mycerts.core.report.CertificateReports;
+import br.com.hugobenicio.mycerts.core.report.CertificateSet;
+import br.com.hugobenicio.mycerts.core.report.ReportEntry;
+import br.com.hugobenicio.mycerts.core.report.ReportSink;
+import br.com.hugobenicio.mycerts.core.report.TextReportSink;
+import br.com.hugobenicio.mycerts.core.search.CertificateIndex;
+import br.com.hugobenicio.mycerts.core.search.SearchField;
+import br.com.hugobenicio.mycerts.core.tls.SocketTlsCertificateFetcher;
+import br.com.hugobenicio.mycerts.core.tls.TlsCertificateFetcher;
+import br.com.hugobenicio.mycerts.core.utils.LongIntArrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.net.ssl.*;
 import java.io.*;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.*;
-import java.security.cert.Certificate;
-import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 import static java.lang.String.format;
 
+/**
+ * Convenience facade for the commands: accumulates certificates from files, key stores and remote servers (deduplicated
+ * by a {@link CertificateRegistry}) and reports on them.
+ *
+ * <p>Not thread-safe: it's a per-command accumulator. The services it delegates to are stateless and can be shared by
+ * any number of threads instead: {@link CertificateFileLoader}, {@link TlsCertificateFetcher} and
+ * {@link CertificateReports} (over an immutable {@link CertificateSet}, see {@link #snapshot()}).
+ */
 public class CertificateAnalyzer {
 
     private static final Logger log = LoggerFactory.getLogger(CertificateAnalyzer.class);
@@ -29,57 +51,34 @@ public class CertificateAnalyzer {
     public static final List<String> SUPPORTED_FILE_EXTENSIONS = List.of( "pem", "jks", "p12");
 
     /**
-     * Insecure TLS Socket Factory
+     * Fetches the certificates presented by remote servers
      */
-    private final SSLSocketFactory sslSocketFactory = createSslSocketFactory();
-    private static SSLSocketFactory createSslSocketFactory() {
-        try {
-            SSLContext insecureTlsContext = SSLContext.getInstance("TLS");
-
-            //NOTE(security): we intentionally use an insecure trust manager here because we're interested in analyzing
-            //                server's certificates even if we do not have a preset trusted cert chain.
-            insecureTlsContext.init(null, InsecureX509TrustManager.newTrustManagers(), new SecureRandom());
-
-            return insecureTlsContext.getSocketFactory();
-
-        } catch (NoSuchAlgorithmException | KeyManagementException e) {
-            throw new AssertionError(e);
-        }
-    }
+    private final TlsCertificateFetcher tlsCertificateFetcher = new SocketTlsCertificateFetcher();
 
     /**
-     * Certificate factory used to generate X509 Certificates
+     * Parses certificates out of files and key stores
      */
-    private final CertificateFactory x509CertificateFactory = createX509CertificateFactory();
-    private static CertificateFactory createX509CertificateFactory() {
-        try {
-            return CertificateFactory.getInstance("X.509");
-        } catch (Exception e) {
-            throw new AssertionError(e);
-        }
-    }
+    private final CertificateFileLoader certificateFileLoader = new CertificateFileLoader();
 
-    private final KeyStore jksKeyStore = createJksKeyStore();
-    private static KeyStore createJksKeyStore() {
-        try {
-            return KeyStore.getInstance("JKS");
-        } catch (KeyStoreException e) {
-            throw new AssertionError(e);
-        }
-    }
+    /**
+     * Deduplicates loaded certificates and keeps track of where they were found
+     */
+    private final CertificateRegistry registry = new CertificateRegistry();
 
-    private final KeyStore p12KeyStore = createP12KeyStore();
-    private static KeyStore createP12KeyStore() {
-        try {
-            return KeyStore.getInstance("PKCS12");
-        } catch (KeyStoreException e) {
-            throw new AssertionError(e);
-        }
-    }
+    /**
+     * Unique certificates (canonical instances from the registry)
+     */
+    private final List<X509Certificate> certificates = new ArrayList<>();
 
-    private final PemSplitter pemSplitter = new PemSplitter();
+    /**
+     * Unique certificates in the order they were added (their position is their search index id)
+     */
+    private final List<X509Certificate> added = new ArrayList<>();
 
-    private final List<X509Certificate> certificates = new ArrayList<>();
+    /**
+     * Built by the first search, then kept up to date with the certificates added since by the next ones
+     */
+    private final CertificateIndex searchIndex = new CertificateIndex();
 
     public CertificateAnalyzer() {
     }
@@ -108,40 +107,12 @@ public class CertificateAnalyzer {
     public void loadCertificatesFromRemoteServer(String host, int port, String tlsSniServerName)
             throws LoadingCertificateException {
 
-        log.atDebug().setMessage("creating socket to server..")
-                .addKeyValue("host", host)
-                .addKeyValue("port", port)
-                .log();
-        try (var sslSocket = (SSLSocket) sslSocketFactory.createSocket(host, port)) {
-            log.atDebug().setMessage("socket created")
-                    .addKeyValue("host", host)
-                    .addKeyValue("port", port)
-                    .log();
-
-            // sets the Server Name Indication (SNI) TLS Extension
-            var sslParams = new SSLParameters();
-            sslParams.setServerNames(List.of(new SNIHostName(tlsSniServerName)));
-            sslSocket.setSSLParameters(sslParams);
-
-            log.atDebug().setMessage("performing tls handshake with the server..")
-                    .addKeyValue("host", host)
-                    .addKeyValue("port", port)
-                    .addKeyValue("sni", tlsSniServerName)
-                    .log();
-            sslSocket.startHandshake();
-
-            log.atDebug().setMessage("tls handshake success")
-                    .addKeyValue("host", host)
-                    .addKeyValue("port", port)
-                    .addKeyValue("sni", tlsSniServerName)
-                    .log();
-
-            var peerCertificates = (X509Certificate[]) sslSocket.getSession().getPeerCertificates();
-            log.atDebug().setMessage("session cipher suite")
-                .addKeyValue("cipher", sslSocket.getSession().getCipherSuite())
-                .log();
-
-            Collections.addAll(this.certificates, peerCertificates);
+        try {
+            X509Certificate[] peerCertificates = tlsCertificateFetcher.fetch(host, port, tlsSniServerName);
+            var source = CertificateSource.endpoint(host, port, tlsSniServerName);
+            for (var certificate : peerCertificates) {
+                add(certificate, source);
+            }
 
         } catch (IOException e) {
             var msg = format("failed to load certificates from server. host=%s port=%d server_name=%s",
@@ -157,212 +128,233 @@ public class CertificateAnalyzer {
      * @throws LoadingCertificateException if anything fails
      */
     public void loadCertificatesFromPemFile(Path pemFilePath) throws LoadingCertificateException {
-        final String fileContents;
-        try {
-            fileContents = Files.readString(pemFilePath);
-        } catch (IOException e) {
-            var msg = format("Failed to load certificates from file. path=\"%s\"", pemFilePath.getFileName());
-            throw new LoadingCertificateException(msg, e);
+        var source = CertificateSource.file(pemFilePath, null);
+        for (var certificate : certificateFileLoader.loadPemFile(pemFilePath)) {
+            add(certificate, source);
         }
+    }
 
-        List<PemBlock> pemBlocks = this.pemSplitter.split(fileContents);
-        for (var block: pemBlocks) {
-            String pemType = block.name();
-            if ("PKCS7".equalsIgnoreCase(pemType)) {
-                log.warn("pkcs7 blocks inside pem files are not supported atm. ignoring it for now");
-                continue;
-            }
+    /**
+     * Loads the certificates of a jks key store, recording the alias of each one
+     */
+    public void loadCertificatesFromJksInputStream(InputStream is, String password)
+            throws LoadingCertificateException {
+        loadCertificatesFromJksInputStream(is, null, password);
+    }
 
-            if (!"CERTIFICATE".equalsIgnoreCase(pemType)) {
-                log.warn("unsupported block inside pem file. type={}", pemType);
-                continue;
-            }
+    /**
+     * Loads the certificates of a jks key store, recording the location and the alias of each one
+     *
+     * @param location the key store file (null if unknown)
+     */
+    public void loadCertificatesFromJksInputStream(InputStream is, Path location, String password)
+            throws LoadingCertificateException {
+        char[] passwordBytes = Optional.ofNullable(password).map(String::toCharArray).orElse(null);
+        addObservations(certificateFileLoader.observeJksInputStream(is, passwordBytes,
+                location != null ? location.toString() : null));
+    }
 
-            byte[] pemBytes = block.fullData().getBytes();
-            try (InputStream is = new ByteArrayInputStream(pemBytes)) {
-                var crt = (X509Certificate) x509CertificateFactory.generateCertificate(is);
-                this.certificates.add(crt);
-            } catch (IOException | CertificateException e) {
-                throw new RuntimeException(e);
-            }
-        }
+    /**
+     * Loads the certificates of a p12 key store, recording the alias of each one
+     */
+    public void loadCertificatesFromP12InputStream(InputStream is, String password)
+            throws LoadingCertificateException {
+        loadCertificatesFromP12InputStream(is, null, password);
     }
 
-    public void loadCertificatesFromJksInputStream(InputStream is, String password) throws LoadingCertificateException {
+    /**
+     * Loads the certificates of a p12 key store, recording the location and the alias of each one
+     *
+     * @param location the key store file (null if unknown)
+     */
+    public void loadCertificatesFromP12InputStream(InputStream is, Path location, String password)
+            throws LoadingCertificateException {
         char[] passwordBytes = Optional.ofNullable(password).map(String::toCharArray).orElse(null);
-        loadCertificatesFromJksOrP12InputStream(jksKeyStore, is, passwordBytes);
+        addObservations(certificateFileLoader.observeP12InputStream(is, passwordBytes,
+                location != null ? location.toString() : null));
     }
 
-    public void loadCertificatesFromP12InputStream(InputStream is, String password) throws LoadingCertificateException {
-        char[] passwordBytes = Optional.ofNullable(password).map(String::toCharArray).orElse(null);
-        loadCertificatesFromJksOrP12InputStream(p12KeyStore, is, passwordBytes);
+    /**
+     * Adds certificates loaded elsewhere, without provenance
+     */
+    public void addCertificates(Collection<? extends X509Certificate> certificates) {
+        for (var certificate : certificates) {
+            add(certificate, null);
+        }
     }
 
-    private void loadCertificatesFromJksOrP12InputStream(KeyStore ks, InputStream is, char[] password) throws LoadingCertificateException {
-        try {
-            ks.load(is, password);
-
-            // iterating over all jks entries
-            for (var aliases = ks.aliases(); aliases.hasMoreElements(); ) {
-                String alias = aliases.nextElement();
-                Certificate certificate = ks.getCertificate(alias);
-                if (!(certificate instanceof X509Certificate)) {
-                    log.warn("ignoring certificate with alias \"{}\" because it doesn't seems to be a X509 certificate", alias);
-                    continue;
-                }
-                certificates.add((X509Certificate) certificate);
-            }
-        } catch (KeyStoreException | CertificateException | IOException | NoSuchAlgorithmException e) {
-            throw new LoadingCertificateException("Failed to load certificates from file", e);
+    /**
+     * Adds certificates loaded elsewhere (e.g. by a {@link br.com.hugobenicio.mycerts.core.ingest.DirectoryIngestor})
+     */
+    public void addObservations(Collection<Observation> observations) {
+        for (var observation : observations) {
+            add(observation.certificate(), observation.source());
+        }
+    }
+
+    private void add(X509Certificate certificate, CertificateSource source) {
+        if (registry.add(certificate, source)) {
+            this.certificates.add(certificate);
+            this.added.add(certificate);
         }
     }
 
     /**
-     * Sorts the loaded certificates by increasing NotAfter date (expires sooner first)
+     * Sorts the loaded certificates by increasing NotAfter date (expires sooner first). Certificates expiring at the
+     * same time keep their order.
+     *
+     * <p>Dates are read once per certificate into primitive keys ({@code getNotAfter()} clones a {@code Date}) and
+     * big lists are sorted in parallel.
      */
     public void sortCertificatesByNotAfterDateAscending() {
-        this.certificates.sort((c1, c2) -> {
-            Date c1NotAfter = c1.getNotAfter();
-            Date c2NotAfter = c2.getNotAfter();
-
-            // if c1 has expiration date older than the c2 expiration date
-            if (c1NotAfter.before(c2NotAfter)) {
-                return -1;
-            }
+        int size = this.certificates.size();
+        long[] notAfters = new long[size];
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            notAfters[i] = this.certificates.get(i).getNotAfter().getTime();
+            order[i] = i;
+        }
+        LongIntArrays.parallelSort(notAfters, order, 0, size);
 
-            // if c1 has expiration date newer than the c2 expiration date
-            if (c1NotAfter.after(c2NotAfter)) {
-                return 1;
-            }
+        var sorted = new X509Certificate[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = this.certificates.get(order[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            this.certificates.set(i, sorted[i]);
+        }
+    }
 
-            return 0;
-        });
+    /**
+     * The loaded certificates expiring sooner, without sorting all of them
+     *
+     * @return at most {@code limit} certificates, expiring sooner first
+     */
+    public List<X509Certificate> soonestExpiring(int limit) {
+        var selection = new SoonestExpiring<X509Certificate>(limit);
+        for (var certificate : this.certificates) {
+            selection.offer(certificate, certificate.getNotAfter().getTime());
+        }
+        return selection.toList();
     }
 
     public void individualReport() {
-        for (int i = 0; i < certificates.size(); i++) {
-            X509Certificate certificate = certificates.get(i);
+        var sink = new TextReportSink(new OutputStreamWriter(System.out));
+        try {
+            individualReport(sink);
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            Date notAfter = certificate.getNotAfter();
-            String name = certificate.getSubjectX500Principal().getName();
+    /**
+     * Writes every loaded certificate, in the current order, with its provenance
+     */
+    public void individualReport(ReportSink sink) throws IOException {
+        CertificateReports.individual(snapshot(), sink);
+    }
 
-            System.out.printf("Certificate #%d:%n", i+1);
-            System.out.printf("  Name: %s%n", name);
-            System.out.printf("  NotAfter: %s%n", notAfter);
-            System.out.println();
-        }
+    /**
+     * Just a simple and practical stdout report of the loaded certificates, using the default buckets
+     */
+    public void expirationReport() {
+        expirationReport(ExpiryBuckets.DEFAULT);
     }
 
     /**
      * Just a simple and practical stdout report of the loaded certificates
+     *
+     * @param buckets the "expiring within" buckets
      */
-    public void expirationReport() {
+    public void expirationReport(ExpiryBuckets buckets) {
         log.info("analyzing {} certificates(s) for expiration report..", certificates.size());
 
-        List<X509Certificate> expiredCertificates = new ArrayList<>();
-        List<X509Certificate> expiringWithin7Days = new ArrayList<>();
-        List<X509Certificate> expiringWithin30Days = new ArrayList<>();
-        List<X509Certificate> expiringWithin90Days = new ArrayList<>();
-        List<X509Certificate> expiringWithin180Days = new ArrayList<>();
-        List<X509Certificate> notExpiringSoon = new ArrayList<>();
-
-        Instant now = Instant.now();
-        Instant ahead7Days = now.plus(7, ChronoUnit.DAYS);
-        Instant ahead30Days = now.plus(30, ChronoUnit.DAYS);
-        Instant ahead90Days = now.plus(90, ChronoUnit.DAYS);
-        Instant ahead180Days = now.plus(180, ChronoUnit.DAYS);
-
-        for (var certificate: certificates) {
-            Date notAfter = certificate.getNotAfter();
-            Instant notAfterInstant = notAfter.toInstant();
-
-            if (notAfterInstant.isBefore(now)) {
-                expiredCertificates.add(certificate);
-                continue;
-            }
-
-            if (notAfterInstant.isBefore(ahead7Days)) {
-                expiringWithin7Days.add(certificate);
-                continue;
-            }
-
-            if (notAfterInstant.isBefore(ahead30Days)) {
-                expiringWithin30Days.add(certificate);
-                continue;
-            }
+        PrintWriter out = bufferedStdout();
+        CertificateReports.expiration(snapshot(), buckets, Instant.now(), out);
+        out.flush();
 
-            if (notAfterInstant.isBefore(ahead90Days)) {
-                expiringWithin90Days.add(certificate);
-                continue;
-            }
+        log.info("expiration report done");
+    }
 
-            if (notAfterInstant.isBefore(ahead180Days)) {
-                expiringWithin180Days.add(certificate);
-                continue;
-            }
+    /**
+     * Stdout report of the certificates not expired yet but expiring within the given window, sooner first
+     */
+    public void expiringWithinReport(Duration window) {
+        PrintWriter out = bufferedStdout();
+        CertificateReports.expiringWithin(snapshot(), window, Instant.now(), out);
+        out.flush();
+    }
 
-            notExpiringSoon.add(certificate);
+    /**
+     * @return an immutable copy of the loaded certificates (in the current order) and their provenance, which can be
+     * handed to other threads
+     */
+    public CertificateSet snapshot() {
+        List<ReportEntry> entries = new ArrayList<>(certificates.size());
+        for (var certificate : certificates) {
+            RegisteredCertificate entry = registry.get(certificate);
+            entries.add(entry != null ? ReportEntry.of(entry) : ReportEntry.of(certificate));
         }
+        return new CertificateSet(entries);
+    }
 
-        System.out.println("Expiration Report:");
-        System.out.printf("    Expired count: %d%n", expiredCertificates.size());
-        expirationReportDetails(expiredCertificates, now);
-        System.out.printf("    Expiring within next   7 days count: %d%n", expiringWithin7Days.size());
-        expirationReportDetails(expiringWithin7Days, now);
-        System.out.printf("    Expiring within next  30 days count: %d%n", expiringWithin30Days.size());
-        expirationReportDetails(expiringWithin30Days, now);
-        System.out.printf("    Expiring within next  90 days count: %d%n", expiringWithin90Days.size());
-        expirationReportDetails(expiringWithin90Days, now);
-        System.out.printf("    Expiring within next 180 days count: %d%n", expiringWithin180Days.size());
-        expirationReportDetails(expiringWithin180Days, now);
-        System.out.printf("    Not expiring soon count............: %d%n", notExpiringSoon.size());
-        expirationReportDetails(notExpiringSoon, now);
+    /**
+     * Indexes the loaded certificates by expiration date. Ids are positions in {@link #getCertificates()}, so the
+     * index must be rebuilt after adding or sorting certificates.
+     */
+    public ExpiryIndex buildExpiryIndex() {
+        long[] notAfters = new long[certificates.size()];
+        for (int i = 0; i < notAfters.length; i++) {
+            notAfters[i] = certificates.get(i).getNotAfter().getTime() / 1000;
+        }
+        return ExpiryIndex.of(notAfters);
+    }
 
-        log.info("expiration report done");
+    /**
+     * Searches the loaded certificates (see {@link SearchField} for the query syntax)
+     *
+     * @return the matching certificates, in the order they were added
+     */
+    public List<X509Certificate> search(SearchField field, String query) {
+        for (int id = searchIndex.size(); id < added.size(); id++) {
+            searchIndex.add(id, added.get(id));
+        }
+        int[] ids = searchIndex.search(field, query);
+        List<X509Certificate> matches = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            matches.add(added.get(id));
+        }
+        return matches;
     }
 
     public void saveCertsToFile(File outputFile, String password) throws IOException {
-        //TODO check if file already exists (error if it does)
-        char[] passwordCharArray = password.toCharArray();
-        try {
-            // creates a new keystore for the giving password
-            KeyStore ks = KeyStore.getInstance(KeyStore.getDefaultType());
-            ks.load(null, passwordCharArray);
-
-            // import all loaded certificates into it
-            for (var certificate: this.certificates) {
-                String entryName = certificate.getSubjectX500Principal().getName();
-                ks.setCertificateEntry( entryName, certificate);
-            }
-
-            // save it to the giving file
-            try (var fos = new FileOutputStream(outputFile)) {
-                try {
-                    ks.store(fos, passwordCharArray);
-                } catch (KeyStoreException e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        } catch (KeyStoreException | NoSuchAlgorithmException | CertificateException e) {
-            throw new RuntimeException(e);
-        }
+        saveCertsToFile(outputFile, password, KeyStore.getDefaultType());
     }
 
-    private void expirationReportDetails(List<X509Certificate> certificates, Instant now) {
-        for (final var certificate: certificates) {
-            String name = certificate.getSubjectX500Principal().getName();
-            Instant notAfterInstant = certificate.getNotAfter().toInstant();
-            var expirationDuration = Duration.between(now, notAfterInstant);
+    /**
+     * Saves the loaded certificates, once each, as trusted certificate entries of a new key store
+     *
+     * @param keyStoreType "JKS" or "PKCS12"
+     */
+    public void saveCertsToFile(File outputFile, String password, String keyStoreType) throws IOException {
+        //TODO check if file already exists (error if it does)
+        export(outputFile.toPath(), ExportOptions.of(ExportFormat.ofKeyStoreType(keyStoreType), password));
+    }
 
-            final String pronoun = expirationDuration.isNegative() ? "since" : "in";
-            expirationDuration = expirationDuration.abs();
+    /**
+     * Exports the loaded certificates, in the current order (see {@link CertificateExporter})
+     */
+    public ExportSummary export(Path target, ExportOptions options) throws IOException {
+        return new CertificateExporter(options).export(certificates.stream().map(ExportEntry::of).iterator(), target);
+    }
 
-            var expirationDays = expirationDuration.toDaysPart();
-            var expirationMinutes = expirationDuration.toMinutesPart();
-            var expirationSeconds = expirationDuration.toSecondsPart();
-            var expirationMsg = format("%s %d days, %d minutes, %d seconds", pronoun, expirationDays, expirationMinutes, expirationSeconds);
-            System.out.printf("        %s (%s): %s%n", notAfterInstant, expirationMsg, name);
-        }
+    /**
+     * Reports write a lot of small lines: buffering them avoids paying the synchronized stdout cost per line.
+     * Callers must flush (not close) it.
+     */
+    private static PrintWriter bufferedStdout() {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024), false);
     }
 
     public static boolean isFileExtensionSupported(String fileExtension) {
@@ -372,4 +364,8 @@ public class CertificateAnalyzer {
     public List<X509Certificate> getCertificates() {
         return certificates;
     }
+
+    public CertificateRegistry getRegistry() {
+        return registry;
+    }
 }
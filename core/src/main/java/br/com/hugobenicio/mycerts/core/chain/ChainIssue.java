@@ -0,0 +1,58 @@
+package br.com.hugobenicio.mycerts.core.chain;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+
+/**
+ * A problem found while building or validating a chain.
+ *
+ * @param kind the kind of problem
+ * @param certificate the certificate the problem is about
+ * @param subject its subject name
+ * @param detail human readable details
+ */
+public record ChainIssue(Kind kind, Fingerprint certificate, String subject, String detail) {
+
+    public enum Kind {
+        /**
+         * No issuer found for a certificate, neither among the presented certificates nor in the inventory or the
+         * trust anchors
+         */
+        MISSING_ISSUER,
+        /**
+         * The server didn't present an intermediate, which was found in the inventory instead
+         */
+        MISSING_INTERMEDIATE,
+        /**
+         * The server presented its chain out of order (each certificate should be followed by its issuer)
+         */
+        WRONG_ORDER,
+        EXPIRED,
+        NOT_YET_VALID,
+        /**
+         * Signed with an algorithm considered weak (see {@link ValidationOptions#weakSignatureAlgorithms()})
+         */
+        WEAK_SIGNATURE,
+        /**
+         * Candidate issuers were found by name or key identifier, but none of their keys verifies the signature
+         */
+        BAD_SIGNATURE,
+        /**
+         * The only candidate issuers whose keys verify the signature may not issue certificates: they're not CAs
+         * (basic constraints), their path length constraint is exceeded or their key usage lacks keyCertSign
+         */
+        NOT_A_CA,
+        /**
+         * The chain ends in a self-signed certificate which isn't a trust anchor
+         */
+        UNTRUSTED_ROOT,
+        /**
+         * The chain is longer than {@link ValidationOptions#maxDepth()} (or loops)
+         */
+        TOO_LONG
+    }
+
+    @Override
+    public String toString() {
+        return detail == null ? kind + ": " + subject : kind + ": " + subject + " (" + detail + ")";
+    }
+}
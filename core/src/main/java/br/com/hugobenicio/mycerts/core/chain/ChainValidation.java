@@ -0,0 +1,30 @@
+package br.com.hugobenicio.mycerts.core.chain;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+/**
+ * Outcome of validating a leaf certificate.
+ *
+ * @param chain the built chain, from the leaf up to the trust anchor (or as far as it could be built)
+ * @param issues the problems found, in chain order
+ * @param trusted whether the chain ends in a trust anchor
+ */
+public record ChainValidation(List<X509Certificate> chain, List<ChainIssue> issues, boolean trusted) {
+
+    public ChainValidation {
+        chain = List.copyOf(chain);
+        issues = List.copyOf(issues);
+    }
+
+    /**
+     * @return whether the chain is trusted and has no issues
+     */
+    public boolean isValid() {
+        return trusted && issues.isEmpty();
+    }
+
+    public X509Certificate leaf() {
+        return chain.getFirst();
+    }
+}
@@ -0,0 +1,342 @@
+package br.com.hugobenicio.mycerts.core.chain;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Builds chains from leaf certificates up to the {@link TrustAnchors}, through the intermediates added to it (usually
+ * the whole inventory), and validates them: missing issuers or intermediates, chains presented out of order, expired
+ * or not yet valid certificates, weak signature algorithms, bad signatures, issuers which may not issue certificates
+ * and untrusted roots.
+ *
+ * <p>Issuers are found through an {@link IssuerIndex} and the result of verifying each (certificate, issuer) signature
+ * is memoized, so validating many leaves sharing a few intermediates verifies each intermediate link only once: after
+ * that, a leaf costs its own signature verification plus a few map lookups (nothing at all when validated again).
+ * The memo keeps one small entry per verified link.
+ *
+ * <p>Thread-safe.
+ */
+public class ChainValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(ChainValidator.class);
+
+    /**
+     * A signature link: the subject certificate and the certificate whose key is expected to verify its signature
+     */
+    private record Link(Fingerprint subject, Fingerprint issuer) {}
+
+    /**
+     * Index of the keyCertSign bit in {@link X509Certificate#getKeyUsage()}
+     */
+    private static final int KEY_CERT_SIGN = 5;
+
+    private final TrustAnchors trustAnchors;
+
+    private final ValidationOptions options;
+
+    private final IssuerIndex issuerIndex = new IssuerIndex();
+
+    private final Map<Link, Boolean> verifiedLinks = new ConcurrentHashMap<>();
+
+    private final LongAdder signatureVerifications = new LongAdder();
+
+    private final LongAdder memoizedVerifications = new LongAdder();
+
+    public ChainValidator(TrustAnchors trustAnchors) {
+        this(trustAnchors, ValidationOptions.defaults());
+    }
+
+    public ChainValidator(TrustAnchors trustAnchors, ValidationOptions options) {
+        this.trustAnchors = trustAnchors;
+        this.options = options;
+        for (var anchor : trustAnchors.certificates()) {
+            issuerIndex.add(anchor);
+        }
+    }
+
+    /**
+     * Makes certificates available as intermediates. Non CA certificates are ignored, so the whole inventory can be
+     * added.
+     */
+    public void addIntermediates(Collection<? extends X509Certificate> certificates) {
+        for (var certificate : certificates) {
+            if (IssuerIndex.mayIssue(certificate)) {
+                issuerIndex.add(certificate);
+            }
+        }
+    }
+
+    /**
+     * Validates a certificate found on its own (e.g. in a file): its chain is built from the intermediates known by
+     * the validator.
+     *
+     * @param at the validation date
+     */
+    public ChainValidation validate(X509Certificate leaf, Instant at) {
+        return validate(leaf, Fingerprint.of(leaf), at);
+    }
+
+    /**
+     * Same as {@link #validate(X509Certificate, Instant)}, for when the fingerprint is already known (e.g. inventory
+     * certificates)
+     */
+    public ChainValidation validate(X509Certificate leaf, Fingerprint fingerprint, Instant at) {
+        return build(List.of(leaf), List.of(fingerprint), false, at);
+    }
+
+    /**
+     * Validates a chain presented by a server (leaf first). Besides the checks of
+     * {@link #validate(X509Certificate, Instant)}, flags intermediates the server should have sent and certificates
+     * out of order. Unused presented certificates are ignored.
+     *
+     * @param at the validation date
+     */
+    public ChainValidation validateChain(List<X509Certificate> presented, Instant at) {
+        if (presented.isEmpty()) {
+            throw new IllegalArgumentException("presented chain is empty");
+        }
+        return build(presented, presented.stream().map(Fingerprint::of).toList(), true, at);
+    }
+
+    /**
+     * @return number of signatures actually verified
+     */
+    public long signatureVerifications() {
+        return signatureVerifications.sum();
+    }
+
+    /**
+     * @return number of signature checks answered by the memo
+     */
+    public long memoizedVerifications() {
+        return memoizedVerifications.sum();
+    }
+
+    public int intermediates() {
+        return issuerIndex.size();
+    }
+
+    /**
+     * @return whether the certificate is an end entity one (not a CA nor a v1 root), the ones chains are built for
+     */
+    public static boolean isLeaf(X509Certificate certificate) {
+        return !IssuerIndex.mayIssue(certificate);
+    }
+
+    /**
+     * @param presented the leaf, followed by the certificates presented along with it (if any)
+     * @param presentedFingerprints their fingerprints
+     * @param endpoint whether the certificates were presented by a server, who should have presented the whole chain
+     */
+    private ChainValidation build(List<X509Certificate> presented, List<Fingerprint> presentedFingerprints,
+                                  boolean endpoint, Instant at) {
+        List<X509Certificate> chain = new ArrayList<>();
+        List<ChainIssue> issues = new ArrayList<>();
+        Set<Fingerprint> visited = new HashSet<>();
+        boolean trusted = false;
+        boolean wrongOrder = false;
+        int expectedPosition = 1;
+        // non self-issued intermediates so far: what the path length constraints of the issuers limit
+        int intermediates = 0;
+
+        X509Certificate current = presented.getFirst();
+        Fingerprint currentFingerprint = presentedFingerprints.getFirst();
+        while (true) {
+            chain.add(current);
+            visited.add(currentFingerprint);
+            if (chain.size() > 1 && !isSelfIssued(current)) {
+                intermediates++;
+            }
+            if (trustAnchors.isAnchor(current, currentFingerprint)) {
+                trusted = true;
+                break;
+            }
+            checkCertificate(current, currentFingerprint, at, issues);
+
+            if (isSelfSigned(current, currentFingerprint)) {
+                issues.add(issue(ChainIssue.Kind.UNTRUSTED_ROOT, current, currentFingerprint, null));
+                break;
+            }
+            if (chain.size() >= options.maxDepth()) {
+                issues.add(issue(ChainIssue.Kind.TOO_LONG, current, currentFingerprint,
+                        format("max_depth=%d", options.maxDepth())));
+                break;
+            }
+
+            // the presented certificates take precedence: they're what clients get
+            X509Certificate issuer = null;
+            Fingerprint issuerFingerprint = null;
+            int issuerPosition = -1;
+            boolean badSignature = false;
+            String issuingViolation = null;
+            for (int i = 1; i < presented.size() && issuer == null; i++) {
+                X509Certificate candidate = presented.get(i);
+                Fingerprint candidateFingerprint = presentedFingerprints.get(i);
+                if (visited.contains(candidateFingerprint)
+                        || !candidate.getSubjectX500Principal().equals(current.getIssuerX500Principal())) {
+                    continue;
+                }
+                if (!verifies(current, currentFingerprint, candidate, candidateFingerprint)) {
+                    badSignature = true;
+                    continue;
+                }
+                String violation = issuingViolation(candidate, candidateFingerprint, intermediates);
+                if (violation != null) {
+                    issuingViolation = violation;
+                    continue;
+                }
+                issuer = candidate;
+                issuerFingerprint = candidateFingerprint;
+                issuerPosition = i;
+            }
+            if (issuer == null) {
+                for (IssuerIndex.Candidate candidate : issuerIndex.issuersOf(current)) {
+                    if (visited.contains(candidate.fingerprint())) {
+                        continue;
+                    }
+                    if (!verifies(current, currentFingerprint, candidate.certificate(), candidate.fingerprint())) {
+                        badSignature = true;
+                        continue;
+                    }
+                    String violation = issuingViolation(candidate.certificate(), candidate.fingerprint(),
+                            intermediates);
+                    if (violation != null) {
+                        issuingViolation = violation;
+                        continue;
+                    }
+                    issuer = candidate.certificate();
+                    issuerFingerprint = candidate.fingerprint();
+                    break;
+                }
+            }
+
+            if (issuer == null) {
+                String issuerName = "issuer=" + current.getIssuerX500Principal().getName();
+                if (issuingViolation != null) {
+                    issues.add(issue(ChainIssue.Kind.NOT_A_CA, current, currentFingerprint,
+                            issuerName + " " + issuingViolation));
+                } else {
+                    var kind = badSignature ? ChainIssue.Kind.BAD_SIGNATURE : ChainIssue.Kind.MISSING_ISSUER;
+                    issues.add(issue(kind, current, currentFingerprint, issuerName));
+                }
+                break;
+            }
+
+            if (endpoint) {
+                if (issuerPosition < 0 && !trustAnchors.isAnchor(issuer, issuerFingerprint)) {
+                    issues.add(issue(ChainIssue.Kind.MISSING_INTERMEDIATE, issuer, issuerFingerprint, null));
+                } else if (issuerPosition >= 0) {
+                    if (issuerPosition != expectedPosition && !wrongOrder) {
+                        wrongOrder = true;
+                        issues.add(issue(ChainIssue.Kind.WRONG_ORDER, issuer, issuerFingerprint,
+                                format("position=%d expected=%d", issuerPosition, expectedPosition)));
+                    }
+                    expectedPosition = issuerPosition + 1;
+                }
+            }
+            current = issuer;
+            currentFingerprint = issuerFingerprint;
+        }
+
+        log.atDebug().setMessage("chain validated")
+                .addKeyValue("leaf", presentedFingerprints.getFirst())
+                .addKeyValue("length", chain.size())
+                .addKeyValue("trusted", trusted)
+                .addKeyValue("issues", issues.size())
+                .log();
+        return new ChainValidation(chain, issues, trusted);
+    }
+
+    private void checkCertificate(X509Certificate certificate, Fingerprint fingerprint, Instant at,
+                                  List<ChainIssue> issues) {
+        Instant notAfter = certificate.getNotAfter().toInstant();
+        Instant notBefore = certificate.getNotBefore().toInstant();
+        if (at.isAfter(notAfter)) {
+            issues.add(issue(ChainIssue.Kind.EXPIRED, certificate, fingerprint, "not_after=" + notAfter));
+        } else if (at.isBefore(notBefore)) {
+            issues.add(issue(ChainIssue.Kind.NOT_YET_VALID, certificate, fingerprint, "not_before=" + notBefore));
+        }
+        String signatureAlgorithm = certificate.getSigAlgName();
+        if (options.isWeak(signatureAlgorithm)) {
+            issues.add(issue(ChainIssue.Kind.WEAK_SIGNATURE, certificate, fingerprint,
+                    "algorithm=" + signatureAlgorithm));
+        }
+    }
+
+    /**
+     * Checks the constraints of an issuer whose key verifies the signature (RFC 5280 6.1.4): it must be a CA, allow
+     * that many intermediates below it and, if it has a key usage, keyCertSign. Trust anchors (as in PKIX) and v1
+     * certificates (which predate extensions) are not constrained.
+     *
+     * @param intermediatesBelow the non self-issued intermediates between the issuer and the leaf
+     * @return why the issuer may not issue the certificate below it, or null if it may
+     */
+    private String issuingViolation(X509Certificate issuer, Fingerprint issuerFingerprint, int intermediatesBelow) {
+        if (issuer.getVersion() < 3 || trustAnchors.isAnchor(issuer, issuerFingerprint)) {
+            return null;
+        }
+        int pathLength = issuer.getBasicConstraints();
+        if (pathLength < 0) {
+            return "basic_constraints=none";
+        }
+        if (intermediatesBelow > pathLength) {
+            return format("path_len=%d intermediates=%d", pathLength, intermediatesBelow);
+        }
+        boolean[] keyUsage = issuer.getKeyUsage();
+        if (keyUsage != null && (keyUsage.length <= KEY_CERT_SIGN || !keyUsage[KEY_CERT_SIGN])) {
+            return "key_usage=no_key_cert_sign";
+        }
+        return null;
+    }
+
+    private static boolean isSelfIssued(X509Certificate certificate) {
+        return certificate.getSubjectX500Principal().equals(certificate.getIssuerX500Principal());
+    }
+
+    private boolean isSelfSigned(X509Certificate certificate, Fingerprint fingerprint) {
+        return isSelfIssued(certificate) && verifies(certificate, fingerprint, certificate, fingerprint);
+    }
+
+    /**
+     * @return whether the issuer public key verifies the certificate signature (memoized)
+     */
+    private boolean verifies(X509Certificate certificate, Fingerprint fingerprint, X509Certificate issuer,
+                             Fingerprint issuerFingerprint) {
+        var link = new Link(fingerprint, issuerFingerprint);
+        Boolean verified = verifiedLinks.get(link);
+        if (verified != null) {
+            memoizedVerifications.increment();
+            return verified;
+        }
+
+        signatureVerifications.increment();
+        try {
+            certificate.verify(issuer.getPublicKey());
+            verified = true;
+        } catch (GeneralSecurityException e) {
+            verified = false;
+        }
+        verifiedLinks.putIfAbsent(link, verified);
+        return verified;
+    }
+
+    private static ChainIssue issue(ChainIssue.Kind kind, X509Certificate certificate, Fingerprint fingerprint,
+                                    String detail) {
+        return new ChainIssue(kind, fingerprint, certificate.getSubjectX500Principal().getName(), detail);
+    }
+}
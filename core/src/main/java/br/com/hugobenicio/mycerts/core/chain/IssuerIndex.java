@@ -0,0 +1,103 @@
+package br.com.hugobenicio.mycerts.core.chain;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.utils.X509Utils;
+
+import javax.security.auth.x500.X500Principal;
+import java.nio.ByteBuffer;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of CA certificates by subject name and by Subject Key Identifier, to find the candidate issuers of a
+ * certificate without scanning the inventory: by its Authority Key Identifier first (the precise match, which tells
+ * apart CAs sharing a name across key rollovers), then by its issuer name.
+ *
+ * <p>Only certificates which may issue others are indexed: CAs (basic constraints) and v1 certificates (old roots).
+ * Thread-safe: lookups don't lock and see every completed addition.
+ */
+public class IssuerIndex {
+
+    /**
+     * @param certificate a candidate issuer
+     * @param fingerprint its fingerprint
+     */
+    public record Candidate(X509Certificate certificate, Fingerprint fingerprint) {}
+
+    private final Map<X500Principal, List<Candidate>> bySubject = new ConcurrentHashMap<>();
+
+    private final Map<ByteBuffer, List<Candidate>> byKeyIdentifier = new ConcurrentHashMap<>();
+
+    private final Set<Fingerprint> fingerprints = ConcurrentHashMap.newKeySet();
+
+    public IssuerIndex() {
+    }
+
+    /**
+     * @return whether the certificate was added (false if it's not a CA or was already there)
+     */
+    public boolean add(X509Certificate certificate, Fingerprint fingerprint) {
+        if (!mayIssue(certificate) || !fingerprints.add(fingerprint)) {
+            return false;
+        }
+        var candidate = new Candidate(certificate, fingerprint);
+        bySubject.compute(certificate.getSubjectX500Principal(),
+                (subject, candidates) -> append(candidates, candidate));
+        byte[] keyIdentifier = X509Utils.subjectKeyIdentifier(certificate);
+        if (keyIdentifier != null) {
+            byKeyIdentifier.compute(ByteBuffer.wrap(keyIdentifier), (key, candidates) -> append(candidates, candidate));
+        }
+        return true;
+    }
+
+    public void add(X509Certificate certificate) {
+        add(certificate, Fingerprint.of(certificate));
+    }
+
+    /**
+     * @return the indexed certificates whose subject is the issuer of the given certificate, matching its Authority
+     * Key Identifier if it has one (and any matches). Signatures are not verified
+     */
+    public List<Candidate> issuersOf(X509Certificate certificate) {
+        X500Principal issuer = certificate.getIssuerX500Principal();
+        byte[] authorityKeyIdentifier = X509Utils.authorityKeyIdentifier(certificate);
+        if (authorityKeyIdentifier != null) {
+            List<Candidate> byKey = byKeyIdentifier.getOrDefault(ByteBuffer.wrap(authorityKeyIdentifier), List.of());
+            List<Candidate> matches = byKey.stream()
+                    .filter(candidate -> candidate.certificate().getSubjectX500Principal().equals(issuer))
+                    .toList();
+            if (!matches.isEmpty()) {
+                return matches;
+            }
+        }
+        return bySubject.getOrDefault(issuer, List.of());
+    }
+
+    public int size() {
+        return fingerprints.size();
+    }
+
+    /**
+     * @return whether the certificate is a CA (or a v1 certificate, which predates basic constraints)
+     */
+    public static boolean mayIssue(X509Certificate certificate) {
+        return certificate.getBasicConstraints() >= 0 || certificate.getVersion() < 3;
+    }
+
+    /**
+     * Lists are copied on write, so readers can iterate them without locking
+     */
+    private static List<Candidate> append(List<Candidate> candidates, Candidate candidate) {
+        if (candidates == null) {
+            return List.of(candidate);
+        }
+        List<Candidate> appended = new ArrayList<>(candidates.size() + 1);
+        appended.addAll(candidates);
+        appended.add(candidate);
+        return List.copyOf(appended);
+    }
+}
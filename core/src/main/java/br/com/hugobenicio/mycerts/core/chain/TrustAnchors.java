@@ -0,0 +1,97 @@
+package br.com.hugobenicio.mycerts.core.chain;
+
+import br.com.hugobenicio.mycerts.core.LoadingCertificateException;
+import br.com.hugobenicio.mycerts.core.ingest.CertificateFileLoader;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import javax.security.auth.x500.X500Principal;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The certificates chains must end in to be trusted. Immutable and thread-safe.
+ *
+ * <p>A certificate is an anchor if it's one of the anchor certificates or if it has the same subject and public key as
+ * one of them (e.g. a root re-issued with a new validity period).
+ */
+public final class TrustAnchors {
+
+    private record NameAndKey(X500Principal subject, ByteBuffer publicKey) {}
+
+    private final Map<Fingerprint, X509Certificate> certificates = new HashMap<>();
+
+    private final Set<NameAndKey> namesAndKeys = new HashSet<>();
+
+    /**
+     * Subjects of the anchors, so public keys are only encoded for certificates with an anchor subject
+     */
+    private final Set<X500Principal> subjects = new HashSet<>();
+
+    private TrustAnchors(Collection<? extends X509Certificate> anchors) {
+        for (var anchor : anchors) {
+            certificates.put(Fingerprint.of(anchor), anchor);
+            namesAndKeys.add(nameAndKey(anchor));
+            subjects.add(anchor.getSubjectX500Principal());
+        }
+    }
+
+    public static TrustAnchors of(Collection<? extends X509Certificate> anchors) {
+        return new TrustAnchors(anchors);
+    }
+
+    /**
+     * @return the anchors trusted by default by the JVM (usually its cacerts file)
+     */
+    public static TrustAnchors jdkDefault() {
+        try {
+            var trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init((KeyStore) null);
+            return new TrustAnchors(Arrays.stream(trustManagerFactory.getTrustManagers())
+                    .filter(X509TrustManager.class::isInstance)
+                    .flatMap(trustManager -> Arrays.stream(((X509TrustManager) trustManager).getAcceptedIssuers()))
+                    .toList());
+        } catch (NoSuchAlgorithmException | KeyStoreException e) {
+            throw new IllegalStateException("failed to load the default trust anchors", e);
+        }
+    }
+
+    /**
+     * Loads the anchors from a pem, jks or p12 file
+     */
+    public static TrustAnchors load(Path path, char[] password) throws LoadingCertificateException {
+        List<X509Certificate> anchors = new CertificateFileLoader().loadFile(path, password);
+        return new TrustAnchors(anchors);
+    }
+
+    public boolean isAnchor(X509Certificate certificate, Fingerprint fingerprint) {
+        return certificates.containsKey(fingerprint)
+                || (subjects.contains(certificate.getSubjectX500Principal())
+                && namesAndKeys.contains(nameAndKey(certificate)));
+    }
+
+    public Collection<X509Certificate> certificates() {
+        return certificates.values();
+    }
+
+    public int size() {
+        return certificates.size();
+    }
+
+    private static NameAndKey nameAndKey(X509Certificate certificate) {
+        return new NameAndKey(certificate.getSubjectX500Principal(),
+                ByteBuffer.wrap(certificate.getPublicKey().getEncoded()));
+    }
+}
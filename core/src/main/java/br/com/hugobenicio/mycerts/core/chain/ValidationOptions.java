@@ -0,0 +1,33 @@
+package br.com.hugobenicio.mycerts.core.chain;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * @param weakSignatureAlgorithms upper case digest names (as found in {@code getSigAlgName()}, e.g. "SHA1" in
+ *                                "SHA1withRSA") of signature algorithms to be flagged as weak. Trust anchors are never
+ *                                flagged: their signature isn't relied upon
+ * @param maxDepth max number of certificates in a chain, trust anchor included
+ */
+public record ValidationOptions(Set<String> weakSignatureAlgorithms, int maxDepth) {
+
+    public static final Set<String> WEAK_SIGNATURE_ALGORITHMS_DEFAULT = Set.of("MD2", "MD5", "SHA1");
+    public static final int MAX_DEPTH_DEFAULT = 10;
+
+    public ValidationOptions {
+        weakSignatureAlgorithms = Set.copyOf(weakSignatureAlgorithms);
+    }
+
+    public static ValidationOptions defaults() {
+        return new ValidationOptions(WEAK_SIGNATURE_ALGORITHMS_DEFAULT, MAX_DEPTH_DEFAULT);
+    }
+
+    /**
+     * @param signatureAlgorithm as returned by {@code getSigAlgName()}, e.g. "SHA256withRSA"
+     */
+    public boolean isWeak(String signatureAlgorithm) {
+        String name = signatureAlgorithm.toUpperCase(Locale.ROOT);
+        int with = name.indexOf("WITH");
+        return weakSignatureAlgorithms.contains(with > 0 ? name.substring(0, with) : name);
+    }
+}
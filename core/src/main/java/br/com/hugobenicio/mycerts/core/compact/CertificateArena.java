@@ -0,0 +1,88 @@
+package br.com.hugobenicio.mycerts.core.compact;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Append-only store of DER encoded certificates, packed into large chunks (on or off the java heap) instead of one
+ * byte array per certificate. Certificates are addressed by a {@code long} (chunk and offset), so holding one costs
+ * no object at all.
+ *
+ * <p>Nothing is ever freed: an arena lives as long as the certificates in it. Thread-safe.
+ */
+public final class CertificateArena {
+
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private final boolean offHeap;
+
+    /**
+     * Replaced (never mutated) when a chunk is added, so readers don't need the lock
+     */
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+    private ByteBuffer current;
+
+    private long size;
+
+    private CertificateArena(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * @return an arena whose chunks are regular byte arrays
+     */
+    public static CertificateArena onHeap() {
+        return new CertificateArena(false);
+    }
+
+    /**
+     * @return an arena whose chunks are direct buffers: they don't count towards the heap and are never scanned or
+     * moved by the garbage collector
+     */
+    public static CertificateArena offHeap() {
+        return new CertificateArena(true);
+    }
+
+    /**
+     * Copies bytes into the arena
+     *
+     * @return their address, for {@link #read(long, int)}
+     */
+    public synchronized long append(byte[] bytes) {
+        if (current == null || current.remaining() < bytes.length) {
+            current = allocate(Math.max(CHUNK_SIZE, bytes.length));
+            ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[grown.length - 1] = current;
+            chunks = grown;
+        }
+        int offset = current.position();
+        current.put(bytes);
+        size += bytes.length;
+        return (long) (chunks.length - 1) << 32 | offset;
+    }
+
+    /**
+     * @return a copy of the bytes at the given address
+     */
+    public byte[] read(long address, int length) {
+        byte[] bytes = new byte[length];
+        chunks[(int) (address >>> 32)].get((int) address, bytes);
+        return bytes;
+    }
+
+    /**
+     * @return number of bytes stored
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+}
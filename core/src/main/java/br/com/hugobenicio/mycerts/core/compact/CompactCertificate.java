@@ -0,0 +1,133 @@
+package br.com.hugobenicio.mycerts.core.compact;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.Comparator;
+
+/**
+ * Lightweight view of a certificate for keeping millions of them in memory: the fields inventories work with
+ * (validity, fingerprint, subject and issuer) are decoded once, as primitives and interned strings, and the DER
+ * encoding is kept in a {@link CertificateArena}. Everything else (extensions, keys, signatures) is decoded only on
+ * demand, by {@link #toX509Certificate()}.
+ *
+ * <p>Created by a {@link CompactCertificateFactory}. Immutable.
+ */
+public final class CompactCertificate {
+
+    /**
+     * Expires sooner first
+     */
+    public static final Comparator<CompactCertificate> BY_NOT_AFTER =
+            Comparator.comparingLong(CompactCertificate::notAfterEpochSecond);
+
+    private final CertificateArena arena;
+
+    private final long derAddress;
+
+    private final int derLength;
+
+    private final long notBeforeEpochSecond;
+
+    private final long notAfterEpochSecond;
+
+    /**
+     * The fingerprint words, inline (a {@link Fingerprint} would be one more object per certificate)
+     */
+    private final long fingerprint0;
+    private final long fingerprint1;
+    private final long fingerprint2;
+    private final long fingerprint3;
+
+    private final String subject;
+
+    private final String issuer;
+
+    CompactCertificate(CertificateArena arena, long derAddress, int derLength, long notBeforeEpochSecond,
+                       long notAfterEpochSecond, Fingerprint fingerprint, String subject, String issuer) {
+        this.arena = arena;
+        this.derAddress = derAddress;
+        this.derLength = derLength;
+        this.notBeforeEpochSecond = notBeforeEpochSecond;
+        this.notAfterEpochSecond = notAfterEpochSecond;
+        this.fingerprint0 = fingerprint.w0();
+        this.fingerprint1 = fingerprint.w1();
+        this.fingerprint2 = fingerprint.w2();
+        this.fingerprint3 = fingerprint.w3();
+        this.subject = subject;
+        this.issuer = issuer;
+    }
+
+    public Fingerprint fingerprint() {
+        return new Fingerprint(fingerprint0, fingerprint1, fingerprint2, fingerprint3);
+    }
+
+    public long notBeforeEpochSecond() {
+        return notBeforeEpochSecond;
+    }
+
+    public long notAfterEpochSecond() {
+        return notAfterEpochSecond;
+    }
+
+    public Instant notBefore() {
+        return Instant.ofEpochSecond(notBeforeEpochSecond);
+    }
+
+    public Instant notAfter() {
+        return Instant.ofEpochSecond(notAfterEpochSecond);
+    }
+
+    /**
+     * @return the subject distinguished name, as in {@code getSubjectX500Principal().getName()}
+     */
+    public String subject() {
+        return subject;
+    }
+
+    /**
+     * @return the issuer distinguished name, as in {@code getIssuerX500Principal().getName()}
+     */
+    public String issuer() {
+        return issuer;
+    }
+
+    public int derLength() {
+        return derLength;
+    }
+
+    /**
+     * @return a copy of the DER encoding
+     */
+    public byte[] der() {
+        return arena.read(derAddress, derLength);
+    }
+
+    /**
+     * Fully decodes the certificate (e.g. for its extensions). Not cached: callers that need it often should keep it
+     */
+    public X509Certificate toX509Certificate() throws CertificateException {
+        return CompactCertificateFactory.decode(der());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CompactCertificate other
+                && fingerprint0 == other.fingerprint0
+                && fingerprint1 == other.fingerprint1
+                && fingerprint2 == other.fingerprint2
+                && fingerprint3 == other.fingerprint3;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fingerprint0);
+    }
+
+    @Override
+    public String toString() {
+        return subject;
+    }
+}
@@ -0,0 +1,144 @@
+package br.com.hugobenicio.mycerts.core.compact;
+
+import br.com.hugobenicio.mycerts.core.LoadingCertificateException;
+import br.com.hugobenicio.mycerts.core.ingest.CertificateFileLoader;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.pem.DerBlock;
+import br.com.hugobenicio.mycerts.core.pem.PemReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.String.format;
+
+/**
+ * Creates {@link CompactCertificate}s straight from DER, without going through a {@code CertificateFactory}: only
+ * the validity and the names are read, and names are interned (issuers, and often subjects, repeat a lot across an
+ * inventory), keyed by their encoding, so repeated names aren't even decoded.
+ *
+ * <p>Thread-safe.
+ */
+public class CompactCertificateFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactCertificateFactory.class);
+
+    private static final CertificateFileLoader certificateFileLoader = new CertificateFileLoader();
+
+    private final CertificateArena arena;
+
+    /**
+     * Distinguished names, by their DER encoding
+     */
+    private final Map<ByteBuffer, String> names = new ConcurrentHashMap<>();
+
+    public CompactCertificateFactory(CertificateArena arena) {
+        this.arena = arena;
+    }
+
+    /**
+     * @param der a DER encoded X.509 certificate
+     * @throws CertificateParsingException if the encoding is malformed
+     */
+    public CompactCertificate fromDer(byte[] der) throws CertificateParsingException {
+        var reader = new Der(der);
+        reader.enter(Der.SEQUENCE); // Certificate
+        reader.enter(Der.SEQUENCE); // TBSCertificate
+        if (reader.peek(Der.CONTEXT_0)) {
+            reader.skip(Der.CONTEXT_0); // version
+        }
+        reader.skip(Der.INTEGER); // serialNumber
+        reader.skip(Der.SEQUENCE); // signature
+        int issuerStart = reader.position();
+        reader.skip(Der.SEQUENCE);
+        String issuer = name(der, issuerStart, reader.position() - issuerStart);
+        reader.enter(Der.SEQUENCE); // validity
+        long notBefore = reader.readTime();
+        long notAfter = reader.readTime();
+        int subjectStart = reader.position();
+        reader.skip(Der.SEQUENCE);
+        String subject = name(der, subjectStart, reader.position() - subjectStart);
+
+        long address = arena.append(der);
+        return new CompactCertificate(arena, address, der.length, notBefore, notAfter, Fingerprint.ofDer(der),
+                subject, issuer);
+    }
+
+    public CompactCertificate from(X509Certificate certificate) throws CertificateEncodingException,
+            CertificateParsingException {
+        return fromDer(certificate.getEncoded());
+    }
+
+    /**
+     * Loads the certificates of a file, picking the parser by the file extension. PEM files are never fully
+     * decoded; key stores are (by the JCA), but only the compact views are kept.
+     *
+     * @param password the key store password (ignored for PEM files)
+     * @return the loaded certificates in file order
+     * @throws LoadingCertificateException if the extension is not supported or if parsing fails
+     */
+    public List<CompactCertificate> load(Path path, char[] password) throws LoadingCertificateException {
+        if (!"pem".equals(CertificateFileLoader.fileExtension(path))) {
+            List<CompactCertificate> certificates = new ArrayList<>();
+            try {
+                for (X509Certificate certificate : certificateFileLoader.loadFile(path, password)) {
+                    certificates.add(from(certificate));
+                }
+            } catch (CertificateException e) {
+                var msg = format("Failed to load certificates from file. path=\"%s\"", path.getFileName());
+                throw new LoadingCertificateException(msg, e);
+            }
+            return List.copyOf(certificates);
+        }
+
+        List<CompactCertificate> certificates = new ArrayList<>();
+        try (var pemReader = PemReader.open(path)) {
+            for (DerBlock block = pemReader.readBlock(); block != null; block = pemReader.readBlock()) {
+                if (!"CERTIFICATE".equalsIgnoreCase(block.name())) {
+                    log.warn("unsupported block inside pem file. type={}", block.name());
+                    continue;
+                }
+                certificates.add(fromDer(block.der()));
+            }
+        } catch (IOException | CertificateParsingException e) {
+            var msg = format("Failed to load certificates from file. path=\"%s\"", path.getFileName());
+            throw new LoadingCertificateException(msg, e);
+        }
+        return List.copyOf(certificates);
+    }
+
+    public CertificateArena getArena() {
+        return arena;
+    }
+
+    static X509Certificate decode(byte[] der) throws CertificateException {
+        return certificateFileLoader.parseDer(der);
+    }
+
+    private String name(byte[] der, int offset, int length) throws CertificateParsingException {
+        String name = names.get(ByteBuffer.wrap(der, offset, length).slice());
+        if (name != null) {
+            return name;
+        }
+        byte[] encoded = Arrays.copyOfRange(der, offset, offset + length);
+        try {
+            name = new X500Principal(encoded).getName();
+        } catch (IllegalArgumentException e) {
+            throw new CertificateParsingException("malformed distinguished name", e);
+        }
+        String previous = names.putIfAbsent(ByteBuffer.wrap(encoded), name);
+        return previous != null ? previous : name;
+    }
+}
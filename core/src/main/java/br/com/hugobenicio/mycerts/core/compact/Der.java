@@ -0,0 +1,148 @@
+package br.com.hugobenicio.mycerts.core.compact;
+
+import java.security.cert.CertificateParsingException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static java.lang.String.format;
+
+/**
+ * Just enough of a DER reader to find the fields {@link CompactCertificate} keeps, without decoding the rest
+ */
+final class Der {
+
+    static final int SEQUENCE = 0x30;
+    static final int INTEGER = 0x02;
+    static final int UTC_TIME = 0x17;
+    static final int GENERALIZED_TIME = 0x18;
+    static final int CONTEXT_0 = 0xA0;
+
+    private final byte[] der;
+
+    private int position;
+
+    /**
+     * Tag, content offset and content length of the last element read
+     */
+    private int tag;
+    private int offset;
+    private int length;
+
+    Der(byte[] der) {
+        this.der = der;
+    }
+
+    /**
+     * Reads the next element header and positions the reader at its content
+     */
+    Der enter(int expectedTag) throws CertificateParsingException {
+        readHeader(expectedTag);
+        position = offset;
+        return this;
+    }
+
+    /**
+     * Reads the next element and positions the reader after it
+     */
+    Der skip(int expectedTag) throws CertificateParsingException {
+        readHeader(expectedTag);
+        position = offset + length;
+        return this;
+    }
+
+    /**
+     * @return whether the next element has the given tag
+     */
+    boolean peek(int tag) {
+        return position < der.length && (der[position] & 0xFF) == tag;
+    }
+
+    int position() {
+        return position;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Reads an UTCTime or GeneralizedTime element
+     *
+     * @return its value, in epoch seconds
+     */
+    long readTime() throws CertificateParsingException {
+        readHeader(-1);
+        position = offset + length;
+        int year;
+        int i = offset;
+        if (tag == UTC_TIME && length == 13) {
+            year = digits(i, 2);
+            year += year >= 50 ? 1900 : 2000;
+            i += 2;
+        } else if (tag == GENERALIZED_TIME && length == 15) {
+            year = digits(i, 4);
+            i += 4;
+        } else {
+            throw new CertificateParsingException(format("unsupported validity time encoding. tag=%d length=%d",
+                    tag, length));
+        }
+        if (der[offset + length - 1] != 'Z') {
+            throw new CertificateParsingException("validity time must be in UTC");
+        }
+        try {
+            return LocalDateTime.of(year, digits(i, 2), digits(i + 2, 2), digits(i + 4, 2), digits(i + 6, 2),
+                    digits(i + 8, 2)).toEpochSecond(ZoneOffset.UTC);
+        } catch (DateTimeException e) {
+            throw new CertificateParsingException("invalid validity time", e);
+        }
+    }
+
+    private int digits(int from, int count) throws CertificateParsingException {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = der[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new CertificateParsingException("invalid digit in validity time");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * @param expectedTag the tag the element must have, or -1 for any
+     */
+    private void readHeader(int expectedTag) throws CertificateParsingException {
+        if (position + 2 > der.length) {
+            throw new CertificateParsingException("truncated der");
+        }
+        tag = der[position] & 0xFF;
+        if (expectedTag >= 0 && tag != expectedTag) {
+            throw new CertificateParsingException(format("unexpected der tag. expected=%d found=%d at=%d",
+                    expectedTag, tag, position));
+        }
+        int first = der[position + 1] & 0xFF;
+        int i = position + 2;
+        if (first < 0x80) {
+            length = first;
+        } else {
+            int lengthBytes = first & 0x7F;
+            if (lengthBytes == 0 || lengthBytes > 3 || i + lengthBytes > der.length) {
+                throw new CertificateParsingException("unsupported der length");
+            }
+            length = 0;
+            for (int end = i + lengthBytes; i < end; i++) {
+                length = length << 8 | (der[i] & 0xFF);
+            }
+        }
+        offset = i;
+        if (offset + length > der.length) {
+            throw new CertificateParsingException("truncated der");
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package br.com.hugobenicio.mycerts.core.diff;
+
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.utils.LongIntArrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Compares two certificate sets (e.g. the snapshots of two nightly scans), streaming what changed as
+ * {@link DiffEvent}s, without pairwise comparisons:
+ * <ul>
+ *     <li>certificates: both sides are in fingerprint order, so added and removed certificates come out of a single
+ *     merge walk over them, in that order</li>
+ *     <li>endpoints and file entries: each side gets a table of (64-bit key hash, certificate id, source index)
+ *     primitive triples, sorted by hash, and the tables are merge joined. Only the sources of one key at a time are
+ *     decoded, so memory is the two tables: 20 bytes per endpoint or file entry observation, whatever the certificates
+ *     are.</li>
+ * </ul>
+ * Certificate events come first, then endpoint events, then file entry events.
+ *
+ * <p>Thread-safe: stateless.
+ */
+public class CertificateDiff {
+
+    private static final Logger log = LoggerFactory.getLogger(CertificateDiff.class);
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final DiffOptions options;
+
+    public CertificateDiff(DiffOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * @param before the old side
+     * @param after the new side
+     * @param eventConsumer receives the changes as they are found, from the calling thread
+     */
+    public DiffSummary diff(DiffInput before, DiffInput after, Consumer<DiffEvent> eventConsumer) {
+        final long startNanos = System.nanoTime();
+        Map<DiffEvent.Kind, Long> counts = new EnumMap<>(DiffEvent.Kind.class);
+        Consumer<DiffEvent> events = event -> {
+            counts.merge(event.kind(), 1L, Long::sum);
+            eventConsumer.accept(event);
+        };
+
+        int unchanged = diffCertificates(before, after, events);
+        if (options.endpoints()) {
+            join(before, SourceTable.of(before, CertificateSource.Kind.ENDPOINT),
+                    after, SourceTable.of(after, CertificateSource.Kind.ENDPOINT),
+                    (key, beforeIds, afterIds) -> diffEndpoint(key, before, beforeIds, after, afterIds, events));
+        }
+        if (options.aliases()) {
+            join(before, SourceTable.of(before, CertificateSource.Kind.FILE),
+                    after, SourceTable.of(after, CertificateSource.Kind.FILE),
+                    (key, beforeIds, afterIds) -> diffAlias(key, before, beforeIds, after, afterIds, events));
+        }
+
+        var summary = new DiffSummary(before.size(), after.size(), unchanged, counts);
+        log.atInfo().setMessage("diff done")
+                .addKeyValue("before", before.size())
+                .addKeyValue("after", after.size())
+                .addKeyValue("changes", summary.totalChanges())
+                .addKeyValue("elapsed_ms", (System.nanoTime() - startNanos) / 1_000_000)
+                .log();
+        return summary;
+    }
+
+    /**
+     * @return number of certificates in both sides
+     */
+    private int diffCertificates(DiffInput before, DiffInput after, Consumer<DiffEvent> events) {
+        int unchanged = 0;
+        int i = 0;
+        int j = 0;
+        Fingerprint beforeFingerprint = i < before.size() ? before.fingerprint(i) : null;
+        Fingerprint afterFingerprint = j < after.size() ? after.fingerprint(j) : null;
+        while (beforeFingerprint != null || afterFingerprint != null) {
+            int comparison = beforeFingerprint == null ? 1
+                    : afterFingerprint == null ? -1
+                    : beforeFingerprint.compareTo(afterFingerprint);
+            if (comparison == 0) {
+                unchanged++;
+            } else if (options.certificates() && comparison < 0) {
+                events.accept(new DiffEvent(DiffEvent.Kind.CERTIFICATE_REMOVED, beforeFingerprint.toHex(),
+                        beforeFingerprint, null, before.subject(i), before.issuer(i), null));
+            } else if (options.certificates()) {
+                events.accept(new DiffEvent(DiffEvent.Kind.CERTIFICATE_ADDED, afterFingerprint.toHex(),
+                        null, afterFingerprint, after.subject(j), after.issuer(j), null));
+            }
+            if (comparison <= 0) {
+                i++;
+                beforeFingerprint = i < before.size() ? before.fingerprint(i) : null;
+            }
+            if (comparison >= 0) {
+                j++;
+                afterFingerprint = j < after.size() ? after.fingerprint(j) : null;
+            }
+        }
+        return unchanged;
+    }
+
+    /**
+     * Receives the certificates of a key on each side (either may be empty)
+     */
+    @FunctionalInterface
+    private interface KeyDiff {
+        void diff(String key, List<Integer> beforeIds, List<Integer> afterIds);
+    }
+
+    private static void join(DiffInput before, SourceTable beforeTable, DiffInput after, SourceTable afterTable,
+                             KeyDiff keyDiff) {
+        int i = 0;
+        int j = 0;
+        while (i < beforeTable.size || j < afterTable.size) {
+            long hash = i == beforeTable.size ? afterTable.hashes[j]
+                    : j == afterTable.size ? beforeTable.hashes[i]
+                    : Math.min(beforeTable.hashes[i], afterTable.hashes[j]);
+            int beforeEnd = beforeTable.groupEnd(i, hash);
+            int afterEnd = afterTable.groupEnd(j, hash);
+
+            // a hash group almost always holds a single key, but collisions must not mix keys up
+            Map<String, List<Integer>> beforeKeys = beforeTable.keys(before, i, beforeEnd, hash);
+            Map<String, List<Integer>> afterKeys = afterTable.keys(after, j, afterEnd, hash);
+            Set<String> keys = new TreeSet<>(beforeKeys.keySet());
+            keys.addAll(afterKeys.keySet());
+            for (String key : keys) {
+                keyDiff.diff(key, beforeKeys.getOrDefault(key, List.of()), afterKeys.getOrDefault(key, List.of()));
+            }
+            i = beforeEnd;
+            j = afterEnd;
+        }
+    }
+
+    private static void diffEndpoint(String key, DiffInput before, List<Integer> beforeIds, DiffInput after,
+                                     List<Integer> afterIds, Consumer<DiffEvent> events) {
+        if (beforeIds.isEmpty()) {
+            int leaf = leaf(after, afterIds);
+            events.accept(new DiffEvent(DiffEvent.Kind.ENDPOINT_ADDED, key, null, after.fingerprint(leaf),
+                    after.subject(leaf), after.issuer(leaf), null));
+            return;
+        }
+        if (afterIds.isEmpty()) {
+            int leaf = leaf(before, beforeIds);
+            events.accept(new DiffEvent(DiffEvent.Kind.ENDPOINT_REMOVED, key, before.fingerprint(leaf), null,
+                    before.subject(leaf), before.issuer(leaf), null));
+            return;
+        }
+
+        int beforeLeaf = leaf(before, beforeIds);
+        int afterLeaf = leaf(after, afterIds);
+        Fingerprint beforeFingerprint = before.fingerprint(beforeLeaf);
+        Fingerprint afterFingerprint = after.fingerprint(afterLeaf);
+        String beforeIssuer = before.issuer(beforeLeaf);
+        String afterIssuer = after.issuer(afterLeaf);
+        if (!beforeFingerprint.equals(afterFingerprint)) {
+            var kind = beforeIssuer.equals(afterIssuer) ? DiffEvent.Kind.LEAF_ROTATED : DiffEvent.Kind.ISSUER_CHANGED;
+            events.accept(new DiffEvent(kind, key, beforeFingerprint, afterFingerprint, after.subject(afterLeaf),
+                    afterIssuer, beforeIssuer));
+        } else if (!fingerprints(before, beforeIds).equals(fingerprints(after, afterIds))) {
+            events.accept(new DiffEvent(DiffEvent.Kind.CHAIN_CHANGED, key, beforeFingerprint, afterFingerprint,
+                    after.subject(afterLeaf), afterIssuer, null));
+        }
+    }
+
+    private static void diffAlias(String key, DiffInput before, List<Integer> beforeIds, DiffInput after,
+                                  List<Integer> afterIds, Consumer<DiffEvent> events) {
+        if (beforeIds.size() == 1 && afterIds.size() == 1) {
+            // a key store alias (or single certificate file): replaced, not removed and added
+            int beforeId = beforeIds.getFirst();
+            int afterId = afterIds.getFirst();
+            if (!before.fingerprint(beforeId).equals(after.fingerprint(afterId))) {
+                events.accept(new DiffEvent(DiffEvent.Kind.ALIAS_CHANGED, key, before.fingerprint(beforeId),
+                        after.fingerprint(afterId), after.subject(afterId), after.issuer(afterId),
+                        before.issuer(beforeId)));
+            }
+            return;
+        }
+
+        Set<Fingerprint> beforeFingerprints = fingerprints(before, beforeIds);
+        Set<Fingerprint> afterFingerprints = fingerprints(after, afterIds);
+        for (int id : beforeIds) {
+            if (!afterFingerprints.contains(before.fingerprint(id))) {
+                events.accept(new DiffEvent(DiffEvent.Kind.ALIAS_REMOVED, key, before.fingerprint(id), null,
+                        before.subject(id), before.issuer(id), null));
+            }
+        }
+        for (int id : afterIds) {
+            if (!beforeFingerprints.contains(after.fingerprint(id))) {
+                events.accept(new DiffEvent(DiffEvent.Kind.ALIAS_ADDED, key, null, after.fingerprint(id),
+                        after.subject(id), after.issuer(id), null));
+            }
+        }
+    }
+
+    /**
+     * @return the leaf of an endpoint chain: the certificate that issued none of the others (the most recent one, if
+     * the inventory kept more than one)
+     */
+    private static int leaf(DiffInput input, List<Integer> ids) {
+        Set<String> issuers = new HashSet<>();
+        for (int id : ids) {
+            String issuer = input.issuer(id);
+            if (!issuer.equals(input.subject(id))) {
+                issuers.add(issuer);
+            }
+        }
+        int leaf = -1;
+        for (int id : ids) {
+            if (issuers.contains(input.subject(id))) {
+                continue;
+            }
+            if (leaf < 0 || input.notBeforeEpochSecond(id) > input.notBeforeEpochSecond(leaf)) {
+                leaf = id;
+            }
+        }
+        return leaf >= 0 ? leaf : ids.getFirst();
+    }
+
+    private static Set<Fingerprint> fingerprints(DiffInput input, List<Integer> ids) {
+        Set<Fingerprint> fingerprints = new HashSet<>();
+        for (int id : ids) {
+            fingerprints.add(input.fingerprint(id));
+        }
+        return fingerprints;
+    }
+
+    /**
+     * 64-bit FNV-1a over the key chars: collisions are rare enough to be resolved by comparing the keys
+     */
+    static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * (key hash, certificate id, source index) triples of the sources of a kind, sorted by hash
+     */
+    private static final class SourceTable {
+
+        private long[] hashes = new long[1024];
+
+        /**
+         * Positions in {@link #ids} and {@link #indexes}, sorted along with the hashes
+         */
+        private int[] entries = new int[1024];
+
+        /**
+         * Certificate ids, in insertion order
+         */
+        private int[] ids = new int[1024];
+
+        /**
+         * Positions of the sources in {@link DiffInput#sources(int)}, in insertion order
+         */
+        private int[] indexes = new int[1024];
+
+        private int size;
+
+        private SourceTable() {}
+
+        static SourceTable of(DiffInput input, CertificateSource.Kind kind) {
+            var table = new SourceTable();
+            for (int id = 0; id < input.size(); id++) {
+                List<CertificateSource> sources = input.sources(id);
+                for (int index = 0; index < sources.size(); index++) {
+                    CertificateSource source = sources.get(index);
+                    if (source.kind() == kind) {
+                        table.add(hash(source.toString()), id, index);
+                    }
+                }
+            }
+            // stable: ids of a key stay in increasing order
+            LongIntArrays.sort(table.hashes, table.entries, 0, table.size);
+            return table;
+        }
+
+        private void add(long hash, int id, int index) {
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            hashes[size] = hash;
+            entries[size] = size;
+            ids[size] = id;
+            indexes[size++] = index;
+        }
+
+        /**
+         * @return the end of the run of the given hash starting at {@code from} ({@code from} if there's none)
+         */
+        int groupEnd(int from, long hash) {
+            int end = from;
+            while (end < size && hashes[end] == hash) {
+                end++;
+            }
+            return end;
+        }
+
+        /**
+         * @return the certificate ids of the group, by key
+         */
+        Map<String, List<Integer>> keys(DiffInput input, int from, int to, long hash) {
+            Map<String, List<Integer>> keys = new LinkedHashMap<>();
+            for (int i = from; i < to; i++) {
+                int entry = entries[i];
+                int id = ids[entry];
+                // only the source the entry stands for: a certificate shared by many keys (e.g. an intermediate
+                // served by every endpoint) would otherwise have all of its sources decoded once per key
+                String key = input.source(id, indexes[entry]).toString();
+                if (hash(key) != hash) {
+                    continue;
+                }
+                List<Integer> keyIds = keys.computeIfAbsent(key, k -> new ArrayList<>(2));
+                if (keyIds.isEmpty() || keyIds.getLast() != id) {
+                    keyIds.add(id);
+                }
+            }
+            return keys;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package br.com.hugobenicio.mycerts.core.diff;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.report.Json;
+
+/**
+ * A change between two certificate sets
+ *
+ * @param kind what changed
+ * @param key what changed, by kind: a fingerprint, an endpoint ({@code endpoint:host:port#sni}) or a file entry
+ *            ({@code file:path#alias})
+ * @param before the old certificate (the old endpoint leaf), null if added
+ * @param after the new certificate (the new endpoint leaf), null if removed
+ * @param subject subject DN of the new certificate (of the old one, if removed)
+ * @param issuer issuer DN of the new certificate (of the old one, if removed)
+ * @param previousIssuer issuer DN of the old certificate, when replaced (null otherwise)
+ */
+public record DiffEvent(Kind kind, String key, Fingerprint before, Fingerprint after, String subject, String issuer,
+                        String previousIssuer) {
+
+    public enum Kind {
+        CERTIFICATE_ADDED,
+        CERTIFICATE_REMOVED,
+        ENDPOINT_ADDED,
+        ENDPOINT_REMOVED,
+        /**
+         * The endpoint leaf was replaced by one from the same issuer
+         */
+        LEAF_ROTATED,
+        /**
+         * The endpoint leaf was replaced by one from another issuer: the chain moved to another CA
+         */
+        ISSUER_CHANGED,
+        /**
+         * Same endpoint leaf, other intermediates
+         */
+        CHAIN_CHANGED,
+        ALIAS_ADDED,
+        ALIAS_REMOVED,
+        /**
+         * The file entry now holds another certificate
+         */
+        ALIAS_CHANGED
+    }
+
+    public String toJson() {
+        var json = new StringBuilder(256);
+        json.append("{\"kind\":\"").append(kind).append('"')
+                .append(",\"key\":").append(Json.quote(key))
+                .append(",\"before\":").append(before != null ? Json.quote(before.toHex()) : "null")
+                .append(",\"after\":").append(after != null ? Json.quote(after.toHex()) : "null")
+                .append(",\"subject\":").append(subject != null ? Json.quote(subject) : "null")
+                .append(",\"issuer\":").append(issuer != null ? Json.quote(issuer) : "null");
+        if (previousIssuer != null) {
+            json.append(",\"previousIssuer\":").append(Json.quote(previousIssuer));
+        }
+        return json.append('}').toString();
+    }
+
+    @Override
+    public String toString() {
+        var line = new StringBuilder(128).append(kind).append(' ').append(key);
+        if (kind == Kind.ISSUER_CHANGED) {
+            line.append(" issuer: \"").append(previousIssuer).append("\" -> \"").append(issuer).append('"');
+        } else if (subject != null && !key.equals(subject)) {
+            line.append(" subject=\"").append(subject).append('"');
+        }
+        if (before != null && after != null) {
+            line.append(' ').append(before.toHex(), 0, 16).append(" -> ").append(after.toHex(), 0, 16);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,122 @@
+package br.com.hugobenicio.mycerts.core.diff;
+
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.report.CertificateSet;
+import br.com.hugobenicio.mycerts.core.report.ReportEntry;
+import br.com.hugobenicio.mycerts.core.snapshot.Snapshot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One side of a {@link CertificateDiff}: certificates in increasing fingerprint order, with the few fields diffs look
+ * at. Snapshots already are in that order, so they are diffed straight from their mapped columns.
+ */
+public interface DiffInput {
+
+    int size();
+
+    Fingerprint fingerprint(int id);
+
+    /**
+     * @return the subject distinguished name (RFC 2253)
+     */
+    String subject(int id);
+
+    /**
+     * @return the issuer distinguished name (RFC 2253)
+     */
+    String issuer(int id);
+
+    long notBeforeEpochSecond(int id);
+
+    List<CertificateSource> sources(int id);
+
+    /**
+     * @return the source at the given position of {@link #sources(int)}
+     */
+    default CertificateSource source(int id, int index) {
+        return sources(id).get(index);
+    }
+
+    static DiffInput of(Snapshot snapshot) {
+        return new DiffInput() {
+            @Override
+            public int size() {
+                return snapshot.size();
+            }
+
+            @Override
+            public Fingerprint fingerprint(int id) {
+                return snapshot.fingerprint(id);
+            }
+
+            @Override
+            public String subject(int id) {
+                return snapshot.subject(id);
+            }
+
+            @Override
+            public String issuer(int id) {
+                return snapshot.issuer(id);
+            }
+
+            @Override
+            public long notBeforeEpochSecond(int id) {
+                return snapshot.notBeforeEpochSecond(id);
+            }
+
+            @Override
+            public List<CertificateSource> sources(int id) {
+                return snapshot.sources(id);
+            }
+
+            @Override
+            public CertificateSource source(int id, int index) {
+                return snapshot.source(id, index);
+            }
+        };
+    }
+
+    /**
+     * Sorts a copy of the entries by fingerprint. Fingerprints are expected to be unique (as in a
+     * {@link br.com.hugobenicio.mycerts.core.CertificateAnalyzer#snapshot()}).
+     */
+    static DiffInput of(CertificateSet certificates) {
+        List<ReportEntry> entries = new ArrayList<>(certificates.entries());
+        entries.sort(Comparator.comparing(ReportEntry::fingerprint));
+        return new DiffInput() {
+            @Override
+            public int size() {
+                return entries.size();
+            }
+
+            @Override
+            public Fingerprint fingerprint(int id) {
+                return entries.get(id).fingerprint();
+            }
+
+            @Override
+            public String subject(int id) {
+                return entries.get(id).certificate().getSubjectX500Principal().getName();
+            }
+
+            @Override
+            public String issuer(int id) {
+                return entries.get(id).certificate().getIssuerX500Principal().getName();
+            }
+
+            @Override
+            public long notBeforeEpochSecond(int id) {
+                return entries.get(id).certificate().getNotBefore().getTime() / 1000;
+            }
+
+            @Override
+            public List<CertificateSource> sources(int id) {
+                return entries.get(id).sources();
+            }
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package br.com.hugobenicio.mycerts.core.diff;
+
+/**
+ * What a {@link CertificateDiff} compares
+ *
+ * @param certificates certificates added and removed, by fingerprint
+ * @param endpoints endpoint chains: endpoints added and removed, rotated leaves, chains moved to another CA
+ * @param aliases file entries (key store aliases, pem files): entries added, removed and replaced
+ */
+public record DiffOptions(boolean certificates, boolean endpoints, boolean aliases) {
+
+    public static DiffOptions defaults() {
+        return new DiffOptions(true, true, true);
+    }
+}
@@ -0,0 +1,23 @@
+package br.com.hugobenicio.mycerts.core.diff;
+
+import java.util.Map;
+
+/**
+ * Outcome of a {@link CertificateDiff}
+ *
+ * @param beforeCertificates number of certificates of the old side
+ * @param afterCertificates number of certificates of the new side
+ * @param unchangedCertificates number of certificates in both sides
+ * @param changes number of change events by kind
+ */
+public record DiffSummary(int beforeCertificates, int afterCertificates, int unchangedCertificates,
+                          Map<DiffEvent.Kind, Long> changes) {
+
+    public DiffSummary {
+        changes = Map.copyOf(changes);
+    }
+
+    public long totalChanges() {
+        return changes.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
@@ -0,0 +1,88 @@
+package br.com.hugobenicio.mycerts.core.expiry;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Bucket boundaries of the expiration report, in days ahead of now (e.g. 7, 30, 90, 180). Besides the configured
+ * buckets, there are always an "expired" bucket and a "not expiring soon" one.
+ */
+public final class ExpiryBuckets {
+
+    public static final ExpiryBuckets DEFAULT = new ExpiryBuckets(7, 30, 90, 180);
+
+    private static final long SECONDS_PER_DAY = TimeUnit.DAYS.toSeconds(1);
+
+    private final int[] days;
+
+    /**
+     * @param days strictly ascending, positive number of days
+     */
+    public ExpiryBuckets(int... days) {
+        for (int i = 0; i < days.length; i++) {
+            if (days[i] <= 0 || (i > 0 && days[i] <= days[i - 1])) {
+                throw new IllegalArgumentException(format("bucket days must be positive and strictly ascending. days=%s",
+                        Arrays.toString(days)));
+            }
+        }
+        this.days = days.clone();
+    }
+
+    /**
+     * Parses a comma separated list of days, like {@code 7,30,90,180}
+     */
+    public static ExpiryBuckets parse(String days) {
+        try {
+            return new ExpiryBuckets(Arrays.stream(days.split(","))
+                    .map(String::strip)
+                    .filter(day -> !day.isEmpty())
+                    .mapToInt(Integer::parseInt)
+                    .toArray());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format("invalid bucket days. days=\"%s\"", days), e);
+        }
+    }
+
+    /**
+     * @return number of configured buckets (not counting "expired" and "not expiring soon")
+     */
+    public int count() {
+        return days.length;
+    }
+
+    public int days(int bucket) {
+        return days[bucket];
+    }
+
+    /**
+     * @return the boundaries to be used with {@link ExpiryIndex#countBuckets(long[], int[])}: now, then now plus each
+     * bucket days, in epoch seconds
+     */
+    public long[] boundaries(Instant now) {
+        long nowEpochSecond = now.getEpochSecond();
+        long[] boundaries = new long[days.length + 1];
+        boundaries[0] = nowEpochSecond;
+        for (int i = 0; i < days.length; i++) {
+            boundaries[i + 1] = nowEpochSecond + days[i] * SECONDS_PER_DAY;
+        }
+        return boundaries;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ExpiryBuckets other && Arrays.equals(days, other.days);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(days);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(days);
+    }
+}
@@ -0,0 +1,227 @@
+package br.com.hugobenicio.mycerts.core.expiry;
+
+import br.com.hugobenicio.mycerts.core.utils.LongIntArrays;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Index of certificate ids by expiration date (NotAfter, in epoch seconds), kept as two parallel primitive arrays
+ * sorted by date.
+ *
+ * <p>Range queries are a binary search plus a walk over the matching entries (O(log n + k)) and don't allocate.
+ * Additions are merged into a new sorted copy by the writer (O(n + k log k) per batch of k), so queries never pay for
+ * them: bulk loads should build the index in one go ({@link #of}, {@link #ofSorted}) or add in batches
+ * ({@link #addAll}).
+ *
+ * <p>Thread-safe: queries run on immutable sorted snapshots; additions are serialized.
+ */
+public class ExpiryIndex {
+
+    /**
+     * Receives the entries matched by a query, in expiration order
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long notAfterEpochSecond, int id);
+    }
+
+    /**
+     * Receives the entries matched by a query, in expiration order, until it returns false
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        boolean visit(long notAfterEpochSecond, int id);
+    }
+
+    /**
+     * Entries sorted by expiration. Ids with the same expiration keep their insertion order
+     */
+    private record Sorted(long[] notAfters, int[] ids, int size) {}
+
+    private static final Sorted EMPTY = new Sorted(new long[0], new int[0], 0);
+
+    private volatile Sorted sorted = EMPTY;
+
+    public ExpiryIndex() {
+    }
+
+    /**
+     * Builds an index in one go
+     *
+     * @param notAfterEpochSeconds expiration of each id: {@code notAfterEpochSeconds[id]}
+     */
+    public static ExpiryIndex of(long[] notAfterEpochSeconds) {
+        int size = notAfterEpochSeconds.length;
+        long[] notAfters = Arrays.copyOf(notAfterEpochSeconds, size);
+        int[] ids = new int[size];
+        for (int id = 0; id < size; id++) {
+            ids[id] = id;
+        }
+        LongIntArrays.sort(notAfters, ids, 0, size);
+
+        var index = new ExpiryIndex();
+        index.sorted = new Sorted(notAfters, ids, size);
+        return index;
+    }
+
+    /**
+     * Builds an index over entries already sorted by expiration (e.g. read from a snapshot). The arrays are owned by
+     * the index afterwards
+     */
+    public static ExpiryIndex ofSorted(long[] notAfterEpochSeconds, int[] ids) {
+        if (notAfterEpochSeconds.length != ids.length) {
+            throw new IllegalArgumentException("expirations and ids must have the same length");
+        }
+        var index = new ExpiryIndex();
+        index.sorted = new Sorted(notAfterEpochSeconds, ids, ids.length);
+        return index;
+    }
+
+    /**
+     * Adds one entry, copying the whole index: prefer {@link #addAll} for more than a few entries
+     */
+    public void add(long notAfterEpochSecond, int id) {
+        addAll(new long[]{notAfterEpochSecond}, new int[]{id}, 1);
+    }
+
+    /**
+     * Adds a batch of entries with a single merge. Ids with the same expiration keep their insertion order.
+     *
+     * @param notAfterEpochSeconds expiration of each added entry (not modified)
+     * @param ids id of each added entry (not modified)
+     * @param count number of entries to add, from the start of the arrays
+     */
+    public synchronized void addAll(long[] notAfterEpochSeconds, int[] ids, int count) {
+        if (count == 0) {
+            return;
+        }
+        long[] addedNotAfters = Arrays.copyOf(notAfterEpochSeconds, count);
+        int[] addedIds = Arrays.copyOf(ids, count);
+        LongIntArrays.sort(addedNotAfters, addedIds, 0, count);
+
+        Sorted current = sorted;
+        int size = current.size() + count;
+        long[] mergedNotAfters = new long[size];
+        int[] mergedIds = new int[size];
+        LongIntArrays.merge(current.notAfters(), current.ids(), current.size(),
+                addedNotAfters, addedIds, count,
+                mergedNotAfters, mergedIds);
+        sorted = new Sorted(mergedNotAfters, mergedIds, size);
+    }
+
+    public void add(Instant notAfter, int id) {
+        add(notAfter.getEpochSecond(), id);
+    }
+
+    public int size() {
+        return sorted.size();
+    }
+
+    /**
+     * @return number of entries expiring in {@code [fromEpochSecond, toEpochSecond)}
+     */
+    public int count(long fromEpochSecond, long toEpochSecond) {
+        Sorted s = sorted;
+        if (fromEpochSecond >= toEpochSecond) {
+            return 0;
+        }
+        int from = LongIntArrays.lowerBound(s.notAfters(), 0, s.size(), fromEpochSecond);
+        int to = LongIntArrays.lowerBound(s.notAfters(), from, s.size(), toEpochSecond);
+        return to - from;
+    }
+
+    /**
+     * Visits the entries expiring in {@code [fromEpochSecond, toEpochSecond)}, in expiration order.
+     *
+     * @return the number of visited entries
+     */
+    public int forEach(long fromEpochSecond, long toEpochSecond, EntryConsumer consumer) {
+        Sorted s = sorted;
+        if (fromEpochSecond >= toEpochSecond) {
+            return 0;
+        }
+        int from = LongIntArrays.lowerBound(s.notAfters(), 0, s.size(), fromEpochSecond);
+        int to = LongIntArrays.lowerBound(s.notAfters(), from, s.size(), toEpochSecond);
+        for (int i = from; i < to; i++) {
+            consumer.accept(s.notAfters()[i], s.ids()[i]);
+        }
+        return to - from;
+    }
+
+    /**
+     * Visits the entries expiring in {@code [fromEpochSecond, toEpochSecond)}, in expiration order, until the visitor
+     * asks to stop. Useful for paging.
+     *
+     * @return the number of visited entries
+     */
+    public int forEachUntil(long fromEpochSecond, long toEpochSecond, EntryVisitor visitor) {
+        Sorted s = sorted;
+        if (fromEpochSecond >= toEpochSecond) {
+            return 0;
+        }
+        int from = LongIntArrays.lowerBound(s.notAfters(), 0, s.size(), fromEpochSecond);
+        int visited = 0;
+        for (int i = from; i < s.size() && s.notAfters()[i] < toEpochSecond; i++) {
+            visited++;
+            if (!visitor.visit(s.notAfters()[i], s.ids()[i])) {
+                break;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Same as {@link #forEach(long, long, EntryConsumer)}, for when only ids matter
+     */
+    public int forEachId(long fromEpochSecond, long toEpochSecond, IntConsumer consumer) {
+        return forEach(fromEpochSecond, toEpochSecond, (notAfter, id) -> consumer.accept(id));
+    }
+
+    /**
+     * @return number of entries already expired at the given instant
+     */
+    public int countExpired(Instant now) {
+        return count(Long.MIN_VALUE, now.getEpochSecond());
+    }
+
+    /**
+     * @return number of entries not yet expired at the given instant but expiring within the given window
+     */
+    public int countExpiringWithin(Instant now, Duration window) {
+        return count(now.getEpochSecond(), now.plus(window).getEpochSecond());
+    }
+
+    /**
+     * Visits the entries not yet expired at the given instant but expiring within the given window
+     *
+     * @return the number of visited entries
+     */
+    public int forEachExpiringWithin(Instant now, Duration window, EntryConsumer consumer) {
+        return forEach(now.getEpochSecond(), now.plus(window).getEpochSecond(), consumer);
+    }
+
+    /**
+     * Counts entries per bucket in a single pass of binary searches.
+     *
+     * @param boundaries ascending bucket boundaries, in epoch seconds
+     * @param counts output, with length {@code boundaries.length + 1}: {@code counts[0]} is the number of entries
+     *               before {@code boundaries[0]}, {@code counts[i]} of entries in {@code [boundaries[i-1], boundaries[i])}
+     *               and the last one of entries at or after the last boundary
+     */
+    public void countBuckets(long[] boundaries, int[] counts) {
+        if (counts.length != boundaries.length + 1) {
+            throw new IllegalArgumentException("counts must have one more slot than boundaries");
+        }
+        Sorted s = sorted;
+        int previous = 0;
+        for (int i = 0; i < boundaries.length; i++) {
+            int position = LongIntArrays.lowerBound(s.notAfters(), previous, s.size(), boundaries[i]);
+            counts[i] = position - previous;
+            previous = position;
+        }
+        counts[boundaries.length] = s.size() - previous;
+    }
+}
@@ -0,0 +1,198 @@
+package br.com.hugobenicio.mycerts.core.expiry;
+
+import br.com.hugobenicio.mycerts.core.utils.LongIntArrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Streaming selection of the {@code limit} items expiring soonest out of any number of offered ones, e.g. straight from
+ * the ingestion listener, without keeping or sorting everything: a bounded max-heap on primitive NotAfter keys, so
+ * offers cost O(log limit) and memory is O(limit).
+ *
+ * <p>Items with the same NotAfter keep their offer order, so the selection matches the head of a stable sort.
+ *
+ * <p>Not thread-safe: offers must be serialized (ingestion listener calls already are).
+ *
+ * @param <T> the selected items
+ */
+public class SoonestExpiring<T> {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int limit;
+
+    private final Function<? super T, ?> identity;
+
+    private final Set<Object> selectedIdentities;
+
+    // heap arrays: the root is the entry expiring last (ties: the one offered last), i.e. the next one to be evicted
+    private long[] notAfters;
+
+    private long[] offerOrders;
+
+    private Object[] items;
+
+    private Object[] identities;
+
+    private int size;
+
+    private long offered;
+
+    public SoonestExpiring(int limit) {
+        this(limit, null);
+    }
+
+    /**
+     * @param limit how many items are kept
+     * @param identity when not null, an item whose identity (e.g. the certificate fingerprint) is already selected is
+     *                 skipped. It is only computed for the items making it into the selection.
+     */
+    public SoonestExpiring(int limit, Function<? super T, ?> identity) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive. limit=" + limit);
+        }
+        this.limit = limit;
+        this.identity = identity;
+        this.selectedIdentities = identity != null ? new HashSet<>() : null;
+        int capacity = Math.min(limit, INITIAL_CAPACITY);
+        this.notAfters = new long[capacity];
+        this.offerOrders = new long[capacity];
+        this.items = new Object[capacity];
+        this.identities = identity != null ? new Object[capacity] : null;
+    }
+
+    /**
+     * @param notAfter the item expiration, in any unit (e.g. epoch seconds) as long as every offer uses the same one
+     * @return whether the item was selected (it may still be evicted by later offers)
+     */
+    public boolean offer(T item, long notAfter) {
+        long offerOrder = offered++;
+        boolean full = size == limit;
+        if (full && notAfter >= notAfters[0]) {
+            return false; // expires after everything selected (or ties with it, but was offered later)
+        }
+        Object itemIdentity = null;
+        if (identity != null) {
+            itemIdentity = identity.apply(item);
+            if (!selectedIdentities.add(itemIdentity)) {
+                return false;
+            }
+        }
+        if (full) {
+            if (identity != null) {
+                selectedIdentities.remove(identities[0]);
+            }
+            set(0, notAfter, offerOrder, item, itemIdentity);
+            siftDown(0);
+        } else {
+            if (size == notAfters.length) {
+                grow();
+            }
+            set(size, notAfter, offerOrder, item, itemIdentity);
+            siftUp(size++);
+        }
+        return true;
+    }
+
+    /**
+     * @return how many items are selected (at most the limit)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return how many items were offered so far
+     */
+    public long offered() {
+        return offered;
+    }
+
+    /**
+     * @return the selected items, expiring sooner first
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> toList() {
+        long[] keys = Arrays.copyOf(offerOrders, size);
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+        // two stable passes: by offer order, then by NotAfter
+        LongIntArrays.sort(keys, positions, 0, size);
+        for (int i = 0; i < size; i++) {
+            keys[i] = notAfters[positions[i]];
+        }
+        LongIntArrays.sort(keys, positions, 0, size);
+
+        var result = new ArrayList<T>(size);
+        for (int position : positions) {
+            result.add((T) items[position]);
+        }
+        return result;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(limit, notAfters.length * 2L);
+        notAfters = Arrays.copyOf(notAfters, capacity);
+        offerOrders = Arrays.copyOf(offerOrders, capacity);
+        items = Arrays.copyOf(items, capacity);
+        if (identities != null) {
+            identities = Arrays.copyOf(identities, capacity);
+        }
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!expiresLater(index, parent)) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int latest = right < size && expiresLater(right, left) ? right : left;
+            if (!expiresLater(latest, index)) {
+                return;
+            }
+            swap(index, latest);
+            index = latest;
+        }
+    }
+
+    private boolean expiresLater(int a, int b) {
+        return notAfters[a] > notAfters[b] || (notAfters[a] == notAfters[b] && offerOrders[a] > offerOrders[b]);
+    }
+
+    private void set(int index, long notAfter, long offerOrder, Object item, Object itemIdentity) {
+        notAfters[index] = notAfter;
+        offerOrders[index] = offerOrder;
+        items[index] = item;
+        if (identities != null) {
+            identities[index] = itemIdentity;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long notAfter = notAfters[a];
+        long offerOrder = offerOrders[a];
+        Object item = items[a];
+        Object itemIdentity = identities != null ? identities[a] : null;
+        set(a, notAfters[b], offerOrders[b], items[b], identities != null ? identities[b] : null);
+        set(b, notAfter, offerOrder, item, itemIdentity);
+    }
+}
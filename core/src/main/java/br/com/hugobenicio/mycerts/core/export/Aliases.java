@@ -0,0 +1,89 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Deterministic, collision-free key store aliases (and file names): the subject common name (or the whole subject if
+ * there's none) turned into a lower case slug, followed by the fingerprint prefix, e.g.
+ * {@code www.example.com-3f2a9c01d4e5b6a7}. If two certificates would still get the same alias, the later one gets
+ * the full fingerprint instead of the prefix.
+ *
+ * <p>Aliases are lower case because key stores may compare them ignoring case. Not thread-safe.
+ */
+final class Aliases {
+
+    private static final int MAX_NAME_LENGTH = 48;
+
+    private static final int FINGERPRINT_PREFIX_LENGTH = 16;
+
+    private final Set<String> used = new HashSet<>();
+
+    String aliasOf(Fingerprint fingerprint, String subject) {
+        String name = slug(subject);
+        String hex = fingerprint.toHex();
+        String alias = name + "-" + hex.substring(0, FINGERPRINT_PREFIX_LENGTH);
+        if (!used.add(alias)) {
+            alias = name + "-" + hex;
+            used.add(alias);
+        }
+        return alias;
+    }
+
+    /**
+     * @return a file name friendly version of the common name of the DN (or of the whole DN, if it has none)
+     */
+    static String slug(String distinguishedName) {
+        String name = commonName(distinguishedName);
+        var slug = new StringBuilder(Math.min(name.length(), MAX_NAME_LENGTH));
+        for (int i = 0; i < name.length() && slug.length() < MAX_NAME_LENGTH; i++) {
+            char c = Character.toLowerCase(name.charAt(i));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_') {
+                slug.append(c);
+            } else if (c == '.' && !slug.isEmpty()) {
+                slug.append(c);
+            } else if (!slug.isEmpty() && slug.charAt(slug.length() - 1) != '-') {
+                slug.append('-');
+            }
+        }
+        while (!slug.isEmpty() && slug.charAt(slug.length() - 1) == '-') {
+            slug.setLength(slug.length() - 1);
+        }
+        return slug.isEmpty() ? "certificate" : slug.toString();
+    }
+
+    /**
+     * @param distinguishedName an RFC 2253 DN
+     * @return the value of its first CN attribute, or the DN itself if it has none
+     */
+    static String commonName(String distinguishedName) {
+        int start = -1;
+        for (int i = 0; i + 3 <= distinguishedName.length(); i++) {
+            boolean attributeStart = i == 0
+                    || (distinguishedName.charAt(i - 1) == ',' && !isEscaped(distinguishedName, i - 1));
+            if (attributeStart && distinguishedName.regionMatches(true, i, "CN=", 0, 3)) {
+                start = i + 3;
+                break;
+            }
+        }
+        if (start < 0) {
+            return distinguishedName;
+        }
+        int end = start;
+        while (end < distinguishedName.length()
+                && !(distinguishedName.charAt(end) == ',' && !isEscaped(distinguishedName, end))) {
+            end++;
+        }
+        return distinguishedName.substring(start, end).replace("\\", "");
+    }
+
+    private static boolean isEscaped(String value, int index) {
+        int backslashes = 0;
+        for (int i = index - 1; i >= 0 && value.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+}
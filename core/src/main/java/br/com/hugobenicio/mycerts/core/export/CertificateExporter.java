@@ -0,0 +1,202 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.pem.PemWriter;
+import br.com.hugobenicio.mycerts.core.utils.LongIntArrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * Exports certificates to key stores (JKS, PKCS12), PEM bundles or one PEM file per certificate, optionally sharded
+ * by issuer or expiry bucket. Certificates are deduplicated by fingerprint and get deterministic, collision-free
+ * aliases (see {@link Aliases}).
+ *
+ * <p>Exports are streamed: certificates are consumed one at a time and appended to their output file, and key stores
+ * are written without a {@link java.security.KeyStore} (see {@link JksExportFile} and {@link Pkcs12ExportFile}), so
+ * time is linear and memory doesn't depend on the certificates (only their fingerprints and aliases are kept, for
+ * deduplication). Every file is written to a temporary file and renamed over its target once complete.
+ *
+ * <p>Not thread-safe: an instance is meant for one export at a time.
+ */
+public class CertificateExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(CertificateExporter.class);
+
+    /**
+     * Max number of shard files kept open at a time. The least recently written one is closed past that
+     */
+    private static final int MAX_OPEN_FILES = 32;
+
+    private final ExportOptions options;
+
+    public CertificateExporter(ExportOptions options) {
+        if (options.format() != ExportFormat.PEM && options.format() != ExportFormat.PEM_FILES
+                && (options.password() == null || options.password().isEmpty())) {
+            throw new IllegalArgumentException("key store exports require a password");
+        }
+        this.options = options;
+    }
+
+    public ExportSummary export(Iterable<ExportEntry> entries, Path target) throws IOException {
+        return export(entries.iterator(), target);
+    }
+
+    /**
+     * @param entries the certificates, consumed as they're written
+     * @param target the output file or, for {@link ExportFormat#PEM_FILES} or sharded exports, directory
+     */
+    public ExportSummary export(Iterator<ExportEntry> entries, Path target) throws IOException {
+        final long startNanos = System.nanoTime();
+        boolean directory = options.format() == ExportFormat.PEM_FILES || options.sharding() != ExportSharding.NONE;
+        if (directory) {
+            Files.createDirectories(target);
+        }
+
+        var aliases = new Aliases();
+        var shards = new Shards();
+        Set<Fingerprint> exported = new HashSet<>();
+        Map<String, ExportFile> files = new HashMap<>();
+        Map<ExportFile, Boolean> openFiles = new LinkedHashMap<>(MAX_OPEN_FILES, 0.75f, true);
+        int duplicates = 0;
+        int certificateFiles = 0;
+        try {
+            while (entries.hasNext()) {
+                ExportEntry entry = entries.next();
+                if (!exported.add(entry.fingerprint())) {
+                    duplicates++;
+                    continue;
+                }
+                String alias = aliases.aliasOf(entry.fingerprint(), entry.subject());
+                String shard = shards.shardOf(entry);
+
+                if (options.format() == ExportFormat.PEM_FILES) {
+                    Path shardDirectory = shard != null ? target.resolve(shard) : target;
+                    if (shard != null && shards.created.add(shard)) {
+                        Files.createDirectories(shardDirectory);
+                    }
+                    writeCertificateFile(shardDirectory.resolve(alias + "." + options.format().extension()), entry);
+                    certificateFiles++;
+                    continue;
+                }
+
+                ExportFile file = files.get(shard);
+                if (file == null) {
+                    Path path = shard != null ? target.resolve(shard + "." + options.format().extension()) : target;
+                    file = newFile(path);
+                    files.put(shard, file);
+                }
+                file.write(entry, alias);
+                openFiles.put(file, Boolean.TRUE);
+                if (openFiles.size() > MAX_OPEN_FILES) {
+                    ExportFile eldest = openFiles.keySet().iterator().next();
+                    openFiles.remove(eldest);
+                    eldest.suspend();
+                }
+            }
+
+            if (files.isEmpty() && !directory) {
+                // an empty key store or bundle is still a valid output
+                files.put(null, newFile(target));
+            }
+            for (ExportFile file : files.values()) {
+                file.finish();
+            }
+        } catch (IOException | RuntimeException e) {
+            files.values().forEach(ExportFile::abort);
+            throw e;
+        }
+
+        var summary = new ExportSummary(exported.size(), duplicates, files.size() + certificateFiles,
+                Duration.ofNanos(System.nanoTime() - startNanos));
+        log.atInfo().setMessage("certificates exported")
+                .addKeyValue("target", target)
+                .addKeyValue("format", options.format())
+                .addKeyValue("sharding", options.sharding())
+                .addKeyValue("certificates", summary.certificates())
+                .addKeyValue("duplicates", summary.duplicates())
+                .addKeyValue("files", summary.files())
+                .addKeyValue("elapsed_ms", summary.elapsed().toMillis())
+                .log();
+        return summary;
+    }
+
+    private ExportFile newFile(Path path) {
+        return switch (options.format()) {
+            case JKS -> new JksExportFile(path, options.password(), options.now());
+            case PKCS12 -> new Pkcs12ExportFile(path, options.password());
+            case PEM -> new PemExportFile(path);
+            case PEM_FILES -> throw new IllegalStateException("per certificate files are written directly");
+        };
+    }
+
+    private static void writeCertificateFile(Path path, ExportEntry entry) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var writer = new PemWriter(Files.newOutputStream(temporary))) {
+            writer.writeCertificate(entry.der(), entry.subject());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        ExportFile.move(temporary, path);
+    }
+
+    /**
+     * Shard names: file name friendly and unique per issuer (or expiry bucket)
+     */
+    private final class Shards {
+
+        private final Map<String, String> byIssuer = new HashMap<>();
+
+        private final Set<String> names = new HashSet<>();
+
+        private final Set<String> created = new HashSet<>();
+
+        private final long[] boundaries = options.expiryBuckets().boundaries(options.now());
+
+        /**
+         * @return the shard name, or null when not sharding
+         */
+        String shardOf(ExportEntry entry) {
+            return switch (options.sharding()) {
+                case NONE -> null;
+                case ISSUER -> byIssuer.computeIfAbsent(entry.issuer(), this::uniqueName);
+                case EXPIRY -> expiryBucket(entry.notAfterEpochSecond());
+            };
+        }
+
+        private String uniqueName(String issuer) {
+            String slug = Aliases.slug(issuer);
+            String name = slug;
+            for (int i = 2; !names.add(name); i++) {
+                name = slug + "-" + i;
+            }
+            return name;
+        }
+
+        private String expiryBucket(long notAfterEpochSecond) {
+            // boundaries[0] is now, then now plus each bucket days. The bucket is the number of boundaries not after
+            // the expiration, like the buckets of ExpiryIndex.countBuckets
+            int bucket = LongIntArrays.lowerBound(boundaries, 0, boundaries.length, notAfterEpochSecond + 1);
+            if (bucket == 0) {
+                return "expired";
+            }
+            if (bucket == boundaries.length) {
+                return "not-expiring-soon";
+            }
+            return format("expiring-within-%d-days", options.expiryBuckets().days(bucket - 1));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Just enough DER encoding for the key store writers. Lengths are longs because the outer elements of a big key
+ * store are written before their (streamed) content.
+ */
+final class DerOutput {
+
+    static final int INTEGER = 0x02;
+    static final int OCTET_STRING = 0x04;
+    static final int BMP_STRING = 0x1E;
+    static final int SEQUENCE = 0x30;
+    static final int SET = 0x31;
+    static final int CONTEXT_0 = 0xA0;
+
+    private DerOutput() {}
+
+    /**
+     * @return tag and length of an element with the given content length
+     */
+    static byte[] header(int tag, long contentLength) {
+        int lengthBytes = lengthOfLength(contentLength);
+        byte[] header = new byte[1 + lengthBytes];
+        header[0] = (byte) tag;
+        if (lengthBytes == 1) {
+            header[1] = (byte) contentLength;
+        } else {
+            header[1] = (byte) (0x80 | (lengthBytes - 1));
+            for (int i = 0; i < lengthBytes - 1; i++) {
+                header[lengthBytes - i] = (byte) (contentLength >>> (8 * i));
+            }
+        }
+        return header;
+    }
+
+    /**
+     * @return total length of an element with the given content length
+     */
+    static long elementLength(long contentLength) {
+        return 1 + lengthOfLength(contentLength) + contentLength;
+    }
+
+    /**
+     * @return an element made of the given (concatenated) contents
+     */
+    static byte[] element(int tag, byte[]... contents) {
+        long contentLength = 0;
+        for (byte[] content : contents) {
+            contentLength += content.length;
+        }
+        var out = new ByteArrayOutputStream(Math.toIntExact(elementLength(contentLength)));
+        out.writeBytes(header(tag, contentLength));
+        for (byte[] content : contents) {
+            out.writeBytes(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static int lengthOfLength(long contentLength) {
+        if (contentLength < 0x80) {
+            return 1;
+        }
+        int bytes = 0;
+        for (long value = contentLength; value != 0; value >>>= 8) {
+            bytes++;
+        }
+        return 1 + bytes;
+    }
+
+    static byte[] hex(String hex) {
+        String digits = hex.replace(" ", "");
+        byte[] bytes = new byte[digits.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(digits, 2 * i, 2 * i + 2, 16);
+        }
+        return bytes;
+    }
+}
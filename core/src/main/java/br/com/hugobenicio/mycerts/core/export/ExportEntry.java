@@ -0,0 +1,52 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.report.ReportEntry;
+import br.com.hugobenicio.mycerts.core.snapshot.Snapshot;
+
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+
+import static java.lang.String.format;
+
+/**
+ * What the {@link CertificateExporter} needs to know about a certificate, so it can export certificates which were
+ * never decoded (e.g. from a {@link Snapshot}).
+ *
+ * @param fingerprint the certificate fingerprint
+ * @param der its DER encoding
+ * @param subject its subject DN (RFC 2253)
+ * @param issuer its issuer DN (RFC 2253)
+ * @param notAfterEpochSecond its expiration
+ */
+public record ExportEntry(Fingerprint fingerprint, byte[] der, String subject, String issuer,
+                          long notAfterEpochSecond) {
+
+    public static ExportEntry of(X509Certificate certificate) {
+        return of(certificate, Fingerprint.of(certificate));
+    }
+
+    public static ExportEntry of(ReportEntry entry) {
+        return of(entry.certificate(), entry.fingerprint());
+    }
+
+    public static ExportEntry of(X509Certificate certificate, Fingerprint fingerprint) {
+        final byte[] der;
+        try {
+            der = certificate.getEncoded();
+        } catch (CertificateEncodingException e) {
+            throw new IllegalArgumentException(format("certificate can't be encoded. subject=\"%s\"",
+                    certificate.getSubjectX500Principal().getName()), e);
+        }
+        return new ExportEntry(fingerprint, der, certificate.getSubjectX500Principal().getName(),
+                certificate.getIssuerX500Principal().getName(), certificate.getNotAfter().getTime() / 1000);
+    }
+
+    /**
+     * Reads the entry straight from the snapshot columns, without decoding the certificate
+     */
+    public static ExportEntry of(Snapshot snapshot, int id) {
+        return new ExportEntry(snapshot.fingerprint(id), snapshot.der(id), snapshot.subject(id), snapshot.issuer(id),
+                snapshot.notAfterEpochSecond(id));
+    }
+}
@@ -0,0 +1,106 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An output file of an export. Certificates are appended to a temporary file next to the target, which is only
+ * renamed over the target by {@link #finish()}, so readers never see a partial file.
+ *
+ * <p>Its stream may be closed between writes ({@link #suspend()}) and is reopened in append mode on the next write,
+ * so exports with many shards don't need as many open files.
+ */
+abstract class ExportFile {
+
+    protected final Path target;
+
+    /**
+     * Where the certificates are appended
+     */
+    protected final Path temporary;
+
+    private boolean created;
+
+    protected int count;
+
+    ExportFile(Path target, String temporarySuffix) {
+        this.target = target;
+        this.temporary = target.resolveSibling(target.getFileName() + temporarySuffix);
+    }
+
+    /**
+     * Appends a certificate
+     */
+    abstract void write(ExportEntry entry, String alias) throws IOException;
+
+    /**
+     * Closes the stream (if open), keeping what was written
+     */
+    abstract void suspend() throws IOException;
+
+    /**
+     * Completes the file and renames it over the target
+     */
+    void finish() throws IOException {
+        suspend();
+        complete();
+    }
+
+    /**
+     * Turns the temporary file into the target. By default, just renames it (an empty export still gets an empty
+     * file, since nothing ever opened the temporary one)
+     */
+    protected void complete() throws IOException {
+        if (!created) {
+            openStream().close();
+        }
+        move(temporary, target);
+    }
+
+    /**
+     * Deletes whatever was written. Errors are ignored: this runs when the export already failed
+     */
+    void abort() {
+        try {
+            suspend();
+        } catch (IOException e) {
+            // already failing
+        }
+        try {
+            Files.deleteIfExists(temporary);
+        } catch (IOException e) {
+            // already failing
+        }
+    }
+
+    /**
+     * @return a new stream over the temporary file: truncating it the first time, appending to it afterwards
+     */
+    protected OutputStream openStream() throws IOException {
+        OutputStream out = created
+                ? Files.newOutputStream(temporary, StandardOpenOption.APPEND)
+                : Files.newOutputStream(temporary);
+        created = true;
+        return out;
+    }
+
+    /**
+     * Forces the source to disk and renames it over the target, so a crash can't leave the target name pointing to a
+     * partial file
+     */
+    static void move(Path source, Path target) throws IOException {
+        try (var channel = FileChannel.open(source, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    int count() {
+        return count;
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import java.util.Locale;
+
+import static java.lang.String.format;
+
+/**
+ * Output formats of the {@link CertificateExporter}
+ */
+public enum ExportFormat {
+    /**
+     * Java key store of trusted certificate entries
+     */
+    JKS("jks"),
+    /**
+     * PKCS#12 key store of trusted certificate entries (the JVM default key store type)
+     */
+    PKCS12("p12"),
+    /**
+     * PEM bundle
+     */
+    PEM("pem"),
+    /**
+     * One PEM file per certificate, in a directory
+     */
+    PEM_FILES("pem");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * @param keyStoreType a {@link java.security.KeyStore} type, like "JKS" or "PKCS12" (case-insensitive)
+     * @throws IllegalArgumentException if the type can't be exported
+     */
+    public static ExportFormat ofKeyStoreType(String keyStoreType) {
+        return switch (keyStoreType.toUpperCase(Locale.ROOT)) {
+            case "JKS" -> JKS;
+            case "PKCS12" -> PKCS12;
+            default -> throw new IllegalArgumentException(
+                    format("unsupported key store type. type=\"%s\"", keyStoreType));
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryBuckets;
+
+import java.time.Instant;
+
+/**
+ * @param format the output format
+ * @param sharding how certificates are split into files. When sharding, the export target is a directory
+ * @param expiryBuckets the buckets of {@link ExportSharding#EXPIRY}
+ * @param password key store password (ignored for PEM)
+ * @param now reference date of the expiry buckets and creation date of key store entries
+ */
+public record ExportOptions(ExportFormat format, ExportSharding sharding, ExpiryBuckets expiryBuckets,
+                            String password, Instant now) {
+
+    public static ExportOptions of(ExportFormat format, String password) {
+        return new ExportOptions(format, ExportSharding.NONE, ExpiryBuckets.DEFAULT, password, Instant.now());
+    }
+}
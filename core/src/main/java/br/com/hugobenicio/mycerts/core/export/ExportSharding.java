@@ -0,0 +1,19 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+/**
+ * How the {@link CertificateExporter} splits certificates into files
+ */
+public enum ExportSharding {
+    /**
+     * A single file (or directory, for {@link ExportFormat#PEM_FILES})
+     */
+    NONE,
+    /**
+     * One file (or sub directory) per issuer
+     */
+    ISSUER,
+    /**
+     * One file (or sub directory) per expiry bucket (see {@link ExportOptions#expiryBuckets()})
+     */
+    EXPIRY
+}
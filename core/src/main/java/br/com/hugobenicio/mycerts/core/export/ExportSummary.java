@@ -0,0 +1,11 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import java.time.Duration;
+
+/**
+ * @param certificates number of certificates exported
+ * @param duplicates number of certificates skipped because they had already been exported
+ * @param files number of files written
+ * @param elapsed how long the export took
+ */
+public record ExportSummary(int certificates, int duplicates, int files, Duration elapsed) {}
@@ -0,0 +1,113 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+
+/**
+ * Java key store of trusted certificate entries, written without a {@link java.security.KeyStore}: entries are
+ * streamed to a temporary file, then the header (which holds the entry count) and the keyed SHA-1 integrity digest
+ * are written around them in a single pass over it.
+ *
+ * <p>Format: magic, version 2, entry count, entries (tag 2, alias, creation date, certificate type, DER), digest of
+ * the password (UTF-16BE), the "Mighty Aphrodite" salt and everything before the digest.
+ */
+final class JksExportFile extends ExportFile {
+
+    private static final int MAGIC = 0xFEEDFEED;
+    private static final int VERSION = 2;
+    private static final int TRUSTED_CERTIFICATE_ENTRY = 2;
+    private static final byte[] DIGEST_SALT = "Mighty Aphrodite".getBytes(StandardCharsets.UTF_8);
+
+    private final String password;
+
+    private final long creationMillis;
+
+    private final Path output;
+
+    private DataOutputStream out;
+
+    JksExportFile(Path target, String password, Instant creation) {
+        super(target, ".entries.tmp");
+        this.password = password;
+        this.creationMillis = creation.toEpochMilli();
+        this.output = target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    @Override
+    void write(ExportEntry entry, String alias) throws IOException {
+        if (out == null) {
+            out = new DataOutputStream(new BufferedOutputStream(openStream(), 64 * 1024));
+        }
+        out.writeInt(TRUSTED_CERTIFICATE_ENTRY);
+        out.writeUTF(alias);
+        out.writeLong(creationMillis);
+        out.writeUTF("X.509");
+        out.writeInt(entry.der().length);
+        out.write(entry.der());
+        count++;
+    }
+
+    @Override
+    void suspend() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    @Override
+    protected void complete() throws IOException {
+        MessageDigest digest = keyedDigest(password);
+        try (var file = new BufferedOutputStream(Files.newOutputStream(output), 64 * 1024)) {
+            var digested = new DataOutputStream(new DigestOutputStream(file, digest));
+            digested.writeInt(MAGIC);
+            digested.writeInt(VERSION);
+            digested.writeInt(count);
+            if (count > 0) {
+                try (InputStream entries = Files.newInputStream(temporary)) {
+                    entries.transferTo(digested);
+                }
+            }
+            digested.flush();
+            file.write(digest.digest());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(output);
+            throw e;
+        }
+        Files.deleteIfExists(temporary);
+        move(output, target);
+    }
+
+    @Override
+    void abort() {
+        super.abort();
+        try {
+            Files.deleteIfExists(output);
+        } catch (IOException e) {
+            // already failing
+        }
+    }
+
+    private static MessageDigest keyedDigest(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (char c : password.toCharArray()) {
+                digest.update((byte) (c >> 8));
+                digest.update((byte) c);
+            }
+            digest.update(DIGEST_SALT);
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import br.com.hugobenicio.mycerts.core.pem.PemWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * PEM bundle, streamed: each certificate is encoded straight into the file
+ */
+final class PemExportFile extends ExportFile {
+
+    private PemWriter writer;
+
+    PemExportFile(Path target) {
+        super(target, ".tmp");
+    }
+
+    @Override
+    void write(ExportEntry entry, String alias) throws IOException {
+        if (writer == null) {
+            writer = new PemWriter(openStream());
+        }
+        writer.writeCertificate(entry.der(), entry.subject());
+        count++;
+    }
+
+    @Override
+    void suspend() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.PBEParameterSpec;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import static br.com.hugobenicio.mycerts.core.export.DerOutput.BMP_STRING;
+import static br.com.hugobenicio.mycerts.core.export.DerOutput.CONTEXT_0;
+import static br.com.hugobenicio.mycerts.core.export.DerOutput.INTEGER;
+import static br.com.hugobenicio.mycerts.core.export.DerOutput.OCTET_STRING;
+import static br.com.hugobenicio.mycerts.core.export.DerOutput.SEQUENCE;
+import static br.com.hugobenicio.mycerts.core.export.DerOutput.SET;
+import static br.com.hugobenicio.mycerts.core.export.DerOutput.element;
+import static br.com.hugobenicio.mycerts.core.export.DerOutput.elementLength;
+import static br.com.hugobenicio.mycerts.core.export.DerOutput.header;
+import static br.com.hugobenicio.mycerts.core.export.DerOutput.hex;
+
+/**
+ * PKCS#12 key store of trusted certificate entries (RFC 7292), written without a {@link java.security.KeyStore}:
+ * certificate bags are streamed to a temporary file, then the enclosing structures (whose DER lengths depend on the
+ * total size) and the MAC are written around them in a single pass over it.
+ *
+ * <p>Layout: PFX { version 3, data { AuthenticatedSafe { data { SafeContents { CertBag... } } } }, MacData }. Bags
+ * are not encrypted (certificates are public) and carry the alias (friendlyName) and the attribute the JDK reads as
+ * "trusted certificate entry". The MAC is HmacPBESHA256, like the JDK writes by default.
+ */
+final class Pkcs12ExportFile extends ExportFile {
+
+    private static final byte[] VERSION = hex("02 01 03");
+    private static final byte[] OID_DATA = hex("06 09 2A 86 48 86 F7 0D 01 07 01");
+    private static final byte[] OID_CERT_BAG = hex("06 0B 2A 86 48 86 F7 0D 01 0C 0A 01 03");
+    private static final byte[] OID_X509_CERTIFICATE = hex("06 0A 2A 86 48 86 F7 0D 01 09 16 01");
+    private static final byte[] OID_FRIENDLY_NAME = hex("06 09 2A 86 48 86 F7 0D 01 09 14");
+    private static final byte[] OID_TRUSTED_KEY_USAGE = hex("06 0C 60 86 48 01 86 F9 66 AD CA 7B 01 01");
+    private static final byte[] OID_ANY_EXTENDED_KEY_USAGE = hex("06 04 55 1D 25 00");
+    private static final byte[] OID_SHA_256 = hex("06 09 60 86 48 01 65 03 04 02 01");
+    private static final byte[] NULL = hex("05 00");
+
+    private static final String MAC_ALGORITHM = "HmacPBESHA256";
+    private static final int MAC_LENGTH = 32;
+    private static final int MAC_SALT_LENGTH = 20;
+    private static final int MAC_ITERATIONS = 10_000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * The trusted key usage attribute, the same for every bag
+     */
+    private static final byte[] TRUSTED_ATTRIBUTE = element(SEQUENCE, OID_TRUSTED_KEY_USAGE,
+            element(SET, OID_ANY_EXTENDED_KEY_USAGE));
+
+    private final String password;
+
+    private final Path output;
+
+    private OutputStream out;
+
+    private long bagsLength;
+
+    Pkcs12ExportFile(Path target, String password) {
+        super(target, ".entries.tmp");
+        this.password = password;
+        this.output = target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    @Override
+    void write(ExportEntry entry, String alias) throws IOException {
+        if (out == null) {
+            out = new BufferedOutputStream(openStream(), 64 * 1024);
+        }
+        byte[] certBag = element(SEQUENCE, OID_X509_CERTIFICATE,
+                element(CONTEXT_0, element(OCTET_STRING, entry.der())));
+        byte[] friendlyName = element(SEQUENCE, OID_FRIENDLY_NAME,
+                element(SET, element(BMP_STRING, alias.getBytes(StandardCharsets.UTF_16BE))));
+        byte[] safeBag = element(SEQUENCE, OID_CERT_BAG, element(CONTEXT_0, certBag),
+                element(SET, friendlyName, TRUSTED_ATTRIBUTE));
+        out.write(safeBag);
+        bagsLength += safeBag.length;
+        count++;
+    }
+
+    @Override
+    void suspend() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    @Override
+    protected void complete() throws IOException {
+        // innermost first: SafeContents, inside data, inside AuthenticatedSafe (the MAC input)
+        long safeContentsLength = elementLength(bagsLength);
+        long innerOctetsLength = elementLength(safeContentsLength);
+        long innerExplicitLength = elementLength(innerOctetsLength);
+        long contentInfoLength = elementLength(OID_DATA.length + innerExplicitLength);
+        long authenticatedSafeLength = elementLength(contentInfoLength);
+        byte[] authenticatedSafeHeaders = concat(
+                header(SEQUENCE, contentInfoLength),
+                header(SEQUENCE, OID_DATA.length + innerExplicitLength), OID_DATA,
+                header(CONTEXT_0, innerOctetsLength),
+                header(OCTET_STRING, safeContentsLength),
+                header(SEQUENCE, bagsLength));
+
+        long outerOctetsLength = elementLength(authenticatedSafeLength);
+        long outerExplicitLength = elementLength(outerOctetsLength);
+        long outerContentInfoLength = elementLength(OID_DATA.length + outerExplicitLength);
+
+        byte[] salt = new byte[MAC_SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        Mac mac = newMac(salt);
+        int macDataLength = macData(new byte[MAC_LENGTH], salt).length;
+
+        try (var file = new BufferedOutputStream(Files.newOutputStream(output), 64 * 1024)) {
+            file.write(header(SEQUENCE, VERSION.length + outerContentInfoLength + macDataLength));
+            file.write(VERSION);
+            file.write(header(SEQUENCE, OID_DATA.length + outerExplicitLength));
+            file.write(OID_DATA);
+            file.write(header(CONTEXT_0, outerOctetsLength));
+            file.write(header(OCTET_STRING, authenticatedSafeLength));
+
+            file.write(authenticatedSafeHeaders);
+            mac.update(authenticatedSafeHeaders);
+            if (count > 0) {
+                try (InputStream bags = Files.newInputStream(temporary)) {
+                    byte[] buffer = new byte[64 * 1024];
+                    for (int read = bags.read(buffer); read >= 0; read = bags.read(buffer)) {
+                        file.write(buffer, 0, read);
+                        mac.update(buffer, 0, read);
+                    }
+                }
+            }
+            file.write(macData(mac.doFinal(), salt));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(output);
+            throw e;
+        }
+        Files.deleteIfExists(temporary);
+        move(output, target);
+    }
+
+    @Override
+    void abort() {
+        super.abort();
+        try {
+            Files.deleteIfExists(output);
+        } catch (IOException e) {
+            // already failing
+        }
+    }
+
+    private Mac newMac(byte[] salt) {
+        try {
+            SecretKey key = SecretKeyFactory.getInstance("PBE").generateSecret(new PBEKeySpec(password.toCharArray()));
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key, new PBEParameterSpec(salt, MAC_ITERATIONS));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("failed to initialize the pkcs12 mac", e);
+        }
+    }
+
+    /**
+     * MacData { DigestInfo { sha-256, mac }, salt, iterations }
+     */
+    private static byte[] macData(byte[] digest, byte[] salt) {
+        return element(SEQUENCE,
+                element(SEQUENCE, element(SEQUENCE, OID_SHA_256, NULL), element(OCTET_STRING, digest)),
+                element(OCTET_STRING, salt),
+                element(INTEGER, BigInteger.valueOf(MAC_ITERATIONS).toByteArray()));
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        var out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
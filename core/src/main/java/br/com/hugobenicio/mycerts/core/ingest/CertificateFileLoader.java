@@ -0,0 +1,412 @@
+package br.com.hugobenicio.mycerts.core.ingest;
+
+import br.com.hugobenicio.mycerts.core.LoadingCertificateException;
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.inventory.Observation;
+import br.com.hugobenicio.mycerts.core.pem.DerBlock;
+import br.com.hugobenicio.mycerts.core.pem.PemBlockTooLargeException;
+import br.com.hugobenicio.mycerts.core.pem.PemReader;
+import br.com.hugobenicio.mycerts.core.utils.ObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static java.lang.String.format;
+
+/**
+ * Parses certificates out of PEM, JKS and PKCS12 inputs and returns them in immutable lists. It is stateless and
+ * thread-safe, so one instance can be shared by any number of (virtual) threads: the JCA instances it depends on
+ * ({@link CertificateFactory} and {@link KeyStore}) are not thread-safe and are expensive to create, so they are
+ * pooled.
+ */
+public class CertificateFileLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(CertificateFileLoader.class);
+
+    private static final int POOL_CAPACITY = 4 * Runtime.getRuntime().availableProcessors();
+
+    private static final ObjectPool<CertificateFactory> x509CertificateFactories =
+            new ObjectPool<>(CertificateFileLoader::createX509CertificateFactory, POOL_CAPACITY);
+
+    private static final ObjectPool<KeyStore> jksKeyStores =
+            new ObjectPool<>(() -> createKeyStore("JKS"), POOL_CAPACITY);
+
+    private static final ObjectPool<KeyStore> p12KeyStores =
+            new ObjectPool<>(() -> createKeyStore("PKCS12"), POOL_CAPACITY);
+
+    private static CertificateFactory createX509CertificateFactory() {
+        try {
+            return CertificateFactory.getInstance("X.509");
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static KeyStore createKeyStore(String type) {
+        try {
+            return KeyStore.getInstance(type);
+        } catch (KeyStoreException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public CertificateFileLoader() {
+    }
+
+    /**
+     * Loads a file picking the parser by the file extension.
+     *
+     * @param path the input file path
+     * @param password the key store password (ignored for PEM files)
+     * @return the loaded certificates in file order
+     * @throws LoadingCertificateException if the extension is not supported or if parsing fails
+     */
+    public List<X509Certificate> loadFile(Path path, char[] password) throws LoadingCertificateException {
+        return observeFile(path, password).stream()
+                .map(Observation::certificate)
+                .toList();
+    }
+
+    /**
+     * Same as {@link #loadFile(Path, char[])}, but also tells where (file and key store alias) each certificate was
+     * found.
+     */
+    public List<Observation> observeFile(Path path, char[] password) throws LoadingCertificateException {
+        String extension = fileExtension(path);
+        if ("pem".equals(extension)) {
+            var source = CertificateSource.file(path, null);
+            return loadPemFile(path).stream()
+                    .map(certificate -> new Observation(certificate, source))
+                    .toList();
+        }
+
+        if (!"jks".equals(extension) && !"p12".equals(extension)) {
+            var msg = format("unsupported certificate file extension. path=\"%s\"", path);
+            throw new LoadingCertificateException(msg);
+        }
+
+        try (InputStream is = Files.newInputStream(path)) {
+            return loadJksOrP12InputStream("jks".equals(extension) ? jksKeyStores : p12KeyStores, is, password,
+                    path.toString(), Integer.MAX_VALUE);
+        } catch (IOException e) {
+            var msg = format("Failed to load certificates from file. path=\"%s\"", path.getFileName());
+            throw new LoadingCertificateException(msg, e);
+        }
+    }
+
+    /**
+     * Reads a file and parses it as PEM encoded data that may contain x509 blocks in it.
+     *
+     * @param pemFilePath the input PEM file path
+     * @return the loaded certificates in file order
+     * @throws LoadingCertificateException if anything fails
+     */
+    public List<X509Certificate> loadPemFile(Path pemFilePath) throws LoadingCertificateException {
+        try (var pemReader = PemReader.open(pemFilePath)) {
+            return loadPem(pemReader);
+        } catch (IOException | CertificateException e) {
+            var msg = format("Failed to load certificates from file. path=\"%s\"", pemFilePath.getFileName());
+            throw new LoadingCertificateException(msg, e);
+        }
+    }
+
+    private List<X509Certificate> loadPem(PemReader pemReader) throws IOException, CertificateException {
+        List<X509Certificate> certificates = new ArrayList<>();
+        CertificateFactory certificateFactory = x509CertificateFactories.borrow();
+        try {
+            for (DerBlock block = pemReader.readBlock(); block != null; block = pemReader.readBlock()) {
+                String pemType = block.name();
+                if ("PKCS7".equalsIgnoreCase(pemType)) {
+                    log.warn("pkcs7 blocks inside pem files are not supported atm. ignoring it for now");
+                    continue;
+                }
+
+                if (!"CERTIFICATE".equalsIgnoreCase(pemType)) {
+                    log.warn("unsupported block inside pem file. type={}", pemType);
+                    continue;
+                }
+
+                var crt = (X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(block.der()));
+                certificates.add(crt);
+            }
+        } finally {
+            x509CertificateFactories.release(certificateFactory);
+        }
+        return List.copyOf(certificates);
+    }
+
+    /**
+     * Loads untrusted input (e.g. an upload) within the given budget. The input type is told by its first bytes (see
+     * {@link InputType}), not by its name, and it's parsed as it's read: pem blocks one at a time, with bounded
+     * buffers. Reading stops as soon as a per file or per job limit is exceeded or the thread is interrupted.
+     *
+     * @param in the input (not closed)
+     * @param location where the input comes from (e.g. "upload:truststore.p12"), used as observation source
+     * @param password the key store password (ignored for pem and der inputs)
+     * @param budget the job limits
+     * @return the loaded certificates in input order
+     * @throws LoadingCertificateException if the input type is not supported, parsing fails, a limit is exceeded
+     * (caused by an {@link InputLimitException}) or the thread is interrupted (caused by an
+     * {@link java.io.InterruptedIOException})
+     */
+    public List<Observation> observeInput(InputStream in, String location, char[] password, InputBudget budget)
+            throws LoadingCertificateException {
+        InputLimits limits = budget.limits();
+        var input = new BufferedInputStream(new LimitedInputStream(in, budget), InputType.SNIFF_BYTES);
+        try {
+            InputType type = InputType.sniff(input);
+            List<Observation> observations = switch (type) {
+                case PEM -> observePem(input, location, budget);
+                case DER -> List.of(new Observation(parseDer(input),
+                        new CertificateSource(CertificateSource.Kind.FILE, location, null)));
+                case JKS -> loadJksOrP12InputStream(jksKeyStores, input, password, location,
+                        limits.maxFileCertificates());
+                case PKCS12 -> loadJksOrP12InputStream(p12KeyStores, input, password, location,
+                        limits.maxFileCertificates());
+                case UNKNOWN -> throw new LoadingCertificateException(
+                        format("unsupported certificate input type. location=\"%s\"", location));
+            };
+            if (type != InputType.PEM) {
+                // pem certificates are charged as they are found
+                budget.chargeCertificates(observations.size());
+            }
+            return observations;
+        } catch (IOException | CertificateException e) {
+            var msg = format("Failed to load certificates. location=\"%s\"", location);
+            throw new LoadingCertificateException(msg, e);
+        }
+    }
+
+    /**
+     * Same as {@link #observeInput(InputStream, String, char[], InputBudget)}, for a file. Files bigger than the per
+     * file limit are rejected without being read.
+     */
+    public List<Observation> observeFile(Path path, char[] password, InputBudget budget)
+            throws LoadingCertificateException {
+        try {
+            long size = Files.size(path);
+            if (size > budget.limits().maxFileBytes()) {
+                throw new InputLimitException(format("input too large. max_bytes=%d size=%d",
+                        budget.limits().maxFileBytes(), size));
+            }
+            try (InputStream in = Files.newInputStream(path)) {
+                return observeInput(in, path.toString(), password, budget);
+            }
+        } catch (IOException e) {
+            var msg = format("Failed to load certificates from file. path=\"%s\"", path.getFileName());
+            throw new LoadingCertificateException(msg, e);
+        }
+    }
+
+    /**
+     * Same as {@link #observeFile(Path, char[])}, or {@link #observeFile(Path, char[], InputBudget)} when the budget is
+     * not null, but also feeds the whole file to the digest as it is parsed: the file is read only once and the digest
+     * always matches the bytes the certificates came from, even if the file is being modified.
+     */
+    public List<Observation> observeFile(Path path, char[] password, InputBudget budget, MessageDigest digest)
+            throws LoadingCertificateException {
+        try {
+            if (budget != null && Files.size(path) > budget.limits().maxFileBytes()) {
+                throw new InputLimitException(format("input too large. max_bytes=%d size=%d",
+                        budget.limits().maxFileBytes(), Files.size(path)));
+            }
+            try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+                List<Observation> observations = budget != null
+                        ? observeInput(in, path.toString(), password, budget)
+                        : observeByExtension(in, path, password);
+                // parsers may stop before the end of the file (e.g. at the end of a key store)
+                in.transferTo(OutputStream.nullOutputStream());
+                return observations;
+            }
+        } catch (IOException | CertificateException e) {
+            var msg = format("Failed to load certificates from file. path=\"%s\"", path.getFileName());
+            throw new LoadingCertificateException(msg, e);
+        }
+    }
+
+    private List<Observation> observeByExtension(InputStream in, Path path, char[] password)
+            throws IOException, CertificateException, LoadingCertificateException {
+        String extension = fileExtension(path);
+        if ("pem".equals(extension)) {
+            var source = CertificateSource.file(path, null);
+            // not closed: closing it would close the caller's stream
+            return loadPem(new PemReader(Channels.newChannel(in))).stream()
+                    .map(certificate -> new Observation(certificate, source))
+                    .toList();
+        }
+        if (!"jks".equals(extension) && !"p12".equals(extension)) {
+            var msg = format("unsupported certificate file extension. path=\"%s\"", path);
+            throw new LoadingCertificateException(msg);
+        }
+        return loadJksOrP12InputStream("jks".equals(extension) ? jksKeyStores : p12KeyStores, in, password,
+                path.toString(), Integer.MAX_VALUE);
+    }
+
+    private List<Observation> observePem(InputStream in, String location, InputBudget budget)
+            throws IOException, CertificateException {
+        InputLimits limits = budget.limits();
+        var source = new CertificateSource(CertificateSource.Kind.FILE, location, null);
+        List<Observation> observations = new ArrayList<>();
+        // not closed: closing it would close the caller's stream
+        var pemReader = new PemReader(Channels.newChannel(in)).setMaxBlockSize(limits.maxPemBlockBytes());
+        for (DerBlock block = readBlock(pemReader); block != null; block = readBlock(pemReader)) {
+            if (!"CERTIFICATE".equalsIgnoreCase(block.name())) {
+                continue;
+            }
+            if (observations.size() == limits.maxFileCertificates()) {
+                throw new InputLimitException(format("too many certificates in input. max_certificates=%d",
+                        limits.maxFileCertificates()));
+            }
+            budget.chargeCertificates(1);
+            observations.add(new Observation(parseDer(block.der()), source));
+        }
+        return List.copyOf(observations);
+    }
+
+    /**
+     * Reads the next block, reporting oversized blocks as exceeded input limits
+     */
+    private static DerBlock readBlock(PemReader pemReader) throws IOException {
+        try {
+            return pemReader.readBlock();
+        } catch (PemBlockTooLargeException e) {
+            var limit = new InputLimitException(e.getMessage());
+            limit.initCause(e);
+            throw limit;
+        }
+    }
+
+    private X509Certificate parseDer(InputStream in) throws CertificateException {
+        CertificateFactory certificateFactory = x509CertificateFactories.borrow();
+        try {
+            return (X509Certificate) certificateFactory.generateCertificate(in);
+        } finally {
+            x509CertificateFactories.release(certificateFactory);
+        }
+    }
+
+    /**
+     * Parses a single DER encoded certificate.
+     */
+    public X509Certificate parseDer(byte[] der) throws CertificateException {
+        CertificateFactory certificateFactory = x509CertificateFactories.borrow();
+        try {
+            return (X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(der));
+        } finally {
+            x509CertificateFactories.release(certificateFactory);
+        }
+    }
+
+    public List<X509Certificate> loadJksInputStream(InputStream is, char[] password) throws LoadingCertificateException {
+        return observeJksInputStream(is, password, null).stream()
+                .map(Observation::certificate)
+                .toList();
+    }
+
+    /**
+     * Same as {@link #loadJksInputStream(InputStream, char[])}, but also tells where each certificate was found
+     *
+     * @param location where the key store comes from (e.g. its path), or null for observations without provenance
+     */
+    public List<Observation> observeJksInputStream(InputStream is, char[] password, String location)
+            throws LoadingCertificateException {
+        return loadJksOrP12InputStream(jksKeyStores, is, password, location, Integer.MAX_VALUE);
+    }
+
+    public List<X509Certificate> loadP12InputStream(InputStream is, char[] password) throws LoadingCertificateException {
+        return observeP12InputStream(is, password, null).stream()
+                .map(Observation::certificate)
+                .toList();
+    }
+
+    /**
+     * Same as {@link #loadP12InputStream(InputStream, char[])}, but also tells where each certificate was found
+     *
+     * @param location where the key store comes from (e.g. its path), or null for observations without provenance
+     */
+    public List<Observation> observeP12InputStream(InputStream is, char[] password, String location)
+            throws LoadingCertificateException {
+        return loadJksOrP12InputStream(p12KeyStores, is, password, location, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param location where the stream comes from (e.g. a file path), used as observation source. May be null if
+     *                 unknown
+     * @param maxCertificates max number of entries of the key store
+     */
+    private List<Observation> loadJksOrP12InputStream(ObjectPool<KeyStore> keyStores, InputStream is, char[] password,
+                                                      String location, int maxCertificates)
+            throws LoadingCertificateException {
+        List<Observation> observations = new ArrayList<>();
+        // loading replaces the key store contents, so each load needs a key store of its own
+        KeyStore ks = keyStores.borrow();
+        try {
+            ks.load(is, password);
+            if (ks.size() > maxCertificates) {
+                throw new InputLimitException(format("too many key store entries. max_certificates=%d",
+                        maxCertificates));
+            }
+
+            // iterating over all jks entries
+            for (var aliases = ks.aliases(); aliases.hasMoreElements(); ) {
+                String alias = aliases.nextElement();
+                Certificate certificate = ks.getCertificate(alias);
+                if (!(certificate instanceof X509Certificate)) {
+                    log.warn("ignoring certificate with alias \"{}\" because it doesn't seems to be a X509 certificate", alias);
+                    continue;
+                }
+                var source = location == null
+                        ? null
+                        : new CertificateSource(CertificateSource.Kind.FILE, location, alias);
+                observations.add(new Observation((X509Certificate) certificate, source));
+            }
+        } catch (KeyStoreException | CertificateException | IOException | NoSuchAlgorithmException e) {
+            throw new LoadingCertificateException("Failed to load certificates from file", e);
+        } finally {
+            release(keyStores, ks);
+        }
+        return List.copyOf(observations);
+    }
+
+    /**
+     * Empties a key store before pooling it, so loaded entries don't linger in memory
+     */
+    private static void release(ObjectPool<KeyStore> keyStores, KeyStore ks) {
+        try {
+            ks.load(null, null);
+        } catch (IOException | NoSuchAlgorithmException | CertificateException e) {
+            // not reusable: just don't pool it
+            return;
+        }
+        keyStores.release(ks);
+    }
+
+    /**
+     * @return the lower-cased file extension (without the dot) or an empty string if there is none
+     */
+    public static String fileExtension(Path path) {
+        String fileName = path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,410 @@
+package br.com.hugobenicio.mycerts.core.ingest;
+
+import br.com.hugobenicio.mycerts.core.CertificateAnalyzer;
+import br.com.hugobenicio.mycerts.core.LoadingCertificateException;
+import br.com.hugobenicio.mycerts.core.compact.CompactCertificate;
+import br.com.hugobenicio.mycerts.core.compact.CompactCertificateFactory;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.inventory.Observation;
+import br.com.hugobenicio.mycerts.core.inventory.store.InputRecord;
+import br.com.hugobenicio.mycerts.core.inventory.store.InventoryStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * Recursively discovers certificate files (see {@link CertificateAnalyzer#SUPPORTED_FILE_EXTENSIONS}) and parses them
+ * in parallel on a dedicated fork-join pool.
+ */
+public class DirectoryIngestor {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryIngestor.class);
+
+    private final CertificateFileLoader certificateFileLoader = new CertificateFileLoader();
+
+    private final char[] keyStorePassword;
+
+    private final int parallelism;
+
+    /**
+     * Limits of each ingestion, or null to trust the files (parsed by extension, without limits)
+     */
+    private final InputLimits limits;
+
+    /**
+     * @param keyStorePassword password used for every jks and p12 file found (may be null)
+     */
+    public DirectoryIngestor(String keyStorePassword) {
+        this(keyStorePassword, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param keyStorePassword password used for every jks and p12 file found (may be null)
+     * @param parallelism number of threads parsing files
+     */
+    public DirectoryIngestor(String keyStorePassword, int parallelism) {
+        this(keyStorePassword, parallelism, null);
+    }
+
+    /**
+     * @param keyStorePassword password used for every jks and p12 file found (may be null)
+     * @param parallelism number of threads parsing files
+     * @param limits limits of each ingestion (e.g. for directories other users can write to), whose files are then
+     *               parsed by their content type instead of their extension. Null for no limits
+     */
+    public DirectoryIngestor(String keyStorePassword, int parallelism, InputLimits limits) {
+        this.keyStorePassword = Optional.ofNullable(keyStorePassword).map(String::toCharArray).orElse(null);
+        this.parallelism = parallelism;
+        this.limits = limits;
+    }
+
+    /**
+     * Discovers and parses all supported files under the given directory. Files failing to parse don't fail the
+     * whole ingestion, they are reported in the result instead.
+     *
+     * @param root the directory to be walked
+     * @return per file outcomes
+     * @throws IOException if the root directory can't be walked
+     */
+    public IngestionResult ingest(Path root) throws IOException {
+        final long startNanos = System.nanoTime();
+
+        List<Path> files = discover(root);
+        log.info("ingesting {} file(s). root=\"{}\" parallelism={}", files.size(), root, parallelism);
+
+        InputBudget budget = newBudget();
+        List<FileIngestion> ingestions = parallelMap(files, file -> ingestFile(file, budget));
+
+        var result = new IngestionResult(ingestions, Duration.ofNanos(System.nanoTime() - startNanos));
+        log.info("ingestion done. files={} failures={} elapsed={}",
+                ingestions.size(), result.failures().size(), result.elapsed());
+        return result;
+    }
+
+    /**
+     * Incremental version of {@link #ingest(Path)}: files whose modification time and size didn't change since the
+     * last run, or whose content hash is the same, are not parsed again; their certificates come from the inventory.
+     * Parsed files are recorded in the inventory and files no longer found under the root are forgotten.
+     *
+     * @param root the directory to be walked
+     * @param store the inventory to be consulted and updated
+     * @return per file outcomes
+     * @throws IOException if the root directory can't be walked or the inventory can't be written
+     */
+    public IngestionResult ingest(Path root, InventoryStore store) throws IOException {
+        final long startNanos = System.nanoTime();
+        final Instant now = Instant.now();
+
+        // paths are stored absolute, so the same file is recognized no matter where the tool runs from
+        Path absoluteRoot = root.toAbsolutePath().normalize();
+        List<Path> files = discover(absoluteRoot);
+        log.info("ingesting {} file(s) incrementally. root=\"{}\" inventory=\"{}\" parallelism={}",
+                files.size(), absoluteRoot, store.getDirectory(), parallelism);
+
+        InputBudget budget = newBudget();
+        List<FileIngestion> ingestions = parallelMap(files, file -> ingestFile(file, store, now, budget));
+
+        int removed = forgetMissingFiles(absoluteRoot, files, store, now);
+
+        var result = new IngestionResult(ingestions, Duration.ofNanos(System.nanoTime() - startNanos));
+        log.info("ingestion done. files={} reused={} removed={} failures={} elapsed={}",
+                ingestions.size(), result.reusedCount(), removed, result.failures().size(), result.elapsed());
+        return result;
+    }
+
+    /**
+     * Streaming version of {@link #ingest(Path)}: each file outcome is handed to the listener as soon as it is
+     * available (in completion order) and not kept, so memory usage doesn't depend on the number of certificates.
+     *
+     * @param root the directory to be walked
+     * @param listener receives each file outcome. Calls are serialized
+     * @return the ingestion totals
+     * @throws IOException if the root directory can't be walked
+     */
+    public IngestionSummary ingest(Path root, Consumer<FileIngestion> listener) throws IOException {
+        final long startNanos = System.nanoTime();
+
+        List<Path> files = discover(root);
+        log.info("streaming {} file(s). root=\"{}\" parallelism={}", files.size(), root, parallelism);
+
+        InputBudget budget = newBudget();
+        IngestionSummary summary = parallelForEach(files, file -> ingestFile(file, budget), listener, startNanos);
+        log.info("ingestion done. files={} failures={} certificates={} elapsed={}",
+                summary.files(), summary.failures(), summary.certificates(), summary.elapsed());
+        return summary;
+    }
+
+    /**
+     * Streaming version of {@link #ingest(Path, InventoryStore)}
+     *
+     * @param root the directory to be walked
+     * @param store the inventory to be consulted and updated
+     * @param listener receives each file outcome. Calls are serialized
+     * @return the ingestion totals
+     * @throws IOException if the root directory can't be walked or the inventory can't be written
+     */
+    public IngestionSummary ingest(Path root, InventoryStore store, Consumer<FileIngestion> listener) throws IOException {
+        final long startNanos = System.nanoTime();
+        final Instant now = Instant.now();
+
+        Path absoluteRoot = root.toAbsolutePath().normalize();
+        List<Path> files = discover(absoluteRoot);
+        log.info("streaming {} file(s) incrementally. root=\"{}\" inventory=\"{}\" parallelism={}",
+                files.size(), absoluteRoot, store.getDirectory(), parallelism);
+
+        InputBudget budget = newBudget();
+        IngestionSummary summary = parallelForEach(files, file -> ingestFile(file, store, now, budget), listener,
+                startNanos);
+        int removed = forgetMissingFiles(absoluteRoot, files, store, now);
+        log.info("ingestion done. files={} reused={} removed={} failures={} certificates={} elapsed={}",
+                summary.files(), summary.reused(), removed, summary.failures(), summary.certificates(), summary.elapsed());
+        return summary;
+    }
+
+    /**
+     * Compact version of {@link #ingest(Path)}: only a {@link CompactCertificate} of each certificate is kept, so large
+     * directories can be reported on without holding every decoded {@link java.security.cert.X509Certificate}.
+     *
+     * @param root the directory to be walked
+     * @param factory creates (and holds the DER of) the compact certificates
+     * @param failures receives each file failing to load. Calls are serialized
+     * @return the loaded certificates, once each, in discovery order
+     * @throws IOException if the root directory can't be walked
+     */
+    public List<CompactCertificate> ingestCompact(Path root, CompactCertificateFactory factory,
+                                                  Consumer<FileIngestion> failures) throws IOException {
+        final long startNanos = System.nanoTime();
+
+        List<Path> files = discover(root);
+        log.info("ingesting {} file(s) compactly. root=\"{}\" parallelism={}", files.size(), root, parallelism);
+
+        InputBudget budget = newBudget();
+        List<List<CompactCertificate>> loaded = parallelMap(files, file -> {
+            try {
+                return loadCompact(file, factory, budget);
+            } catch (LoadingCertificateException | RuntimeException e) {
+                log.atDebug().setMessage("failed to ingest file")
+                        .addKeyValue("path", file)
+                        .addKeyValue("error", e.toString())
+                        .log();
+                synchronized (failures) {
+                    failures.accept(FileIngestion.failure(file, e));
+                }
+                return List.of();
+            }
+        });
+
+        // same certificate found in several files (e.g. an intermediate in every bundle): reported once
+        var unique = new LinkedHashMap<Fingerprint, CompactCertificate>();
+        for (var certificates : loaded) {
+            for (var certificate : certificates) {
+                unique.putIfAbsent(certificate.fingerprint(), certificate);
+            }
+        }
+        log.info("ingestion done. files={} certificates={} elapsed={}",
+                files.size(), unique.size(), Duration.ofNanos(System.nanoTime() - startNanos));
+        return new ArrayList<>(unique.values());
+    }
+
+    /**
+     * Walks the directory tree collecting the supported files. Unreadable entries are logged and skipped.
+     *
+     * @param root the directory to be walked
+     * @return the supported files, in walking order
+     * @throws IOException if the root directory can't be walked
+     */
+    public static List<Path> discover(Path root) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()
+                        && CertificateAnalyzer.isFileExtensionSupported(CertificateFileLoader.fileExtension(file))) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                log.warn("skipping unreadable path. path=\"{}\" error=\"{}\"", file, e.toString());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private <T> List<T> parallelMap(List<Path> files, Function<Path, T> ingestFile) {
+        // each parallel stream split accumulates its own results, which are merged afterwards without contention
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> files.parallelStream().map(ingestFile).toList()).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private IngestionSummary parallelForEach(List<Path> files, Function<Path, FileIngestion> ingestFile,
+                                             Consumer<FileIngestion> listener, long startNanos) {
+        final var listenerLock = new ReentrantLock();
+        final var failures = new AtomicInteger();
+        final var reused = new AtomicInteger();
+        final var certificates = new LongAdder();
+
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> files.parallelStream().forEach(file -> {
+                FileIngestion ingestion = ingestFile.apply(file);
+                if (!ingestion.isSuccess()) {
+                    failures.incrementAndGet();
+                } else if (ingestion.reused()) {
+                    reused.incrementAndGet();
+                }
+                certificates.add(ingestion.observations().size());
+
+                listenerLock.lock();
+                try {
+                    listener.accept(ingestion);
+                } finally {
+                    listenerLock.unlock();
+                }
+            })).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        return new IngestionSummary(files.size(), failures.get(), reused.get(), certificates.sum(),
+                Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    private static int forgetMissingFiles(Path root, List<Path> files, InventoryStore store, Instant now) throws IOException {
+        Set<String> presentKeys = files.stream()
+                .map(InputRecord::fileKey)
+                .collect(Collectors.toSet());
+        int removed = store.removeMissingFiles(root, presentKeys, now);
+        store.flush();
+        return removed;
+    }
+
+    private FileIngestion ingestFile(Path file, InventoryStore store, Instant now, InputBudget budget) {
+        String key = InputRecord.fileKey(file);
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            long lastModifiedMillis = attrs.lastModifiedTime().toMillis();
+            long size = attrs.size();
+
+            Optional<InputRecord> known = store.input(key);
+            if (known.isPresent() && known.get().lastModifiedMillis() == lastModifiedMillis && known.get().size() == size) {
+                store.touch(key, now);
+                return FileIngestion.reused(file, store.observations(known.get()));
+            }
+
+            if (budget != null && size > limits.maxFileBytes()) {
+                throw new InputLimitException(format("input too large. max_bytes=%d size=%d",
+                        limits.maxFileBytes(), size));
+            }
+            // hashed while parsed: one read per file, and the hash is always the one of the parsed bytes
+            MessageDigest digest = sha256();
+            List<Observation> observations = certificateFileLoader.observeFile(file, keyStorePassword, budget, digest);
+            byte[] contentHash = digest.digest();
+            if (known.isPresent() && Arrays.equals(known.get().contentHash(), contentHash)) {
+                // touched but not modified: keeps the certificates, updates the metadata so the next run is cheaper
+                List<Observation> knownObservations = store.observations(known.get());
+                store.recordFile(file, lastModifiedMillis, size, contentHash, knownObservations, now);
+                return FileIngestion.reused(file, knownObservations);
+            }
+
+            store.recordFile(file, lastModifiedMillis, size, contentHash, observations, now);
+            return FileIngestion.success(file, observations);
+        } catch (IOException | LoadingCertificateException | RuntimeException e) {
+            log.atDebug().setMessage("failed to ingest file")
+                    .addKeyValue("path", file)
+                    .addKeyValue("error", e.toString())
+                    .log();
+            try {
+                // a file that can't be parsed anymore must not keep reporting its old certificates
+                store.remove(key, now);
+            } catch (IOException removeError) {
+                e.addSuppressed(removeError);
+            }
+            return FileIngestion.failure(file, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is required to be supported by every JVM", e);
+        }
+    }
+
+    private FileIngestion ingestFile(Path file, InputBudget budget) {
+        try {
+            return FileIngestion.success(file, observeFile(file, budget));
+        } catch (LoadingCertificateException | RuntimeException e) {
+            log.atDebug().setMessage("failed to ingest file")
+                    .addKeyValue("path", file)
+                    .addKeyValue("error", e.toString())
+                    .log();
+            return FileIngestion.failure(file, e);
+        }
+    }
+
+    private List<Observation> observeFile(Path file, InputBudget budget) throws LoadingCertificateException {
+        return budget != null
+                ? certificateFileLoader.observeFile(file, keyStorePassword, budget)
+                : certificateFileLoader.observeFile(file, keyStorePassword);
+    }
+
+    private List<CompactCertificate> loadCompact(Path file, CompactCertificateFactory factory, InputBudget budget)
+            throws LoadingCertificateException {
+        if (budget == null) {
+            return factory.load(file, keyStorePassword);
+        }
+        // limited inputs are sniffed and bounded by the loader, and only their compact views kept
+        List<CompactCertificate> certificates = new ArrayList<>();
+        try {
+            for (var observation : certificateFileLoader.observeFile(file, keyStorePassword, budget)) {
+                certificates.add(factory.from(observation.certificate()));
+            }
+        } catch (CertificateException e) {
+            var msg = format("Failed to load certificates from file. path=\"%s\"", file.getFileName());
+            throw new LoadingCertificateException(msg, e);
+        }
+        return certificates;
+    }
+
+    /**
+     * @return the budget of a new ingestion or null if there are no limits
+     */
+    private InputBudget newBudget() {
+        return limits != null ? new InputBudget(limits) : null;
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.hugobenicio.mycerts.core.ingest;
+
+import br.com.hugobenicio.mycerts.core.inventory.Observation;
+
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+/**
+ * Outcome of ingesting a single file.
+ *
+ * @param path the ingested file
+ * @param observations the certificates found in the file, with their key store aliases. Empty if it failed
+ * @param error the failure cause or null if the file was ingested successfully
+ * @param reused true if the observations came from the inventory instead of parsing the file again
+ */
+public record FileIngestion(Path path, List<Observation> observations, Exception error, boolean reused) {
+
+    public static FileIngestion success(Path path, List<Observation> observations) {
+        return new FileIngestion(path, List.copyOf(observations), null, false);
+    }
+
+    public static FileIngestion reused(Path path, List<Observation> observations) {
+        return new FileIngestion(path, List.copyOf(observations), null, true);
+    }
+
+    public static FileIngestion failure(Path path, Exception error) {
+        return new FileIngestion(path, List.of(), error, false);
+    }
+
+    public List<X509Certificate> certificates() {
+        return observations.stream()
+                .map(Observation::certificate)
+                .toList();
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
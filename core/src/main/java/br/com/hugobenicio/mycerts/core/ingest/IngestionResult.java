@@ -0,0 +1,49 @@
+package br.com.hugobenicio.mycerts.core.ingest;
+
+import br.com.hugobenicio.mycerts.core.inventory.Observation;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of ingesting a directory tree.
+ *
+ * @param files per file outcomes, in discovery order
+ * @param elapsed time spent discovering and parsing files
+ */
+public record IngestionResult(List<FileIngestion> files, Duration elapsed) {
+
+    /**
+     * @return all loaded certificates, in discovery order
+     */
+    public List<X509Certificate> certificates() {
+        return files.stream()
+                .flatMap(file -> file.certificates().stream())
+                .toList();
+    }
+
+    /**
+     * @return all loaded certificates with their sources, in discovery order
+     */
+    public List<Observation> observations() {
+        return files.stream()
+                .flatMap(file -> file.observations().stream())
+                .toList();
+    }
+
+    /**
+     * @return number of files whose certificates were taken from the inventory without parsing them again
+     */
+    public long reusedCount() {
+        return files.stream()
+                .filter(FileIngestion::reused)
+                .count();
+    }
+
+    public List<FileIngestion> failures() {
+        return files.stream()
+                .filter(file -> !file.isSuccess())
+                .toList();
+    }
+}
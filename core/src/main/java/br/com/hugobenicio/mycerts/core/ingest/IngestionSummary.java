@@ -0,0 +1,14 @@
+package br.com.hugobenicio.mycerts.core.ingest;
+
+import java.time.Duration;
+
+/**
+ * Totals of a streaming ingestion, whose per file outcomes were handed to a listener instead of being kept.
+ *
+ * @param files number of files found
+ * @param failures number of files that failed to be ingested
+ * @param reused number of files whose certificates were taken from the inventory without parsing them again
+ * @param certificates number of certificates found (with repetitions)
+ * @param elapsed time spent discovering and parsing files
+ */
+public record IngestionSummary(int files, int failures, int reused, long certificates, Duration elapsed) {}
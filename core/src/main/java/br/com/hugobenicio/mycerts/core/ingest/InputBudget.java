@@ -0,0 +1,71 @@
+package br.com.hugobenicio.mycerts.core.ingest;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * What's left of the {@link InputLimits} of a job, shared by the threads parsing its inputs. Parsers check it as they
+ * read, so an over budget (or interrupted) job stops at its next read instead of running to the end of its input.
+ *
+ * <p>Thread-safe.
+ */
+public class InputBudget {
+
+    private final InputLimits limits;
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final AtomicLong certificates = new AtomicLong();
+
+    public InputBudget(InputLimits limits) {
+        this.limits = limits;
+    }
+
+    public static InputBudget unlimited() {
+        return new InputBudget(InputLimits.unlimited());
+    }
+
+    public InputLimits limits() {
+        return limits;
+    }
+
+    /**
+     * @throws InterruptedIOException if the current thread was interrupted (e.g. the job's worker is shutting down)
+     */
+    public void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("input ingestion cancelled");
+        }
+    }
+
+    /**
+     * @return bytes read so far
+     */
+    public long bytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return certificates found so far
+     */
+    public long certificates() {
+        return certificates.get();
+    }
+
+    void chargeBytes(long count) throws InputLimitException {
+        long total = bytes.addAndGet(count);
+        if (total > limits.maxJobBytes()) {
+            throw new InputLimitException(format("job input too large. max_bytes=%d", limits.maxJobBytes()));
+        }
+    }
+
+    void chargeCertificates(long count) throws InputLimitException {
+        long total = certificates.addAndGet(count);
+        if (total > limits.maxJobCertificates()) {
+            throw new InputLimitException(format("too many certificates in job. max_certificates=%d",
+                    limits.maxJobCertificates()));
+        }
+    }
+}
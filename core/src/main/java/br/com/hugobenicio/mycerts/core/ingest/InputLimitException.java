@@ -0,0 +1,14 @@
+package br.com.hugobenicio.mycerts.core.ingest;
+
+import java.io.IOException;
+
+/**
+ * An input was rejected because it exceeds an {@link InputLimits} limit. It's an {@link IOException}, so it propagates
+ * unchanged through the parsers reading the input.
+ */
+public class InputLimitException extends IOException {
+
+    public InputLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.hugobenicio.mycerts.core.ingest;
+
+/**
+ * Resource limits of ingesting untrusted input (e.g. uploads). A job is a set of inputs ingested together, sharing an
+ * {@link InputBudget}.
+ *
+ * @param maxFileBytes max size of each input, in bytes
+ * @param maxFileCertificates max number of certificates in each input
+ * @param maxJobBytes max total size of the inputs of a job, in bytes
+ * @param maxJobCertificates max total number of certificates of a job
+ * @param maxPemBlockBytes max decoded size of each pem block, in bytes
+ */
+public record InputLimits(long maxFileBytes, int maxFileCertificates, long maxJobBytes, long maxJobCertificates,
+                          int maxPemBlockBytes) {
+
+    public static final long MAX_FILE_BYTES_DEFAULT = 1024 * 1024;
+    public static final int MAX_FILE_CERTIFICATES_DEFAULT = 10_000;
+    public static final long MAX_JOB_BYTES_DEFAULT = 64 * 1024 * 1024;
+    public static final long MAX_JOB_CERTIFICATES_DEFAULT = 100_000;
+    public static final int MAX_PEM_BLOCK_BYTES_DEFAULT = 64 * 1024;
+
+    private static final InputLimits UNLIMITED = new InputLimits(Long.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE,
+            Long.MAX_VALUE, Integer.MAX_VALUE);
+
+    public InputLimits {
+        if (maxFileBytes <= 0 || maxFileCertificates <= 0 || maxJobBytes <= 0 || maxJobCertificates <= 0
+                || maxPemBlockBytes <= 0) {
+            throw new IllegalArgumentException("input limits must be positive");
+        }
+    }
+
+    public static InputLimits defaults() {
+        return new InputLimits(MAX_FILE_BYTES_DEFAULT, MAX_FILE_CERTIFICATES_DEFAULT, MAX_JOB_BYTES_DEFAULT,
+                MAX_JOB_CERTIFICATES_DEFAULT, MAX_PEM_BLOCK_BYTES_DEFAULT);
+    }
+
+    /**
+     * For trusted input, like local files
+     */
+    public static InputLimits unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * @return the same limits, with the given per file ones
+     */
+    public InputLimits withFileLimits(long maxFileBytes, int maxFileCertificates) {
+        return new InputLimits(maxFileBytes, maxFileCertificates, maxJobBytes, maxJobCertificates, maxPemBlockBytes);
+    }
+}
@@ -0,0 +1,135 @@
+package br.com.hugobenicio.mycerts.core.ingest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Certificate input types, told apart by their first bytes (magic numbers and DER structure) instead of by file
+ * extensions, which uploads can't be trusted with.
+ */
+public enum InputType {
+
+    /**
+     * Text with {@code -----BEGIN ...-----} blocks
+     */
+    PEM,
+
+    /**
+     * A single DER encoded certificate
+     */
+    DER,
+
+    /**
+     * Java key store: starts with 0xFEEDFEED
+     */
+    JKS,
+
+    /**
+     * PKCS#12 key store: a DER sequence starting with version 3
+     */
+    PKCS12,
+
+    UNKNOWN;
+
+    /**
+     * How many leading bytes {@link #sniff(byte[], int)} looks at. PEM files may start with comments (e.g. openssl's
+     * "Bag Attributes"), so the first boundary is searched in all of them.
+     */
+    public static final int SNIFF_BYTES = 4096;
+
+    private static final byte[] PEM_BEGIN = "-----BEGIN ".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int JKS_MAGIC = 0xFEEDFEED;
+
+    private static final int DER_SEQUENCE = 0x30;
+
+    private static final int DER_INTEGER = 0x02;
+
+    /**
+     * @param head the first bytes of the input
+     * @param length how many of them are valid
+     */
+    public static InputType sniff(byte[] head, int length) {
+        if (length >= 4 && ((head[0] & 0xFF) << 24 | (head[1] & 0xFF) << 16 | (head[2] & 0xFF) << 8 | (head[3] & 0xFF))
+                == JKS_MAGIC) {
+            return JKS;
+        }
+        if (length > 0 && (head[0] & 0xFF) == DER_SEQUENCE) {
+            int content = derContentOffset(head, length, 0);
+            if (content > 0 && content + 2 < length) {
+                int tag = head[content] & 0xFF;
+                // PFX ::= SEQUENCE { version INTEGER {v3(3)}, ... }
+                if (tag == DER_INTEGER && head[content + 1] == 1 && head[content + 2] == 3) {
+                    return PKCS12;
+                }
+                // Certificate ::= SEQUENCE { tbsCertificate SEQUENCE { ... }, ... }
+                if (tag == DER_SEQUENCE) {
+                    return DER;
+                }
+            }
+            // may still be text starting with a '0' (0x30)
+        }
+        return indexOf(head, length, PEM_BEGIN) >= 0 ? PEM : UNKNOWN;
+    }
+
+    /**
+     * Sniffs an input without consuming it
+     *
+     * @param in a stream supporting {@link InputStream#mark(int)}
+     */
+    public static InputType sniff(InputStream in) throws IOException {
+        if (!in.markSupported()) {
+            throw new IllegalArgumentException("sniffing requires a stream supporting mark");
+        }
+        in.mark(SNIFF_BYTES);
+        try {
+            byte[] head = in.readNBytes(SNIFF_BYTES);
+            return sniff(head, head.length);
+        } finally {
+            in.reset();
+        }
+    }
+
+    public static InputType sniff(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] head = in.readNBytes(SNIFF_BYTES);
+            return sniff(head, head.length);
+        }
+    }
+
+    /**
+     * @return the offset of the content of the DER element at the given offset, or -1 if its header is malformed or
+     * truncated
+     */
+    private static int derContentOffset(byte[] der, int length, int offset) {
+        if (offset + 1 >= length) {
+            return -1;
+        }
+        int first = der[offset + 1] & 0xFF;
+        if (first < 0x80) {
+            return offset + 2;
+        }
+        int lengthBytes = first & 0x7F;
+        if (lengthBytes == 0) {
+            // indefinite length: not DER, but some tools write BER encoded pkcs12 files
+            return offset + 2;
+        }
+        if (lengthBytes > 4) {
+            return -1;
+        }
+        return offset + 2 + lengthBytes;
+    }
+
+    private static int indexOf(byte[] bytes, int length, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= length; i++) {
+            if (bytes[i] == pattern[0] && Arrays.equals(bytes, i, i + pattern.length, pattern, 0, pattern.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,78 @@
+package br.com.hugobenicio.mycerts.core.ingest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.lang.String.format;
+
+/**
+ * Enforces the per file byte limit and charges the job {@link InputBudget} as bytes are read. Reads never ask the
+ * underlying stream for more than one byte past the limit, so an oversized input is detected without reading it.
+ */
+final class LimitedInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+
+    private final InputBudget budget;
+
+    private long count;
+
+    LimitedInputStream(InputStream in, InputBudget budget) {
+        super(in);
+        this.maxBytes = budget.limits().maxFileBytes();
+        this.budget = budget;
+    }
+
+    @Override
+    public int read() throws IOException {
+        budget.checkCancelled();
+        int b = super.read();
+        if (b >= 0) {
+            charge(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        budget.checkCancelled();
+        int n = super.read(bytes, offset, (int) allowance(length));
+        if (n > 0) {
+            charge(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        budget.checkCancelled();
+        long skipped = super.skip(allowance(n));
+        if (skipped > 0) {
+            charge(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        // resetting would count bytes twice
+        return false;
+    }
+
+    /**
+     * @return how many of the wanted bytes may be read: all of them or, if that crosses the limit, one past it
+     */
+    private long allowance(long wanted) {
+        long remaining = maxBytes - count;
+        return remaining >= wanted ? wanted : remaining + 1;
+    }
+
+    private void charge(long n) throws IOException {
+        count += n;
+        if (count > maxBytes) {
+            throw new InputLimitException(format("input too large. max_bytes=%d", maxBytes));
+        }
+        budget.chargeBytes(n);
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.hugobenicio.mycerts.core.inventory;
+
+import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-addressed certificate deduplication: certificates are keyed by the SHA-256 of their DER encoding and only
+ * the first instance of each is kept (interned). Later observations of the same certificate just bump its reference
+ * count and record where it was seen, so memory grows with unique certificates, not with observations.
+ *
+ * <p>Thread-safe.
+ */
+public class CertificateRegistry {
+
+    private final Map<Fingerprint, RegisteredCertificate> entries = new ConcurrentHashMap<>();
+
+    public CertificateRegistry() {
+    }
+
+    /**
+     * Registers an observation of a certificate.
+     *
+     * @param certificate the observed certificate
+     * @param source where it was observed (may be null if unknown)
+     * @return the registry entry. Its {@link RegisteredCertificate#certificate()} is the canonical instance
+     */
+    public RegisteredCertificate register(X509Certificate certificate, CertificateSource source) {
+        return register(certificate, source, null);
+    }
+
+    /**
+     * Same as {@link #register(X509Certificate, CertificateSource)}, but tells whether the certificate is new.
+     *
+     * @return true if the certificate was not known yet (so the given instance became the canonical one)
+     */
+    public boolean add(X509Certificate certificate, CertificateSource source) {
+        boolean[] created = new boolean[1];
+        register(certificate, source, created);
+        return created[0];
+    }
+
+    public RegisteredCertificate register(Observation observation) {
+        return register(observation.certificate(), observation.source());
+    }
+
+    private RegisteredCertificate register(X509Certificate certificate, CertificateSource source, boolean[] created) {
+        Fingerprint fingerprint = Fingerprint.of(certificate);
+        RegisteredCertificate entry = entries.computeIfAbsent(fingerprint, fp -> {
+            if (created != null) {
+                created[0] = true;
+            }
+            return new RegisteredCertificate(fp, certificate);
+        });
+        entry.observe(source);
+        return entry;
+    }
+
+    public RegisteredCertificate get(Fingerprint fingerprint) {
+        return entries.get(fingerprint);
+    }
+
+    public RegisteredCertificate get(X509Certificate certificate) {
+        return entries.get(Fingerprint.of(certificate));
+    }
+
+    /**
+     * @return a live, unmodifiable view of the entries
+     */
+    public Collection<RegisteredCertificate> entries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * @return number of unique certificates
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of observations across all certificates
+     */
+    public long totalObservations() {
+        long total = 0;
+        for (var entry : entries.values()) {
+            total += entry.observations();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.hugobenicio.mycerts.core.inventory;
+
+import java.nio.file.Path;
+
+/**
+ * Where a certificate was observed.
+ *
+ * @param kind the kind of source
+ * @param location the file path or the endpoint address
+ * @param alias key store alias (files) or SNI (endpoints). May be null
+ */
+public record CertificateSource(Kind kind, String location, String alias) {
+
+    public enum Kind { FILE, ENDPOINT }
+
+    public static CertificateSource file(Path path, String alias) {
+        return new CertificateSource(Kind.FILE, path.toString(), alias);
+    }
+
+    public static CertificateSource endpoint(String host, int port, String sni) {
+        return new CertificateSource(Kind.ENDPOINT, host + ":" + port, sni);
+    }
+
+    @Override
+    public String toString() {
+        String prefix = kind == Kind.FILE ? "file:" : "endpoint:";
+        return alias == null ? prefix + location : prefix + location + "#" + alias;
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.hugobenicio.mycerts.core.inventory;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.HexFormat;
+
+import static java.lang.String.format;
+
+/**
+ * SHA-256 of a certificate DER encoding, kept as four primitive words so it is cheap to hash, compare and store.
+ */
+public record Fingerprint(long w0, long w1, long w2, long w3) implements Comparable<Fingerprint> {
+
+    public static final int LENGTH = 32;
+
+    private static final MessageDigest SHA_256_PROTOTYPE = createSha256();
+    private static MessageDigest createSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public static Fingerprint of(X509Certificate certificate) {
+        try {
+            return ofDer(certificate.getEncoded());
+        } catch (CertificateEncodingException e) {
+            throw new IllegalArgumentException("certificate can't be encoded", e);
+        }
+    }
+
+    public static Fingerprint ofDer(byte[] der) {
+        return fromBytes(newSha256().digest(der));
+    }
+
+    public static Fingerprint fromBytes(byte[] sha256) {
+        if (sha256.length != LENGTH) {
+            throw new IllegalArgumentException(format("invalid fingerprint length. length=%d", sha256.length));
+        }
+        var buffer = ByteBuffer.wrap(sha256);
+        return new Fingerprint(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * @param hex 64 hex digits, optionally separated by colons (as printed by keytool and openssl)
+     */
+    public static Fingerprint fromHex(String hex) {
+        return fromBytes(HexFormat.of().parseHex(hex.replace(":", "")));
+    }
+
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(LENGTH).putLong(w0).putLong(w1).putLong(w2).putLong(w3).array();
+    }
+
+    public String toHex() {
+        return HexFormat.of().formatHex(toBytes());
+    }
+
+    @Override
+    public int compareTo(Fingerprint other) {
+        int result = Long.compareUnsigned(w0, other.w0);
+        if (result == 0) {
+            result = Long.compareUnsigned(w1, other.w1);
+        }
+        if (result == 0) {
+            result = Long.compareUnsigned(w2, other.w2);
+        }
+        if (result == 0) {
+            result = Long.compareUnsigned(w3, other.w3);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    /**
+     * Cloning a prototype skips the provider lookup of {@link MessageDigest#getInstance(String)}.
+     */
+    private static MessageDigest newSha256() {
+        try {
+            return (MessageDigest) SHA_256_PROTOTYPE.clone();
+        } catch (CloneNotSupportedException e) {
+            return createSha256();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package br.com.hugobenicio.mycerts.core.inventory;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * A certificate as seen in one particular source.
+ */
+public record Observation(X509Certificate certificate, CertificateSource source) {}
@@ -0,0 +1,55 @@
+package br.com.hugobenicio.mycerts.core.inventory;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The canonical instance of a unique certificate plus its provenance. Thread-safe.
+ */
+public final class RegisteredCertificate {
+
+    private final Fingerprint fingerprint;
+
+    private final X509Certificate certificate;
+
+    private final LongAdder observations = new LongAdder();
+
+    private final Set<CertificateSource> sources = ConcurrentHashMap.newKeySet();
+
+    RegisteredCertificate(Fingerprint fingerprint, X509Certificate certificate) {
+        this.fingerprint = fingerprint;
+        this.certificate = certificate;
+    }
+
+    void observe(CertificateSource source) {
+        observations.increment();
+        if (source != null) {
+            sources.add(source);
+        }
+    }
+
+    public Fingerprint fingerprint() {
+        return fingerprint;
+    }
+
+    public X509Certificate certificate() {
+        return certificate;
+    }
+
+    /**
+     * @return how many times this certificate was registered (its reference count)
+     */
+    public long observations() {
+        return observations.sum();
+    }
+
+    /**
+     * @return the distinct sources this certificate was observed in
+     */
+    public List<CertificateSource> sources() {
+        return List.copyOf(sources);
+    }
+}
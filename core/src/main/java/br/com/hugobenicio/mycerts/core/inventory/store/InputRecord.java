@@ -0,0 +1,52 @@
+package br.com.hugobenicio.mycerts.core.inventory.store;
+
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Last known state of an input (a file or an endpoint) in the inventory.
+ *
+ * @param kind file or endpoint
+ * @param location the file path or the endpoint address (host:port)
+ * @param sni the endpoint SNI (null for files)
+ * @param lastModifiedMillis file modification time when it was parsed (0 for endpoints)
+ * @param size file size when it was parsed (0 for endpoints)
+ * @param contentHash SHA-256 of the file content when it was parsed (empty for endpoints)
+ * @param entries the certificates found, in input order
+ * @param lastSeen last time the input was scanned
+ */
+public record InputRecord(CertificateSource.Kind kind, String location, String sni, long lastModifiedMillis, long size,
+                          byte[] contentHash, List<Entry> entries, Instant lastSeen) {
+
+    /**
+     * @param fingerprint the certificate fingerprint
+     * @param alias the key store alias (null if none)
+     */
+    public record Entry(Fingerprint fingerprint, String alias) {}
+
+    public String key() {
+        return key(kind, location, sni);
+    }
+
+    public static String key(CertificateSource.Kind kind, String location, String sni) {
+        return kind == CertificateSource.Kind.FILE ? "file:" + location : "endpoint:" + location + "#" + sni;
+    }
+
+    public static String fileKey(Path file) {
+        return key(CertificateSource.Kind.FILE, file.toString(), null);
+    }
+
+    public CertificateSource source(Entry entry) {
+        return kind == CertificateSource.Kind.FILE
+                ? new CertificateSource(kind, location, entry.alias())
+                : new CertificateSource(kind, location, sni);
+    }
+
+    InputRecord withLastSeen(Instant lastSeen) {
+        return new InputRecord(kind, location, sni, lastModifiedMillis, size, contentHash, entries, lastSeen);
+    }
+}
@@ -0,0 +1,657 @@
+package br.com.hugobenicio.mycerts.core.inventory.store;
+
+import br.com.hugobenicio.mycerts.core.ingest.CertificateFileLoader;
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.inventory.Observation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * Embedded, file-based certificate inventory. It persists certificates, the inputs (files and endpoints) they were
+ * observed in and when those were last seen, so later runs only need to re-parse what changed.
+ *
+ * <p>The store is a directory with two append-only logs:
+ * <ul>
+ *     <li>{@code certificates.log}: one record per unique certificate (fingerprint, first seen, DER)</li>
+ *     <li>{@code inputs.log}: input records (file or endpoint state), touches (seen again, unchanged) and removals.
+ *     The last record of each input wins</li>
+ * </ul>
+ * Opening the store replays both logs into in-memory indexes. A torn record at the end of a log (e.g. after a crash)
+ * is truncated away. Certificates are parsed lazily from their DER, and only the most recently used ones are kept
+ * parsed in memory.
+ *
+ * <p>Input records are buffered in memory and only written after the certificates log is flushed and forced to disk,
+ * so {@code inputs.log} never gets ahead of the certificates it references. Inputs referencing unknown certificates
+ * anyway (e.g. logs copied mid-write) are dropped on open, so their files are parsed again.
+ *
+ * <p>Thread-safe.
+ */
+public class InventoryStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryStore.class);
+
+    private static final String CERTIFICATES_LOG = "certificates.log";
+    private static final String INPUTS_LOG = "inputs.log";
+
+    private static final int CERTIFICATES_LOG_MAGIC = 0x4D434331; // MCC1
+    private static final int INPUTS_LOG_MAGIC = 0x4D434931; // MCI1
+
+    private static final byte RECORD_FILE = 1;
+    private static final byte RECORD_ENDPOINT = 2;
+    private static final byte RECORD_TOUCH = 3;
+    private static final byte RECORD_REMOVE = 4;
+
+    /**
+     * The inputs log is compacted on open when it has this many times more records than live inputs.
+     */
+    private static final int COMPACTION_RATIO = 4;
+
+    private static final byte[] NO_HASH = new byte[0];
+
+    private static final int LOG_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Max number of parsed certificates kept in memory. The others are parsed again from the log when needed
+     */
+    private static final int PARSED_CERTIFICATES_MAX = 4096;
+
+    /**
+     * Certificate record position inside the certificates log
+     */
+    private record CertificateLocation(long derOffset, int derLength, Instant firstSeen) {}
+
+    private final Path directory;
+
+    private final CertificateFileLoader certificateFileLoader = new CertificateFileLoader();
+
+    private final Map<Fingerprint, CertificateLocation> certificateLocations = new HashMap<>();
+
+    /**
+     * LRU of parsed certificates, guarded by its own lock so cache hits don't contend with writers
+     */
+    private final Map<Fingerprint, X509Certificate> parsedCertificates = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Fingerprint, X509Certificate> eldest) {
+            return size() > PARSED_CERTIFICATES_MAX;
+        }
+    };
+
+    private final Map<String, InputRecord> inputs = new LinkedHashMap<>();
+
+    private final FileChannel certificatesReadChannel;
+
+    private final FileChannel certificatesWriteChannel;
+
+    private final DataOutputStream certificatesOut;
+
+    private long certificatesLogSize;
+
+    /**
+     * Size of the certificates log already handed to the OS: records past it are still in the write buffer
+     */
+    private long certificatesFlushedSize;
+
+    /**
+     * Input records not written yet: see {@link #writeInputs()}
+     */
+    private final ByteArrayOutputStream inputsBuffer = new ByteArrayOutputStream(LOG_BUFFER_SIZE);
+
+    private final DataOutputStream inputsOut = new DataOutputStream(inputsBuffer);
+
+    private OutputStream inputsFileOut;
+
+    private long inputsLogRecords;
+
+    private InventoryStore(Path directory) throws IOException {
+        this.directory = directory;
+
+        Path certificatesLog = directory.resolve(CERTIFICATES_LOG);
+        Path inputsLog = directory.resolve(INPUTS_LOG);
+        initLog(certificatesLog, CERTIFICATES_LOG_MAGIC);
+        initLog(inputsLog, INPUTS_LOG_MAGIC);
+
+        this.certificatesLogSize = replayCertificates(certificatesLog);
+        this.certificatesFlushedSize = certificatesLogSize;
+        long inputsLogSize = replayInputs(inputsLog);
+
+        this.certificatesReadChannel = FileChannel.open(certificatesLog, StandardOpenOption.READ);
+        this.certificatesWriteChannel = openForAppend(certificatesLog, certificatesLogSize);
+        this.certificatesOut = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(certificatesWriteChannel), LOG_BUFFER_SIZE));
+        this.inputsFileOut = Channels.newOutputStream(openForAppend(inputsLog, inputsLogSize));
+
+        dropDanglingInputs();
+        log.info("inventory opened. path=\"{}\" certificates={} inputs={}", directory, certificateLocations.size(), inputs.size());
+
+        if (inputsLogRecords > (long) COMPACTION_RATIO * Math.max(inputs.size(), 1_000)) {
+            compact();
+        }
+    }
+
+    /**
+     * Opens (creating it if needed) the inventory stored in the given directory.
+     */
+    public static InventoryStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new InventoryStore(directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public synchronized Optional<InputRecord> input(String key) {
+        return Optional.ofNullable(inputs.get(key));
+    }
+
+    public synchronized List<InputRecord> inputs() {
+        return List.copyOf(inputs.values());
+    }
+
+    public synchronized int certificatesCount() {
+        return certificateLocations.size();
+    }
+
+    public synchronized Optional<Instant> firstSeen(Fingerprint fingerprint) {
+        return Optional.ofNullable(certificateLocations.get(fingerprint)).map(CertificateLocation::firstSeen);
+    }
+
+    /**
+     * @return the stored certificate or null if unknown
+     * @throws IOException if it can't be read back from the log
+     */
+    public X509Certificate certificate(Fingerprint fingerprint) throws IOException {
+        X509Certificate certificate;
+        synchronized (parsedCertificates) {
+            certificate = parsedCertificates.get(fingerprint);
+        }
+        if (certificate != null) {
+            return certificate;
+        }
+
+        final CertificateLocation location;
+        synchronized (this) {
+            location = certificateLocations.get(fingerprint);
+            if (location == null) {
+                return null;
+            }
+            if (location.derOffset() + location.derLength() > certificatesFlushedSize) {
+                // appended but still buffered: reads must never hit unflushed data
+                flushCertificates();
+            }
+        }
+
+        var der = ByteBuffer.allocate(location.derLength());
+        while (der.hasRemaining()) {
+            int read = certificatesReadChannel.read(der, location.derOffset() + der.position());
+            if (read < 0) {
+                throw new EOFException(format("truncated certificate record. fingerprint=%s", fingerprint));
+            }
+        }
+        try {
+            certificate = certificateFileLoader.parseDer(der.array());
+        } catch (CertificateException e) {
+            throw new IOException(format("corrupted certificate record. fingerprint=%s", fingerprint), e);
+        }
+        synchronized (parsedCertificates) {
+            X509Certificate previous = parsedCertificates.putIfAbsent(fingerprint, certificate);
+            return previous != null ? previous : certificate;
+        }
+    }
+
+    /**
+     * @return the certificates of an input, with their sources, as stored
+     */
+    public List<Observation> observations(InputRecord input) throws IOException {
+        List<Observation> observations = new ArrayList<>(input.entries().size());
+        for (var entry : input.entries()) {
+            X509Certificate certificate = certificate(entry.fingerprint());
+            if (certificate == null) {
+                throw new IOException(format("inventory references an unknown certificate. fingerprint=%s", entry.fingerprint()));
+            }
+            observations.add(new Observation(certificate, input.source(entry)));
+        }
+        return observations;
+    }
+
+    /**
+     * @return the certificates of every live input, with their sources
+     */
+    public List<Observation> observations() throws IOException {
+        List<Observation> observations = new ArrayList<>();
+        for (var input : inputs()) {
+            observations.addAll(observations(input));
+        }
+        return observations;
+    }
+
+    /**
+     * Records the state of a parsed file.
+     */
+    public synchronized void recordFile(Path file, long lastModifiedMillis, long size, byte[] contentHash,
+                                        List<Observation> observations, Instant seenAt) throws IOException {
+        List<InputRecord.Entry> entries = appendCertificates(observations, seenAt);
+        var input = new InputRecord(CertificateSource.Kind.FILE, file.toString(), null, lastModifiedMillis, size,
+                contentHash, entries, seenAt);
+        appendInput(input);
+    }
+
+    /**
+     * Records the chain presented by an endpoint. Only changes are appended to the log: if the chain is the same as
+     * the last one seen, the endpoint is just touched.
+     *
+     * @param sni the server name used in the handshake (if null, host is assumed)
+     * @return true if the chain changed (or the endpoint is new)
+     */
+    public synchronized boolean recordEndpoint(String host, int port, String sni, List<X509Certificate> chain,
+                                               Instant seenAt) throws IOException {
+        sni = sni != null ? sni : host;
+        var source = CertificateSource.endpoint(host, port, sni);
+        List<Observation> observations = chain.stream()
+                .map(certificate -> new Observation(certificate, source))
+                .toList();
+
+        String key = InputRecord.key(CertificateSource.Kind.ENDPOINT, source.location(), sni);
+        InputRecord known = inputs.get(key);
+        if (known != null && known.entries().equals(entriesOf(observations))) {
+            touch(key, seenAt);
+            return false;
+        }
+
+        List<InputRecord.Entry> entries = appendCertificates(observations, seenAt);
+        appendInput(new InputRecord(CertificateSource.Kind.ENDPOINT, source.location(), sni, 0, 0, NO_HASH, entries, seenAt));
+        return true;
+    }
+
+    /**
+     * Marks an input as seen again, unchanged.
+     */
+    public synchronized void touch(String key, Instant seenAt) throws IOException {
+        InputRecord known = inputs.get(key);
+        if (known == null) {
+            return;
+        }
+        inputsOut.writeByte(RECORD_TOUCH);
+        inputsOut.writeUTF(key);
+        inputsOut.writeLong(seenAt.toEpochMilli());
+        inputs.put(key, known.withLastSeen(seenAt));
+        inputRecordAppended();
+    }
+
+    /**
+     * Forgets an input (e.g. a file that was deleted). Its certificates are kept.
+     */
+    public synchronized void remove(String key, Instant at) throws IOException {
+        if (inputs.remove(key) == null) {
+            return;
+        }
+        inputsOut.writeByte(RECORD_REMOVE);
+        inputsOut.writeUTF(key);
+        inputsOut.writeLong(at.toEpochMilli());
+        inputRecordAppended();
+    }
+
+    /**
+     * Forgets every file input under the given directory which is not in the given set of keys.
+     *
+     * @return the number of removed inputs
+     */
+    public synchronized int removeMissingFiles(Path root, Set<String> presentKeys, Instant at) throws IOException {
+        String separator = root.getFileSystem().getSeparator();
+        String rootKey = InputRecord.fileKey(root);
+        String prefix = rootKey.endsWith(separator) ? rootKey : rootKey + separator;
+        List<String> missing = inputs.keySet().stream()
+                .filter(key -> key.startsWith(prefix) && !presentKeys.contains(key))
+                .toList();
+        for (String key : missing) {
+            remove(key, at);
+        }
+        return missing.size();
+    }
+
+    public synchronized void flush() throws IOException {
+        writeInputs();
+    }
+
+    /**
+     * Rewrites the inputs log keeping only the live state of each input.
+     */
+    public synchronized void compact() throws IOException {
+        // also forces the certificates the compacted log references
+        writeInputs();
+        inputsFileOut.close();
+
+        Path inputsLog = directory.resolve(INPUTS_LOG);
+        Path compacted = directory.resolve(INPUTS_LOG + ".compacting");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(compacted)))) {
+            out.writeInt(INPUTS_LOG_MAGIC);
+            for (var input : inputs.values()) {
+                writeInput(out, input);
+            }
+        }
+        Files.move(compacted, inputsLog, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log.info("inventory inputs log compacted. records_before={} records_after={}", inputsLogRecords, inputs.size());
+        inputsLogRecords = inputs.size();
+        inputsFileOut = Channels.newOutputStream(openForAppend(inputsLog, Files.size(inputsLog)));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        var inputsFileOut = this.inputsFileOut;
+        try (certificatesReadChannel; certificatesOut; inputsFileOut) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered input records, after flushing and forcing the certificates log: a crash may lose the tail of
+     * the inputs log (those files are just parsed again), but never leave it referencing unwritten certificates.
+     */
+    private void writeInputs() throws IOException {
+        flushCertificates();
+        if (inputsBuffer.size() == 0) {
+            return;
+        }
+        certificatesWriteChannel.force(false);
+        inputsBuffer.writeTo(inputsFileOut);
+        inputsBuffer.reset();
+    }
+
+    private void flushCertificates() throws IOException {
+        certificatesOut.flush();
+        certificatesFlushedSize = certificatesLogSize;
+    }
+
+    /**
+     * Forgets the inputs referencing certificates missing from the certificates log, so they are loaded again
+     */
+    private void dropDanglingInputs() throws IOException {
+        List<String> dangling = inputs.values().stream()
+                .filter(input -> input.entries().stream()
+                        .anyMatch(entry -> !certificateLocations.containsKey(entry.fingerprint())))
+                .map(InputRecord::key)
+                .toList();
+        if (dangling.isEmpty()) {
+            return;
+        }
+        log.warn("dropping inventory inputs referencing unknown certificates. path=\"{}\" inputs={}",
+                directory, dangling.size());
+        Instant now = Instant.now();
+        for (String key : dangling) {
+            remove(key, now);
+        }
+        writeInputs();
+    }
+
+    private List<InputRecord.Entry> appendCertificates(List<Observation> observations, Instant seenAt) throws IOException {
+        for (var observation : observations) {
+            appendCertificate(observation.certificate(), seenAt);
+        }
+        return entriesOf(observations);
+    }
+
+    private void appendCertificate(X509Certificate certificate, Instant seenAt) throws IOException {
+        final byte[] der;
+        try {
+            der = certificate.getEncoded();
+        } catch (CertificateEncodingException e) {
+            throw new IOException("certificate can't be encoded", e);
+        }
+        Fingerprint fingerprint = Fingerprint.ofDer(der);
+        if (certificateLocations.containsKey(fingerprint)) {
+            return;
+        }
+
+        certificatesOut.write(fingerprint.toBytes());
+        certificatesOut.writeLong(seenAt.toEpochMilli());
+        certificatesOut.writeInt(der.length);
+        certificatesOut.write(der);
+
+        long derOffset = certificatesLogSize + Fingerprint.LENGTH + Long.BYTES + Integer.BYTES;
+        certificatesLogSize = derOffset + der.length;
+        certificateLocations.put(fingerprint, new CertificateLocation(derOffset, der.length, seenAt));
+        // freshly appended certificates are likely to be read back soon (e.g. by observations(input))
+        synchronized (parsedCertificates) {
+            parsedCertificates.putIfAbsent(fingerprint, certificate);
+        }
+    }
+
+    private void appendInput(InputRecord input) throws IOException {
+        writeInput(inputsOut, input);
+        inputs.put(input.key(), input);
+        inputRecordAppended();
+    }
+
+    private void inputRecordAppended() throws IOException {
+        inputsLogRecords++;
+        if (inputsBuffer.size() >= LOG_BUFFER_SIZE) {
+            writeInputs();
+        }
+    }
+
+    private static List<InputRecord.Entry> entriesOf(List<Observation> observations) {
+        return observations.stream()
+                .map(o -> new InputRecord.Entry(Fingerprint.of(o.certificate()),
+                        o.source() != null && o.source().kind() == CertificateSource.Kind.FILE ? o.source().alias() : null))
+                .toList();
+    }
+
+    private static void writeInput(DataOutputStream out, InputRecord input) throws IOException {
+        boolean isFile = input.kind() == CertificateSource.Kind.FILE;
+        out.writeByte(isFile ? RECORD_FILE : RECORD_ENDPOINT);
+        out.writeUTF(input.location());
+        if (isFile) {
+            out.writeLong(input.lastModifiedMillis());
+            out.writeLong(input.size());
+            out.writeByte(input.contentHash().length);
+            out.write(input.contentHash());
+        } else {
+            out.writeUTF(input.sni());
+        }
+        out.writeLong(input.lastSeen().toEpochMilli());
+        out.writeInt(input.entries().size());
+        for (var entry : input.entries()) {
+            out.write(entry.fingerprint().toBytes());
+            out.writeBoolean(entry.alias() != null);
+            if (entry.alias() != null) {
+                out.writeUTF(entry.alias());
+            }
+        }
+    }
+
+    /**
+     * @return the size of the valid prefix of the log
+     */
+    private long replayCertificates(Path certificatesLog) throws IOException {
+        try (var in = new CountingInputStream(Files.newInputStream(certificatesLog))) {
+            var data = new DataInputStream(in);
+            data.readInt();
+            long validSize = in.count();
+            byte[] fingerprint = new byte[Fingerprint.LENGTH];
+            try {
+                while (true) {
+                    data.readFully(fingerprint);
+                    long firstSeen = data.readLong();
+                    int derLength = data.readInt();
+                    long derOffset = in.count();
+                    data.skipNBytes(derLength);
+                    certificateLocations.put(Fingerprint.fromBytes(fingerprint),
+                            new CertificateLocation(derOffset, derLength, Instant.ofEpochMilli(firstSeen)));
+                    validSize = in.count();
+                }
+            } catch (EOFException e) {
+                return truncateTornTail(certificatesLog, validSize);
+            }
+        }
+    }
+
+    /**
+     * @return the size of the valid prefix of the log
+     */
+    private long replayInputs(Path inputsLog) throws IOException {
+        try (var in = new CountingInputStream(Files.newInputStream(inputsLog))) {
+            var data = new DataInputStream(in);
+            data.readInt();
+            long validSize = in.count();
+            try {
+                while (true) {
+                    byte type = data.readByte();
+                    switch (type) {
+                        case RECORD_FILE, RECORD_ENDPOINT -> {
+                            InputRecord input = readInput(data, type);
+                            inputs.put(input.key(), input);
+                        }
+                        case RECORD_TOUCH -> {
+                            String key = data.readUTF();
+                            Instant seenAt = Instant.ofEpochMilli(data.readLong());
+                            inputs.computeIfPresent(key, (k, input) -> input.withLastSeen(seenAt));
+                        }
+                        case RECORD_REMOVE -> {
+                            String key = data.readUTF();
+                            data.readLong();
+                            inputs.remove(key);
+                        }
+                        default -> throw new IOException(format("corrupted inventory log. path=\"%s\" offset=%d", inputsLog, validSize));
+                    }
+                    inputsLogRecords++;
+                    validSize = in.count();
+                }
+            } catch (EOFException e) {
+                return truncateTornTail(inputsLog, validSize);
+            }
+        }
+    }
+
+    private static InputRecord readInput(DataInputStream data, byte type) throws IOException {
+        boolean isFile = type == RECORD_FILE;
+        String location = data.readUTF();
+        long lastModifiedMillis = 0;
+        long size = 0;
+        byte[] contentHash = NO_HASH;
+        String sni = null;
+        if (isFile) {
+            lastModifiedMillis = data.readLong();
+            size = data.readLong();
+            contentHash = data.readNBytes(data.readUnsignedByte());
+        } else {
+            sni = data.readUTF();
+        }
+        Instant lastSeen = Instant.ofEpochMilli(data.readLong());
+
+        int entriesCount = data.readInt();
+        List<InputRecord.Entry> entries = new ArrayList<>(entriesCount);
+        byte[] fingerprint = new byte[Fingerprint.LENGTH];
+        for (int i = 0; i < entriesCount; i++) {
+            data.readFully(fingerprint);
+            String alias = data.readBoolean() ? data.readUTF() : null;
+            entries.add(new InputRecord.Entry(Fingerprint.fromBytes(fingerprint), alias));
+        }
+
+        var kind = isFile ? CertificateSource.Kind.FILE : CertificateSource.Kind.ENDPOINT;
+        return new InputRecord(kind, location, sni, lastModifiedMillis, size, contentHash, List.copyOf(entries), lastSeen);
+    }
+
+    private static void initLog(Path path, int magic) throws IOException {
+        if (Files.exists(path) && Files.size(path) >= Integer.BYTES) {
+            try (var in = new DataInputStream(Files.newInputStream(path))) {
+                if (in.readInt() != magic) {
+                    throw new IOException(format("not a mycerts inventory log. path=\"%s\"", path));
+                }
+            }
+            return;
+        }
+        try (var out = new DataOutputStream(Files.newOutputStream(path))) {
+            out.writeInt(magic);
+        }
+    }
+
+    private static long truncateTornTail(Path path, long validSize) throws IOException {
+        long size = Files.size(path);
+        if (size > validSize) {
+            log.warn("truncating torn inventory log tail. path=\"{}\" bytes={}", path, size - validSize);
+            try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(validSize);
+            }
+        }
+        return validSize;
+    }
+
+    private static FileChannel openForAppend(Path path, long expectedSize) throws IOException {
+        if (Files.size(path) != expectedSize) {
+            throw new IOException(format("inventory log size mismatch. path=\"%s\"", path));
+        }
+        return FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(new BufferedInputStream(in, LOG_BUFFER_SIZE));
+        }
+
+        long count() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package br.com.hugobenicio.mycerts.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process wide timings of the core network operations, for whoever wants to expose them (e.g. the server /metrics
+ * endpoint). Recording is lock-free, so it's always on.
+ */
+public final class CoreMetrics {
+
+    /**
+     * Tcp connect plus tls handshake of the certificate fetchers, successful or not
+     */
+    public static final LatencyHistogram TLS_HANDSHAKES = new LatencyHistogram();
+
+    /**
+     * Tls handshakes that resumed a previous session (a subset of {@link #TLS_HANDSHAKES})
+     */
+    public static final LongAdder TLS_RESUMED_HANDSHAKES = new LongAdder();
+
+    public static final LongAdder TLS_FAILED_HANDSHAKES = new LongAdder();
+
+    /**
+     * Whole scan target durations (waiting for the per-host limit not included)
+     */
+    public static final LatencyHistogram SCAN_TARGETS = new LatencyHistogram();
+
+    public static final LongAdder SCAN_FAILED_TARGETS = new LongAdder();
+
+    private CoreMetrics() {}
+}
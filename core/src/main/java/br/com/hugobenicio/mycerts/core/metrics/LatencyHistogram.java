@@ -0,0 +1,133 @@
+package br.com.hugobenicio.mycerts.core.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies, in nanoseconds, with log-linear buckets (like HdrHistogram): each power of two
+ * range is split in {@value #SUB_BUCKETS} linear buckets, so any recorded value is known within ~3% over the whole
+ * {@code long} range, in a fixed ~15KB of counters.
+ *
+ * <p>Recording is a couple of atomic increments and never allocates, so it can sit on hot paths. Reads take a
+ * {@link Snapshot}, which is consistent enough for monitoring (records racing with it may or may not be counted).
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values below this one get a bucket each
+     */
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+    private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Immutable copy of a histogram
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sumNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long sumNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sumNanos() {
+            return sumNanos;
+        }
+
+        public long maxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * @param quantile between 0 and 1 (e.g. 0.99)
+         * @return the latency below which the given fraction of the records fall (0 if there are no records),
+         * rounded up to its bucket upper bound
+         */
+        public long valueAtQuantile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        sumNanos.add(value);
+        if (value > maxNanos.get()) {
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public void record(Duration duration) {
+        record(duration.toNanos());
+    }
+
+    /**
+     * Records the time elapsed since the given {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, sumNanos.sum(), maxNanos.get());
+    }
+
+    private static int index(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> shift); // in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+        return shift * SUB_BUCKETS + mantissa;
+    }
+
+    private static long highestValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index - (long) shift * SUB_BUCKETS;
+        long next = (mantissa + 1) << shift;
+        return next < 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.hugobenicio.mycerts.core.pem;
+
+/**
+ * A decoded PEM block.
+ *
+ * @param name the block label (e.g. CERTIFICATE)
+ * @param der the DER bytes of the block body
+ */
+public record DerBlock(String name, byte[] der) {}
@@ -0,0 +1,13 @@
+package br.com.hugobenicio.mycerts.core.pem;
+
+import java.io.IOException;
+
+/**
+ * A pem block decodes to more bytes than the {@link PemReader#setMaxBlockSize(int) max block size}
+ */
+public class PemBlockTooLargeException extends IOException {
+
+    public PemBlockTooLargeException(String message) {
+        super(message);
+    }
+}
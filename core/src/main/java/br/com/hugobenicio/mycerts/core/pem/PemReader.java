@@ -0,0 +1,372 @@
+package br.com.hugobenicio.mycerts.core.pem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static java.lang.String.format;
+
+/**
+ * Streaming PEM reader. It scans bytes for the BEGIN/END boundaries (RFC 7468) and Base64-decodes block bodies
+ * straight into DER, handing out blocks lazily. Memory use depends on the biggest block, not on the input size.
+ *
+ * <p>Text outside blocks (comments, openssl's "subject=" lines, etc) is ignored. Encapsulated headers
+ * (e.g. "Proc-Type:") are skipped.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public class PemReader implements Iterator<DerBlock>, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(PemReader.class);
+
+    /**
+     * Files bigger than this are memory-mapped instead of read through a buffer.
+     */
+    public static final long MMAP_THRESHOLD = 1024 * 1024;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_LABEL_LINE_LENGTH = 128;
+
+    private static final byte[] BEGIN = "-----BEGIN ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "-----END ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DASHES = "-----".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte INVALID = -1;
+    private static final byte SKIP = -2;
+    private static final byte PAD = -3;
+    private static final byte HEADER = -4;
+
+    /**
+     * Maps every byte to its Base64 value, or to one of the special markers above.
+     */
+    private static final byte[] BASE64_DECODE_TABLE = createBase64DecodeTable();
+    private static byte[] createBase64DecodeTable() {
+        byte[] table = new byte[256];
+        Arrays.fill(table, INVALID);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            table[alphabet.charAt(i)] = (byte) i;
+        }
+        table[' '] = SKIP;
+        table['\t'] = SKIP;
+        table['\r'] = SKIP;
+        table['='] = PAD;
+        table[':'] = HEADER;
+        return table;
+    }
+
+    private final ReadableByteChannel channel;
+
+    private final ByteBuffer buffer;
+
+    private final byte[] lineBuffer = new byte[MAX_LABEL_LINE_LENGTH];
+
+    private byte[] der = new byte[4096];
+
+    private int derLength;
+
+    /**
+     * Blocks whose DER is longer than this fail to be read, see {@link #setMaxBlockSize(int)}
+     */
+    private int maxBlockSize = Integer.MAX_VALUE;
+
+    /**
+     * Name of the block being decoded, for error messages
+     */
+    private String blockName;
+
+    private DerBlock nextBlock;
+
+    /**
+     * Reads PEM data from a channel through an internal buffer.
+     */
+    public PemReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(READ_BUFFER_SIZE).flip();
+    }
+
+    /**
+     * Reads PEM data from an in-memory (or memory-mapped) buffer, from its position to its limit.
+     */
+    public PemReader(ByteBuffer buffer) {
+        this.channel = null;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens a PEM file, memory-mapping it if it is big enough for it to pay off.
+     *
+     * @param path the PEM file path
+     * @return the reader, which must be closed by the caller
+     * @throws IOException if the file can't be opened
+     */
+    public static PemReader open(Path path) throws IOException {
+        var fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = fileChannel.size();
+            if (size < MMAP_THRESHOLD || size > Integer.MAX_VALUE) {
+                return new PemReader(fileChannel);
+            }
+            // the mapping stays valid after the channel is closed
+            try (fileChannel) {
+                return new PemReader(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Limits the size of the decoded blocks, so untrusted input can't make the reader buffer grow without bounds.
+     * Certificates are a few KB long, even with long chains of extensions. Longer blocks fail with a
+     * {@link PemBlockTooLargeException}.
+     *
+     * @param maxBlockSize max DER length of a block, in bytes
+     * @return this reader
+     */
+    public PemReader setMaxBlockSize(int maxBlockSize) {
+        if (maxBlockSize <= 0) {
+            throw new IllegalArgumentException("max pem block size must be positive");
+        }
+        this.maxBlockSize = maxBlockSize;
+        return this;
+    }
+
+    /**
+     * Reads the next block.
+     *
+     * @return the next block or null if there are no more blocks
+     * @throws IOException if reading fails or if a block is malformed
+     * @throws PemBlockTooLargeException if a block is longer than the max block size
+     */
+    public DerBlock readBlock() throws IOException {
+        if (nextBlock != null) {
+            DerBlock block = nextBlock;
+            nextBlock = null;
+            return block;
+        }
+
+        while (seekLinePrefix(BEGIN)) {
+            String name = readLabel();
+            if (name == null) {
+                continue;
+            }
+
+            DerBlock block = readBody(name);
+            if (block == null) {
+                log.warn("pem input ended inside a block. ignoring it. type={}", name);
+                return null;
+            }
+            return block;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextBlock == null) {
+            try {
+                nextBlock = readBlock();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return nextBlock != null;
+    }
+
+    @Override
+    public DerBlock next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        DerBlock block = nextBlock;
+        nextBlock = null;
+        return block;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return the next input byte or -1 on end of input
+     */
+    private int nextByte() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        if (channel == null) {
+            return false;
+        }
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        return read > 0;
+    }
+
+    /**
+     * Consumes input up to (and including) the next line starting with the given prefix.
+     * Must be called at the beginning of a line.
+     *
+     * @return false on end of input
+     */
+    private boolean seekLinePrefix(byte[] prefix) throws IOException {
+        int matched = 0;
+        boolean atLineStart = true;
+        for (int b = nextByte(); b >= 0; b = nextByte()) {
+            if (b == '\n') {
+                atLineStart = true;
+                matched = 0;
+            } else if (atLineStart) {
+                if (b == prefix[matched]) {
+                    if (++matched == prefix.length) {
+                        return true;
+                    }
+                } else {
+                    atLineStart = false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the rest of the line and reads it as a boundary label, e.g. "CERTIFICATE-----".
+     *
+     * @return the label or null if the line is not a well-formed boundary
+     */
+    private String readLabel() throws IOException {
+        int length = 0;
+        boolean truncated = false;
+        for (int b = nextByte(); b >= 0 && b != '\n'; b = nextByte()) {
+            if (length < lineBuffer.length) {
+                lineBuffer[length++] = (byte) b;
+            } else {
+                truncated = true;
+            }
+        }
+
+        while (length > 0 && (lineBuffer[length - 1] == '\r' || lineBuffer[length - 1] == ' ' || lineBuffer[length - 1] == '\t')) {
+            length--;
+        }
+
+        if (truncated || !endsWith(lineBuffer, length, DASHES)) {
+            return null;
+        }
+        return new String(lineBuffer, 0, length - DASHES.length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Decodes body lines until the END boundary. Must be called at the beginning of the first body line.
+     *
+     * @return the decoded block or null on end of input
+     */
+    private DerBlock readBody(String name) throws IOException {
+        derLength = 0;
+        blockName = name;
+        int bits = 0;
+        int bitCount = 0;
+
+        while (true) {
+            int b = nextByte();
+            if (b < 0) {
+                return null;
+            }
+
+            if (b == '-') {
+                // the only line starting with a dash allowed inside a block is the END boundary
+                for (int i = 1; i < END.length; i++) {
+                    if (nextByte() != END[i]) {
+                        throw new IOException(format("malformed pem block. type=%s", name));
+                    }
+                }
+                String endName = readLabel();
+                if (!name.equals(endName)) {
+                    log.warn("pem block boundaries mismatch. begin={} end={}", name, endName);
+                }
+                return new DerBlock(name, Arrays.copyOf(der, derLength));
+            }
+
+            int lineDerLength = derLength;
+            int lineBits = bits;
+            int lineBitCount = bitCount;
+            int invalidChar = -1;
+            for (; b >= 0 && b != '\n'; b = nextByte()) {
+                byte value = BASE64_DECODE_TABLE[b];
+                if (value == HEADER) {
+                    // encapsulated header line (e.g. "Proc-Type: 4,ENCRYPTED"). rolls the line back and skips it
+                    derLength = lineDerLength;
+                    bits = lineBits;
+                    bitCount = lineBitCount;
+                    invalidChar = -1;
+                    while (b >= 0 && b != '\n') {
+                        b = nextByte();
+                    }
+                    break;
+                }
+                if (invalidChar >= 0) {
+                    // keeps scanning: this may still turn out to be a header line
+                    continue;
+                }
+                if (value >= 0) {
+                    bits = (bits << 6) | value;
+                    bitCount += 6;
+                    if (bitCount >= 8) {
+                        bitCount -= 8;
+                        appendDer((byte) (bits >> bitCount));
+                        bits &= (1 << bitCount) - 1;
+                    }
+                } else if (value == INVALID) {
+                    invalidChar = b;
+                }
+                // SKIP and PAD: nothing to decode
+            }
+
+            if (invalidChar >= 0) {
+                throw new IOException(format("invalid base64 character inside pem block. type=%s char=0x%02x", name, invalidChar));
+            }
+        }
+    }
+
+    private void appendDer(byte value) throws IOException {
+        if (derLength >= maxBlockSize) {
+            throw new PemBlockTooLargeException(format("pem block too large. type=%s max_bytes=%d", blockName,
+                    maxBlockSize));
+        }
+        if (derLength == der.length) {
+            der = Arrays.copyOf(der, (int) Math.min((long) der.length * 2, maxBlockSize));
+        }
+        der[derLength++] = value;
+    }
+
+    private static boolean endsWith(byte[] bytes, int length, byte[] suffix) {
+        if (length < suffix.length) {
+            return false;
+        }
+        return Arrays.equals(bytes, length - suffix.length, length, suffix, 0, suffix.length);
+    }
+}
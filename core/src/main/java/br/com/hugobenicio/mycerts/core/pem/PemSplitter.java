@@ -7,6 +7,8 @@ import java.util.regex.Pattern;
 /**
  * This is a simple PEM splitter that just tries to split pem blocks and give them to jvm X.509 certificate factory
  * (which supports PEM parsing of certificates even excluding comments)
+ *
+ * @see PemReader for the streaming alternative used by the loaders. This one is kept around for comparison.
  */
 public class PemSplitter {
 
@@ -0,0 +1,59 @@
+package br.com.hugobenicio.mycerts.core.pem;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Streaming PEM writer (RFC 7468): each block is Base64-encoded straight into the output, 64 characters per line, so
+ * memory use doesn't depend on how many blocks are written.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public class PemWriter implements Flushable, Closeable {
+
+    public static final String CERTIFICATE = "CERTIFICATE";
+
+    private static final Base64.Encoder ENCODER = Base64.getMimeEncoder(64, new byte[]{'\n'});
+
+    private static final byte[] NEW_LINE = {'\n'};
+
+    private final OutputStream out;
+
+    public PemWriter(OutputStream out) {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+    }
+
+    /**
+     * Writes an optional comment line (e.g. openssl's "subject=") followed by the block
+     *
+     * @param comment written before the block, if not null
+     */
+    public void write(String label, byte[] der, String comment) throws IOException {
+        if (comment != null) {
+            out.write(comment.getBytes(StandardCharsets.UTF_8));
+            out.write(NEW_LINE);
+        }
+        out.write(("-----BEGIN " + label + "-----\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(ENCODER.encode(der));
+        out.write(("\n-----END " + label + "-----\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public void writeCertificate(byte[] der, String subject) throws IOException {
+        write(CERTIFICATE, der, subject != null ? "subject=" + subject : null);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.hugobenicio.mycerts.core.poke;
+
+import br.com.hugobenicio.mycerts.core.tls.SocketTlsCertificateFetcher;
+
+import java.time.Duration;
+
+/**
+ * Poke tunables.
+ *
+ * @param handshakes number of timed handshakes per endpoint
+ * @param concurrencyPerEndpoint max number of handshakes in flight against the same endpoint
+ * @param maxConcurrency max number of handshakes in flight across all endpoints
+ * @param connectTimeout max time waiting for the tcp connection to be established
+ * @param readTimeout max time waiting for each read, while handshaking or waiting for the first response byte
+ * @param verifyTrust if false, any server certificate is accepted (the timed handshakes fail on untrusted chains
+ *                    otherwise). Protocol and cipher suite probes never verify trust
+ * @param firstByte if true, a {@code HEAD /} http request is sent after each timed handshake and the time until the
+ *                  first response byte is measured
+ * @param probeProtocols if true, finds out which tls versions the endpoint accepts
+ * @param probeCipherSuites if true, also finds out which cipher suites the endpoint accepts for each version
+ */
+public record PokeOptions(int handshakes, int concurrencyPerEndpoint, int maxConcurrency, Duration connectTimeout,
+                          Duration readTimeout, boolean verifyTrust, boolean firstByte, boolean probeProtocols,
+                          boolean probeCipherSuites) {
+
+    public static final int MAX_CONCURRENCY_DEFAULT = 256;
+
+    public PokeOptions {
+        if (handshakes < 0) {
+            throw new IllegalArgumentException("poke handshakes must not be negative");
+        }
+        if (concurrencyPerEndpoint < 1 || maxConcurrency < 1) {
+            throw new IllegalArgumentException("poke concurrency limits must be positive");
+        }
+    }
+
+    /**
+     * A single, trust verifying handshake per endpoint, like the classic SSLPoke
+     */
+    public static PokeOptions defaults() {
+        return new PokeOptions(1, 1, MAX_CONCURRENCY_DEFAULT, SocketTlsCertificateFetcher.CONNECT_TIMEOUT_DEFAULT,
+                SocketTlsCertificateFetcher.HANDSHAKE_TIMEOUT_DEFAULT, true, true, false, false);
+    }
+}
@@ -0,0 +1,47 @@
+package br.com.hugobenicio.mycerts.core.poke;
+
+import br.com.hugobenicio.mycerts.core.metrics.LatencyHistogram;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of poking an endpoint.
+ *
+ * @param target the poked endpoint
+ * @param attempts number of timed handshakes attempted
+ * @param succeeded number of timed handshakes (and first byte waits) that succeeded. Handshakes which never ran (e.g.
+ *                  the poke was interrupted) count neither as succeeded nor as failed
+ * @param failures number of timed handshakes (or first byte waits) that failed
+ * @param errors distinct failure causes and how many times each one happened
+ * @param connect tcp connect latencies
+ * @param handshake tls handshake latencies
+ * @param firstByte latencies from sending a request to receiving the first response byte (empty if not measured)
+ * @param protocol tls version negotiated by the timed handshakes (null if none succeeded)
+ * @param cipherSuite cipher suite negotiated by the timed handshakes (null if none succeeded)
+ * @param acceptedCipherSuites tls versions the endpoint accepts (newest first), each with the cipher suites it accepts
+ *                             in the order the server picked them. Only the first picked suite is listed if cipher
+ *                             suites were not probed. Empty if protocols were not probed
+ * @param elapsed time spent poking the endpoint
+ */
+public record PokeResult(ScanTarget target, int attempts, int succeeded, int failures, Map<String, Integer> errors,
+                         LatencyHistogram.Snapshot connect, LatencyHistogram.Snapshot handshake,
+                         LatencyHistogram.Snapshot firstByte, String protocol, String cipherSuite,
+                         Map<String, List<String>> acceptedCipherSuites, Duration elapsed) {
+
+    /**
+     * @return tls versions the endpoint accepts, newest first
+     */
+    public List<String> acceptedProtocols() {
+        return List.copyOf(acceptedCipherSuites.keySet());
+    }
+
+    /**
+     * @return whether every attempted handshake succeeded
+     */
+    public boolean allSucceeded() {
+        return succeeded == attempts;
+    }
+}
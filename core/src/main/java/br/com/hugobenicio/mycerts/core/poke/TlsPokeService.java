@@ -1,43 +1,396 @@
 package br.com.hugobenicio.mycerts.core.poke;
 
+import br.com.hugobenicio.mycerts.core.metrics.CoreMetrics;
+import br.com.hugobenicio.mycerts.core.metrics.LatencyHistogram;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+import br.com.hugobenicio.mycerts.core.tls.InsecureX509TrustManager;
+import br.com.hugobenicio.mycerts.core.tls.ServerNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
-import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.lang.String.format;
 
+/**
+ * Probes tls endpoints (aka SSLPoke): times many full handshakes per endpoint, concurrently, and optionally finds out
+ * which tls versions and cipher suites each endpoint accepts.
+ *
+ * <p>Every handshake runs on its own virtual thread, bounded by a per endpoint and a global concurrency limit, and uses
+ * a throwaway {@link SSLContext}, so sessions are never resumed and every handshake is a full one: that's what a slow
+ * tls terminator under load is slow at.
+ *
+ * <p>Cipher suites are enumerated the way scanners usually do: all candidates are offered, the one the server picks is
+ * removed from the offer, and so on until the server rejects the handshake. That's one handshake per accepted suite
+ * (plus one) instead of one per candidate. Only the versions and suites this JVM has enabled can be probed.
+ *
+ * <p>Thread-safe.
+ */
 public class TlsPokeService {
 
+    private static final Logger log = LoggerFactory.getLogger(TlsPokeService.class);
+
     public static final int PORT_DEFAULT = 443;
 
-    private final String host;
+    private static final String FIRST_BYTE_REQUEST = "HEAD / HTTP/1.1\r\nHost: %s\r\nConnection: close\r\n\r\n";
+
+    /**
+     * Signaling value, not a real cipher suite
+     */
+    private static final String RENEGOTIATION_INFO_SCSV = "TLS_EMPTY_RENEGOTIATION_INFO_SCSV";
+
+    private final PokeOptions options;
+
+    /**
+     * Trust managers of the timed handshakes
+     */
+    private final TrustManager[] trustManagers;
+
+    /**
+     * Versions (newest first) and cipher suites enabled by default in this JVM: the probe candidates
+     */
+    private final List<String> protocols;
+
+    private final List<String> cipherSuites;
+
+    public TlsPokeService(PokeOptions options) {
+        this.options = options;
+        this.trustManagers = options.verifyTrust()
+                ? defaultTrustManagers()
+                : InsecureX509TrustManager.newTrustManagers();
 
-    private final int port;
+        SSLParameters defaults = InsecureX509TrustManager.newSslContext().getDefaultSSLParameters();
+        this.protocols = Arrays.stream(defaults.getProtocols())
+                .filter(protocol -> protocol.startsWith("TLS"))
+                .sorted(Collections.reverseOrder())
+                .toList();
+        this.cipherSuites = Arrays.stream(defaults.getCipherSuites())
+                .filter(cipherSuite -> !cipherSuite.equals(RENEGOTIATION_INFO_SCSV))
+                .toList();
+    }
 
-    public TlsPokeService(String host, int port) {
-        this.host = host;
-        this.port = port;
+    public TlsPokeService() {
+        this(PokeOptions.defaults());
     }
 
-    public TlsPokeService(String host) {
-        this(host, PORT_DEFAULT);
+    /**
+     * Pokes all targets concurrently
+     *
+     * @return the results, in target order
+     * @throws InterruptedException if interrupted while waiting for the pokes to finish
+     */
+    public List<PokeResult> poke(List<ScanTarget> targets) throws InterruptedException {
+        log.info("poking {} target(s). handshakes={} concurrency_per_endpoint={} max_concurrency={}",
+                targets.size(), options.handshakes(), options.concurrencyPerEndpoint(), options.maxConcurrency());
+
+        final var globalPermits = new Semaphore(options.maxConcurrency());
+        List<Future<PokeResult>> futures = new ArrayList<>(targets.size());
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (ScanTarget target : targets) {
+                futures.add(executor.submit(() -> poke(target, globalPermits)));
+            }
+        }
+
+        List<PokeResult> results = new ArrayList<>(targets.size());
+        for (Future<PokeResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("unexpected poke failure", e.getCause());
+            }
+        }
+        return results;
     }
 
-    /// Pokes a server to validate a TLS handshake.
-    public void poke() throws IOException {
-        var sslsocketfactory = (SSLSocketFactory) SSLSocketFactory.getDefault();
-        try (SSLSocket sslsocket = (SSLSocket) sslsocketfactory.createSocket(this.host, this.port)) {
+    public PokeResult poke(ScanTarget target) throws InterruptedException {
+        return poke(target, new Semaphore(options.maxConcurrency()));
+    }
 
-            InputStream in = sslsocket.getInputStream();
-            OutputStream out = sslsocket.getOutputStream();
+    private PokeResult poke(ScanTarget target, Semaphore globalPermits) throws InterruptedException {
+        final long startNanos = System.nanoTime();
+        final var probe = new EndpointProbe(target);
 
-            // Write a test byte to get a reaction :)
-            out.write(0x0);
+        InetAddress address;
+        try {
+            address = InetAddress.getByName(target.host());
+        } catch (IOException e) {
+            // none of the handshakes could even start
+            probe.failed(e, Math.max(1, options.handshakes()));
+            return probe.result(options.handshakes(), Map.of(), startNanos);
+        }
 
-            while (in.available() > 0) {
-                System.out.print(in.read());
+        final var endpointPermits = new Semaphore(options.concurrencyPerEndpoint());
+        final var acceptedCipherSuites = new ConcurrentHashMap<String, List<String>>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.handshakes(); i++) {
+                executor.execute(() -> withPermits(endpointPermits, globalPermits,
+                        () -> probe.timedHandshake(address)));
             }
+            if (options.probeProtocols() || options.probeCipherSuites()) {
+                for (String protocol : protocols) {
+                    executor.execute(() -> {
+                        List<String> accepted = probe.acceptedCipherSuites(address, protocol, endpointPermits,
+                                globalPermits);
+                        if (!accepted.isEmpty()) {
+                            acceptedCipherSuites.put(protocol, accepted);
+                        }
+                    });
+                }
+            }
+        }
+
+        // newest versions first
+        Map<String, List<String>> ordered = new LinkedHashMap<>();
+        for (String protocol : protocols) {
+            List<String> accepted = acceptedCipherSuites.get(protocol);
+            if (accepted != null) {
+                ordered.put(protocol, accepted);
+            }
+        }
+        PokeResult result = probe.result(options.handshakes(), Collections.unmodifiableMap(ordered), startNanos);
+        log.atDebug().setMessage("poke done")
+                .addKeyValue("target", target)
+                .addKeyValue("succeeded", result.succeeded())
+                .addKeyValue("failed", result.failures())
+                .addKeyValue("elapsed", result.elapsed())
+                .log();
+        return result;
+    }
+
+    /**
+     * Runs a task holding an endpoint permit and then a global one (always in this order, so there are no deadlocks)
+     */
+    private static void withPermits(Semaphore endpointPermits, Semaphore globalPermits, Runnable task) {
+        try {
+            endpointPermits.acquire();
+            try {
+                globalPermits.acquire();
+                try {
+                    task.run();
+                } finally {
+                    globalPermits.release();
+                }
+            } finally {
+                endpointPermits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The measurements of a single endpoint, shared by the threads probing it
+     */
+    private final class EndpointProbe {
+
+        private final ScanTarget target;
+
+        private final LatencyHistogram connect = new LatencyHistogram();
+
+        private final LatencyHistogram handshake = new LatencyHistogram();
+
+        private final LatencyHistogram firstByte = new LatencyHistogram();
+
+        private final AtomicInteger successes = new AtomicInteger();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private final Map<String, AtomicInteger> errors = new ConcurrentHashMap<>();
+
+        private final AtomicReference<SSLSession> negotiated = new AtomicReference<>();
+
+        private EndpointProbe(ScanTarget target) {
+            this.target = target;
+        }
+
+        private void timedHandshake(InetAddress address) {
+            final long connectStartNanos = System.nanoTime();
+            boolean handshaken = false;
+            try (var socket = new Socket()) {
+                socket.connect(new InetSocketAddress(address, target.port()),
+                        Math.toIntExact(options.connectTimeout().toMillis()));
+                connect.recordSince(connectStartNanos);
+                socket.setSoTimeout(Math.toIntExact(options.readTimeout().toMillis()));
+
+                SSLContext sslContext = newSslContext(trustManagers);
+                try (var sslSocket = (SSLSocket) sslContext.getSocketFactory()
+                        .createSocket(socket, target.host(), target.port(), true)) {
+                    sslSocket.setSSLParameters(sslParameters(null, null));
+
+                    final long handshakeStartNanos = System.nanoTime();
+                    sslSocket.startHandshake();
+                    handshake.recordSince(handshakeStartNanos);
+                    CoreMetrics.TLS_HANDSHAKES.recordSince(connectStartNanos);
+                    handshaken = true;
+                    negotiated.compareAndSet(null, sslSocket.getSession());
+
+                    if (options.firstByte()) {
+                        OutputStream out = sslSocket.getOutputStream();
+                        InputStream in = sslSocket.getInputStream();
+                        final long requestStartNanos = System.nanoTime();
+                        out.write(format(FIRST_BYTE_REQUEST, httpHost()).getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                        // a close (-1) is a response too
+                        in.read();
+                        firstByte.recordSince(requestStartNanos);
+                    }
+                }
+                successes.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                // runtime exceptions too (e.g. a server name JSSE refuses to send): they fail this handshake only
+                if (!handshaken) {
+                    CoreMetrics.TLS_HANDSHAKES.recordSince(connectStartNanos);
+                    CoreMetrics.TLS_FAILED_HANDSHAKES.increment();
+                }
+                failed(e, 1);
+            }
+        }
+
+        /**
+         * @return the cipher suites the endpoint accepts for the given version, in the order it picked them. Empty if
+         * it doesn't accept the version (or can't be reached)
+         */
+        private List<String> acceptedCipherSuites(InetAddress address, String protocol, Semaphore endpointPermits,
+                                                  Semaphore globalPermits) {
+            boolean isTls13 = protocol.equals("TLSv1.3");
+            List<String> offered = new ArrayList<>(cipherSuites.stream()
+                    .filter(cipherSuite -> isTls13CipherSuite(cipherSuite) == isTls13)
+                    .toList());
+            List<String> accepted = new ArrayList<>();
+            while (!offered.isEmpty()) {
+                var picked = new AtomicReference<String>();
+                withPermits(endpointPermits, globalPermits, () -> picked.set(negotiate(address, protocol, offered)));
+                if (picked.get() == null || !offered.remove(picked.get())) {
+                    break;
+                }
+                accepted.add(picked.get());
+                if (!options.probeCipherSuites()) {
+                    break;
+                }
+            }
+            return accepted;
+        }
+
+        /**
+         * @return the cipher suite picked by the server or null if it rejected the offer
+         */
+        private String negotiate(InetAddress address, String protocol, List<String> offered) {
+            try (var socket = new Socket()) {
+                socket.connect(new InetSocketAddress(address, target.port()),
+                        Math.toIntExact(options.connectTimeout().toMillis()));
+                socket.setSoTimeout(Math.toIntExact(options.readTimeout().toMillis()));
+
+                SSLContext sslContext = newSslContext(InsecureX509TrustManager.newTrustManagers());
+                try (var sslSocket = (SSLSocket) sslContext.getSocketFactory()
+                        .createSocket(socket, target.host(), target.port(), true)) {
+                    sslSocket.setSSLParameters(sslParameters(protocol, offered));
+                    sslSocket.startHandshake();
+                    return sslSocket.getSession().getCipherSuite();
+                }
+            } catch (IOException | RuntimeException e) {
+                // servers reject offers with alerts or by just closing the connection: both mean "not accepted"
+                log.atTrace().setMessage("offer rejected")
+                        .addKeyValue("target", target)
+                        .addKeyValue("protocol", protocol)
+                        .addKeyValue("error", e.toString())
+                        .log();
+                return null;
+            }
+        }
+
+        private SSLParameters sslParameters(String protocol, List<String> offered) {
+            var sslParams = new SSLParameters();
+            // the peer host given to the socket may be an IP literal: SNI is always set (or disabled) explicitly
+            ServerNames.apply(sslParams, target.sni());
+            if (protocol != null) {
+                sslParams.setProtocols(new String[]{protocol});
+                sslParams.setCipherSuites(offered.toArray(String[]::new));
+                // we want the server choice
+                sslParams.setUseCipherSuitesOrder(false);
+            }
+            return sslParams;
+        }
+
+        /**
+         * @return the Host header of the first byte request: the server name, or the host when there's none
+         */
+        private String httpHost() {
+            if (ServerNames.isSendable(target.sni())) {
+                return target.sni();
+            }
+            return target.host().indexOf(':') >= 0 ? "[" + target.host() + "]" : target.host();
+        }
+
+        private void failed(Exception e, int times) {
+            failures.addAndGet(times);
+            errors.computeIfAbsent(e.toString(), error -> new AtomicInteger()).addAndGet(times);
+        }
+
+        private PokeResult result(int attempts, Map<String, List<String>> acceptedCipherSuites, long startNanos) {
+            Map<String, Integer> errorCounts = new TreeMap<>();
+            errors.forEach((error, count) -> errorCounts.put(error, count.get()));
+            SSLSession session = negotiated.get();
+            return new PokeResult(target, attempts, successes.get(), Math.min(failures.get(), attempts),
+                    Collections.unmodifiableMap(errorCounts), connect.snapshot(), handshake.snapshot(),
+                    firstByte.snapshot(), session != null ? session.getProtocol() : null,
+                    session != null ? session.getCipherSuite() : null, acceptedCipherSuites,
+                    Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+    }
+
+    private static boolean isTls13CipherSuite(String cipherSuite) {
+        return cipherSuite.startsWith("TLS_AES_") || cipherSuite.startsWith("TLS_CHACHA20_");
+    }
+
+    /**
+     * A new context has an empty session cache, so its handshakes can't resume anything
+     */
+    private static SSLContext newSslContext(TrustManager[] trustManagers) {
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, trustManagers, null);
+            return sslContext;
+        } catch (GeneralSecurityException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static TrustManager[] defaultTrustManagers() {
+        try {
+            var trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init((KeyStore) null);
+            return trustManagerFactory.getTrustManagers();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("failed to load the default trust store", e);
         }
-        System.out.println("Successfully connected");
     }
 }
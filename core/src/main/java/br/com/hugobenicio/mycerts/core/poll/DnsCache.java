@@ -0,0 +1,91 @@
+package br.com.hugobenicio.mycerts.core.poll;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded host name resolution cache. Entries expire after a fixed TTL and the least recently used ones are evicted
+ * when the cache is full. Failed resolutions are not cached.
+ *
+ * <p>Thread-safe.
+ */
+public class DnsCache {
+
+    private record Entry(InetAddress address, long expiresAtMillis) {}
+
+    private final Clock clock;
+
+    private final long ttlMillis;
+
+    private final Map<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param ttl how long a resolved address is reused
+     * @param maxSize max number of cached hosts
+     */
+    public DnsCache(Duration ttl, int maxSize) {
+        this(ttl, maxSize, Clock.systemUTC());
+    }
+
+    DnsCache(Duration ttl, int maxSize, Clock clock) {
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the cached address of the host, resolving it (outside of any lock) if missing or expired
+     * @throws UnknownHostException if the host can't be resolved
+     */
+    public InetAddress resolve(String host) throws UnknownHostException {
+        long now = clock.millis();
+        synchronized (entries) {
+            Entry entry = entries.get(host);
+            if (entry != null && entry.expiresAtMillis() > now) {
+                hits.increment();
+                return entry.address();
+            }
+        }
+
+        misses.increment();
+        InetAddress address = InetAddress.getByName(host);
+        synchronized (entries) {
+            entries.put(host, new Entry(address, now + ttlMillis));
+        }
+        return address;
+    }
+
+    public void invalidate(String host) {
+        synchronized (entries) {
+            entries.remove(host);
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package br.com.hugobenicio.mycerts.core.poll;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.metrics.CoreMetrics;
+import br.com.hugobenicio.mycerts.core.tls.InsecureX509TrustManager;
+import br.com.hugobenicio.mycerts.core.tls.ServerNames;
+import br.com.hugobenicio.mycerts.core.tls.SocketTlsCertificateFetcher;
+import br.com.hugobenicio.mycerts.core.tls.TlsCertificateFetcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link TlsCertificateFetcher} for polling the same endpoints over and over. Compared to a one-shot fetcher, it:
+ * <ul>
+ *     <li>resolves host names through a bounded, TTL-evicting {@link DnsCache}</li>
+ *     <li>keeps its own tls session cache, so repeated polls resume the session (abbreviated handshake, no
+ *     certificate exchange) while it's valid</li>
+ *     <li>forces a full handshake once the endpoint chain hasn't been re-verified for
+ *     {@link PollerOptions#reverifyInterval()}</li>
+ * </ul>
+ *
+ * <p>Thread-safe.
+ */
+public class EndpointPoller implements TlsCertificateFetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EndpointPoller.class);
+
+    /**
+     * Last full handshake with an endpoint
+     *
+     * @param session the negotiated session, which later handshakes may resume
+     * @param leaf the leaf certificate fingerprint (null if the server presented none)
+     * @param verifiedAtNanos when the full handshake happened
+     */
+    private record EndpointState(SSLSession session, Fingerprint leaf, long verifiedAtNanos) {}
+
+    private final PollerOptions options;
+
+    private final SSLSocketFactory sslSocketFactory;
+
+    private final DnsCache dnsCache;
+
+    /**
+     * Keyed by (host, port, sni)
+     */
+    private final Map<String, EndpointState> endpoints = new ConcurrentHashMap<>();
+
+    private final LongAdder sessionResumptions = new LongAdder();
+
+    private final LongAdder fullHandshakes = new LongAdder();
+
+    public EndpointPoller() {
+        this(PollerOptions.defaults());
+    }
+
+    public EndpointPoller(PollerOptions options) {
+        this.options = options;
+        this.dnsCache = new DnsCache(options.dnsTtl(), options.dnsCacheSize());
+
+        // a context of our own: its session cache is sized for the polled fleet and not shared with other fetchers
+        SSLContext sslContext = InsecureX509TrustManager.newSslContext();
+        var sessionContext = sslContext.getClientSessionContext();
+        sessionContext.setSessionCacheSize(options.sessionCacheSize());
+        sessionContext.setSessionTimeout(Math.toIntExact(options.sessionTimeout().toSeconds()));
+        this.sslSocketFactory = sslContext.getSocketFactory();
+    }
+
+    @Override
+    public X509Certificate[] fetch(String host, int port, String tlsSniServerName) throws IOException {
+        return poll(host, port, tlsSniServerName).certificates().toArray(X509Certificate[]::new);
+    }
+
+    /**
+     * Fetches the endpoint chain, resuming its tls session if possible.
+     *
+     * @param host Hostname of the server
+     * @param port Port of the server
+     * @param tlsSniServerName Servername used by the server (TLS SNI)
+     * @throws IOException if connecting or handshaking fails
+     */
+    public PollResult poll(String host, int port, String tlsSniServerName) throws IOException {
+        final long startNanos = System.nanoTime();
+        try {
+            PollResult result = handshake(host, port, tlsSniServerName, startNanos);
+            if (result.resumed()) {
+                CoreMetrics.TLS_RESUMED_HANDSHAKES.increment();
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            CoreMetrics.TLS_FAILED_HANDSHAKES.increment();
+            throw e;
+        } finally {
+            CoreMetrics.TLS_HANDSHAKES.recordSince(startNanos);
+        }
+    }
+
+    private PollResult handshake(String host, int port, String tlsSniServerName, long startNanos) throws IOException {
+        final String key = host + ":" + port + "#" + tlsSniServerName;
+
+        EndpointState state = endpoints.get(key);
+        if (state != null && startNanos - state.verifiedAtNanos() >= options.reverifyInterval().toNanos()) {
+            // invalidated sessions are dropped from the session cache, so the next handshake is a full one
+            state.session().invalidate();
+            log.atDebug().setMessage("forcing chain re-verification")
+                    .addKeyValue("endpoint", key)
+                    .log();
+        }
+
+        InetAddress address = dnsCache.resolve(host);
+        try (var socket = new Socket()) {
+            try {
+                socket.connect(new InetSocketAddress(address, port), Math.toIntExact(options.connectTimeout().toMillis()));
+            } catch (IOException e) {
+                // the host may have moved: don't insist on the cached address
+                dnsCache.invalidate(host);
+                throw e;
+            }
+            socket.setSoTimeout(Math.toIntExact(options.handshakeTimeout().toMillis()));
+
+            // the session cache is keyed by the peer host and port given here. SNI is set explicitly and the peer
+            // host is never verified, so the peer host carries the whole endpoint identity: endpoints sharing an SNI
+            // or a host never share sessions
+            String peerHost = host + "#" + tlsSniServerName;
+            try (var sslSocket = (SSLSocket) sslSocketFactory.createSocket(socket, peerHost, port, true)) {
+                var sslParams = new SSLParameters();
+                ServerNames.apply(sslParams, tlsSniServerName);
+                sslSocket.setSSLParameters(sslParams);
+                sslSocket.startHandshake();
+
+                SSLSession session = sslSocket.getSession();
+                X509Certificate[] chain = SocketTlsCertificateFetcher.toX509Certificates(session.getPeerCertificates());
+                boolean resumed = state != null && state.session().isValid() && isSameSession(session, state.session());
+
+                // TLS 1.3 tickets are single use, so every handshake must collect a fresh one for the next poll
+                awaitSessionTicket(sslSocket);
+                if (resumed) {
+                    sessionResumptions.increment();
+                    return new PollResult(List.of(chain), true, false, Duration.ofNanos(System.nanoTime() - startNanos));
+                }
+
+                fullHandshakes.increment();
+
+                Fingerprint leaf = chain.length > 0 ? Fingerprint.of(chain[0]) : null;
+                boolean changed = state == null || !Objects.equals(state.leaf(), leaf);
+                endpoints.put(key, new EndpointState(session, leaf, startNanos));
+
+                log.atDebug().setMessage("full tls handshake done")
+                        .addKeyValue("endpoint", key)
+                        .addKeyValue("protocol", session.getProtocol())
+                        .addKeyValue("changed", changed)
+                        .log();
+                return new PollResult(List.of(chain), false, changed, Duration.ofNanos(System.nanoTime() - startNanos));
+            }
+        }
+    }
+
+    public PollerStats stats() {
+        return new PollerStats(dnsCache.hits(), dnsCache.misses(), sessionResumptions.sum(), fullHandshakes.sum());
+    }
+
+    /**
+     * Forgets everything known about an endpoint, so its next poll is a full handshake
+     */
+    public void forget(String host, int port, String tlsSniServerName) {
+        EndpointState state = endpoints.remove(host + ":" + port + "#" + tlsSniServerName);
+        if (state != null) {
+            state.session().invalidate();
+        }
+    }
+
+    /**
+     * A resumed TLS 1.2 session keeps its id. TLS 1.3 resumption creates a new session object which still carries
+     * the original peer certificates, so the creation time of the original session is what's compared.
+     */
+    private static boolean isSameSession(SSLSession session, SSLSession previous) {
+        if (session == previous) {
+            return true;
+        }
+        byte[] id = session.getId();
+        if (id.length > 0 && Arrays.equals(id, previous.getId())) {
+            return true;
+        }
+        return "TLSv1.3".equals(session.getProtocol()) && session.getCreationTime() == previous.getCreationTime();
+    }
+
+    /**
+     * TLS 1.3 session tickets arrive after the handshake and are only processed while reading, so we read once
+     * (for at most {@link PollerOptions#sessionTicketWait()}) to let them be stored in the session cache.
+     */
+    private void awaitSessionTicket(SSLSocket sslSocket) throws IOException {
+        int waitMillis = Math.toIntExact(options.sessionTicketWait().toMillis());
+        if (waitMillis <= 0 || !"TLSv1.3".equals(sslSocket.getSession().getProtocol())) {
+            return;
+        }
+        int soTimeout = sslSocket.getSoTimeout();
+        sslSocket.setSoTimeout(waitMillis);
+        try {
+            sslSocket.getInputStream().read();
+        } catch (SocketTimeoutException e) {
+            // no ticket (or no more tickets)
+        } finally {
+            sslSocket.setSoTimeout(soTimeout);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package br.com.hugobenicio.mycerts.core.poll;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of polling an endpoint.
+ *
+ * @param certificates the peer certificate chain, leaf first
+ * @param resumed true if the tls session was resumed (abbreviated handshake, chain taken from the session)
+ * @param changed true if the chain differs from the one seen in the previous full handshake (or it's the first one)
+ * @param elapsed time spent connecting and handshaking
+ */
+public record PollResult(List<X509Certificate> certificates, boolean resumed, boolean changed, Duration elapsed) {}
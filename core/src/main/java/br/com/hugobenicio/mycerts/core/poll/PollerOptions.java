@@ -0,0 +1,34 @@
+package br.com.hugobenicio.mycerts.core.poll;
+
+import java.time.Duration;
+
+/**
+ * @param connectTimeout max time waiting for the tcp connection to be established
+ * @param handshakeTimeout max time waiting for each read while the tls handshake is in progress
+ * @param dnsTtl how long resolved addresses are reused
+ * @param dnsCacheSize max number of cached host names
+ * @param sessionCacheSize max number of cached tls sessions
+ * @param sessionTimeout how long a tls session may be resumed
+ * @param reverifyInterval how often a full handshake is forced to re-verify an endpoint chain, even if its session
+ *                         could still be resumed
+ * @param sessionTicketWait how long to wait for the session ticket a TLS 1.3 server sends after the handshake, which
+ *                          the next poll resumes with. Zero doesn't wait, so TLS 1.3 sessions are only resumed when
+ *                          the ticket came along with the handshake
+ */
+public record PollerOptions(Duration connectTimeout, Duration handshakeTimeout, Duration dnsTtl, int dnsCacheSize,
+                            int sessionCacheSize, Duration sessionTimeout, Duration reverifyInterval,
+                            Duration sessionTicketWait) {
+
+    public static final Duration DNS_TTL_DEFAULT = Duration.ofMinutes(5);
+    public static final int DNS_CACHE_SIZE_DEFAULT = 10_000;
+    public static final int SESSION_CACHE_SIZE_DEFAULT = 10_000;
+    public static final Duration SESSION_TIMEOUT_DEFAULT = Duration.ofHours(1);
+    public static final Duration REVERIFY_INTERVAL_DEFAULT = Duration.ofHours(1);
+    public static final Duration SESSION_TICKET_WAIT_DEFAULT = Duration.ofMillis(10);
+
+    public static PollerOptions defaults() {
+        return new PollerOptions(Duration.ofSeconds(10), Duration.ofSeconds(10), DNS_TTL_DEFAULT, DNS_CACHE_SIZE_DEFAULT,
+                SESSION_CACHE_SIZE_DEFAULT, SESSION_TIMEOUT_DEFAULT, REVERIFY_INTERVAL_DEFAULT,
+                SESSION_TICKET_WAIT_DEFAULT);
+    }
+}
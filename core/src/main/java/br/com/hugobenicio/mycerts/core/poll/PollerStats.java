@@ -0,0 +1,18 @@
+package br.com.hugobenicio.mycerts.core.poll;
+
+/**
+ * Cache counters of an {@link EndpointPoller}
+ *
+ * @param dnsHits resolutions served from the dns cache
+ * @param dnsMisses resolutions that had to query the resolver
+ * @param sessionResumptions handshakes that resumed a cached tls session
+ * @param fullHandshakes handshakes that negotiated a new tls session
+ */
+public record PollerStats(long dnsHits, long dnsMisses, long sessionResumptions, long fullHandshakes) {
+
+    @Override
+    public String toString() {
+        return "dns_hits=" + dnsHits + " dns_misses=" + dnsMisses
+                + " session_resumptions=" + sessionResumptions + " full_handshakes=" + fullHandshakes;
+    }
+}
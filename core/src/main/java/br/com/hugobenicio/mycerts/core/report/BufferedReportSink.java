@@ -0,0 +1,31 @@
+package br.com.hugobenicio.mycerts.core.report;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Base for sinks writing text to a buffered {@link Writer}
+ */
+abstract class BufferedReportSink implements ReportSink {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    protected final Writer out;
+
+    protected BufferedReportSink(Writer writer) {
+        this.out = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, BUFFER_SIZE);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.hugobenicio.mycerts.core.report;
+
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.utils.X509Utils;
+
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+
+/**
+ * JSON representation of a {@link ReportEntry}, shared by the JSON Lines report and the server API. Dates are
+ * ISO-8601 instants.
+ */
+public final class CertificateJson {
+
+    private CertificateJson() {
+    }
+
+    /**
+     * Appends the entry as a single line JSON object
+     */
+    public static void write(Appendable out, ReportEntry entry) throws IOException {
+        X509Certificate certificate = entry.certificate();
+
+        out.append("{\"fingerprint\":\"").append(entry.fingerprint().toHex());
+        out.append("\",\"subject\":");
+        Json.writeString(out, certificate.getSubjectX500Principal().getName());
+        out.append(",\"issuer\":");
+        Json.writeString(out, certificate.getIssuerX500Principal().getName());
+        out.append(",\"subjectAlternativeNames\":[");
+        boolean first = true;
+        for (String name : X509Utils.subjectAlternativeNames(certificate)) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            Json.writeString(out, name);
+        }
+        out.append("],\"serial\":\"").append(certificate.getSerialNumber().toString(16));
+        out.append("\",\"notBefore\":\"").append(certificate.getNotBefore().toInstant().toString());
+        out.append("\",\"notAfter\":\"").append(certificate.getNotAfter().toInstant().toString());
+        out.append("\",\"observations\":").append(Long.toString(entry.observations()));
+        out.append(",\"sources\":[");
+        first = true;
+        for (CertificateSource source : entry.sources()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            Json.writeString(out, source.toString());
+        }
+        out.append("]}");
+    }
+
+    /**
+     * @return the entry as a single line JSON object
+     */
+    public static String toJson(ReportEntry entry) {
+        var out = new StringBuilder(512);
+        try {
+            write(out, entry);
+        } catch (IOException e) {
+            throw new AssertionError("StringBuilder doesn't throw IOException", e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,151 @@
+package br.com.hugobenicio.mycerts.core.report;
+
+import br.com.hugobenicio.mycerts.core.compact.CompactCertificate;
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryBuckets;
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryIndex;
+import br.com.hugobenicio.mycerts.core.snapshot.Snapshot;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static java.lang.String.format;
+
+/**
+ * The text reports over a {@link CertificateSet} (or a list of {@link CompactCertificate}s, or a {@link Snapshot}).
+ * Stateless: reports only depend on their arguments, so they can run concurrently from any number of threads.
+ */
+public final class CertificateReports {
+
+    private static final long SECONDS_PER_MINUTE = 60;
+    private static final long SECONDS_PER_HOUR = 60 * SECONDS_PER_MINUTE;
+    private static final long SECONDS_PER_DAY = 24 * SECONDS_PER_HOUR;
+
+    private CertificateReports() {}
+
+    /**
+     * Writes every certificate, in set order, with its provenance
+     */
+    public static void individual(CertificateSet set, ReportSink sink) throws IOException {
+        for (ReportEntry entry : set.entries()) {
+            sink.write(entry);
+        }
+    }
+
+    /**
+     * Writes every certificate of the snapshot, in fingerprint order, with its provenance
+     */
+    public static void individual(Snapshot snapshot, ReportSink sink) throws IOException {
+        for (int id = 0; id < snapshot.size(); id++) {
+            sink.write(snapshot.entry(id));
+        }
+    }
+
+    /**
+     * Counts (and lists) the certificates already expired, expiring within each bucket and not expiring soon
+     */
+    public static void expiration(CertificateSet set, ExpiryBuckets buckets, Instant now, PrintWriter out) {
+        expiration(set.buildExpiryIndex(), id -> set.certificate(id).getSubjectX500Principal().getName(), buckets,
+                now, out);
+    }
+
+    /**
+     * Same as {@link #expiration(CertificateSet, ExpiryBuckets, Instant, PrintWriter)}, without decoding any
+     * certificate
+     */
+    public static void expiration(List<CompactCertificate> certificates, ExpiryBuckets buckets, Instant now,
+                                  PrintWriter out) {
+        expiration(expiryIndex(certificates), id -> certificates.get(id).subject(), buckets, now, out);
+    }
+
+    /**
+     * Lists the certificates not expired yet but expiring within the given window, sooner first
+     */
+    public static void expiringWithin(CertificateSet set, Duration window, Instant now, PrintWriter out) {
+        expiringWithin(set.buildExpiryIndex(), id -> set.certificate(id).getSubjectX500Principal().getName(), window,
+                now, out);
+    }
+
+    /**
+     * Same as {@link #expiringWithin(CertificateSet, Duration, Instant, PrintWriter)}, without decoding any
+     * certificate
+     */
+    public static void expiringWithin(List<CompactCertificate> certificates, Duration window, Instant now,
+                                      PrintWriter out) {
+        expiringWithin(expiryIndex(certificates), id -> certificates.get(id).subject(), window, now, out);
+    }
+
+    /**
+     * Same as {@link #expiration(CertificateSet, ExpiryBuckets, Instant, PrintWriter)}, straight from the snapshot
+     * columns
+     */
+    public static void expiration(Snapshot snapshot, ExpiryBuckets buckets, Instant now, PrintWriter out) {
+        expiration(snapshot.expiryIndex(), snapshot::subject, buckets, now, out);
+    }
+
+    /**
+     * Same as {@link #expiringWithin(CertificateSet, Duration, Instant, PrintWriter)}, straight from the snapshot
+     * columns
+     */
+    public static void expiringWithin(Snapshot snapshot, Duration window, Instant now, PrintWriter out) {
+        expiringWithin(snapshot.expiryIndex(), snapshot::subject, window, now, out);
+    }
+
+    /**
+     * @param subjects subject name of each index id
+     */
+    private static void expiration(ExpiryIndex expiryIndex, IntFunction<String> subjects, ExpiryBuckets buckets,
+                                   Instant now, PrintWriter out) {
+        long nowEpochSecond = now.getEpochSecond();
+        long[] boundaries = buckets.boundaries(Instant.ofEpochSecond(nowEpochSecond));
+
+        out.println("Expiration Report:");
+        out.printf("    Expired count: %d%n", expiryIndex.count(Long.MIN_VALUE, boundaries[0]));
+        details(out, subjects, expiryIndex, Long.MIN_VALUE, boundaries[0], nowEpochSecond);
+        for (int i = 0; i < buckets.count(); i++) {
+            out.printf("    Expiring within next %3d days count: %d%n",
+                    buckets.days(i), expiryIndex.count(boundaries[i], boundaries[i + 1]));
+            details(out, subjects, expiryIndex, boundaries[i], boundaries[i + 1], nowEpochSecond);
+        }
+        long lastBoundary = boundaries[boundaries.length - 1];
+        out.printf("    Not expiring soon count............: %d%n", expiryIndex.count(lastBoundary, Long.MAX_VALUE));
+        details(out, subjects, expiryIndex, lastBoundary, Long.MAX_VALUE, nowEpochSecond);
+    }
+
+    private static void expiringWithin(ExpiryIndex expiryIndex, IntFunction<String> subjects, Duration window,
+                                       Instant now, PrintWriter out) {
+        long nowEpochSecond = now.getEpochSecond();
+        long until = Instant.ofEpochSecond(nowEpochSecond).plus(window).getEpochSecond();
+
+        out.printf("Expiring within %d days count: %d%n", window.toDays(), expiryIndex.count(nowEpochSecond, until));
+        details(out, subjects, expiryIndex, nowEpochSecond, until, nowEpochSecond);
+    }
+
+    private static ExpiryIndex expiryIndex(List<CompactCertificate> certificates) {
+        long[] notAfters = new long[certificates.size()];
+        for (int i = 0; i < notAfters.length; i++) {
+            notAfters[i] = certificates.get(i).notAfterEpochSecond();
+        }
+        return ExpiryIndex.of(notAfters);
+    }
+
+    private static void details(PrintWriter out, IntFunction<String> subjects, ExpiryIndex expiryIndex,
+                                long fromEpochSecond, long toEpochSecond, long now) {
+        expiryIndex.forEach(fromEpochSecond, toEpochSecond, (notAfter, id) -> {
+            String name = subjects.apply(id);
+
+            long expirationSeconds = notAfter - now;
+            final String pronoun = expirationSeconds < 0 ? "since" : "in";
+            expirationSeconds = Math.abs(expirationSeconds);
+
+            long days = expirationSeconds / SECONDS_PER_DAY;
+            long minutes = expirationSeconds % SECONDS_PER_HOUR / SECONDS_PER_MINUTE;
+            long seconds = expirationSeconds % SECONDS_PER_MINUTE;
+            var expirationMsg = format("%s %d days, %d minutes, %d seconds", pronoun, days, minutes, seconds);
+            out.printf("        %s (%s): %s%n", Instant.ofEpochSecond(notAfter), expirationMsg, name);
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.hugobenicio.mycerts.core.report;
+
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryIndex;
+import br.com.hugobenicio.mycerts.core.inventory.RegisteredCertificate;
+
+import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable, ordered set of certificates (with their provenance, as of its creation) to be reported on. Safe to
+ * share between threads.
+ *
+ * @param entries the certificates, in report order
+ */
+public record CertificateSet(List<ReportEntry> entries) {
+
+    public CertificateSet {
+        entries = List.copyOf(entries);
+    }
+
+    public static CertificateSet of(Collection<RegisteredCertificate> registered) {
+        return new CertificateSet(registered.stream().map(ReportEntry::of).toList());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public X509Certificate certificate(int id) {
+        return entries.get(id).certificate();
+    }
+
+    /**
+     * Indexes the entries by expiration date. Ids are positions in {@link #entries()}
+     */
+    public ExpiryIndex buildExpiryIndex() {
+        long[] notAfters = new long[entries.size()];
+        for (int i = 0; i < notAfters.length; i++) {
+            notAfters[i] = entries.get(i).certificate().getNotAfter().getTime() / 1000;
+        }
+        return ExpiryIndex.of(notAfters);
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.hugobenicio.mycerts.core.report;
+
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.security.cert.X509Certificate;
+import java.util.stream.Collectors;
+
+/**
+ * CSV report (RFC 4180), one row per certificate after a header row. Multiple sources are separated by {@code ;}.
+ */
+public class CsvReportSink extends BufferedReportSink {
+
+    private static final String HEADER = "fingerprint,subject,issuer,serial,not_before,not_after,observations,sources\r\n";
+
+    private boolean headerWritten;
+
+    public CsvReportSink(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    public void write(ReportEntry entry) throws IOException {
+        if (!headerWritten) {
+            out.append(HEADER);
+            headerWritten = true;
+        }
+
+        X509Certificate certificate = entry.certificate();
+        out.append(entry.fingerprint().toHex()).append(',');
+        writeField(certificate.getSubjectX500Principal().getName());
+        out.append(',');
+        writeField(certificate.getIssuerX500Principal().getName());
+        out.append(',').append(certificate.getSerialNumber().toString(16));
+        out.append(',').append(certificate.getNotBefore().toInstant().toString());
+        out.append(',').append(certificate.getNotAfter().toInstant().toString());
+        out.append(',').append(Long.toString(entry.observations())).append(',');
+        writeField(entry.sources().stream()
+                .map(CertificateSource::toString)
+                .collect(Collectors.joining(";")));
+        out.append("\r\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // an empty report still gets its header
+        if (!headerWritten) {
+            out.append(HEADER);
+            headerWritten = true;
+        }
+        super.flush();
+    }
+
+    private void writeField(String value) throws IOException {
+        boolean needsQuoting = false;
+        for (int i = 0; i < value.length() && !needsQuoting; i++) {
+            char c = value.charAt(i);
+            needsQuoting = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!needsQuoting) {
+            out.append(value);
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
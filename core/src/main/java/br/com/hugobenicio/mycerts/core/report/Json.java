@@ -0,0 +1,60 @@
+package br.com.hugobenicio.mycerts.core.report;
+
+import java.io.IOException;
+
+/**
+ * Minimal JSON encoding helpers, enough to write flat documents by hand without a JSON library.
+ */
+public final class Json {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private Json() {
+    }
+
+    /**
+     * Appends the given string as a quoted and escaped JSON string ({@code null} is written as {@code null})
+     */
+    public static void writeString(Appendable out, String value) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+
+            // flushes the unescaped run before the escape sequence
+            out.append(value, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> out.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+        out.append(value, start, value.length());
+        out.append('"');
+    }
+
+    /**
+     * @return the given string as a quoted and escaped JSON string
+     */
+    public static String quote(String value) {
+        var out = new StringBuilder(value == null ? 4 : value.length() + 2);
+        try {
+            writeString(out, value);
+        } catch (IOException e) {
+            throw new AssertionError("StringBuilder doesn't throw IOException", e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,20 @@
+package br.com.hugobenicio.mycerts.core.report;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * JSON Lines report: one JSON object per certificate and line (see {@link CertificateJson})
+ */
+public class JsonLinesReportSink extends BufferedReportSink {
+
+    public JsonLinesReportSink(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    public void write(ReportEntry entry) throws IOException {
+        CertificateJson.write(out, entry);
+        out.append('\n');
+    }
+}
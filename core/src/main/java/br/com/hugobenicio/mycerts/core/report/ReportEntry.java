@@ -0,0 +1,35 @@
+package br.com.hugobenicio.mycerts.core.report;
+
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.inventory.Observation;
+import br.com.hugobenicio.mycerts.core.inventory.RegisteredCertificate;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+/**
+ * A report row: one certificate and where it was seen.
+ *
+ * @param certificate the certificate
+ * @param fingerprint its SHA-256 fingerprint
+ * @param observations how many times it was seen
+ * @param sources where it was seen (may be empty)
+ */
+public record ReportEntry(X509Certificate certificate, Fingerprint fingerprint, long observations,
+                          List<CertificateSource> sources) {
+
+    public static ReportEntry of(Observation observation) {
+        List<CertificateSource> sources = observation.source() != null ? List.of(observation.source()) : List.of();
+        return new ReportEntry(observation.certificate(), Fingerprint.of(observation.certificate()), 1, sources);
+    }
+
+    public static ReportEntry of(RegisteredCertificate registered) {
+        return new ReportEntry(registered.certificate(), registered.fingerprint(), registered.observations(),
+                registered.sources());
+    }
+
+    public static ReportEntry of(X509Certificate certificate) {
+        return new ReportEntry(certificate, Fingerprint.of(certificate), 1, List.of());
+    }
+}
@@ -0,0 +1,32 @@
+package br.com.hugobenicio.mycerts.core.report;
+
+import java.io.Writer;
+
+/**
+ * Available report formats
+ */
+public enum ReportFormat {
+
+    /**
+     * Human readable, one block of lines per certificate
+     */
+    TEXT,
+
+    /**
+     * One JSON object per line
+     */
+    JSON_LINES,
+
+    /**
+     * Comma separated values (RFC 4180) with a header line
+     */
+    CSV;
+
+    public ReportSink newSink(Writer writer) {
+        return switch (this) {
+            case TEXT -> new TextReportSink(writer);
+            case JSON_LINES -> new JsonLinesReportSink(writer);
+            case CSV -> new CsvReportSink(writer);
+        };
+    }
+}
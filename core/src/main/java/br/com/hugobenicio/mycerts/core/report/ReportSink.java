@@ -0,0 +1,23 @@
+package br.com.hugobenicio.mycerts.core.report;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Incremental report output. Entries are written as they are produced (e.g. while files are still being ingested or
+ * endpoints scanned), so memory usage doesn't depend on the report size.
+ *
+ * <p>Implementations buffer their output and are not thread-safe: callers producing entries concurrently must
+ * serialize the writes.
+ */
+public interface ReportSink extends Flushable, Closeable {
+
+    void write(ReportEntry entry) throws IOException;
+
+    /**
+     * Flushes and closes the underlying output
+     */
+    @Override
+    void close() throws IOException;
+}
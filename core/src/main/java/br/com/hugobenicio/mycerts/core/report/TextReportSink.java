@@ -0,0 +1,33 @@
+package br.com.hugobenicio.mycerts.core.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.security.cert.X509Certificate;
+
+/**
+ * Human readable report, one numbered block per certificate
+ */
+public class TextReportSink extends BufferedReportSink {
+
+    private long count;
+
+    public TextReportSink(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    public void write(ReportEntry entry) throws IOException {
+        X509Certificate certificate = entry.certificate();
+        String lineSeparator = System.lineSeparator();
+
+        out.append("Certificate #").append(Long.toString(++count)).append(':').append(lineSeparator);
+        out.append("  Name: ").append(certificate.getSubjectX500Principal().getName()).append(lineSeparator);
+        out.append("  NotAfter: ").append(certificate.getNotAfter().toString()).append(lineSeparator);
+        out.append("  Fingerprint (SHA-256): ").append(entry.fingerprint().toHex()).append(lineSeparator);
+        out.append("  Observations: ").append(Long.toString(entry.observations())).append(lineSeparator);
+        for (var source : entry.sources()) {
+            out.append("  Source: ").append(source.toString()).append(lineSeparator);
+        }
+        out.append(lineSeparator);
+    }
+}
@@ -0,0 +1,185 @@
+package br.com.hugobenicio.mycerts.core.scan;
+
+import br.com.hugobenicio.mycerts.core.metrics.CoreMetrics;
+import br.com.hugobenicio.mycerts.core.tls.SocketTlsCertificateFetcher;
+import br.com.hugobenicio.mycerts.core.tls.TlsCertificateFetcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Fetches the certificate chains of many remote endpoints in parallel. Each target runs on its own virtual thread,
+ * bounded by a global and a per-host concurrency limit.
+ *
+ * <p>Targets are queued per host and a target is only started once its host has a free slot, so a busy host never
+ * holds global permits that other hosts could be using.
+ */
+public class FleetScanner {
+
+    private static final Logger log = LoggerFactory.getLogger(FleetScanner.class);
+
+    private final TlsCertificateFetcher fetcher;
+
+    private final ScanOptions options;
+
+    public FleetScanner(ScanOptions options) {
+        this(new SocketTlsCertificateFetcher(options.connectTimeout(), options.handshakeTimeout()), options);
+    }
+
+    public FleetScanner(TlsCertificateFetcher fetcher, ScanOptions options) {
+        this.fetcher = fetcher;
+        this.options = options;
+    }
+
+    /**
+     * Scans all targets, streaming each result to the consumer as soon as it is available (so results arrive in
+     * completion order, not in target order). Consumer calls are serialized, so it doesn't need to be thread-safe.
+     *
+     * @param targets the endpoints to be scanned
+     * @param resultConsumer receives every target result
+     * @return the scan totals
+     * @throws InterruptedException if interrupted while waiting for the scan to finish
+     */
+    public ScanSummary scan(List<ScanTarget> targets, Consumer<ScanResult> resultConsumer) throws InterruptedException {
+        log.info("scanning {} target(s). max_concurrency={} max_concurrency_per_host={}",
+                targets.size(), options.maxConcurrency(), options.maxConcurrencyPerHost());
+
+        final long startNanos = System.nanoTime();
+        final var globalPermits = new Semaphore(options.maxConcurrency());
+        final var dispatcher = new HostDispatcher(targets, options.maxConcurrencyPerHost());
+        final var consumerLock = new ReentrantLock();
+        final var succeeded = new AtomicInteger();
+        final var failed = new AtomicInteger();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < targets.size(); i++) {
+                // the host slot is taken first: only targets that can start right away wait for a global permit
+                ScanTarget target = dispatcher.next();
+                globalPermits.acquire();
+                executor.execute(() -> {
+                    try {
+                        ScanResult result = scanTarget(target);
+                        (result.isSuccess() ? succeeded : failed).incrementAndGet();
+
+                        consumerLock.lock();
+                        try {
+                            resultConsumer.accept(result);
+                        } finally {
+                            consumerLock.unlock();
+                        }
+                    } finally {
+                        globalPermits.release();
+                        dispatcher.release(target);
+                    }
+                });
+            }
+        }
+
+        var summary = new ScanSummary(targets.size(), succeeded.get(), failed.get(),
+                Duration.ofNanos(System.nanoTime() - startNanos));
+        log.info("scan done. total={} succeeded={} failed={} elapsed={}",
+                summary.total(), summary.succeeded(), summary.failed(), summary.elapsed());
+        return summary;
+    }
+
+    private ScanResult scanTarget(ScanTarget target) {
+        final long startNanos = System.nanoTime();
+        try {
+            var certificates = fetcher.fetch(target.host(), target.port(), target.sni());
+            CoreMetrics.SCAN_TARGETS.recordSince(startNanos);
+            return ScanResult.success(target, List.of(certificates), Duration.ofNanos(System.nanoTime() - startNanos));
+        } catch (Exception e) {
+            log.atDebug().setMessage("scan target failed")
+                    .addKeyValue("target", target)
+                    .addKeyValue("error", e.toString())
+                    .log();
+            CoreMetrics.SCAN_TARGETS.recordSince(startNanos);
+            CoreMetrics.SCAN_FAILED_TARGETS.increment();
+            return ScanResult.failure(target, e, Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+    }
+
+    /**
+     * Targets of the same host, in file order
+     */
+    private static final class HostQueue {
+
+        private final ArrayDeque<ScanTarget> targets = new ArrayDeque<>();
+
+        private int running;
+    }
+
+    /**
+     * Hands out the hosts having queued targets and a free slot, round-robin. Guarded by its own lock.
+     */
+    private static final class HostDispatcher {
+
+        private final int maxPerHost;
+
+        private final Map<String, HostQueue> hosts = new LinkedHashMap<>();
+
+        private final ArrayDeque<HostQueue> ready = new ArrayDeque<>();
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition released = lock.newCondition();
+
+        HostDispatcher(List<ScanTarget> targets, int maxPerHost) {
+            this.maxPerHost = maxPerHost;
+            for (ScanTarget target : targets) {
+                hosts.computeIfAbsent(target.host(), host -> new HostQueue()).targets.addLast(target);
+            }
+            ready.addAll(hosts.values());
+        }
+
+        /**
+         * Waits for a host with a free slot, takes the slot and returns the host's next target
+         */
+        ScanTarget next() throws InterruptedException {
+            lock.lock();
+            try {
+                while (ready.isEmpty()) {
+                    released.await();
+                }
+                HostQueue host = ready.pollFirst();
+                host.running++;
+                ScanTarget target = host.targets.removeFirst();
+                if (host.running < maxPerHost && !host.targets.isEmpty()) {
+                    ready.addLast(host);
+                }
+                return target;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Frees the slot taken for the target
+         */
+        void release(ScanTarget target) {
+            lock.lock();
+            try {
+                HostQueue host = hosts.get(target.host());
+                boolean wasReady = host.running < maxPerHost && !host.targets.isEmpty();
+                host.running--;
+                if (!wasReady && !host.targets.isEmpty()) {
+                    ready.addLast(host);
+                    released.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
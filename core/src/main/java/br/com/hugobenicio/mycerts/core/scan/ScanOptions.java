@@ -0,0 +1,31 @@
+package br.com.hugobenicio.mycerts.core.scan;
+
+import br.com.hugobenicio.mycerts.core.tls.SocketTlsCertificateFetcher;
+
+import java.time.Duration;
+
+/**
+ * Fleet scanning tunables.
+ *
+ * @param maxConcurrency max number of handshakes in flight at any time
+ * @param maxConcurrencyPerHost max number of handshakes in flight against the same host
+ * @param connectTimeout max time waiting for the tcp connection to be established
+ * @param handshakeTimeout max time the tls handshake may take
+ */
+public record ScanOptions(int maxConcurrency, int maxConcurrencyPerHost, Duration connectTimeout,
+                          Duration handshakeTimeout) {
+
+    public static final int MAX_CONCURRENCY_DEFAULT = 256;
+    public static final int MAX_CONCURRENCY_PER_HOST_DEFAULT = 4;
+
+    public ScanOptions {
+        if (maxConcurrency < 1 || maxConcurrencyPerHost < 1) {
+            throw new IllegalArgumentException("scan concurrency limits must be positive");
+        }
+    }
+
+    public static ScanOptions defaults() {
+        return new ScanOptions(MAX_CONCURRENCY_DEFAULT, MAX_CONCURRENCY_PER_HOST_DEFAULT,
+                SocketTlsCertificateFetcher.CONNECT_TIMEOUT_DEFAULT, SocketTlsCertificateFetcher.HANDSHAKE_TIMEOUT_DEFAULT);
+    }
+}
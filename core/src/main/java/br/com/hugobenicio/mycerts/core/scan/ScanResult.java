@@ -0,0 +1,28 @@
+package br.com.hugobenicio.mycerts.core.scan;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of scanning a single target.
+ *
+ * @param target the scanned target
+ * @param certificates the peer certificate chain (leaf first). Empty if the scan failed
+ * @param error the failure cause or null if the scan succeeded
+ * @param elapsed time spent connecting and handshaking
+ */
+public record ScanResult(ScanTarget target, List<X509Certificate> certificates, Throwable error, Duration elapsed) {
+
+    public static ScanResult success(ScanTarget target, List<X509Certificate> certificates, Duration elapsed) {
+        return new ScanResult(target, List.copyOf(certificates), null, elapsed);
+    }
+
+    public static ScanResult failure(ScanTarget target, Throwable error, Duration elapsed) {
+        return new ScanResult(target, List.of(), error, elapsed);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,8 @@
+package br.com.hugobenicio.mycerts.core.scan;
+
+import java.time.Duration;
+
+/**
+ * Totals of a finished fleet scan.
+ */
+public record ScanSummary(int total, int succeeded, int failed, Duration elapsed) {}
@@ -0,0 +1,111 @@
+package br.com.hugobenicio.mycerts.core.scan;
+
+import br.com.hugobenicio.mycerts.core.tls.ServerNames;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * A remote TLS endpoint to be scanned.
+ *
+ * @param host Hostname of the server
+ * @param port Port of the server
+ * @param sni Servername used by the server (TLS SNI). Empty if none is sent (e.g. the host is an IP literal)
+ */
+public record ScanTarget(String host, int port, String sni) {
+
+    public static final int PORT_DEFAULT = 443;
+
+    public ScanTarget(String host, int port) {
+        this(host, port, ServerNames.defaultFor(host));
+    }
+
+    /**
+     * Parses a target in the form {@code host[:port] [sni]}. IPv6 literals must be enclosed in brackets
+     * (e.g. {@code [::1]:8443}). If sni is missing, the host is used as sni, unless it is an IP literal (RFC 6066 only
+     * allows host names in SNI), in which case no sni is sent.
+     *
+     * @param line the target text
+     * @return the parsed target
+     * @throws IllegalArgumentException if the target is malformed
+     */
+    public static ScanTarget parse(String line) {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length == 0 || fields.length > 2 || fields[0].isEmpty()) {
+            throw new IllegalArgumentException(format("malformed scan target. target=\"%s\"", line));
+        }
+
+        String address = fields[0];
+        String host = address;
+        int port = PORT_DEFAULT;
+
+        int portSeparator = address.lastIndexOf(':');
+        boolean isBracketed = address.startsWith("[");
+        if (isBracketed) {
+            int closingBracket = address.indexOf(']');
+            if (closingBracket < 0) {
+                throw new IllegalArgumentException(format("malformed scan target. target=\"%s\"", line));
+            }
+            host = address.substring(1, closingBracket);
+            portSeparator = address.indexOf(':', closingBracket);
+        }
+
+        if (portSeparator >= 0) {
+            if (!isBracketed) {
+                host = address.substring(0, portSeparator);
+            }
+            try {
+                port = Integer.parseInt(address.substring(portSeparator + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(format("malformed scan target port. target=\"%s\"", line), e);
+            }
+        }
+
+        String sni = fields.length == 2 ? fields[1] : ServerNames.defaultFor(host);
+        return new ScanTarget(host, port, sni);
+    }
+
+    /**
+     * Reads a targets file: one target per line (see {@link #parse(String)}). Blank lines and lines starting
+     * with {@code #} are ignored.
+     *
+     * @param path the targets file path
+     * @return the targets in file order
+     * @throws IOException if reading fails or if any line is malformed
+     */
+    public static List<ScanTarget> readAll(Path path) throws IOException {
+        List<ScanTarget> targets = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    targets.add(parse(trimmed));
+                } catch (IllegalArgumentException e) {
+                    var msg = format("invalid targets file. path=\"%s\" line=%d", path, lineNumber);
+                    throw new IOException(msg, e);
+                }
+            }
+        }
+        return targets;
+    }
+
+    @Override
+    public String toString() {
+        String address = host.indexOf(':') >= 0 ? "[" + host + "]" : host;
+        if (sni.equals(ServerNames.defaultFor(host))) {
+            return format("%s:%d", address, port);
+        }
+        return format("%s:%d %s", address, port, sni);
+    }
+}
@@ -0,0 +1,405 @@
+package br.com.hugobenicio.mycerts.core.search;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.utils.LongIntArrays;
+import br.com.hugobenicio.mycerts.core.utils.X509Utils;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.lang.String.format;
+
+/**
+ * In-memory inverted index of certificates by subject and issuer words, SAN names, serial number and fingerprint (see
+ * {@link SearchField} for the query syntax of each one). Certificates are identified by caller given ids (e.g. their
+ * position in a list), which must be added in increasing order.
+ *
+ * <p>Every field is tokenized once, when the certificate is added: queries are term dictionary lookups (sorted maps,
+ * so prefixes are range scans) plus sorted id set intersections and unions, and never touch the certificates.
+ * Fingerprints are kept as sorted primitive arrays of their first word instead, like the {@link
+ * br.com.hugobenicio.mycerts.core.expiry.ExpiryIndex}: additions go to a pending buffer merged in by the next query.
+ *
+ * <p>Thread-safe: queries run concurrently with each other, additions are serialized.
+ */
+public class CertificateIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * In {@link SearchField#ANY} queries, shorter hex words aren't looked up as serial or fingerprint prefixes (they
+     * would match too many certificates by chance)
+     */
+    private static final int ANY_HEX_PREFIX_MIN_LENGTH = 6;
+
+    /**
+     * Hex digits of a fingerprint word
+     */
+    private static final int WORD_HEX_DIGITS = 16;
+
+    /**
+     * A query word. Words ending with {@code *} are prefixes.
+     */
+    private record Word(String text, boolean prefix) {}
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<String, Postings> subjectWords = new TreeMap<>();
+
+    private final NavigableMap<String, Postings> issuerWords = new TreeMap<>();
+
+    /**
+     * Keyed by names with their labels reversed ({@code www.example.com} as {@code com.example.www}), so the names
+     * under a domain are a key range
+     */
+    private final NavigableMap<String, Postings> sanNames = new TreeMap<>();
+
+    /**
+     * Keyed by lower case hex serial numbers, without leading zeros
+     */
+    private final NavigableMap<String, Postings> serials = new TreeMap<>();
+
+    /**
+     * First fingerprint words (sign flipped, so signed order is the unsigned fingerprint order) and their ids, sorted
+     */
+    private long[] fingerprintKeys = new long[0];
+
+    private int[] fingerprintIds = new int[0];
+
+    private long[] pendingKeys = new long[INITIAL_CAPACITY];
+
+    private int[] pendingIds = new int[INITIAL_CAPACITY];
+
+    private volatile int pendingSize;
+
+    /**
+     * Full fingerprints by id, for prefixes longer than the first word
+     */
+    private Fingerprint[] fingerprints = new Fingerprint[INITIAL_CAPACITY];
+
+    private int lastId = -1;
+
+    private int size;
+
+    public CertificateIndex() {
+    }
+
+    public void add(int id, X509Certificate certificate) {
+        add(id, certificate, Fingerprint.of(certificate));
+    }
+
+    /**
+     * Indexes a certificate
+     *
+     * @param id the certificate id, greater than every id added before
+     * @param fingerprint the certificate fingerprint (saves hashing it again when the caller has it)
+     * @throws IllegalArgumentException if the id is not greater than the previous one
+     */
+    public void add(int id, X509Certificate certificate, Fingerprint fingerprint) {
+        // tokenizing is the expensive part, so it's done outside the lock
+        List<String> subject = words(certificate.getSubjectX500Principal().getName());
+        List<String> issuer = words(certificate.getIssuerX500Principal().getName());
+        List<String> names = X509Utils.subjectAlternativeNames(certificate).stream()
+                .map(CertificateIndex::sanKey)
+                .toList();
+        String serial = certificate.getSerialNumber().toString(16);
+
+        lock.writeLock().lock();
+        try {
+            if (id <= lastId) {
+                throw new IllegalArgumentException(format("ids must be added in increasing order. id=%d last_id=%d",
+                        id, lastId));
+            }
+            lastId = id;
+            size++;
+            subject.forEach(word -> subjectWords.computeIfAbsent(word, w -> new Postings()).add(id));
+            issuer.forEach(word -> issuerWords.computeIfAbsent(word, w -> new Postings()).add(id));
+            names.forEach(name -> sanNames.computeIfAbsent(name, n -> new Postings()).add(id));
+            serials.computeIfAbsent(serial, s -> new Postings()).add(id);
+            addFingerprint(id, fingerprint);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of indexed certificates
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param query case-insensitive, see {@link SearchField}
+     * @return the ids of the matching certificates, in increasing order
+     */
+    public int[] search(SearchField field, String query) {
+        String normalized = query.strip().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return Postings.empty();
+        }
+        if (pendingSize > 0 && (field == SearchField.FINGERPRINT || field == SearchField.ANY)) {
+            mergePendingFingerprints();
+        }
+
+        lock.readLock().lock();
+        try {
+            return switch (field) {
+                case SUBJECT -> matchWords(subjectWords, normalized);
+                case ISSUER -> matchWords(issuerWords, normalized);
+                case SAN -> matchSan(normalized);
+                case SERIAL -> matchSerial(normalized);
+                case FINGERPRINT -> matchFingerprint(normalized);
+                case ANY -> {
+                    boolean hex = hex(normalized).length() >= ANY_HEX_PREFIX_MIN_LENGTH;
+                    yield Postings.union(matchWords(subjectWords, normalized), matchWords(issuerWords, normalized),
+                            matchSan(normalized), hex ? matchSerial(normalized) : Postings.empty(),
+                            hex ? matchFingerprint(normalized) : Postings.empty());
+                }
+            };
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the certificates having every query word (words ending with {@code *} are prefixes)
+     */
+    private static int[] matchWords(NavigableMap<String, Postings> terms, String query) {
+        List<Word> words = queryWords(query);
+        if (words.isEmpty()) {
+            return Postings.empty();
+        }
+
+        int[] result = null;
+        for (Word word : words) {
+            if (word.prefix()) {
+                var range = terms.subMap(word.text(), true, word.text() + Character.MAX_VALUE, false).values();
+                int[] matches = range.isEmpty() ? Postings.empty() : Postings.union(range);
+                result = result == null ? matches : Postings.intersect(result, matches);
+            } else {
+                Postings postings = terms.get(word.text());
+                if (postings == null) {
+                    return Postings.empty();
+                }
+                result = result == null ? postings.toArray() : postings.intersect(result);
+            }
+            if (result.length == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private int[] matchSan(String query) {
+        String name = query.endsWith(".") ? query.substring(0, query.length() - 1) : query;
+        if (name.startsWith(".")) {
+            // every name under the domain: the domain itself plus the keys starting with "<reversed domain>."
+            String domain = sanKey(name.substring(1));
+            List<Postings> matches = new ArrayList<>(sanNames.subMap(domain + ".", true, domain + "/", false).values());
+            Postings exact = sanNames.get(domain);
+            if (exact != null) {
+                matches.add(exact);
+            }
+            return matches.isEmpty() ? Postings.empty() : Postings.union(matches);
+        }
+
+        Postings exact = sanNames.get(sanKey(name));
+        int dot = name.indexOf('.');
+        // a host name is also covered by a wildcard on its parent domain
+        Postings wildcard = !name.startsWith("*") && dot > 0 ? sanNames.get(sanKey("*" + name.substring(dot))) : null;
+        if (exact == null && wildcard == null) {
+            return Postings.empty();
+        }
+        if (exact == null || wildcard == null) {
+            return (exact != null ? exact : wildcard).toArray();
+        }
+        return Postings.union(List.of(exact, wildcard));
+    }
+
+    private int[] matchSerial(String query) {
+        String hex = stripLeadingZeros(hex(query));
+        if (hex.isEmpty()) {
+            return Postings.empty();
+        }
+        var range = serials.subMap(hex, true, hex + Character.MAX_VALUE, false).values();
+        return range.isEmpty() ? Postings.empty() : Postings.union(range);
+    }
+
+    private int[] matchFingerprint(String query) {
+        String hex = hex(query);
+        if (hex.isEmpty() || hex.length() > Fingerprint.LENGTH * 2) {
+            return Postings.empty();
+        }
+
+        // the prefix is a range of first words: [prefix000..., prefixfff...]
+        int digits = Math.min(hex.length(), WORD_HEX_DIGITS);
+        int freeBits = 4 * (WORD_HEX_DIGITS - digits);
+        long low = Long.parseUnsignedLong(hex, 0, digits, 16) << freeBits;
+        long high = freeBits == 0 ? low : low | ((1L << freeBits) - 1);
+
+        int[] matches = new int[8];
+        int count = 0;
+        int entries = fingerprintKeys.length;
+        for (int i = LongIntArrays.lowerBound(fingerprintKeys, 0, entries, low ^ Long.MIN_VALUE);
+             i < entries && fingerprintKeys[i] <= (high ^ Long.MIN_VALUE); i++) {
+            int id = fingerprintIds[i];
+            if (hex.length() > WORD_HEX_DIGITS && !fingerprints[id].toHex().startsWith(hex)) {
+                continue;
+            }
+            if (count == matches.length) {
+                matches = Arrays.copyOf(matches, count * 2);
+            }
+            matches[count++] = id;
+        }
+        return Postings.sortedDistinct(Arrays.copyOf(matches, count));
+    }
+
+    /**
+     * Must be called holding the write lock
+     */
+    private void addFingerprint(int id, Fingerprint fingerprint) {
+        if (id >= fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, Math.max(id + 1, fingerprints.length * 2));
+        }
+        fingerprints[id] = fingerprint;
+
+        int pending = pendingSize;
+        if (pending == pendingKeys.length) {
+            pendingKeys = Arrays.copyOf(pendingKeys, pending * 2);
+            pendingIds = Arrays.copyOf(pendingIds, pending * 2);
+        }
+        pendingKeys[pending] = fingerprint.w0() ^ Long.MIN_VALUE;
+        pendingIds[pending] = id;
+        pendingSize = pending + 1;
+    }
+
+    private void mergePendingFingerprints() {
+        lock.writeLock().lock();
+        try {
+            int pending = pendingSize;
+            if (pending == 0) {
+                return;
+            }
+            LongIntArrays.sort(pendingKeys, pendingIds, 0, pending);
+            int merged = fingerprintKeys.length + pending;
+            long[] keys = new long[merged];
+            int[] ids = new int[merged];
+            LongIntArrays.merge(fingerprintKeys, fingerprintIds, fingerprintKeys.length,
+                    pendingKeys, pendingIds, pending, keys, ids);
+            fingerprintKeys = keys;
+            fingerprintIds = ids;
+            pendingSize = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the lower case words (letters and digits) of the attribute values of an RFC 2253 distinguished name.
+     * Attribute types and hex encoded ({@code #...}) values are left out.
+     */
+    static List<String> words(String distinguishedName) {
+        List<String> words = new ArrayList<>();
+        var word = new StringBuilder();
+        boolean inValue = false;
+        boolean hexValue = false;
+        for (int i = 0; i < distinguishedName.length(); i++) {
+            char c = distinguishedName.charAt(i);
+            if (!inValue) {
+                if (c == '=') {
+                    inValue = true;
+                    hexValue = i + 1 < distinguishedName.length() && distinguishedName.charAt(i + 1) == '#';
+                }
+                continue;
+            }
+            if (c == '\\' && i + 1 < distinguishedName.length()) {
+                c = distinguishedName.charAt(++i); // escaped: never a separator
+            } else if (c == ',' || c == '+') {
+                inValue = false;
+            }
+            if (inValue && !hexValue && Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else {
+                flush(word, words);
+            }
+        }
+        flush(word, words);
+        return words;
+    }
+
+    private static List<Word> queryWords(String query) {
+        List<Word> words = new ArrayList<>();
+        var word = new StringBuilder();
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (!word.isEmpty()) {
+                // attribute types (e.g. a pasted "CN=www.example.com,O=Example") are not indexed
+                if (c != '=') {
+                    words.add(new Word(word.toString(), c == '*'));
+                }
+                word.setLength(0);
+            }
+        }
+        if (!word.isEmpty()) {
+            words.add(new Word(word.toString(), false));
+        }
+        return words;
+    }
+
+    private static void flush(StringBuilder word, List<String> words) {
+        if (!word.isEmpty()) {
+            words.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    /**
+     * @return the lower case name with its labels reversed, without a trailing dot
+     */
+    static String sanKey(String name) {
+        String[] labels = name.toLowerCase(Locale.ROOT).split("\\.");
+        var key = new StringBuilder(name.length());
+        for (int i = labels.length - 1; i >= 0; i--) {
+            key.append(labels[i]);
+            if (i > 0) {
+                key.append('.');
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the query without colons and spaces (as printed by keytool and openssl), or empty if it's not hex
+     */
+    private static String hex(String query) {
+        String hex = query.replace(":", "").replace(" ", "");
+        for (int i = 0; i < hex.length(); i++) {
+            if (!HexFormat.isHexDigit(hex.charAt(i))) {
+                return "";
+            }
+        }
+        return hex;
+    }
+
+    private static String stripLeadingZeros(String hex) {
+        int start = 0;
+        while (start < hex.length() - 1 && hex.charAt(start) == '0') {
+            start++;
+        }
+        return hex.substring(start);
+    }
+}
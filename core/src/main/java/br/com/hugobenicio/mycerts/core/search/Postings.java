@@ -0,0 +1,149 @@
+package br.com.hugobenicio.mycerts.core.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Ids of the certificates having a term, in increasing order (ids are added in increasing order), plus the sorted id
+ * set operations queries are made of.
+ *
+ * <p>Not thread-safe: guarded by the {@link CertificateIndex} lock.
+ */
+final class Postings {
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Below this size ratio, intersections binary search the bigger side instead of walking both
+     */
+    private static final int GALLOP_RATIO = 8;
+
+    private int[] ids = new int[2];
+
+    private int size;
+
+    void add(int id) {
+        if (size > 0 && ids[size - 1] == id) {
+            return; // the term appears more than once in the same certificate
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = id;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    static int[] empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the ids in the given sorted array that are also in these postings
+     */
+    int[] intersect(int[] sorted) {
+        return intersect(sorted, sorted.length, ids, size);
+    }
+
+    static int[] intersect(int[] a, int[] b) {
+        return intersect(a, a.length, b, b.length);
+    }
+
+    /**
+     * @return the ids of any of the postings, sorted and deduplicated
+     */
+    static int[] union(Collection<Postings> postings) {
+        if (postings.size() == 1) {
+            return postings.iterator().next().toArray();
+        }
+        int total = 0;
+        for (Postings p : postings) {
+            total += p.size;
+        }
+        int[] result = new int[total];
+        int offset = 0;
+        for (Postings p : postings) {
+            System.arraycopy(p.ids, 0, result, offset, p.size);
+            offset += p.size;
+        }
+        return sortedDistinct(result);
+    }
+
+    /**
+     * @return the ids of any of the sorted arrays, sorted and deduplicated
+     */
+    static int[] union(int[]... sorted) {
+        int total = 0;
+        for (int[] ids : sorted) {
+            total += ids.length;
+        }
+        int[] result = new int[total];
+        int offset = 0;
+        for (int[] ids : sorted) {
+            System.arraycopy(ids, 0, result, offset, ids.length);
+            offset += ids.length;
+        }
+        return sortedDistinct(result);
+    }
+
+    /**
+     * Sorts and deduplicates in place
+     *
+     * @return the given array or a shorter copy of it
+     */
+    static int[] sortedDistinct(int[] ids) {
+        if (ids.length < 2) {
+            return ids;
+        }
+        Arrays.sort(ids);
+        int out = 1;
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] != ids[out - 1]) {
+                ids[out++] = ids[i];
+            }
+        }
+        return out == ids.length ? ids : Arrays.copyOf(ids, out);
+    }
+
+    private static int[] intersect(int[] a, int sizeA, int[] b, int sizeB) {
+        if (sizeA > sizeB) {
+            return intersect(b, sizeB, a, sizeA);
+        }
+        int[] result = new int[sizeA];
+        int out = 0;
+        if ((long) sizeA * GALLOP_RATIO < sizeB) {
+            // few ids against many: binary search each one, from where the previous one was found
+            int from = 0;
+            for (int i = 0; i < sizeA && from < sizeB; i++) {
+                int position = Arrays.binarySearch(b, from, sizeB, a[i]);
+                if (position >= 0) {
+                    result[out++] = a[i];
+                    from = position + 1;
+                } else {
+                    from = -(position + 1);
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < sizeA && j < sizeB) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    result[out++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return out == result.length ? result : Arrays.copyOf(result, out);
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.hugobenicio.mycerts.core.search;
+
+/**
+ * What a {@link CertificateIndex} query is matched against
+ */
+public enum SearchField {
+
+    /**
+     * Any of the fields below
+     */
+    ANY,
+
+    /**
+     * Words of the subject DN attribute values (e.g. {@code acme} matches {@code O=Acme Inc})
+     */
+    SUBJECT,
+
+    /**
+     * Words of the issuer DN attribute values
+     */
+    ISSUER,
+
+    /**
+     * SAN DNS names and IPs: a host name matches the certificates valid for it (wildcards included), a wildcard
+     * ({@code *.example.com}) matches the certificates covering it and a leading dot ({@code .example.com}) matches
+     * every name under that domain
+     */
+    SAN,
+
+    /**
+     * Serial number prefix, in hex
+     */
+    SERIAL,
+
+    /**
+     * SHA-256 fingerprint prefix, in hex
+     */
+    FINGERPRINT
+}
@@ -0,0 +1,297 @@
+package br.com.hugobenicio.mycerts.core.snapshot;
+
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryIndex;
+import br.com.hugobenicio.mycerts.core.ingest.CertificateFileLoader;
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.report.ReportEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static br.com.hugobenicio.mycerts.core.snapshot.SnapshotFormat.Section;
+import static java.lang.String.format;
+
+/**
+ * A snapshot file (see {@link SnapshotFormat}) mapped into memory. Opening one only reads its header: columns are
+ * paged in by the OS as they're used, so even huge inventories open in milliseconds and queries over a few columns
+ * (e.g. expiration) never touch the certificates themselves. Certificates are only decoded by
+ * {@link #certificate(int)} and {@link #entry(int)}.
+ *
+ * <p>Certificate ids go from 0 to {@link #size()} - 1, in fingerprint order.
+ *
+ * <p>Immutable and thread-safe. The mappings are released when the snapshot is garbage collected: the file must not
+ * be truncated while in use (replacing it with {@link SnapshotWriter} is fine).
+ */
+public class Snapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(Snapshot.class);
+
+    private static final CertificateSource.Kind[] SOURCE_KINDS = CertificateSource.Kind.values();
+
+    private final Path path;
+
+    private final int size;
+
+    private final Instant createdAt;
+
+    private final Map<Section, ByteBuffer> sections;
+
+    private final ByteBuffer[] derWindows;
+
+    private final CertificateFileLoader certificateFileLoader = new CertificateFileLoader();
+
+    private Snapshot(Path path, int size, Instant createdAt, Map<Section, ByteBuffer> sections,
+                     ByteBuffer[] derWindows) {
+        this.path = path;
+        this.size = size;
+        this.createdAt = createdAt;
+        this.sections = sections;
+        this.derWindows = derWindows;
+    }
+
+    /**
+     * Maps a snapshot file written by {@link SnapshotWriter}
+     *
+     * @throws IOException if the file can't be read or isn't a valid snapshot
+     */
+    public static Snapshot open(Path path) throws IOException {
+        final long startNanos = System.nanoTime();
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            int headerLength = SnapshotFormat.headerLength();
+            if (fileSize < headerLength) {
+                throw new IOException(format("not a snapshot file (too short). path=\"%s\"", path));
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerLength);
+            if (header.getInt(0) != SnapshotFormat.MAGIC) {
+                throw new IOException(format("not a snapshot file (bad magic). path=\"%s\"", path));
+            }
+            int version = header.getInt(4);
+            if (version != SnapshotFormat.VERSION) {
+                throw new IOException(format("unsupported snapshot version. path=\"%s\" version=%d", path, version));
+            }
+            int size = header.getInt(8);
+            if (size < 0 || header.getInt(12) != Section.values().length) {
+                throw new IOException(format("corrupted snapshot header. path=\"%s\"", path));
+            }
+            Instant createdAt = Instant.ofEpochMilli(header.getLong(16));
+
+            Map<Section, ByteBuffer> sections = new EnumMap<>(Section.class);
+            ByteBuffer[] derWindows = null;
+            for (Section section : Section.values()) {
+                int entry = SnapshotFormat.HEADER_FIXED_LENGTH
+                        + section.ordinal() * SnapshotFormat.SECTION_ENTRY_LENGTH;
+                long offset = header.getLong(entry);
+                long length = header.getLong(entry + 8);
+                if (offset < headerLength || length < 0 || offset + length > fileSize) {
+                    throw new IOException(format("corrupted snapshot section. path=\"%s\" section=%s", path, section));
+                }
+                if (section == Section.DER) {
+                    derWindows = mapWindows(channel, offset, length);
+                } else if (length > Integer.MAX_VALUE) {
+                    throw new IOException(format("snapshot section too large. path=\"%s\" section=%s", path, section));
+                } else {
+                    sections.put(section, channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+                }
+            }
+
+            log.atDebug().setMessage("snapshot opened")
+                    .addKeyValue("path", path)
+                    .addKeyValue("certificates", size)
+                    .addKeyValue("elapsed_us", (System.nanoTime() - startNanos) / 1000)
+                    .log();
+            return new Snapshot(path, size, createdAt, sections, derWindows);
+        }
+    }
+
+    private static ByteBuffer[] mapWindows(FileChannel channel, long offset, long length) throws IOException {
+        int windows = Math.toIntExact((length + SnapshotFormat.DER_WINDOW - 1) / SnapshotFormat.DER_WINDOW);
+        ByteBuffer[] buffers = new ByteBuffer[windows];
+        for (int i = 0; i < windows; i++) {
+            long start = i * SnapshotFormat.DER_WINDOW;
+            buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start,
+                    Math.min(SnapshotFormat.DER_WINDOW, length - start));
+        }
+        return buffers;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Instant createdAt() {
+        return createdAt;
+    }
+
+    public Fingerprint fingerprint(int id) {
+        ByteBuffer fingerprints = sections.get(Section.FINGERPRINTS);
+        int offset = checkId(id) * Fingerprint.LENGTH;
+        return new Fingerprint(fingerprints.getLong(offset), fingerprints.getLong(offset + 8),
+                fingerprints.getLong(offset + 16), fingerprints.getLong(offset + 24));
+    }
+
+    /**
+     * Binary search over the fingerprints column
+     *
+     * @return the certificate id, or -1 if it's not in the snapshot
+     */
+    public int indexOf(Fingerprint fingerprint) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = fingerprint(middle).compareTo(fingerprint);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    public long notBeforeEpochSecond(int id) {
+        return sections.get(Section.NOT_BEFORE).getLong(checkId(id) * 8);
+    }
+
+    public long notAfterEpochSecond(int id) {
+        return sections.get(Section.NOT_AFTER).getLong(checkId(id) * 8);
+    }
+
+    /**
+     * @return the subject distinguished name (RFC 2253)
+     */
+    public String subject(int id) {
+        return string(sections.get(Section.SUBJECTS).getInt(checkId(id) * 4));
+    }
+
+    /**
+     * @return the issuer distinguished name (RFC 2253)
+     */
+    public String issuer(int id) {
+        return string(sections.get(Section.ISSUERS).getInt(checkId(id) * 4));
+    }
+
+    public long observations(int id) {
+        return sections.get(Section.OBSERVATIONS).getLong(checkId(id) * 8);
+    }
+
+    public List<CertificateSource> sources(int id) {
+        ByteBuffer sourceOffsets = sections.get(Section.SOURCE_OFFSETS);
+        ByteBuffer sources = sections.get(Section.SOURCES);
+        int from = sourceOffsets.getInt(checkId(id) * 4);
+        int to = sourceOffsets.getInt((id + 1) * 4);
+        List<CertificateSource> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int offset = i * SnapshotFormat.SOURCE_LENGTH;
+            int alias = sources.getInt(offset + 8);
+            result.add(new CertificateSource(SOURCE_KINDS[sources.getInt(offset)], string(sources.getInt(offset + 4)),
+                    alias >= 0 ? string(alias) : null));
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * @return the source at the given position of {@link #sources(int)}, without decoding the others
+     */
+    public CertificateSource source(int id, int index) {
+        ByteBuffer sourceOffsets = sections.get(Section.SOURCE_OFFSETS);
+        int from = sourceOffsets.getInt(checkId(id) * 4);
+        int to = sourceOffsets.getInt((id + 1) * 4);
+        if (index < 0 || index >= to - from) {
+            throw new IndexOutOfBoundsException(format("source index out of range. id=%d index=%d sources=%d",
+                    id, index, to - from));
+        }
+        int offset = (from + index) * SnapshotFormat.SOURCE_LENGTH;
+        ByteBuffer sources = sections.get(Section.SOURCES);
+        int alias = sources.getInt(offset + 8);
+        return new CertificateSource(SOURCE_KINDS[sources.getInt(offset)], string(sources.getInt(offset + 4)),
+                alias >= 0 ? string(alias) : null);
+    }
+
+    /**
+     * @return a copy of the DER encoding of the certificate
+     */
+    public byte[] der(int id) {
+        long offset = sections.get(Section.DER_OFFSETS).getLong(checkId(id) * 8);
+        int length = sections.get(Section.DER_LENGTHS).getInt(id * 4);
+        ByteBuffer window = derWindows[(int) (offset / SnapshotFormat.DER_WINDOW)];
+        byte[] der = new byte[length];
+        window.get((int) (offset % SnapshotFormat.DER_WINDOW), der);
+        return der;
+    }
+
+    /**
+     * Decodes the certificate
+     *
+     * @throws IllegalStateException if the stored encoding can't be parsed (corrupted snapshot)
+     */
+    public X509Certificate certificate(int id) {
+        try {
+            return certificateFileLoader.parseDer(der(id));
+        } catch (CertificateException e) {
+            var msg = format("corrupted certificate in snapshot. path=\"%s\" id=%d", path, id);
+            throw new IllegalStateException(msg, e);
+        }
+    }
+
+    /**
+     * Decodes the certificate, along with its provenance
+     */
+    public ReportEntry entry(int id) {
+        return new ReportEntry(certificate(id), fingerprint(id), observations(id), sources(id));
+    }
+
+    /**
+     * Builds an expiry index straight from the (already sorted) expiration order, without decoding anything.
+     * Ids are snapshot ids.
+     */
+    public ExpiryIndex expiryIndex() {
+        ByteBuffer expiryOrder = sections.get(Section.EXPIRY_ORDER);
+        ByteBuffer notAfters = sections.get(Section.NOT_AFTER);
+        int[] ids = new int[size];
+        long[] sortedNotAfters = new long[size];
+        for (int i = 0; i < size; i++) {
+            int id = expiryOrder.getInt(i * 4);
+            ids[i] = id;
+            sortedNotAfters[i] = notAfters.getLong(id * 8);
+        }
+        return ExpiryIndex.ofSorted(sortedNotAfters, ids);
+    }
+
+    private String string(int stringId) {
+        ByteBuffer stringOffsets = sections.get(Section.STRING_OFFSETS);
+        long from = stringOffsets.getLong(stringId * 8);
+        long to = stringOffsets.getLong(stringId * 8 + 8);
+        byte[] bytes = new byte[(int) (to - from)];
+        sections.get(Section.STRINGS).get((int) from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException(format("invalid certificate id. id=%d size=%d", id, size));
+        }
+        return id;
+    }
+}
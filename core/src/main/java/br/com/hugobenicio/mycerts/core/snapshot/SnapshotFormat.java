@@ -0,0 +1,56 @@
+package br.com.hugobenicio.mycerts.core.snapshot;
+
+/**
+ * Layout of the snapshot files (big endian):
+ * <pre>
+ * header:   magic "MCS1" (4) | version (4) | count (4) | sections (4) | created at, epoch millis (8)
+ *           then, per section: offset (8) | length (8)
+ * sections: columns indexed by certificate id, certificates sorted by fingerprint. Each section starts 8-byte aligned
+ *   FINGERPRINTS    count x 32 bytes
+ *   NOT_BEFORE      count x epoch second (8)
+ *   NOT_AFTER       count x epoch second (8)
+ *   SUBJECTS        count x string id (4)
+ *   ISSUERS         count x string id (4)
+ *   OBSERVATIONS    count x observations (8)
+ *   SOURCE_OFFSETS  (count + 1) x index of the first source of each certificate (4)
+ *   SOURCES         sources x (kind (4) | location string id (4) | alias string id or -1 (4))
+ *   STRING_OFFSETS  (strings + 1) x offset into STRINGS (8)
+ *   STRINGS         utf-8 bytes of the deduplicated strings
+ *   EXPIRY_ORDER    count x certificate id (4), sorted by NOT_AFTER
+ *   DER_OFFSETS     count x offset into DER (8)
+ *   DER_LENGTHS     count x length (4)
+ *   DER             DER encodings, page aligned. None crosses a {@link #DER_WINDOW} boundary (the gaps are padding)
+ * </pre>
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x4D435331; // "MCS1"
+
+    static final int VERSION = 1;
+
+    static final int HEADER_FIXED_LENGTH = 24;
+
+    static final int SECTION_ENTRY_LENGTH = 16;
+
+    /**
+     * The DER section is mapped in windows of this size (a single mapping is limited to 2GB)
+     */
+    static final long DER_WINDOW = 1L << 30;
+
+    static final int SOURCE_LENGTH = 12;
+
+    enum Section {
+        FINGERPRINTS, NOT_BEFORE, NOT_AFTER, SUBJECTS, ISSUERS, OBSERVATIONS, SOURCE_OFFSETS, SOURCES,
+        STRING_OFFSETS, STRINGS, EXPIRY_ORDER, DER_OFFSETS, DER_LENGTHS, DER
+    }
+
+    static int headerLength() {
+        return HEADER_FIXED_LENGTH + Section.values().length * SECTION_ENTRY_LENGTH;
+    }
+
+    static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private SnapshotFormat() {}
+}
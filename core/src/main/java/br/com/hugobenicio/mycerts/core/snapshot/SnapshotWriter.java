@@ -0,0 +1,320 @@
+package br.com.hugobenicio.mycerts.core.snapshot;
+
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.report.CertificateSet;
+import br.com.hugobenicio.mycerts.core.report.ReportEntry;
+import br.com.hugobenicio.mycerts.core.utils.LongIntArrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static br.com.hugobenicio.mycerts.core.snapshot.SnapshotFormat.Section;
+import static java.lang.String.format;
+
+/**
+ * Writes snapshot files (see {@link SnapshotFormat}), to be opened by {@link Snapshot}. The file is written next to
+ * its destination and then renamed over it, so readers never see a partial snapshot.
+ */
+public class SnapshotWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotWriter.class);
+
+    private SnapshotWriter() {}
+
+    /**
+     * @return the number of certificates written
+     */
+    public static int write(Path path, CertificateSet set) throws IOException {
+        return write(path, set.entries());
+    }
+
+    /**
+     * @param entries the certificates, with their provenance. Duplicated fingerprints are written once
+     * @return the number of certificates written
+     */
+    public static int write(Path path, Collection<ReportEntry> entries) throws IOException {
+        final long startNanos = System.nanoTime();
+
+        List<ReportEntry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(ReportEntry::fingerprint));
+        sorted = deduplicate(sorted);
+        final int count = sorted.size();
+
+        // strings and sources
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int[] subjects = new int[count];
+        int[] issuers = new int[count];
+        int[] sourceOffsets = new int[count + 1];
+        List<int[]> sources = new ArrayList<>();
+        long[] notAfters = new long[count];
+        long[] derOffsets = new long[count];
+        int[] derLengths = new int[count];
+        long derOffset = 0;
+        for (int id = 0; id < count; id++) {
+            ReportEntry entry = sorted.get(id);
+            X509Certificate certificate = entry.certificate();
+            subjects[id] = stringId(certificate.getSubjectX500Principal().getName(), stringIds, strings);
+            issuers[id] = stringId(certificate.getIssuerX500Principal().getName(), stringIds, strings);
+            sourceOffsets[id] = sources.size();
+            for (CertificateSource source : entry.sources()) {
+                sources.add(new int[]{
+                        source.kind().ordinal(),
+                        stringId(source.location(), stringIds, strings),
+                        source.alias() != null ? stringId(source.alias(), stringIds, strings) : -1});
+            }
+            notAfters[id] = certificate.getNotAfter().getTime() / 1000;
+
+            int derLength = encoded(certificate).length;
+            if (derOffset / SnapshotFormat.DER_WINDOW != (derOffset + derLength - 1) / SnapshotFormat.DER_WINDOW) {
+                derOffset = (derOffset / SnapshotFormat.DER_WINDOW + 1) * SnapshotFormat.DER_WINDOW;
+            }
+            derOffsets[id] = derOffset;
+            derLengths[id] = derLength;
+            derOffset += derLength;
+        }
+        sourceOffsets[count] = sources.size();
+
+        byte[][] stringBytes = new byte[strings.size()][];
+        long stringsLength = 0;
+        for (int i = 0; i < stringBytes.length; i++) {
+            stringBytes[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            stringsLength += stringBytes[i].length;
+        }
+
+        int[] expiryOrder = new int[count];
+        long[] expiryKeys = notAfters.clone();
+        for (int id = 0; id < count; id++) {
+            expiryOrder[id] = id;
+        }
+        LongIntArrays.sort(expiryKeys, expiryOrder, 0, count);
+
+        // layout
+        Map<Section, Long> lengths = new EnumMap<>(Section.class);
+        lengths.put(Section.FINGERPRINTS, 32L * count);
+        lengths.put(Section.NOT_BEFORE, 8L * count);
+        lengths.put(Section.NOT_AFTER, 8L * count);
+        lengths.put(Section.SUBJECTS, 4L * count);
+        lengths.put(Section.ISSUERS, 4L * count);
+        lengths.put(Section.OBSERVATIONS, 8L * count);
+        lengths.put(Section.SOURCE_OFFSETS, 4L * (count + 1));
+        lengths.put(Section.SOURCES, (long) SnapshotFormat.SOURCE_LENGTH * sources.size());
+        lengths.put(Section.STRING_OFFSETS, 8L * (strings.size() + 1));
+        lengths.put(Section.STRINGS, stringsLength);
+        lengths.put(Section.EXPIRY_ORDER, 4L * count);
+        lengths.put(Section.DER_OFFSETS, 8L * count);
+        lengths.put(Section.DER_LENGTHS, 4L * count);
+        lengths.put(Section.DER, derOffset);
+
+        Map<Section, Long> offsets = new EnumMap<>(Section.class);
+        long offset = SnapshotFormat.align(SnapshotFormat.headerLength());
+        for (Section section : Section.values()) {
+            if (section == Section.DER) {
+                // DER windows are relative to the section start, which is aligned to a page for mapping
+                offset = (offset + 4095) & ~4095L;
+            }
+            offsets.put(section, offset);
+            offset = SnapshotFormat.align(offset + lengths.get(section));
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+             var out = new SnapshotOutput(Channels.newOutputStream(channel))) {
+            out.writeInt(SnapshotFormat.MAGIC);
+            out.writeInt(SnapshotFormat.VERSION);
+            out.writeInt(count);
+            out.writeInt(Section.values().length);
+            out.writeLong(System.currentTimeMillis());
+            for (Section section : Section.values()) {
+                out.writeLong(offsets.get(section));
+                out.writeLong(lengths.get(section));
+            }
+
+            out.padTo(offsets.get(Section.FINGERPRINTS));
+            for (ReportEntry entry : sorted) {
+                out.writeLong(entry.fingerprint().w0());
+                out.writeLong(entry.fingerprint().w1());
+                out.writeLong(entry.fingerprint().w2());
+                out.writeLong(entry.fingerprint().w3());
+            }
+            out.padTo(offsets.get(Section.NOT_BEFORE));
+            for (ReportEntry entry : sorted) {
+                out.writeLong(entry.certificate().getNotBefore().getTime() / 1000);
+            }
+            out.padTo(offsets.get(Section.NOT_AFTER));
+            for (long notAfter : notAfters) {
+                out.writeLong(notAfter);
+            }
+            out.padTo(offsets.get(Section.SUBJECTS));
+            for (int subject : subjects) {
+                out.writeInt(subject);
+            }
+            out.padTo(offsets.get(Section.ISSUERS));
+            for (int issuer : issuers) {
+                out.writeInt(issuer);
+            }
+            out.padTo(offsets.get(Section.OBSERVATIONS));
+            for (ReportEntry entry : sorted) {
+                out.writeLong(entry.observations());
+            }
+            out.padTo(offsets.get(Section.SOURCE_OFFSETS));
+            for (int sourceOffset : sourceOffsets) {
+                out.writeInt(sourceOffset);
+            }
+            out.padTo(offsets.get(Section.SOURCES));
+            for (int[] source : sources) {
+                out.writeInt(source[0]);
+                out.writeInt(source[1]);
+                out.writeInt(source[2]);
+            }
+            out.padTo(offsets.get(Section.STRING_OFFSETS));
+            long stringOffset = 0;
+            for (byte[] string : stringBytes) {
+                out.writeLong(stringOffset);
+                stringOffset += string.length;
+            }
+            out.writeLong(stringOffset);
+            out.padTo(offsets.get(Section.STRINGS));
+            for (byte[] string : stringBytes) {
+                out.write(string);
+            }
+            out.padTo(offsets.get(Section.EXPIRY_ORDER));
+            for (int id : expiryOrder) {
+                out.writeInt(id);
+            }
+            out.padTo(offsets.get(Section.DER_OFFSETS));
+            for (long der : derOffsets) {
+                out.writeLong(der);
+            }
+            out.padTo(offsets.get(Section.DER_LENGTHS));
+            for (int derLength : derLengths) {
+                out.writeInt(derLength);
+            }
+            long derStart = offsets.get(Section.DER);
+            for (int id = 0; id < count; id++) {
+                out.padTo(derStart + derOffsets[id]);
+                out.write(encoded(sorted.get(id).certificate()));
+            }
+            out.padTo(offset);
+            // on disk before the rename, or a crash could leave the snapshot name pointing to a partial file
+            out.flush();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log.atInfo().setMessage("snapshot written")
+                .addKeyValue("path", path)
+                .addKeyValue("certificates", count)
+                .addKeyValue("bytes", offset)
+                .addKeyValue("elapsed_ms", (System.nanoTime() - startNanos) / 1_000_000)
+                .log();
+        return count;
+    }
+
+    private static List<ReportEntry> deduplicate(List<ReportEntry> sorted) {
+        List<ReportEntry> unique = new ArrayList<>(sorted.size());
+        for (ReportEntry entry : sorted) {
+            if (unique.isEmpty() || !unique.getLast().fingerprint().equals(entry.fingerprint())) {
+                unique.add(entry);
+            }
+        }
+        return unique;
+    }
+
+    private static int stringId(String string, Map<String, Integer> ids, List<String> strings) {
+        return ids.computeIfAbsent(string, s -> {
+            strings.add(s);
+            return strings.size() - 1;
+        });
+    }
+
+    private static byte[] encoded(X509Certificate certificate) {
+        try {
+            return certificate.getEncoded();
+        } catch (CertificateEncodingException e) {
+            throw new IllegalArgumentException(format("certificate can't be encoded. subject=\"%s\"",
+                    certificate.getSubjectX500Principal().getName()), e);
+        }
+    }
+
+    /**
+     * Counts the bytes going through it, so sections can be padded up to their offsets
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static final class SnapshotOutput extends DataOutputStream {
+
+        private static final byte[] ZEROS = new byte[4096];
+
+        private final CountingOutputStream counter;
+
+        SnapshotOutput(OutputStream out) {
+            this(new CountingOutputStream(new BufferedOutputStream(out, 1 << 16)));
+        }
+
+        private SnapshotOutput(CountingOutputStream counter) {
+            super(counter);
+            this.counter = counter;
+        }
+
+        /**
+         * Writes zeros up to the given offset
+         */
+        void padTo(long offset) throws IOException {
+            long padding = offset - counter.count;
+            if (padding < 0) {
+                throw new IllegalStateException(format("snapshot layout overlap. position=%d offset=%d",
+                        counter.count, offset));
+            }
+            while (padding > 0) {
+                int length = (int) Math.min(padding, ZEROS.length);
+                write(ZEROS, 0, length);
+                padding -= length;
+            }
+        }
+    }
+}
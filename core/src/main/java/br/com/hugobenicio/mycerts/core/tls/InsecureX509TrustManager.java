@@ -1,7 +1,11 @@
 package br.com.hugobenicio.mycerts.core.tls;
 
+import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
 
 /**
@@ -13,6 +17,24 @@ public class InsecureX509TrustManager implements X509TrustManager {
         return new TrustManager[]{ new InsecureX509TrustManager() };
     }
 
+    /**
+     * Creates a TLS context that trusts any server.
+     */
+    public static SSLContext newSslContext() {
+        try {
+            SSLContext insecureTlsContext = SSLContext.getInstance("TLS");
+
+            //NOTE(security): we intentionally use an insecure trust manager here because we're interested in analyzing
+            //                server's certificates even if we do not have a preset trusted cert chain.
+            insecureTlsContext.init(null, newTrustManagers(), new SecureRandom());
+
+            return insecureTlsContext;
+
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     public X509Certificate[] getAcceptedIssuers() {
         return null;
     }
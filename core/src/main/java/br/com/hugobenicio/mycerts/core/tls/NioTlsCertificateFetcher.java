@@ -0,0 +1,593 @@
+package br.com.hugobenicio.mycerts.core.tls;
+
+import br.com.hugobenicio.mycerts.core.metrics.CoreMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+
+/**
+ * Non-blocking {@link TlsCertificateFetcher} that multiplexes many in-flight handshakes over a small pool of selector
+ * threads using {@link SSLEngine}.
+ *
+ * <p>The peer chain is captured by the trust manager as soon as the server's Certificate message is processed, and the
+ * handshake is aborted right there: no key exchange verification, no Finished messages, no session to tear down.
+ *
+ * <p>Host names are resolved on the calling thread, so callers should preferably be virtual threads.
+ */
+public class NioTlsCertificateFetcher implements TlsCertificateFetcher, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(NioTlsCertificateFetcher.class);
+
+    public static final Duration TIMEOUT_DEFAULT = Duration.ofSeconds(20);
+
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+
+    /**
+     * Extra time {@link #fetch} waits past the handshake timeout, so the selector loop normally reports the timeout
+     */
+    private static final long FETCH_GRACE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * Done connections tolerated in a selector loop's deadline queue before it gets compacted
+     */
+    private static final int COMPACT_MIN_DONE = 64;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final Map<SSLEngine, Connection> connectionsByEngine = new ConcurrentHashMap<>();
+
+    private final SSLContext sslContext = createSslContext();
+
+    private final SelectorLoop[] loops;
+
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    private final long timeoutNanos;
+
+    public NioTlsCertificateFetcher() {
+        this(Runtime.getRuntime().availableProcessors(), TIMEOUT_DEFAULT);
+    }
+
+    /**
+     * @param selectorThreads number of selector threads driving the handshakes
+     * @param timeout max time for connecting and receiving the peer certificates
+     */
+    public NioTlsCertificateFetcher(int selectorThreads, Duration timeout) {
+        if (selectorThreads < 1) {
+            throw new IllegalArgumentException("at least one selector thread is required");
+        }
+        this.timeoutNanos = timeout.toNanos();
+        this.loops = new SelectorLoop[selectorThreads];
+        for (int i = 0; i < selectorThreads; i++) {
+            loops[i] = new SelectorLoop(i);
+        }
+    }
+
+    private SSLContext createSslContext() {
+        try {
+            SSLContext tlsContext = SSLContext.getInstance("TLS");
+
+            //NOTE(security): the trust manager below accepts nothing: it just records the server chain and aborts the
+            //                handshake. We're only interested in the certificates, never in the connection itself.
+            tlsContext.init(null, new TrustManager[]{ new ChainCapturingTrustManager() }, new SecureRandom());
+
+            return tlsContext;
+
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    public X509Certificate[] fetch(String host, int port, String tlsSniServerName) throws IOException {
+        var future = fetchAsync(host, port, tlsSniServerName);
+        try {
+            return future.get(timeoutNanos + FETCH_GRACE_NANOS, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new SocketTimeoutException(format("timed out fetching certificates. host=%s port=%d", host, port));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while fetching certificates");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Starts fetching the peer certificates of a remote server.
+     *
+     * @param host Hostname of the server
+     * @param port Port of the server
+     * @param tlsSniServerName Servername used by the server (TLS SNI)
+     * @return a future completed with the peer certificate chain (leaf first)
+     */
+    public CompletableFuture<X509Certificate[]> fetchAsync(String host, int port, String tlsSniServerName) {
+        var future = new CompletableFuture<X509Certificate[]>();
+        final long startNanos = System.nanoTime();
+        try {
+            var address = new InetSocketAddress(host, port);
+            if (address.isUnresolved()) {
+                throw new UnknownHostException(host);
+            }
+
+            SSLEngine engine = sslContext.createSSLEngine(host, port);
+            engine.setUseClientMode(true);
+
+            // sets the Server Name Indication (SNI) TLS Extension
+            SSLParameters sslParams = engine.getSSLParameters();
+            ServerNames.apply(sslParams, tlsSniServerName);
+            engine.setSSLParameters(sslParams);
+
+            var connection = new Connection(host, port, address, engine, future, startNanos,
+                    startNanos + timeoutNanos);
+            connectionsByEngine.put(engine, connection);
+            loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)].register(connection);
+
+        } catch (IOException | RuntimeException e) {
+            CoreMetrics.TLS_FAILED_HANDSHAKES.increment();
+            CoreMetrics.TLS_HANDSHAKES.recordSince(startNanos);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public void close() {
+        for (var loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    /**
+     * State of a single in-flight handshake. Only touched by its selector thread, except for the captured chain.
+     */
+    private static final class Connection {
+        final String host;
+        final int port;
+        final InetSocketAddress address;
+        final SSLEngine engine;
+        final CompletableFuture<X509Certificate[]> future;
+        final long startNanos;
+        final long deadlineNanos;
+
+        SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer netIn;
+        ByteBuffer netOut;
+        volatile X509Certificate[] capturedChain;
+        boolean done;
+        boolean queued;
+
+        Connection(String host, int port, InetSocketAddress address, SSLEngine engine,
+                   CompletableFuture<X509Certificate[]> future, long startNanos, long deadlineNanos) {
+            this.host = host;
+            this.port = port;
+            this.address = address;
+            this.engine = engine;
+            this.future = future;
+            this.startNanos = startNanos;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private final class SelectorLoop implements Runnable {
+
+        private final Selector selector;
+
+        private final Queue<Connection> registrations = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Every connection has the same timeout, so registration order is also deadline order.
+         */
+        private final ArrayDeque<Connection> byDeadline = new ArrayDeque<>();
+
+        /**
+         * Done connections still sitting in {@link #byDeadline} behind a pending one.
+         */
+        private int doneInQueue;
+
+        /**
+         * Sink for application data. We never read any, so one buffer is shared by all connections of this loop.
+         */
+        private ByteBuffer appIn = ByteBuffer.allocate(0);
+
+        private final Thread thread;
+
+        private volatile boolean running = true;
+
+        SelectorLoop(int index) {
+            try {
+                this.selector = Selector.open();
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to open selector", e);
+            }
+            this.thread = Thread.ofPlatform()
+                    .name("mycerts-nio-" + index)
+                    .daemon(true)
+                    .start(this);
+        }
+
+        void register(Connection connection) {
+            if (!running) {
+                reject(connection);
+                return;
+            }
+            registrations.add(connection);
+            if (!running && registrations.remove(connection)) {
+                // raced with shutdown after the loop drained its registrations
+                reject(connection);
+                return;
+            }
+            selector.wakeup();
+        }
+
+        private void reject(Connection connection) {
+            connectionsByEngine.remove(connection.engine);
+            connection.future.completeExceptionally(new IOException("fetcher is closed"));
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select(SELECT_TIMEOUT_MILLIS);
+                } catch (IOException e) {
+                    log.error("selector failed. stopping selector loop", e);
+                    break;
+                }
+
+                for (Connection c; (c = registrations.poll()) != null; ) {
+                    open(c);
+                }
+
+                var selectedKeys = selector.selectedKeys();
+                for (var key : selectedKeys) {
+                    if (key.isValid()) {
+                        handle((Connection) key.attachment(), key);
+                    }
+                }
+                selectedKeys.clear();
+
+                expire();
+            }
+            // also when the selector failed, so later registrations are rejected instead of never being opened
+            running = false;
+
+            var closed = new IOException("fetcher is closed");
+            for (Connection c; (c = registrations.poll()) != null; ) {
+                finish(c, null, closed);
+            }
+            for (var c : byDeadline) {
+                finish(c, null, closed);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.warn("failed to close selector", e);
+            }
+        }
+
+        private void open(Connection c) {
+            try {
+                c.channel = SocketChannel.open();
+                c.channel.configureBlocking(false);
+                c.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                // resets the connection on close so mass scans don't pile up sockets in TIME_WAIT
+                c.channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+
+                boolean connected = c.channel.connect(c.address);
+                c.key = c.channel.register(selector, connected ? 0 : SelectionKey.OP_CONNECT, c);
+                byDeadline.addLast(c);
+                c.queued = true;
+
+                if (connected) {
+                    startHandshake(c);
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(c, e);
+            }
+        }
+
+        private void handle(Connection c, SelectionKey key) {
+            try {
+                if (key.isConnectable()) {
+                    c.channel.finishConnect();
+                    startHandshake(c);
+                    return;
+                }
+                drive(c);
+            } catch (IOException | RuntimeException e) {
+                fail(c, e);
+            }
+        }
+
+        private void startHandshake(Connection c) throws IOException {
+            var session = c.engine.getSession();
+            c.netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+            c.netOut = ByteBuffer.allocate(session.getPacketBufferSize());
+            if (appIn.capacity() < session.getApplicationBufferSize()) {
+                appIn = ByteBuffer.allocate(session.getApplicationBufferSize());
+            }
+
+            c.engine.beginHandshake();
+            drive(c);
+        }
+
+        /**
+         * Advances the handshake as far as possible without blocking.
+         */
+        private void drive(Connection c) throws IOException {
+            while (!c.done) {
+                if (c.capturedChain != null) {
+                    finish(c, c.capturedChain, null);
+                    return;
+                }
+
+                if (c.netOut.position() > 0 && !flush(c)) {
+                    c.key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+
+                switch (c.engine.getHandshakeStatus()) {
+                    case NEED_WRAP -> {
+                        SSLEngineResult result = c.engine.wrap(EMPTY, c.netOut);
+                        if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                            throw new SSLException("tls engine closed during handshake");
+                        }
+                    }
+                    case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> {
+                        if (!unwrap(c)) {
+                            c.key.interestOps(SelectionKey.OP_READ);
+                            return;
+                        }
+                    }
+                    case NEED_TASK -> {
+                        for (Runnable task; (task = c.engine.getDelegatedTask()) != null; ) {
+                            task.run();
+                        }
+                    }
+                    case FINISHED, NOT_HANDSHAKING -> {
+                        var peerCertificates = c.engine.getSession().getPeerCertificates();
+                        finish(c, SocketTlsCertificateFetcher.toX509Certificates(peerCertificates), null);
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return true if all pending outbound data was written
+         */
+        private boolean flush(Connection c) throws IOException {
+            c.netOut.flip();
+            try {
+                c.channel.write(c.netOut);
+                return !c.netOut.hasRemaining();
+            } finally {
+                c.netOut.compact();
+            }
+        }
+
+        /**
+         * @return false if more data from the network is needed before the handshake can go on
+         */
+        private boolean unwrap(Connection c) throws IOException {
+            c.netIn.flip();
+            SSLEngineResult result;
+            try {
+                result = c.engine.unwrap(c.netIn, appIn);
+            } finally {
+                c.netIn.compact();
+                appIn.clear();
+            }
+
+            switch (result.getStatus()) {
+                case OK -> {
+                    return true;
+                }
+                case BUFFER_UNDERFLOW -> {
+                    int packetBufferSize = c.engine.getSession().getPacketBufferSize();
+                    if (c.netIn.capacity() < packetBufferSize) {
+                        c.netIn = ByteBuffer.allocate(packetBufferSize).put(c.netIn.flip());
+                    }
+                    int read = c.channel.read(c.netIn);
+                    if (read < 0) {
+                        throw new EOFException("connection closed by the server during tls handshake");
+                    }
+                    return read > 0;
+                }
+                case BUFFER_OVERFLOW -> {
+                    appIn = ByteBuffer.allocate(c.engine.getSession().getApplicationBufferSize());
+                    return true;
+                }
+                case CLOSED -> throw new SSLException("server closed the tls session during handshake");
+                default -> throw new AssertionError(result.getStatus());
+            }
+        }
+
+        private void expire() {
+            long now = System.nanoTime();
+            while (!byDeadline.isEmpty()) {
+                Connection c = byDeadline.peekFirst();
+                if (!c.done && c.deadlineNanos - now > 0) {
+                    break;
+                }
+                byDeadline.pollFirst();
+                c.queued = false;
+                if (c.done) {
+                    doneInQueue--;
+                } else {
+                    var msg = format("timed out fetching certificates. host=%s port=%d", c.host, c.port);
+                    finish(c, null, new SocketTimeoutException(msg));
+                }
+            }
+
+            // an unresponsive head would otherwise pin every completed connection queued behind it until it expires
+            if (doneInQueue > COMPACT_MIN_DONE && doneInQueue * 2 > byDeadline.size()) {
+                byDeadline.removeIf(c -> c.done);
+                doneInQueue = 0;
+            }
+        }
+
+        private void fail(Connection c, Exception e) {
+            // aborting the handshake from the trust manager surfaces as an exception, but the chain is already there
+            if (c.capturedChain != null) {
+                finish(c, c.capturedChain, null);
+            } else {
+                finish(c, null, e);
+            }
+        }
+
+        private void finish(Connection c, X509Certificate[] chain, Exception error) {
+            if (c.done) {
+                return;
+            }
+            c.done = true;
+            connectionsByEngine.remove(c.engine);
+            if (c.queued) {
+                doneInQueue++;
+            }
+
+            if (c.channel != null) {
+                try {
+                    c.channel.close();
+                } catch (IOException e) {
+                    log.debug("failed to close channel", e);
+                }
+            }
+
+            // the connection may linger in byDeadline until the next compaction, so drop what it holds on to
+            c.netIn = null;
+            c.netOut = null;
+            c.capturedChain = null;
+
+            // every outcome ends up here: captured chains, failures, timeouts and shutdowns
+            if (error != null) {
+                CoreMetrics.TLS_FAILED_HANDSHAKES.increment();
+            }
+            CoreMetrics.TLS_HANDSHAKES.recordSince(c.startNanos);
+
+            if (error == null) {
+                c.future.complete(chain);
+            } else {
+                c.future.completeExceptionally(error);
+            }
+        }
+    }
+
+    /**
+     * Captures the server chain for the engine being verified and aborts its handshake.
+     */
+    private final class ChainCapturingTrustManager extends X509ExtendedTrustManager {
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            Connection connection = connectionsByEngine.get(engine);
+            if (connection != null) {
+                connection.capturedChain = chain.clone();
+            }
+            throw new ChainCapturedException();
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            throw new ChainCapturedException();
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            throw new ChainCapturedException();
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            throw new CertificateException("client authentication is not supported");
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            throw new CertificateException("client authentication is not supported");
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            throw new CertificateException("client authentication is not supported");
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+
+    /**
+     * Thrown to abort a handshake once the peer chain is captured. It is expected, so it carries no stack trace.
+     */
+    private static final class ChainCapturedException extends CertificateException {
+
+        ChainCapturedException() {
+            super("peer certificates captured. aborting handshake");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package br.com.hugobenicio.mycerts.core.tls;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SNIServerName;
+import javax.net.ssl.SSLParameters;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * TLS Server Name Indication (SNI) helpers. RFC 6066 only allows DNS host names in SNI, so IP literals (and empty
+ * names) are never sent.
+ */
+public final class ServerNames {
+
+    private static final Pattern IPV4_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    private ServerNames() {
+    }
+
+    /**
+     * @return whether the host is an IPv4 or IPv6 literal (with or without brackets), without any name resolution
+     */
+    public static boolean isIpLiteral(String host) {
+        return host.indexOf(':') >= 0 || host.startsWith("[") || IPV4_LITERAL.matcher(host).matches();
+    }
+
+    /**
+     * @return the SNI to use when none is given: the host itself, or an empty one if it is an IP literal
+     */
+    public static String defaultFor(String host) {
+        return isIpLiteral(host) ? "" : host;
+    }
+
+    /**
+     * @return whether the name can be sent as SNI
+     */
+    public static boolean isSendable(String sni) {
+        return sni != null && !sni.isEmpty() && !isIpLiteral(sni);
+    }
+
+    /**
+     * Sets the SNI extension to the given name, or disables it when the name can't be sent (see
+     * {@link #isSendable(String)}), so JSSE doesn't fall back to the peer host
+     *
+     * @throws IllegalArgumentException if the name is not a valid host name
+     */
+    public static void apply(SSLParameters sslParams, String sni) {
+        List<SNIServerName> serverNames = isSendable(sni) ? List.of(new SNIHostName(sni)) : List.of();
+        sslParams.setServerNames(serverNames);
+    }
+}
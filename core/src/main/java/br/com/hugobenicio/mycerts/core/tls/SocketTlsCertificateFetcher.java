@@ -0,0 +1,150 @@
+package br.com.hugobenicio.mycerts.core.tls;
+
+import br.com.hugobenicio.mycerts.core.metrics.CoreMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Blocking {@link TlsCertificateFetcher} based on {@link SSLSocket}. It is stateless, so a single instance can be
+ * shared by as many (virtual) threads as needed.
+ */
+public class SocketTlsCertificateFetcher implements TlsCertificateFetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(SocketTlsCertificateFetcher.class);
+
+    public static final Duration CONNECT_TIMEOUT_DEFAULT = Duration.ofSeconds(10);
+    public static final Duration HANDSHAKE_TIMEOUT_DEFAULT = Duration.ofSeconds(10);
+
+    /**
+     * Closes the sockets of handshakes running past their deadline. Socket timeouts only bound each read, so a server
+     * dripping the handshake a few bytes at a time would hold a thread for much longer than the handshake timeout.
+     */
+    private static final ScheduledThreadPoolExecutor WATCHDOG = newWatchdog();
+
+    /**
+     * Insecure TLS Socket Factory
+     */
+    private final SSLSocketFactory sslSocketFactory = InsecureX509TrustManager.newSslContext().getSocketFactory();
+
+    private final int connectTimeoutMillis;
+
+    private final int handshakeTimeoutMillis;
+
+    public SocketTlsCertificateFetcher() {
+        this(CONNECT_TIMEOUT_DEFAULT, HANDSHAKE_TIMEOUT_DEFAULT);
+    }
+
+    /**
+     * @param connectTimeout max time waiting for the tcp connection to be established
+     * @param handshakeTimeout max time the tls handshake may take
+     */
+    public SocketTlsCertificateFetcher(Duration connectTimeout, Duration handshakeTimeout) {
+        this.connectTimeoutMillis = Math.toIntExact(connectTimeout.toMillis());
+        this.handshakeTimeoutMillis = Math.toIntExact(handshakeTimeout.toMillis());
+    }
+
+    @Override
+    public X509Certificate[] fetch(String host, int port, String tlsSniServerName) throws IOException {
+        final long startNanos = System.nanoTime();
+        try {
+            return handshake(host, port, tlsSniServerName);
+        } catch (IOException | RuntimeException e) {
+            CoreMetrics.TLS_FAILED_HANDSHAKES.increment();
+            throw e;
+        } finally {
+            CoreMetrics.TLS_HANDSHAKES.recordSince(startNanos);
+        }
+    }
+
+    private X509Certificate[] handshake(String host, int port, String tlsSniServerName) throws IOException {
+        log.atDebug().setMessage("creating socket to server..")
+                .addKeyValue("host", host)
+                .addKeyValue("port", port)
+                .log();
+
+        try (var socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+            socket.setSoTimeout(handshakeTimeoutMillis);
+
+            log.atDebug().setMessage("socket created")
+                    .addKeyValue("host", host)
+                    .addKeyValue("port", port)
+                    .log();
+
+            var expired = new AtomicBoolean();
+            var watchdog = WATCHDOG.schedule(() -> {
+                expired.set(true);
+                closeQuietly(socket);
+            }, handshakeTimeoutMillis, TimeUnit.MILLISECONDS);
+            try (var sslSocket = (SSLSocket) sslSocketFactory.createSocket(socket, host, port, true)) {
+                // sets the Server Name Indication (SNI) TLS Extension
+                var sslParams = new SSLParameters();
+                ServerNames.apply(sslParams, tlsSniServerName);
+                sslSocket.setSSLParameters(sslParams);
+
+                log.atDebug().setMessage("performing tls handshake with the server..")
+                        .addKeyValue("host", host)
+                        .addKeyValue("port", port)
+                        .addKeyValue("sni", tlsSniServerName)
+                        .log();
+                sslSocket.startHandshake();
+
+                var session = sslSocket.getSession();
+                log.atDebug().setMessage("tls handshake success")
+                        .addKeyValue("host", host)
+                        .addKeyValue("port", port)
+                        .addKeyValue("sni", tlsSniServerName)
+                        .addKeyValue("cipher", session.getCipherSuite())
+                        .log();
+
+                return toX509Certificates(session.getPeerCertificates());
+            } catch (IOException e) {
+                if (expired.get()) {
+                    var timeout = new SocketTimeoutException("tls handshake timed out after " + handshakeTimeoutMillis
+                            + "ms");
+                    timeout.initCause(e);
+                    throw timeout;
+                }
+                throw e;
+            } finally {
+                watchdog.cancel(false);
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.atDebug().setMessage("failed to close timed out socket")
+                    .addKeyValue("error", e.toString())
+                    .log();
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor newWatchdog() {
+        var executor = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().name("tls-handshake-watchdog").daemon().factory());
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    public static X509Certificate[] toX509Certificates(Certificate[] certificates) {
+        return Arrays.copyOf(certificates, certificates.length, X509Certificate[].class);
+    }
+}
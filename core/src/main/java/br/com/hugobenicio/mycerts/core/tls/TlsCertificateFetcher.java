@@ -0,0 +1,28 @@
+package br.com.hugobenicio.mycerts.core.tls;
+
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+/**
+ * Connects to a remote TLS server and collects the certificate chain it presents.
+ * Implementations must be safe to share between threads.
+ */
+public interface TlsCertificateFetcher {
+
+    /**
+     * @param host Hostname of the server
+     * @param port Port of the server
+     * @param tlsSniServerName Servername used by the server (TLS SNI)
+     * @return the peer certificate chain, leaf first
+     * @throws IOException if connecting or handshaking fails
+     */
+    X509Certificate[] fetch(String host, int port, String tlsSniServerName) throws IOException;
+
+    /**
+     * Same as {@link #fetch(String, int, String)}, returning an immutable list
+     */
+    default List<X509Certificate> fetchChain(String host, int port, String tlsSniServerName) throws IOException {
+        return List.of(fetch(host, port, tlsSniServerName));
+    }
+}
@@ -0,0 +1,201 @@
+package br.com.hugobenicio.mycerts.core.utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Helpers for parallel primitive arrays: a {@code long} key array and an {@code int} value array where
+ * {@code values[i]} belongs to {@code keys[i]}.
+ */
+public class LongIntArrays {
+
+    /**
+     * Below this size, ranges are sorted by insertion sort
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * Below this size, {@link #parallelSort} ranges are sorted sequentially
+     */
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 14;
+
+    private LongIntArrays() {
+    }
+
+    /**
+     * Stable sort of {@code keys[from, to)} ascending, moving {@code values} along. Ties keep their relative order.
+     */
+    public static void sort(long[] keys, int[] values, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        long[] keysBuffer = new long[to - from];
+        int[] valuesBuffer = new int[to - from];
+        mergeSort(keys, values, from, to, keysBuffer, valuesBuffer, 0);
+    }
+
+    /**
+     * Same as {@link #sort}, but halves bigger than a few thousand entries are sorted in parallel in the common
+     * {@link ForkJoinPool}. Ties keep their relative order.
+     */
+    public static void parallelSort(long[] keys, int[] values, int from, int to) {
+        if (to - from < PARALLEL_SORT_THRESHOLD || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            sort(keys, values, from, to);
+            return;
+        }
+        long[] keysBuffer = new long[to - from];
+        int[] valuesBuffer = new int[to - from];
+        ForkJoinPool.commonPool().invoke(new ParallelMergeSort(keys, values, from, to, keysBuffer, valuesBuffer, from));
+    }
+
+    /**
+     * Merges two sorted runs into {@code keysOut}/{@code valuesOut}. On ties, the entry of the first run goes first.
+     *
+     * @return the number of merged entries
+     */
+    public static int merge(long[] keysA, int[] valuesA, int sizeA,
+                            long[] keysB, int[] valuesB, int sizeB,
+                            long[] keysOut, int[] valuesOut) {
+        int a = 0;
+        int b = 0;
+        int out = 0;
+        while (a < sizeA && b < sizeB) {
+            if (keysB[b] < keysA[a]) {
+                keysOut[out] = keysB[b];
+                valuesOut[out++] = valuesB[b++];
+            } else {
+                keysOut[out] = keysA[a];
+                valuesOut[out++] = valuesA[a++];
+            }
+        }
+        System.arraycopy(keysA, a, keysOut, out, sizeA - a);
+        System.arraycopy(valuesA, a, valuesOut, out, sizeA - a);
+        out += sizeA - a;
+        System.arraycopy(keysB, b, keysOut, out, sizeB - b);
+        System.arraycopy(valuesB, b, valuesOut, out, sizeB - b);
+        return out + sizeB - b;
+    }
+
+    /**
+     * @return the first index in the sorted {@code keys[from, to)} whose key is greater than or equal to the given
+     * key ({@code to} if none)
+     */
+    public static int lowerBound(long[] keys, int from, int to, long key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sorts {@code keys[from, to)}, using the buffers from {@code bufferOffset} on as scratch space
+     */
+    private static void mergeSort(long[] keys, int[] values, int from, int to,
+                                  long[] keysBuffer, int[] valuesBuffer, int bufferOffset) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, values, from, to);
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        mergeSort(keys, values, from, mid, keysBuffer, valuesBuffer, bufferOffset);
+        mergeSort(keys, values, mid, to, keysBuffer, valuesBuffer, bufferOffset);
+        if (keys[mid - 1] <= keys[mid]) {
+            return; // already in order
+        }
+
+        mergeInPlace(keys, values, from, mid, to, keysBuffer, valuesBuffer, bufferOffset);
+    }
+
+    /**
+     * Merges the sorted runs {@code [from, mid)} and {@code [mid, to)} back into place, buffering only the left run
+     * (at {@code bufferOffset})
+     */
+    private static void mergeInPlace(long[] keys, int[] values, int from, int mid, int to,
+                                     long[] keysBuffer, int[] valuesBuffer, int bufferOffset) {
+        int leftSize = mid - from;
+        System.arraycopy(keys, from, keysBuffer, bufferOffset, leftSize);
+        System.arraycopy(values, from, valuesBuffer, bufferOffset, leftSize);
+        int left = bufferOffset;
+        int leftEnd = bufferOffset + leftSize;
+        int right = mid;
+        int out = from;
+        while (left < leftEnd && right < to) {
+            if (keys[right] < keysBuffer[left]) {
+                keys[out] = keys[right];
+                values[out++] = values[right++];
+            } else {
+                keys[out] = keysBuffer[left];
+                values[out++] = valuesBuffer[left++];
+            }
+        }
+        System.arraycopy(keysBuffer, left, keys, out, leftEnd - left);
+        System.arraycopy(valuesBuffer, left, values, out, leftEnd - left);
+    }
+
+    private static void insertionSort(long[] keys, int[] values, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long key = keys[i];
+            int value = values[i];
+            int j = i - 1;
+            while (j >= from && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+    }
+
+    /**
+     * Sorts both halves in parallel, then merges them. Each task owns the buffer slice matching its range, so
+     * sibling tasks never share buffer space.
+     */
+    private static final class ParallelMergeSort extends RecursiveAction {
+
+        private final long[] keys;
+        private final int[] values;
+        private final int from;
+        private final int to;
+        private final long[] keysBuffer;
+        private final int[] valuesBuffer;
+
+        /**
+         * Index of {@code keys} matching the first buffer position
+         */
+        private final int base;
+
+        ParallelMergeSort(long[] keys, int[] values, int from, int to, long[] keysBuffer, int[] valuesBuffer,
+                          int base) {
+            this.keys = keys;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.keysBuffer = keysBuffer;
+            this.valuesBuffer = valuesBuffer;
+            this.base = base;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < PARALLEL_SORT_THRESHOLD) {
+                mergeSort(keys, values, from, to, keysBuffer, valuesBuffer, from - base);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ParallelMergeSort(keys, values, from, mid, keysBuffer, valuesBuffer, base),
+                    new ParallelMergeSort(keys, values, mid, to, keysBuffer, valuesBuffer, base));
+            if (keys[mid - 1] > keys[mid]) {
+                mergeInPlace(keys, values, from, mid, to, keysBuffer, valuesBuffer, from - base);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package br.com.hugobenicio.mycerts.core.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free pool of expensive, non thread-safe objects (e.g. JCA {@code CertificateFactory} and {@code KeyStore}
+ * instances). Unlike a {@link ThreadLocal}, it works with virtual threads: they are created per task, so a thread
+ * local would create a new instance per task too.
+ *
+ * <p>The pool never blocks: {@link #borrow()} creates a new instance when the pool is empty, and {@link #release}
+ * drops instances beyond the pool capacity. Thread-safe.
+ */
+public final class ObjectPool<T> {
+
+    private final Supplier<T> factory;
+
+    private final int capacity;
+
+    private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Approximate number of idle instances (ConcurrentLinkedQueue.size() is O(n))
+     */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * @param factory creates new instances
+     * @param capacity max number of idle instances kept
+     */
+    public ObjectPool(Supplier<T> factory, int capacity) {
+        this.factory = factory;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return an idle instance, or a new one. It must be given back with {@link #release}
+     */
+    public T borrow() {
+        T instance = idle.poll();
+        if (instance == null) {
+            return factory.get();
+        }
+        idleCount.decrementAndGet();
+        return instance;
+    }
+
+    /**
+     * Gives an instance back. It must not be used afterwards
+     */
+    public void release(T instance) {
+        if (idleCount.incrementAndGet() <= capacity) {
+            idle.offer(instance);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.hugobenicio.mycerts.core.utils;
+
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+public class X509Utils {
+
+    private static final int SAN_DNS_NAME = 2;
+    private static final int SAN_IP_ADDRESS = 7;
+
+    private static final String SUBJECT_KEY_IDENTIFIER_OID = "2.5.29.14";
+    private static final String AUTHORITY_KEY_IDENTIFIER_OID = "2.5.29.35";
+
+    private static final int DER_OCTET_STRING = 0x04;
+    private static final int DER_SEQUENCE = 0x30;
+    private static final int DER_CONTEXT_0_PRIMITIVE = 0x80;
+
+    private X509Utils() {
+    }
+
+    /**
+     * @return the DNS names and IP addresses of the Subject Alternative Name extension (empty if there is none or it
+     * can't be parsed)
+     */
+    public static List<String> subjectAlternativeNames(X509Certificate certificate) {
+        final Collection<List<?>> names;
+        try {
+            names = certificate.getSubjectAlternativeNames();
+        } catch (CertificateParsingException e) {
+            return List.of();
+        }
+        if (names == null) {
+            return List.of();
+        }
+
+        List<String> result = new ArrayList<>(names.size());
+        for (List<?> name : names) {
+            int type = (Integer) name.get(0);
+            if ((type == SAN_DNS_NAME || type == SAN_IP_ADDRESS) && name.get(1) instanceof String value) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the key identifier of the Subject Key Identifier extension (null if there is none or it can't be parsed)
+     */
+    public static byte[] subjectKeyIdentifier(X509Certificate certificate) {
+        byte[] extension = certificate.getExtensionValue(SUBJECT_KEY_IDENTIFIER_OID);
+        if (extension == null) {
+            return null;
+        }
+        // OCTET STRING { KeyIdentifier ::= OCTET STRING }
+        int[] value = derContent(extension, 0, DER_OCTET_STRING);
+        int[] keyIdentifier = value != null ? derContent(extension, value[0], DER_OCTET_STRING) : null;
+        return keyIdentifier != null ? copy(extension, keyIdentifier) : null;
+    }
+
+    /**
+     * @return the key identifier of the Authority Key Identifier extension (null if there is none, it has no key
+     * identifier or it can't be parsed)
+     */
+    public static byte[] authorityKeyIdentifier(X509Certificate certificate) {
+        byte[] extension = certificate.getExtensionValue(AUTHORITY_KEY_IDENTIFIER_OID);
+        if (extension == null) {
+            return null;
+        }
+        // OCTET STRING { SEQUENCE { [0] IMPLICIT KeyIdentifier OPTIONAL, ... } }
+        int[] value = derContent(extension, 0, DER_OCTET_STRING);
+        int[] sequence = value != null ? derContent(extension, value[0], DER_SEQUENCE) : null;
+        if (sequence == null || sequence[1] == 0) {
+            return null;
+        }
+        int[] keyIdentifier = derContent(extension, sequence[0], DER_CONTEXT_0_PRIMITIVE);
+        return keyIdentifier != null ? copy(extension, keyIdentifier) : null;
+    }
+
+    private static byte[] copy(byte[] der, int[] content) {
+        return Arrays.copyOfRange(der, content[0], content[0] + content[1]);
+    }
+
+    /**
+     * @return offset and length of the content of the DER element at the given offset, or null if it doesn't have the
+     * expected tag or is malformed
+     */
+    private static int[] derContent(byte[] der, int offset, int expectedTag) {
+        if (offset + 2 > der.length || (der[offset] & 0xFF) != expectedTag) {
+            return null;
+        }
+        int length = der[offset + 1] & 0xFF;
+        int contentOffset = offset + 2;
+        if (length >= 0x80) {
+            int lengthBytes = length & 0x7F;
+            if (lengthBytes == 0 || lengthBytes > 3 || contentOffset + lengthBytes > der.length) {
+                return null;
+            }
+            length = 0;
+            for (int i = 0; i < lengthBytes; i++) {
+                length = (length << 8) | (der[contentOffset++] & 0xFF);
+            }
+        }
+        return contentOffset + length <= der.length ? new int[]{contentOffset, length} : null;
+    }
+}
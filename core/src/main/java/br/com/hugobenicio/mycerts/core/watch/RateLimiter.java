@@ -0,0 +1,44 @@
+package br.com.hugobenicio.mycerts.core.watch;
+
+import java.time.Duration;
+
+/**
+ * Token bucket: permits are refilled at a fixed rate, with bursts of up to one second worth of permits.
+ *
+ * <p>Thread-safe. Waiting happens outside of the lock: each caller reserves its permit (possibly in the future) and
+ * then sleeps until it's due, so waiters are served in arrival order.
+ */
+final class RateLimiter {
+
+    private final double permitsPerNano;
+
+    private final double maxPermits;
+
+    private double permits;
+
+    private long refilledAtNanos;
+
+    RateLimiter(double permitsPerSecond) {
+        this.permitsPerNano = permitsPerSecond / Duration.ofSeconds(1).toNanos();
+        this.maxPermits = Math.max(1, permitsPerSecond);
+        this.permits = maxPermits;
+        this.refilledAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Blocks until a permit is available
+     */
+    void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            permits = Math.min(maxPermits, permits + (now - refilledAtNanos) * permitsPerNano);
+            refilledAtNanos = now;
+            permits -= 1;
+            waitNanos = permits >= 0 ? 0 : (long) Math.ceil(-permits / permitsPerNano);
+        }
+        if (waitNanos > 0) {
+            Thread.sleep(Duration.ofNanos(waitNanos));
+        }
+    }
+}
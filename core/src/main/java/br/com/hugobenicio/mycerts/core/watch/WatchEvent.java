@@ -0,0 +1,33 @@
+package br.com.hugobenicio.mycerts.core.watch;
+
+import br.com.hugobenicio.mycerts.core.scan.ScanResult;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Outcome of a single check of a watched endpoint.
+ *
+ * @param result the fetched chain or the failure
+ * @param firstCheck true if this is the first check of the endpoint
+ * @param changed true if the leaf certificate differs from the one seen in the previous successful check
+ * @param consecutiveFailures number of failed checks in a row, this one included (0 if it succeeded)
+ * @param nextCheck when the endpoint is going to be checked again
+ * @param lag how late the check started, compared to when it was due (e.g. because of the rate limit)
+ */
+public record WatchEvent(ScanResult result, boolean firstCheck, boolean changed, int consecutiveFailures,
+                         Instant nextCheck, Duration lag) {
+
+    public ScanTarget target() {
+        return result.target();
+    }
+
+    /**
+     * @return the leaf certificate or null if the check failed (or the server presented none)
+     */
+    public X509Certificate leaf() {
+        return result.certificates().isEmpty() ? null : result.certificates().getFirst();
+    }
+}
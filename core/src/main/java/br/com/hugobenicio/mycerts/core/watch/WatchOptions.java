@@ -0,0 +1,75 @@
+package br.com.hugobenicio.mycerts.core.watch;
+
+import java.time.Duration;
+
+/**
+ * Watch scheduling tunables.
+ *
+ * @param checkInterval time between two checks of a healthy endpoint (leaf not expiring within the expiry window)
+ * @param minInterval shortest time between two checks of the same endpoint
+ * @param expiryWindow endpoints whose leaf expires within this window are checked more often, the closer to expiry
+ *                     the more often
+ * @param maxBackoff longest time between two checks of an unreachable endpoint
+ * @param checksPerSecond global rate of checks started
+ * @param maxConcurrency max number of checks in flight
+ */
+public record WatchOptions(Duration checkInterval, Duration minInterval, Duration expiryWindow, Duration maxBackoff,
+                           double checksPerSecond, int maxConcurrency) {
+
+    public static final Duration CHECK_INTERVAL_DEFAULT = Duration.ofHours(6);
+    public static final Duration MIN_INTERVAL_DEFAULT = Duration.ofMinutes(5);
+    public static final Duration EXPIRY_WINDOW_DEFAULT = Duration.ofDays(30);
+    public static final Duration MAX_BACKOFF_DEFAULT = Duration.ofHours(6);
+    public static final double CHECKS_PER_SECOND_DEFAULT = 20;
+    public static final int MAX_CONCURRENCY_DEFAULT = 256;
+
+    public WatchOptions {
+        if (minInterval.isNegative() || minInterval.isZero() || checkInterval.compareTo(minInterval) < 0
+                || maxBackoff.compareTo(minInterval) < 0) {
+            throw new IllegalArgumentException(
+                    "watch intervals must be positive and not shorter than the min interval");
+        }
+        if (expiryWindow.isNegative() || expiryWindow.isZero()) {
+            throw new IllegalArgumentException("watch expiry window must be positive");
+        }
+        if (!(checksPerSecond > 0) || maxConcurrency < 1) {
+            throw new IllegalArgumentException("watch rate and concurrency limits must be positive");
+        }
+    }
+
+    public static WatchOptions defaults() {
+        return new WatchOptions(CHECK_INTERVAL_DEFAULT, MIN_INTERVAL_DEFAULT, EXPIRY_WINDOW_DEFAULT,
+                MAX_BACKOFF_DEFAULT, CHECKS_PER_SECOND_DEFAULT, MAX_CONCURRENCY_DEFAULT);
+    }
+
+    /**
+     * Time until the next check of a reachable endpoint: the check interval outside of the expiry window, then
+     * shrinking linearly with the remaining validity down to the min interval. Expired leaves are checked every min
+     * interval, so their replacement is noticed quickly.
+     *
+     * @param remainingValidity time until the leaf expires (negative if already expired)
+     */
+    public Duration intervalFor(Duration remainingValidity) {
+        if (remainingValidity.compareTo(expiryWindow) >= 0) {
+            return checkInterval;
+        }
+        if (remainingValidity.isNegative()) {
+            return minInterval;
+        }
+        double fraction = (double) remainingValidity.toMillis() / expiryWindow.toMillis();
+        Duration interval = Duration.ofMillis((long) (checkInterval.toMillis() * fraction));
+        return interval.compareTo(minInterval) < 0 ? minInterval : interval;
+    }
+
+    /**
+     * Time until the next check of an unreachable endpoint: the min interval, doubled after each consecutive failure up
+     * to the max backoff.
+     *
+     * @param consecutiveFailures number of failed checks in a row (at least 1)
+     */
+    public Duration backoffFor(int consecutiveFailures) {
+        int doublings = Math.min(Math.max(consecutiveFailures - 1, 0), 30);
+        long millis = minInterval.toMillis() << doublings;
+        return millis <= 0 || millis >= maxBackoff.toMillis() ? maxBackoff : Duration.ofMillis(millis);
+    }
+}
@@ -0,0 +1,331 @@
+package br.com.hugobenicio.mycerts.core.watch;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.scan.ScanResult;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+import br.com.hugobenicio.mycerts.core.tls.TlsCertificateFetcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps checking the certificate chains of remote endpoints, each one on its own schedule. Targets wait in a priority
+ * queue ordered by their next check deadline and a single dispatcher thread starts the due ones, each on its own
+ * virtual thread, bounded by a global rate and concurrency limit. After each check the target is put back in the queue:
+ * <ul>
+ *     <li>healthy endpoints are checked every {@link WatchOptions#checkInterval()}</li>
+ *     <li>endpoints whose leaf is close to expiry are checked more often (see {@link WatchOptions#intervalFor})</li>
+ *     <li>unreachable endpoints back off exponentially (see {@link WatchOptions#backoffFor})</li>
+ * </ul>
+ * Intervals are jittered, so targets added together drift apart instead of being checked in bursts.
+ *
+ * <p>Thread-safe: targets may be added and removed while running.
+ */
+public class Watcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(Watcher.class);
+
+    /**
+     * Healthy intervals are randomly stretched or shrunk by up to this fraction
+     */
+    private static final double INTERVAL_JITTER = 0.1;
+
+    /**
+     * A watched target and its state. Only the thread checking it reads and writes its state: the queue lock hands it
+     * over between checks.
+     */
+    private static final class Check {
+
+        private final ScanTarget target;
+
+        /**
+         * Insertion order, breaking deadline ties
+         */
+        private final long sequence;
+
+        private long deadlineNanos;
+
+        private boolean checked;
+
+        private int consecutiveFailures;
+
+        private Fingerprint leaf;
+
+        /**
+         * Set when the target is removed while being checked, so it isn't put back in the queue
+         */
+        private boolean removed;
+
+        private Check(ScanTarget target, long sequence, long deadlineNanos) {
+            this.target = target;
+            this.sequence = sequence;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private final TlsCertificateFetcher fetcher;
+
+    private final WatchOptions options;
+
+    private final RateLimiter rateLimiter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signaled whenever the queue head changes or the watcher is closed
+     */
+    private final Condition queueChanged = lock.newCondition();
+
+    private final PriorityQueue<Check> queue = new PriorityQueue<>(
+            Comparator.<Check>comparingLong(check -> check.deadlineNanos).thenComparingLong(check -> check.sequence));
+
+    /**
+     * Every watched target, queued or being checked
+     */
+    private final Map<ScanTarget, Check> checks = new HashMap<>();
+
+    private long sequence;
+
+    private volatile boolean closed;
+
+    public Watcher(TlsCertificateFetcher fetcher, WatchOptions options) {
+        this.fetcher = fetcher;
+        this.options = options;
+        this.rateLimiter = new RateLimiter(options.checksPerSecond());
+    }
+
+    /**
+     * Starts watching a target. Its first check is due right away.
+     *
+     * @return false if the target was already being watched
+     */
+    public boolean add(ScanTarget target) {
+        lock.lock();
+        try {
+            if (checks.containsKey(target)) {
+                return false;
+            }
+            var check = new Check(target, sequence++, System.nanoTime());
+            checks.put(target, check);
+            enqueue(check);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops watching a target. A check already in flight still completes and delivers its event.
+     *
+     * @return false if the target was not being watched
+     */
+    public boolean remove(ScanTarget target) {
+        lock.lock();
+        try {
+            Check check = checks.remove(target);
+            if (check == null) {
+                return false;
+            }
+            check.removed = true;
+            if (queue.peek() == check) {
+                queue.poll();
+                queueChanged.signal();
+            } else {
+                queue.remove(check);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return checks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks the targets as they become due until {@link #close()} is called, streaming each check outcome to the
+     * consumer. Consumer calls are serialized, so it doesn't need to be thread-safe. Checks in flight are awaited
+     * before returning.
+     *
+     * @throws InterruptedException if interrupted while waiting for the next due target
+     */
+    public void run(Consumer<WatchEvent> eventConsumer) throws InterruptedException {
+        log.info("watching {} target(s). checks_per_second={} max_concurrency={}",
+                size(), options.checksPerSecond(), options.maxConcurrency());
+
+        final var permits = new Semaphore(options.maxConcurrency());
+        final var consumerLock = new ReentrantLock();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Check check = take(); check != null; check = take()) {
+                rateLimiter.acquire();
+                // acquiring the permit before forking keeps the number of parked threads bounded
+                permits.acquire();
+                final Check due = check;
+                executor.execute(() -> {
+                    try {
+                        WatchEvent event = check(due);
+                        consumerLock.lock();
+                        try {
+                            eventConsumer.accept(event);
+                        } finally {
+                            consumerLock.unlock();
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        log.info("watch stopped");
+    }
+
+    /**
+     * Makes {@link #run(Consumer)} return (after the checks in flight complete)
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            queueChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the queue head to become due and removes it
+     *
+     * @return the due check or null if the watcher was closed
+     */
+    private Check take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!closed) {
+                Check head = queue.peek();
+                if (head == null) {
+                    queueChanged.await();
+                    continue;
+                }
+                long delayNanos = head.deadlineNanos - System.nanoTime();
+                if (delayNanos <= 0) {
+                    return queue.poll();
+                }
+                queueChanged.awaitNanos(delayNanos);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private WatchEvent check(Check check) {
+        final long startNanos = System.nanoTime();
+        final Duration lag = Duration.ofNanos(Math.max(0, startNanos - check.deadlineNanos));
+
+        ScanResult result;
+        try {
+            var certificates = fetcher.fetch(check.target.host(), check.target.port(), check.target.sni());
+            result = ScanResult.success(check.target, List.of(certificates),
+                    Duration.ofNanos(System.nanoTime() - startNanos));
+        } catch (Exception e) {
+            log.atDebug().setMessage("watch check failed")
+                    .addKeyValue("target", check.target)
+                    .addKeyValue("error", e.toString())
+                    .log();
+            result = ScanResult.failure(check.target, e, Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+
+        final Instant now = Instant.now();
+        final boolean firstCheck = !check.checked;
+        check.checked = true;
+
+        boolean changed = false;
+        Duration interval = null;
+        try {
+            if (result.isSuccess()) {
+                check.consecutiveFailures = 0;
+                X509Certificate leaf = result.certificates().isEmpty() ? null : result.certificates().getFirst();
+                Fingerprint fingerprint = leaf != null ? Fingerprint.of(leaf) : null;
+                changed = !firstCheck && !Objects.equals(fingerprint, check.leaf);
+                check.leaf = fingerprint;
+
+                Duration base = leaf != null
+                        ? options.intervalFor(Duration.between(now, leaf.getNotAfter().toInstant()))
+                        : options.checkInterval();
+                interval = jitter(base);
+            } else {
+                check.consecutiveFailures++;
+                interval = backoff(check.consecutiveFailures);
+            }
+        } finally {
+            // whatever failed above, the target must stay scheduled (it is still registered, so add() refuses it)
+            if (interval == null) {
+                interval = backoff(Math.max(1, check.consecutiveFailures));
+            }
+            reschedule(check, interval);
+        }
+        return new WatchEvent(result, firstCheck, changed, check.consecutiveFailures, now.plus(interval), lag);
+    }
+
+    /**
+     * "Equal jitter": half of the backoff is kept, the other half is random
+     */
+    private Duration backoff(int consecutiveFailures) {
+        Duration backoff = options.backoffFor(consecutiveFailures);
+        long halfMillis = Math.max(1, backoff.toMillis() / 2);
+        return Duration.ofMillis(halfMillis + ThreadLocalRandom.current().nextLong(halfMillis + 1));
+    }
+
+    private void reschedule(Check check, Duration interval) {
+        lock.lock();
+        try {
+            if (check.removed || closed) {
+                return;
+            }
+            check.deadlineNanos = System.nanoTime() + interval.toNanos();
+            enqueue(check);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called holding the lock
+     */
+    private void enqueue(Check check) {
+        queue.add(check);
+        if (queue.peek() == check) {
+            queueChanged.signal();
+        }
+    }
+
+    private static Duration jitter(Duration interval) {
+        long millis = interval.toMillis();
+        long spread = (long) (millis * INTERVAL_JITTER);
+        return spread > 0 ? Duration.ofMillis(millis + ThreadLocalRandom.current().nextLong(-spread, spread + 1))
+                : interval;
+    }
+}
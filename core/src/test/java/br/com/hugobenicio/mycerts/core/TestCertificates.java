@@ -0,0 +1,44 @@
+package br.com.hugobenicio.mycerts.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+/**
+ * The certificates under {@code src/test/resources/certs}: a self-signed CA and two leaves it issued, both with the
+ * subject {@code CN=www.example.com,O=mycerts}.
+ */
+public final class TestCertificates {
+
+    public static final String CA = "ca.pem";
+    public static final String LEAF_A = "leaf-a.pem";
+    public static final String LEAF_B = "leaf-b.pem";
+
+    private TestCertificates() {}
+
+    public static String pem(String name) {
+        try (InputStream in = TestCertificates.class.getResourceAsStream("/certs/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("no such test certificate: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static X509Certificate certificate(String name) {
+        try {
+            var factory = CertificateFactory.getInstance("X.509");
+            return (X509Certificate) factory.generateCertificate(
+                    new ByteArrayInputStream(pem(name).getBytes(StandardCharsets.US_ASCII)));
+        } catch (CertificateException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package br.com.hugobenicio.mycerts.core.export;
+
+import br.com.hugobenicio.mycerts.core.TestCertificates;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The key stores are written by hand (see {@link JksExportFile} and {@link Pkcs12ExportFile}), so they are checked by
+ * loading them back with the JCA
+ */
+class CertificateExporterTest {
+
+    private static final String PASSWORD = "changeit";
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @EnumSource(value = ExportFormat.class, names = {"JKS", "PKCS12"})
+    void writesTrustedCertificateEntries(ExportFormat format) throws Exception {
+        List<X509Certificate> certificates = List.of(TestCertificates.certificate(TestCertificates.CA),
+                TestCertificates.certificate(TestCertificates.LEAF_A),
+                TestCertificates.certificate(TestCertificates.LEAF_B));
+        Path target = dir.resolve("out." + format.extension());
+
+        ExportSummary summary = export(format, certificates, target);
+
+        assertEquals(3, summary.certificates());
+        assertEquals(0, summary.duplicates());
+        KeyStore keyStore = load(format, target, PASSWORD);
+        assertEquals(3, keyStore.size());
+        Set<Certificate> loaded = new HashSet<>();
+        for (String alias : Collections.list(keyStore.aliases())) {
+            assertTrue(keyStore.isCertificateEntry(alias), alias);
+            loaded.add(keyStore.getCertificate(alias));
+        }
+        assertEquals(Set.copyOf(certificates), loaded);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ExportFormat.class, names = {"JKS", "PKCS12"})
+    void rejectsWrongPassword(ExportFormat format) throws Exception {
+        Path target = dir.resolve("out." + format.extension());
+        export(format, List.of(TestCertificates.certificate(TestCertificates.CA)), target);
+
+        assertThrows(IOException.class, () -> load(format, target, "wrong password"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ExportFormat.class, names = {"JKS", "PKCS12"})
+    void writesEmptyKeyStore(ExportFormat format) throws Exception {
+        Path target = dir.resolve("out." + format.extension());
+
+        ExportSummary summary = export(format, List.of(), target);
+
+        assertEquals(0, summary.certificates());
+        assertEquals(0, load(format, target, PASSWORD).size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ExportFormat.class, names = {"JKS", "PKCS12"})
+    void writesDuplicatesOnce(ExportFormat format) throws Exception {
+        X509Certificate ca = TestCertificates.certificate(TestCertificates.CA);
+        X509Certificate leaf = TestCertificates.certificate(TestCertificates.LEAF_A);
+        Path target = dir.resolve("out." + format.extension());
+
+        ExportSummary summary = export(format, List.of(ca, leaf, ca), target);
+
+        assertEquals(2, summary.certificates());
+        assertEquals(1, summary.duplicates());
+        assertEquals(2, load(format, target, PASSWORD).size());
+    }
+
+    @Test
+    void givesSameSubjectCertificatesDistinctAliases() throws Exception {
+        Path target = dir.resolve("out.p12");
+        export(ExportFormat.PKCS12, List.of(TestCertificates.certificate(TestCertificates.LEAF_A),
+                TestCertificates.certificate(TestCertificates.LEAF_B)), target);
+
+        List<String> aliases = Collections.list(load(ExportFormat.PKCS12, target, PASSWORD).aliases());
+        assertEquals(2, aliases.size());
+        assertNotEquals(aliases.get(0), aliases.get(1));
+        for (String alias : aliases) {
+            assertTrue(alias.startsWith("www.example.com-"), alias);
+        }
+    }
+
+    @Test
+    void fallsBackToFullFingerprintOnAliasCollision() {
+        var aliases = new Aliases();
+        // same fingerprint prefix, different fingerprints
+        var first = new Fingerprint(0x0123456789abcdefL, 1, 2, 3);
+        var second = new Fingerprint(0x0123456789abcdefL, 4, 5, 6);
+
+        String firstAlias = aliases.aliasOf(first, "CN=www.example.com,O=mycerts");
+        String secondAlias = aliases.aliasOf(second, "CN=www.example.com,O=mycerts");
+
+        assertEquals("www.example.com-0123456789abcdef", firstAlias);
+        assertEquals("www.example.com-" + second.toHex(), secondAlias);
+    }
+
+    private static ExportSummary export(ExportFormat format, List<X509Certificate> certificates, Path target)
+            throws IOException {
+        List<ExportEntry> entries = certificates.stream().map(ExportEntry::of).toList();
+        return new CertificateExporter(ExportOptions.of(format, PASSWORD)).export(entries, target);
+    }
+
+    private static KeyStore load(ExportFormat format, Path path, String password)
+            throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(format == ExportFormat.JKS ? "JKS" : "PKCS12");
+        try (InputStream in = Files.newInputStream(path)) {
+            keyStore.load(in, password.toCharArray());
+        }
+        return keyStore;
+    }
+}
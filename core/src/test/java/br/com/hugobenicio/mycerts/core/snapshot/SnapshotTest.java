@@ -0,0 +1,134 @@
+package br.com.hugobenicio.mycerts.core.snapshot;
+
+import br.com.hugobenicio.mycerts.core.TestCertificates;
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.report.ReportEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsEmptySnapshot() throws IOException {
+        Path path = dir.resolve("empty.snapshot");
+
+        assertEquals(0, SnapshotWriter.write(path, List.of()));
+
+        Snapshot snapshot = Snapshot.open(path);
+        assertEquals(0, snapshot.size());
+        assertTrue(snapshot.indexOf(new Fingerprint(1, 2, 3, 4)) < 0);
+        assertFalse(Files.exists(dir.resolve("empty.snapshot.tmp")));
+    }
+
+    @Test
+    void roundTripsCertificatesInFingerprintOrder() throws Exception {
+        List<ReportEntry> entries = entries();
+        Path path = dir.resolve("inventory.snapshot");
+
+        assertEquals(3, SnapshotWriter.write(path, entries));
+
+        Snapshot snapshot = Snapshot.open(path);
+        assertEquals(3, snapshot.size());
+        List<ReportEntry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(ReportEntry::fingerprint));
+        for (int id = 0; id < sorted.size(); id++) {
+            ReportEntry expected = sorted.get(id);
+            X509Certificate certificate = expected.certificate();
+            assertEquals(expected.fingerprint(), snapshot.fingerprint(id));
+            assertEquals(id, snapshot.indexOf(expected.fingerprint()));
+            assertArrayEquals(certificate.getEncoded(), snapshot.der(id));
+            assertEquals(certificate, snapshot.certificate(id));
+            assertEquals(certificate.getSubjectX500Principal().getName(), snapshot.subject(id));
+            assertEquals(certificate.getIssuerX500Principal().getName(), snapshot.issuer(id));
+            assertEquals(certificate.getNotAfter().getTime() / 1000, snapshot.notAfterEpochSecond(id));
+            assertEquals(expected.observations(), snapshot.observations(id));
+            assertEquals(expected.sources(), snapshot.sources(id));
+            for (int index = 0; index < expected.sources().size(); index++) {
+                assertEquals(expected.sources().get(index), snapshot.source(id, index));
+            }
+        }
+        assertTrue(snapshot.fingerprint(0).compareTo(snapshot.fingerprint(1)) < 0);
+        assertTrue(snapshot.fingerprint(1).compareTo(snapshot.fingerprint(2)) < 0);
+    }
+
+    @Test
+    void writesDuplicatedFingerprintsOnce() throws IOException {
+        X509Certificate ca = TestCertificates.certificate(TestCertificates.CA);
+        Path path = dir.resolve("duplicates.snapshot");
+
+        assertEquals(1, SnapshotWriter.write(path, List.of(ReportEntry.of(ca), ReportEntry.of(ca))));
+        assertEquals(1, Snapshot.open(path).size());
+    }
+
+    @Test
+    void rejectsTruncatedHeader() throws IOException {
+        Path path = dir.resolve("truncated.snapshot");
+        SnapshotWriter.write(path, entries());
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(SnapshotFormat.headerLength() - 1);
+        }
+
+        assertThrows(IOException.class, () -> Snapshot.open(path));
+    }
+
+    @Test
+    void rejectsBadMagic() throws IOException {
+        Path path = dir.resolve("magic.snapshot");
+        SnapshotWriter.write(path, entries());
+        overwriteInt(path, 0, 0xdeadbeef);
+
+        assertThrows(IOException.class, () -> Snapshot.open(path));
+    }
+
+    @Test
+    void rejectsSectionPastEndOfFile() throws IOException {
+        Path path = dir.resolve("section.snapshot");
+        SnapshotWriter.write(path, entries());
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            // cuts into the DER section, which is last (cutting less may only drop the trailing padding)
+            channel.truncate(channel.size() / 2);
+        }
+
+        assertThrows(IOException.class, () -> Snapshot.open(path));
+    }
+
+    private static List<ReportEntry> entries() {
+        X509Certificate ca = TestCertificates.certificate(TestCertificates.CA);
+        X509Certificate leafA = TestCertificates.certificate(TestCertificates.LEAF_A);
+        X509Certificate leafB = TestCertificates.certificate(TestCertificates.LEAF_B);
+        return List.of(
+                new ReportEntry(ca, Fingerprint.of(ca), 2, List.of(
+                        CertificateSource.endpoint("a.example.com", 443, "a.example.com"),
+                        CertificateSource.endpoint("b.example.com", 443, null))),
+                new ReportEntry(leafA, Fingerprint.of(leafA), 1, List.of(
+                        CertificateSource.file(Path.of("/etc/ssl/truststore.jks"), "leaf-a"))),
+                new ReportEntry(leafB, Fingerprint.of(leafB), 1, List.of()));
+    }
+
+    private static void overwriteInt(Path path, long position, int value) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, value), position);
+        }
+    }
+}
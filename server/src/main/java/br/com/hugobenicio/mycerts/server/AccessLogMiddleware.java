@@ -4,21 +4,45 @@ import io.javalin.http.Context;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One log line per (logged) request. The "access" logger goes through an async appender (see logback.xml), so
+ * request threads don't wait on the console.
+ */
 public class AccessLogMiddleware {
 
     private static final Logger logger = LoggerFactory.getLogger("access");
 
-    public static void beforeAllHandler(Context ctx) {
-        logger.atInfo().setMessage("pre-request.")
-                .addKeyValue("rid", RequestStateMiddleware.getRid(ctx))
-                .addKeyValue("path", ctx.req().getPathInfo())
-                .log();
+    private final AccessLogMode mode;
+
+    private final int sampleRate;
+
+    /**
+     * @param sampleRate in {@link AccessLogMode#sampled} mode, one in this many requests is logged
+     */
+    public AccessLogMiddleware(AccessLogMode mode, int sampleRate) {
+        this.mode = mode;
+        this.sampleRate = Math.max(1, sampleRate);
     }
 
-    public static void afterAllHandler(Context ctx) {
-        logger.atInfo().setMessage("pos-request.")
+    public void afterAllHandler(Context ctx) {
+        int status = ctx.res().getStatus();
+        boolean log = switch (mode) {
+            case all -> true;
+            case sampled -> status >= 500 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+            case off -> false;
+        };
+        if (!log) {
+            return;
+        }
+        long elapsedMicros = (System.nanoTime() - RequestStateMiddleware.getStartNanos(ctx)) / 1000;
+        logger.atInfo().setMessage("request.")
                 .addKeyValue("rid", RequestStateMiddleware.getRid(ctx))
-                .addKeyValue("status", ctx.res().getStatus())
+                .addKeyValue("method", ctx.method())
+                .addKeyValue("path", ctx.req().getPathInfo())
+                .addKeyValue("status", status)
+                .addKeyValue("elapsed_us", elapsedMicros)
                 .log();
     }
 }
@@ -0,0 +1,16 @@
+package br.com.hugobenicio.mycerts.server;
+
+/**
+ * How many requests get an access log line
+ */
+public enum AccessLogMode {
+    /**
+     * Every request
+     */
+    all,
+    /**
+     * One in {@link ServerConfig#accessLogSampleRate()} requests, plus every server error
+     */
+    sampled,
+    off
+}
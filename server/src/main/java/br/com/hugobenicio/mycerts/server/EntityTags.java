@@ -0,0 +1,53 @@
+package br.com.hugobenicio.mycerts.server;
+
+/**
+ * Conditional request helpers for entity tags (RFC 9110, section 13.1.2).
+ */
+public final class EntityTags {
+
+    private EntityTags() {}
+
+    /**
+     * Tells whether an If-None-Match header matches the current entity tag of a resource, in which case a GET gets a
+     * 304. The header is {@code *} or a comma separated list of entity tags, compared weakly: {@code W/"x"} matches
+     * {@code "x"}. Entity tags may contain commas, so the list is scanned quote by quote instead of being split.
+     *
+     * @param ifNoneMatch the header value, or null if the request has none
+     * @param etag the current entity tag (quoted, strong or weak)
+     */
+    public static boolean notModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        if (ifNoneMatch.strip().equals("*")) {
+            return true;
+        }
+        int etagStart = etag.startsWith("W/") ? 2 : 0;
+        int etagLength = etag.length() - etagStart;
+        int i = 0;
+        int length = ifNoneMatch.length();
+        while (i < length) {
+            char c = ifNoneMatch.charAt(i);
+            if (c == ' ' || c == '\t' || c == ',') {
+                i++;
+                continue;
+            }
+            if (c == 'W' && ifNoneMatch.startsWith("W/", i)) {
+                i += 2;
+            }
+            if (i >= length || ifNoneMatch.charAt(i) != '"') {
+                return false; // malformed list, treated as not matching
+            }
+            int end = ifNoneMatch.indexOf('"', i + 1);
+            if (end < 0) {
+                return false;
+            }
+            int tagLength = end + 1 - i;
+            if (tagLength == etagLength && ifNoneMatch.regionMatches(i, etag, etagStart, etagLength)) {
+                return true;
+            }
+            i = end + 1;
+        }
+        return false;
+    }
+}
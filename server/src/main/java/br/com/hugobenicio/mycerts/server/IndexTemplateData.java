@@ -1,11 +1,19 @@
 package br.com.hugobenicio.mycerts.server;
 
+import java.util.Objects;
+
+/**
+ * Model of the index.html template. It has value semantics, so its rendered output can be cached
+ */
 public class IndexTemplateData {
 
     private final String greeting;
 
-    public IndexTemplateData(String greeting) {
+    private final boolean production;
+
+    public IndexTemplateData(String greeting, boolean production) {
         this.greeting = greeting;
+        this.production = production;
     }
 
     public String getGreeting() {
@@ -13,8 +21,18 @@ public class IndexTemplateData {
     }
 
     public boolean isProduction() {
-        //TODO make config a dependency and check for it
-        return false;
+        return this.production;
     }
-}
 
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IndexTemplateData other
+                && production == other.production
+                && Objects.equals(greeting, other.greeting);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(greeting, production);
+    }
+}
@@ -4,29 +4,45 @@ import com.github.jknack.handlebars.Handlebars;
 import com.github.jknack.handlebars.Template;
 import com.github.jknack.handlebars.io.ClassPathTemplateLoader;
 import com.github.jknack.handlebars.io.TemplateLoader;
+import br.com.hugobenicio.mycerts.core.scan.ScanOptions;
+import br.com.hugobenicio.mycerts.core.snapshot.Snapshot;
+import br.com.hugobenicio.mycerts.server.api.CertificateApi;
+import br.com.hugobenicio.mycerts.server.api.JobApi;
+import br.com.hugobenicio.mycerts.server.api.ResponseCache;
+import br.com.hugobenicio.mycerts.server.api.SnapshotApi;
+import br.com.hugobenicio.mycerts.server.inventory.InventoryService;
+import br.com.hugobenicio.mycerts.server.jobs.JobManager;
+import br.com.hugobenicio.mycerts.server.metrics.MetricsApi;
+import br.com.hugobenicio.mycerts.server.metrics.RequestMetrics;
+import br.com.hugobenicio.mycerts.server.assets.StaticAssets;
+import br.com.hugobenicio.mycerts.server.render.TemplateRenderer;
 import io.javalin.Javalin;
-import io.javalin.http.ContentType;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.util.Optional;
-
-import static java.lang.String.format;
+import java.io.UncheckedIOException;
 
 public class Main {
 
-    private static final String TEXT_HTML_WITH_CHARSET =
-            format("%s; charset=%s", ContentType.HTML, Charset.defaultCharset().name());
+    /**
+     * Max number of api responses kept serialized
+     */
+    private static final int RESPONSE_CACHE_SIZE = 4096;
+
+    /**
+     * Max number of distinct pages kept rendered
+     */
+    private static final int PAGE_CACHE_SIZE = 64;
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         // Configurations
-        String configServerHost = Optional.ofNullable(System.getenv("MYCERTS_SERVER_HOST"))
-                .map(String::trim)
-                .orElse("localhost");
-        int configServerPort = Optional.ofNullable(System.getenv("MYCERTS_SERVER_PORT"))
-                .map(String::trim)
-                .map(Integer::parseInt)
-                .orElse(8080);
+        ServerConfig config = ServerConfig.fromEnv();
+
+        // Services
+        InventoryService inventoryService = InventoryService.open(config.inventoryDir());
+        var certificateApi = new CertificateApi(inventoryService, new ResponseCache(RESPONSE_CACHE_SIZE));
+        var jobManager = new JobManager(inventoryService, config.jobWorkers(), config.jobQueueCapacity(),
+                ScanOptions.defaults(), config.uploadLimits());
+        Snapshot snapshot = config.snapshotFile() != null ? Snapshot.open(config.snapshotFile()) : null;
 
         // Template Engine
         Handlebars handlebars = handlebarsCreate();
@@ -34,48 +50,68 @@ public class Main {
         // Templates Compilation
         String templateFilePath = "";
         final Template indexTemplate;
+        final Template jobTemplate;
         try {
             templateFilePath = "index.html";
             indexTemplate = handlebars.compile(templateFilePath);
+            templateFilePath = "job.html";
+            jobTemplate = handlebars.compile(templateFilePath);
         } catch (IOException e) {
             var msg = String.format("failed to compile handlebars template. path=\"%s\"", templateFilePath);
             throw new RuntimeException(msg, e);
         }
 
         // Javalin Configuration
-        Javalin app = Javalin.create(config -> {
-            config.useVirtualThreads = true;
+        Javalin app = Javalin.create(javalinConfig -> {
+            javalinConfig.useVirtualThreads = true;
 
             // Wait 5 seconds for existing requests to finish
-            config.jetty.modifyServer(server -> server.setStopTimeout(5_000));
+            javalinConfig.jetty.modifyServer(server -> server.setStopTimeout(5_000));
 
-            // Webjar's resources will be served at /webjars (e.g. /webjars/bootstrap/...)
-            // @see https://www.webjars.org/
-            config.staticFiles.enableWebjars();
+            // Oversized key store uploads are rejected while being parsed
+            JobApi.configureMultipart(javalinConfig.jetty.multipartConfig, config.maxUploadBytes());
 
-            config.staticFiles.add(staticFileConfig -> {
-                staticFileConfig.hostedPath = "/";
-                staticFileConfig.directory = "/public";
-                staticFileConfig.precompress = false;
-            });
+            // Static files (/assets, /favicon.ico and webjars at /webjars, e.g. /webjars/bootstrap/...) are served by
+            // StaticAssets, with their build time gzip variants
+            // @see https://www.webjars.org/
         });
 
         // Before Handlers
+        var requestMetrics = new RequestMetrics();
+        var accessLog = new AccessLogMiddleware(config.accessLog(), config.accessLogSampleRate());
         app.before(RequestStateMiddleware::beforeAllHandler);
-        app.before(AccessLogMiddleware::beforeAllHandler);
+        app.before(requestMetrics::beforeAllHandler);
 
         // Endpoints Routing
-        app.get("/", ctx -> {
-            var data = new IndexTemplateData("World");
-            String html = indexTemplate.apply(data);
-            ctx.header("Content-type", TEXT_HTML_WITH_CHARSET).result(html);
-        });
+        var indexRenderer = new TemplateRenderer(indexTemplate, PAGE_CACHE_SIZE);
+        app.get("/", ctx -> indexRenderer.render(ctx, new IndexTemplateData("World", config.production())));
+        new StaticAssets(config.production()).register(app);
+        certificateApi.register(app);
+        new JobApi(jobManager, new TemplateRenderer(jobTemplate, 0), config.maxUploadBytes()).register(app);
+        if (snapshot != null) {
+            new SnapshotApi(snapshot).register(app);
+        }
+        new MetricsApi(requestMetrics, jobManager, inventoryService).register(app);
 
         // After Handlers
-        app.after(AccessLogMiddleware::afterAllHandler);
+        app.after(requestMetrics::afterAllHandler);
+        app.after(accessLog::afterAllHandler);
 
         // Serving
-        app.start(configServerHost, configServerPort);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            app.stop();
+            try {
+                jobManager.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                inventoryService.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        app.start(config.host(), config.port());
     }
 
     /**
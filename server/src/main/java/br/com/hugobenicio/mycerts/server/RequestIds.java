@@ -0,0 +1,22 @@
+package br.com.hugobenicio.mycerts.server;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap request ids: a random per-process prefix plus a counter, like {@code k3x9q2-1a7}. Unique within a process
+ * and very unlikely to repeat across restarts, which is all log correlation needs, without the cost of
+ * {@code UUID.randomUUID()} (a SecureRandom call per request).
+ */
+public final class RequestIds {
+
+    private static final String PREFIX = Long.toString(ThreadLocalRandom.current().nextLong(1L << 40, 1L << 41), 36);
+
+    private static final AtomicLong counter = new AtomicLong();
+
+    private RequestIds() {}
+
+    public static String next() {
+        return PREFIX + "-" + Long.toString(counter.incrementAndGet(), 36);
+    }
+}
@@ -2,18 +2,25 @@ package br.com.hugobenicio.mycerts.server;
 
 import io.javalin.http.Context;
 
-import java.util.UUID;
-
 public class RequestStateMiddleware {
 
     public static final String ATTR_RID = "rid";
 
+    public static final String ATTR_START_NANOS = "startNanos";
+
     public static void beforeAllHandler(Context ctx) {
-        var rid = UUID.randomUUID();
-        ctx.req().setAttribute(ATTR_RID, rid);
+        ctx.req().setAttribute(ATTR_START_NANOS, System.nanoTime());
+        ctx.req().setAttribute(ATTR_RID, RequestIds.next());
+    }
+
+    public static String getRid(Context ctx) {
+        return (String) ctx.req().getAttribute(ATTR_RID);
     }
 
-    public static UUID getRid(Context ctx) {
-        return (UUID) ctx.req().getAttribute(ATTR_RID);
+    /**
+     * @return when the request started, as a {@link System#nanoTime()}
+     */
+    public static long getStartNanos(Context ctx) {
+        return (Long) ctx.req().getAttribute(ATTR_START_NANOS);
     }
 }
@@ -0,0 +1,77 @@
+package br.com.hugobenicio.mycerts.server;
+
+import br.com.hugobenicio.mycerts.core.ingest.InputLimits;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Server configuration, read from environment variables
+ *
+ * @param host MYCERTS_SERVER_HOST (default localhost)
+ * @param port MYCERTS_SERVER_PORT (default 8080)
+ * @param production MYCERTS_SERVER_PRODUCTION (default false)
+ * @param inventoryDir MYCERTS_INVENTORY_DIR, the inventory served by the api (null keeps it in memory only)
+ * @param snapshotFile MYCERTS_SNAPSHOT, a snapshot file served read only at /api/snapshot (null for none)
+ * @param jobWorkers MYCERTS_JOB_WORKERS (default 4), max number of scan jobs running at a time
+ * @param jobQueueCapacity MYCERTS_JOB_QUEUE_CAPACITY (default 64), max number of scan jobs waiting for a worker
+ * @param accessLog MYCERTS_ACCESS_LOG (default all), which requests get an access log line
+ * @param accessLogSampleRate MYCERTS_ACCESS_LOG_SAMPLE_RATE (default 100): in sampled mode, one in this many requests
+ *                            is logged
+ * @param maxUploadBytes MYCERTS_MAX_UPLOAD_BYTES (default 1 MiB), max size of an uploaded key store or pem bundle
+ * @param maxUploadCertificates MYCERTS_MAX_UPLOAD_CERTIFICATES (default 10000), max number of certificates in an
+ *                              upload
+ */
+public record ServerConfig(String host, int port, boolean production, Path inventoryDir, Path snapshotFile,
+                           int jobWorkers, int jobQueueCapacity, AccessLogMode accessLog, int accessLogSampleRate,
+                           long maxUploadBytes, int maxUploadCertificates) {
+
+    public static ServerConfig fromEnv() {
+        String host = env("MYCERTS_SERVER_HOST").orElse("localhost");
+        int port = env("MYCERTS_SERVER_PORT")
+                .map(Integer::parseInt)
+                .orElse(8080);
+        boolean production = env("MYCERTS_SERVER_PRODUCTION")
+                .map(Boolean::parseBoolean)
+                .orElse(false);
+        Path inventoryDir = env("MYCERTS_INVENTORY_DIR")
+                .map(Path::of)
+                .orElse(null);
+        Path snapshotFile = env("MYCERTS_SNAPSHOT")
+                .map(Path::of)
+                .orElse(null);
+        int jobWorkers = env("MYCERTS_JOB_WORKERS")
+                .map(Integer::parseInt)
+                .orElse(4);
+        int jobQueueCapacity = env("MYCERTS_JOB_QUEUE_CAPACITY")
+                .map(Integer::parseInt)
+                .orElse(64);
+        AccessLogMode accessLog = env("MYCERTS_ACCESS_LOG")
+                .map(AccessLogMode::valueOf)
+                .orElse(AccessLogMode.all);
+        int accessLogSampleRate = env("MYCERTS_ACCESS_LOG_SAMPLE_RATE")
+                .map(Integer::parseInt)
+                .orElse(100);
+        long maxUploadBytes = env("MYCERTS_MAX_UPLOAD_BYTES")
+                .map(Long::parseLong)
+                .orElse(InputLimits.MAX_FILE_BYTES_DEFAULT);
+        int maxUploadCertificates = env("MYCERTS_MAX_UPLOAD_CERTIFICATES")
+                .map(Integer::parseInt)
+                .orElse(InputLimits.MAX_FILE_CERTIFICATES_DEFAULT);
+        return new ServerConfig(host, port, production, inventoryDir, snapshotFile, jobWorkers, jobQueueCapacity,
+                accessLog, accessLogSampleRate, maxUploadBytes, maxUploadCertificates);
+    }
+
+    /**
+     * @return the limits of each uploaded key store job
+     */
+    public InputLimits uploadLimits() {
+        return InputLimits.defaults().withFileLimits(maxUploadBytes, maxUploadCertificates);
+    }
+
+    private static Optional<String> env(String name) {
+        return Optional.ofNullable(System.getenv(name))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty());
+    }
+}
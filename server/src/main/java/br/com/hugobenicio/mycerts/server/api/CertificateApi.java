@@ -0,0 +1,305 @@
+package br.com.hugobenicio.mycerts.server.api;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.report.Json;
+import br.com.hugobenicio.mycerts.core.search.SearchField;
+import br.com.hugobenicio.mycerts.server.EntityTags;
+import br.com.hugobenicio.mycerts.server.inventory.CertificateView;
+import br.com.hugobenicio.mycerts.server.inventory.InventoryService;
+import br.com.hugobenicio.mycerts.server.inventory.InventorySnapshot;
+import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.NotFoundResponse;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+import static java.lang.String.format;
+
+/**
+ * Read only JSON api over the inventory:
+ * <ul>
+ *     <li>{@code GET /api/certificates?cursor=&limit=}: all certificates, in fingerprint order</li>
+ *     <li>{@code GET /api/certificates/search?q=&field=any|subject|issuer|san|serial|fingerprint&cursor=&limit=}:
+ *     case-insensitive index search (see {@link SearchField} for the query syntax of each field), in fingerprint
+ *     order</li>
+ *     <li>{@code GET /api/certificates/expiring?days=&cursor=&limit=}: not expired certificates expiring within the
+ *     given days, sooner first</li>
+ *     <li>{@code GET /api/certificates/{fingerprint}}: a single certificate</li>
+ * </ul>
+ * Pages look like {@code {"version":1,"items":[...],"nextCursor":"..."}}, where {@code nextCursor} is null on the last
+ * page. Responses are cached per inventory version and carry an ETag, so unchanged pages cost a 304.
+ */
+public class CertificateApi {
+
+    private static final int LIMIT_DEFAULT = 100;
+    private static final int LIMIT_MAX = 1000;
+    private static final int DAYS_MAX = 36_500;
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    /**
+     * "Expiring within" windows start at the next minute, so their responses can be cached for a minute. Rounding up
+     * (not down) keeps certificates that have already expired out of the window
+     */
+    private static final long EXPIRING_GRANULARITY_SECONDS = 60;
+
+    public enum SearchBy {
+        any, subject, issuer, san, serial, fingerprint;
+
+        SearchField toSearchField() {
+            return switch (this) {
+                case any -> SearchField.ANY;
+                case subject -> SearchField.SUBJECT;
+                case issuer -> SearchField.ISSUER;
+                case san -> SearchField.SAN;
+                case serial -> SearchField.SERIAL;
+                case fingerprint -> SearchField.FINGERPRINT;
+            };
+        }
+    }
+
+    private final InventoryService inventoryService;
+
+    private final ResponseCache responseCache;
+
+    public CertificateApi(InventoryService inventoryService, ResponseCache responseCache) {
+        this.inventoryService = inventoryService;
+        this.responseCache = responseCache;
+    }
+
+    public void register(Javalin app) {
+        // specific routes go before the path parameter one
+        app.get("/api/certificates", this::list);
+        app.get("/api/certificates/search", this::search);
+        app.get("/api/certificates/expiring", this::expiring);
+        app.get("/api/certificates/{fingerprint}", this::get);
+    }
+
+    private void list(Context ctx) {
+        int limit = limit(ctx);
+        Fingerprint cursor = fingerprintCursor(ctx);
+
+        InventorySnapshot snapshot = inventoryService.snapshot();
+        String key = format("list?cursor=%s&limit=%d", cursor, limit);
+        respond(ctx, responseCache.get(snapshot.version(), key, () -> page(snapshot, cursor, limit)));
+    }
+
+    private void search(Context ctx) {
+        String query = Optional.ofNullable(ctx.queryParam("q"))
+                .map(String::strip)
+                .filter(q -> !q.isEmpty())
+                .map(q -> q.toLowerCase(Locale.ROOT))
+                .orElseThrow(() -> new BadRequestResponse("missing query parameter: q"));
+        SearchBy field = enumParam(ctx, "field", SearchBy.class, SearchBy.any);
+        int limit = limit(ctx);
+        Fingerprint cursor = fingerprintCursor(ctx);
+
+        InventorySnapshot snapshot = inventoryService.snapshot();
+        String key = format("search?q=%s&field=%s&cursor=%s&limit=%d", query, field, cursor, limit);
+        respond(ctx, responseCache.get(snapshot.version(), key,
+                () -> searchPage(snapshot, snapshot.search(field.toSearchField(), query), cursor, limit)));
+    }
+
+    private void expiring(Context ctx) {
+        int days = intParam(ctx, "days", -1);
+        if (days < 0 || days > DAYS_MAX) {
+            throw new BadRequestResponse(format("query parameter days must be between 0 and %d", DAYS_MAX));
+        }
+        int limit = limit(ctx);
+        ExpiringCursor cursor = Optional.ofNullable(ctx.queryParam("cursor"))
+                .map(ExpiringCursor::parse)
+                .orElse(null);
+
+        long now = Instant.now().getEpochSecond();
+        long from = Math.ceilDiv(now, EXPIRING_GRANULARITY_SECONDS) * EXPIRING_GRANULARITY_SECONDS;
+        long to = from + days * SECONDS_PER_DAY;
+
+        InventorySnapshot snapshot = inventoryService.snapshot();
+        String key = format("expiring?from=%d&days=%d&cursor=%s&limit=%d", from, days, cursor, limit);
+        respond(ctx, responseCache.get(snapshot.version(), key, () -> expiringPage(snapshot, from, to, cursor, limit)));
+    }
+
+    private void get(Context ctx) {
+        Fingerprint fingerprint = parseFingerprint(ctx.pathParam("fingerprint"));
+
+        InventorySnapshot snapshot = inventoryService.snapshot();
+        int id = snapshot.indexOf(fingerprint);
+        if (id < 0) {
+            throw new NotFoundResponse(format("certificate not found. fingerprint=%s", fingerprint));
+        }
+        respond(ctx, responseCache.get(snapshot.version(), "get?fingerprint=" + fingerprint,
+                () -> snapshot.get(id).json()));
+    }
+
+    private static String page(InventorySnapshot snapshot, Fingerprint cursor, int limit) {
+        var page = new PageWriter(snapshot.version());
+        String nextCursor = null;
+        for (int id = snapshot.firstAfter(cursor); id < snapshot.size(); id++) {
+            if (page.count() == limit) {
+                nextCursor = snapshot.get(page.lastId()).fingerprint().toHex();
+                break;
+            }
+            page.add(id, snapshot.get(id));
+        }
+        return page.finish(nextCursor);
+    }
+
+    /**
+     * @param ids the matching ids, in increasing (fingerprint) order
+     */
+    private static String searchPage(InventorySnapshot snapshot, int[] ids, Fingerprint cursor, int limit) {
+        var page = new PageWriter(snapshot.version());
+        String nextCursor = null;
+        int first = Arrays.binarySearch(ids, snapshot.firstAfter(cursor));
+        for (int i = first >= 0 ? first : -(first + 1); i < ids.length; i++) {
+            if (page.count() == limit) {
+                nextCursor = snapshot.get(page.lastId()).fingerprint().toHex();
+                break;
+            }
+            page.add(ids[i], snapshot.get(ids[i]));
+        }
+        return page.finish(nextCursor);
+    }
+
+    private static String expiringPage(InventorySnapshot snapshot, long from, long to, ExpiringCursor cursor, int limit) {
+        var page = new PageWriter(snapshot.version());
+        long start = cursor != null ? Math.max(from, cursor.notAfterEpochSecond()) : from;
+        final String[] nextCursor = {null};
+        snapshot.expiryIndex().forEachUntil(start, to, (notAfter, id) -> {
+            CertificateView view = snapshot.get(id);
+            if (cursor != null && notAfter == cursor.notAfterEpochSecond()
+                    && view.fingerprint().compareTo(cursor.fingerprint()) <= 0) {
+                return true; // already served
+            }
+            if (page.count() == limit) {
+                CertificateView last = snapshot.get(page.lastId());
+                nextCursor[0] = new ExpiringCursor(last.notAfterEpochSecond(), last.fingerprint()).toString();
+                return false;
+            }
+            page.add(id, view);
+            return true;
+        });
+        return page.finish(nextCursor[0]);
+    }
+
+    private static void respond(Context ctx, ResponseCache.CachedResponse response) {
+        ctx.header("ETag", response.etag());
+        ctx.header("Cache-Control", "no-cache");
+        if (EntityTags.notModified(ctx.header("If-None-Match"), response.etag())) {
+            ctx.status(HttpStatus.NOT_MODIFIED);
+            return;
+        }
+        ctx.contentType(ContentType.JSON).result(response.body());
+    }
+
+    private static int limit(Context ctx) {
+        int limit = intParam(ctx, "limit", LIMIT_DEFAULT);
+        if (limit < 1 || limit > LIMIT_MAX) {
+            throw new BadRequestResponse(format("query parameter limit must be between 1 and %d", LIMIT_MAX));
+        }
+        return limit;
+    }
+
+    private static Fingerprint fingerprintCursor(Context ctx) {
+        return Optional.ofNullable(ctx.queryParam("cursor"))
+                .map(CertificateApi::parseFingerprint)
+                .orElse(null);
+    }
+
+    private static Fingerprint parseFingerprint(String hex) {
+        try {
+            return Fingerprint.fromHex(hex);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestResponse(format("invalid fingerprint: %s", hex));
+        }
+    }
+
+    private static int intParam(Context ctx, String name, int defaultValue) {
+        String value = ctx.queryParam(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestResponse(format("query parameter %s must be an integer", name));
+        }
+    }
+
+    private static <E extends Enum<E>> E enumParam(Context ctx, String name, Class<E> type, E defaultValue) {
+        String value = ctx.queryParam(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestResponse(format("invalid query parameter %s: %s", name, value));
+        }
+    }
+
+    /**
+     * Position in the "expiring" order: (notAfter, fingerprint)
+     */
+    private record ExpiringCursor(long notAfterEpochSecond, Fingerprint fingerprint) {
+
+        static ExpiringCursor parse(String cursor) {
+            int separator = cursor.indexOf(':');
+            try {
+                return new ExpiringCursor(Long.parseLong(cursor.substring(0, separator)),
+                        Fingerprint.fromHex(cursor.substring(separator + 1)));
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new BadRequestResponse(format("invalid cursor: %s", cursor));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return notAfterEpochSecond + ":" + fingerprint.toHex();
+        }
+    }
+
+    /**
+     * Builds a page document out of the precomputed certificate JSON
+     */
+    private static final class PageWriter {
+
+        private final StringBuilder json = new StringBuilder(16 * 1024);
+
+        private int count;
+
+        private int lastId = -1;
+
+        PageWriter(long version) {
+            json.append("{\"version\":").append(version).append(",\"items\":[");
+        }
+
+        void add(int id, CertificateView view) {
+            if (count > 0) {
+                json.append(',');
+            }
+            json.append(view.json());
+            count++;
+            lastId = id;
+        }
+
+        int count() {
+            return count;
+        }
+
+        int lastId() {
+            return lastId;
+        }
+
+        String finish(String nextCursor) {
+            json.append("],\"nextCursor\":");
+            json.append(nextCursor == null ? "null" : Json.quote(nextCursor));
+            return json.append('}').toString();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package br.com.hugobenicio.mycerts.server.api;
+
+import br.com.hugobenicio.mycerts.core.ingest.InputType;
+import br.com.hugobenicio.mycerts.core.report.Json;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+import br.com.hugobenicio.mycerts.server.jobs.JobEvent;
+import br.com.hugobenicio.mycerts.server.jobs.JobManager;
+import br.com.hugobenicio.mycerts.server.jobs.JobRejectedException;
+import br.com.hugobenicio.mycerts.server.jobs.ScanJob;
+import br.com.hugobenicio.mycerts.server.render.TemplateRenderer;
+import io.javalin.Javalin;
+import io.javalin.config.MultipartConfig;
+import io.javalin.config.SizeUnit;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import io.javalin.http.HttpResponseException;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.NotFoundResponse;
+import io.javalin.http.UploadedFile;
+import io.javalin.http.sse.SseClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Background scan jobs:
+ * <ul>
+ *     <li>{@code POST /api/jobs/scan}: scans the endpoints in the request body (one {@code host[:port] [sni]} per
+ *     line) and records their chains in the inventory</li>
+ *     <li>{@code POST /api/jobs/keystore}: adds the certificates of an uploaded key store (multipart {@code file} and
+ *     {@code password} fields) to the inventory</li>
+ *     <li>{@code GET /api/jobs/{id}}: the job state</li>
+ *     <li>{@code GET /api/jobs/{id}/events}: the job events as server-sent events, from the beginning (or from
+ *     {@code Last-Event-ID}) until the job finishes</li>
+ * </ul>
+ * Submissions answer 202 with the job state right away, or 429 when the job queue is full. Key store uploads over
+ * the limit answer 413.
+ *
+ * <p>The htmx flavor ({@code POST /jobs}, {@code GET /jobs/{id}}) answers html fragments that poll for progress.
+ */
+public class JobApi {
+
+    private static final int MAX_TARGETS = 10_000;
+
+    private static final int EVENTS_BATCH = 256;
+
+    /**
+     * How long an SSE stream waits for events before sending a keep-alive comment
+     */
+    private static final Duration EVENTS_HEARTBEAT = Duration.ofSeconds(15);
+
+    /**
+     * Room left in key store upload requests for the multipart headers and the password field
+     */
+    private static final long MULTIPART_OVERHEAD_BYTES = 16 * 1024;
+
+    private final JobManager jobManager;
+
+    private final TemplateRenderer jobRenderer;
+
+    /**
+     * Max key store upload size
+     */
+    private final long maxUploadBytes;
+
+    /**
+     * @param jobRenderer renders a {@link JobFragmentData} as an html fragment
+     * @param maxUploadBytes max key store upload size
+     */
+    public JobApi(JobManager jobManager, TemplateRenderer jobRenderer, long maxUploadBytes) {
+        this.jobManager = jobManager;
+        this.jobRenderer = jobRenderer;
+        this.maxUploadBytes = maxUploadBytes;
+    }
+
+    /**
+     * Sets the multipart limits from the upload limit, so oversized uploads are rejected while the request is parsed,
+     * before they are buffered
+     */
+    public static void configureMultipart(MultipartConfig multipartConfig, long maxUploadBytes) {
+        multipartConfig.maxFileSize(maxUploadBytes, SizeUnit.BYTES);
+        multipartConfig.maxTotalRequestSize(maxUploadRequestBytes(maxUploadBytes), SizeUnit.BYTES);
+        // uploads are read into memory anyway: don't spill them to temporary files first
+        multipartConfig.maxInMemoryFileSize((int) Math.min(maxUploadBytes, Integer.MAX_VALUE), SizeUnit.BYTES);
+    }
+
+    private HttpResponseException tooLarge() {
+        return new HttpResponseException(HttpStatus.CONTENT_TOO_LARGE.getCode(),
+                format("file too large. max_bytes=%d", maxUploadBytes));
+    }
+
+    /**
+     * @return true if the multipart limits (see {@link #configureMultipart}) were exceeded while parsing, as opposed
+     * to any other multipart parsing failure
+     */
+    private static boolean exceedsMultipartLimits(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            // jetty's messages: "Request exceeds maxRequestSize (...)", "Multipart Mime part ... exceeds max filesize"
+            String message = cause.getMessage();
+            if (message != null
+                    && (message.contains("exceeds maxRequestSize") || message.contains("exceeds max filesize"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long maxUploadRequestBytes(long maxUploadBytes) {
+        return maxUploadBytes + MULTIPART_OVERHEAD_BYTES;
+    }
+
+    public void register(Javalin app) {
+        app.post("/api/jobs/scan", this::submitScan);
+        app.post("/api/jobs/keystore", this::submitKeyStore);
+        app.get("/api/jobs/{id}", this::get);
+        app.sse("/api/jobs/{id}/events", this::events);
+
+        app.post("/jobs", this::submitScanFragment);
+        app.get("/jobs/{id}", this::fragment);
+    }
+
+    private void submitScan(Context ctx) {
+        List<ScanTarget> targets = parseTargets(ctx.body());
+        try {
+            accepted(ctx, jobManager.submitEndpoints(targets));
+        } catch (JobRejectedException e) {
+            rejected(ctx, e);
+        }
+    }
+
+    private void submitKeyStore(Context ctx) {
+        // a declared length over the limit is refused before the body is read at all
+        if (ctx.req().getContentLengthLong() > maxUploadRequestBytes(maxUploadBytes)) {
+            throw tooLarge();
+        }
+        UploadedFile file;
+        try {
+            file = ctx.uploadedFile("file");
+        } catch (IllegalStateException e) {
+            if (exceedsMultipartLimits(e)) {
+                throw tooLarge();
+            }
+            throw e;
+        }
+        if (file == null) {
+            throw new BadRequestResponse("missing multipart field: file");
+        }
+        if (file.size() > maxUploadBytes) {
+            throw tooLarge();
+        }
+        String password = ctx.formParam("password");
+        byte[] content;
+        try (InputStream in = file.content()) {
+            // the declared size can't be trusted: never buffer more than the limit (plus one byte to tell it's over)
+            content = in.readNBytes((int) Math.min(maxUploadBytes + 1, Integer.MAX_VALUE - 8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (content.length > maxUploadBytes) {
+            throw tooLarge();
+        }
+        // unsupported uploads are refused right away instead of taking a job slot
+        if (InputType.sniff(content, Math.min(content.length, InputType.SNIFF_BYTES)) == InputType.UNKNOWN) {
+            throw new BadRequestResponse("unsupported file type: expected a jks, p12, pem or der file");
+        }
+        try {
+            accepted(ctx, jobManager.submitKeyStore(file.filename(), content,
+                    password != null ? password.toCharArray() : null));
+        } catch (JobRejectedException e) {
+            rejected(ctx, e);
+        }
+    }
+
+    private void get(Context ctx) {
+        ctx.header("Cache-Control", "no-store");
+        ctx.contentType(ContentType.JSON).result(job(ctx).toJson());
+    }
+
+    private void events(SseClient client) {
+        ScanJob job = job(client.ctx());
+        long sequence = lastEventId(client.ctx());
+        try {
+            while (!client.terminated()) {
+                List<JobEvent> events = job.awaitEventsAfter(sequence, EVENTS_BATCH, EVENTS_HEARTBEAT);
+                if (events.isEmpty()) {
+                    if (job.status().isFinished()) {
+                        break;
+                    }
+                    client.sendComment("keep-alive");
+                    continue;
+                }
+                for (JobEvent event : events) {
+                    client.sendEvent(event.type(), event.json(), Long.toString(event.sequence()));
+                    sequence = event.sequence();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            client.close();
+        }
+    }
+
+    private void submitScanFragment(Context ctx) {
+        List<ScanTarget> targets = parseTargets(ctx.formParam("targets"));
+        try {
+            ScanJob job = jobManager.submitEndpoints(targets);
+            jobRenderer.stream(ctx, JobFragmentData.of(job));
+        } catch (JobRejectedException e) {
+            // htmx doesn't swap error responses by default, so this one goes out as a regular fragment
+            jobRenderer.stream(ctx, JobFragmentData.rejected(e.getMessage()));
+        }
+    }
+
+    private void fragment(Context ctx) {
+        ctx.header("Cache-Control", "no-store");
+        jobRenderer.stream(ctx, JobFragmentData.of(job(ctx)));
+    }
+
+    private ScanJob job(Context ctx) {
+        String id = ctx.pathParam("id");
+        return jobManager.job(id)
+                .orElseThrow(() -> new NotFoundResponse(format("job not found. id=%s", id)));
+    }
+
+    private static void accepted(Context ctx, ScanJob job) {
+        ctx.status(HttpStatus.ACCEPTED)
+                .header("Location", "/api/jobs/" + job.id())
+                .contentType(ContentType.JSON)
+                .result(job.toJson());
+    }
+
+    private static void rejected(Context ctx, JobRejectedException e) {
+        ctx.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", "5")
+                .contentType(ContentType.JSON)
+                .result(format("{\"error\":%s}", Json.quote(e.getMessage())));
+    }
+
+    private static List<ScanTarget> parseTargets(String text) {
+        List<ScanTarget> targets = new ArrayList<>();
+        if (text != null) {
+            for (String line : text.split("\\R")) {
+                String trimmed = line.strip();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    targets.add(ScanTarget.parse(trimmed));
+                } catch (IllegalArgumentException e) {
+                    throw new BadRequestResponse(e.getMessage());
+                }
+                if (targets.size() > MAX_TARGETS) {
+                    throw new BadRequestResponse(format("too many targets. max=%d", MAX_TARGETS));
+                }
+            }
+        }
+        if (targets.isEmpty()) {
+            throw new BadRequestResponse("no scan targets given");
+        }
+        return targets;
+    }
+
+    private static long lastEventId(Context ctx) {
+        String lastEventId = ctx.header("Last-Event-ID");
+        if (lastEventId == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(lastEventId));
+        } catch (NumberFormatException e) {
+            throw new BadRequestResponse(format("invalid Last-Event-ID: %s", lastEventId));
+        }
+    }
+}
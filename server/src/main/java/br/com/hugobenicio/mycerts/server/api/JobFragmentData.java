@@ -0,0 +1,132 @@
+package br.com.hugobenicio.mycerts.server.api;
+
+import br.com.hugobenicio.mycerts.server.jobs.JobEvent;
+import br.com.hugobenicio.mycerts.server.jobs.ScanJob;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model of the job.html template: a snapshot of a job, or the reason it was rejected
+ */
+public class JobFragmentData {
+
+    /**
+     * Number of latest events looked at for the results listed in the fragment
+     */
+    private static final int RECENT_EVENTS = 20;
+
+    private final String id;
+    private final String description;
+    private final String status;
+    private final int total;
+    private final int succeeded;
+    private final int failed;
+    private final boolean finished;
+    private final long elapsedMillis;
+    private final String error;
+    private final List<Result> results;
+
+    private JobFragmentData(String id, String description, String status, int total, int succeeded, int failed,
+                            boolean finished, long elapsedMillis, String error, List<Result> results) {
+        this.id = id;
+        this.description = description;
+        this.status = status;
+        this.total = total;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.finished = finished;
+        this.elapsedMillis = elapsedMillis;
+        this.error = error;
+        this.results = results;
+    }
+
+    public static JobFragmentData of(ScanJob job) {
+        return new JobFragmentData(job.id(), job.description(), job.status().name(), job.total(), job.succeeded(),
+                job.failed(), job.status().isFinished(), job.elapsed().toMillis(), job.error(), recentResults(job));
+    }
+
+    public static JobFragmentData rejected(String reason) {
+        return new JobFragmentData(null, null, "REJECTED", 0, 0, 0, true, 0, reason, List.of());
+    }
+
+    /**
+     * @return the target outcomes among the latest events, latest first
+     */
+    private static List<Result> recentResults(ScanJob job) {
+        List<JobEvent> events = job.eventsAfter(Math.max(0, job.lastSequence() - RECENT_EVENTS), RECENT_EVENTS);
+        List<Result> results = new ArrayList<>(events.size());
+        for (JobEvent event : events.reversed()) {
+            if (JobEvent.RESULT.equals(event.type())) {
+                results.add(new Result(event.ok(), event.summary()));
+            }
+        }
+        return results;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getProgressPercent() {
+        return total == 0 ? 100 : (succeeded + failed) * 100 / total;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * A target outcome
+     */
+    public static class Result {
+
+        private final boolean ok;
+        private final String summary;
+
+        Result(boolean ok, String summary) {
+            this.ok = ok;
+            this.summary = summary;
+        }
+
+        public boolean isOk() {
+            return ok;
+        }
+
+        public String getSummary() {
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.hugobenicio.mycerts.server.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Bounded (LRU) cache of serialized api responses, valid for one inventory version: as soon as a response for a newer
+ * version is requested, everything cached for older versions is dropped.
+ *
+ * <p>Thread-safe. Responses are computed outside the lock, so a miss may be computed more than once concurrently.
+ */
+public class ResponseCache {
+
+    /**
+     * @param body the serialized response
+     * @param etag strong entity tag of the body (quoted)
+     */
+    public record CachedResponse(byte[] body, String etag) {}
+
+    private final Map<String, CachedResponse> entries;
+
+    private long version = -1;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public ResponseCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param version the inventory version the response is computed from
+     * @param key canonical request key (path plus normalized parameters)
+     * @param body computes the response body on a miss
+     */
+    public CachedResponse get(long version, String key, Supplier<String> body) {
+        synchronized (entries) {
+            if (version > this.version) {
+                entries.clear();
+                this.version = version;
+            }
+            CachedResponse cached = version == this.version ? entries.get(key) : null;
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+
+        misses.increment();
+        byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+        var crc = new CRC32();
+        crc.update(bytes);
+        var response = new CachedResponse(bytes, "\"" + version + "-" + Long.toHexString(crc.getValue()) + "\"");
+
+        synchronized (entries) {
+            if (version == this.version) {
+                entries.put(key, response);
+            }
+        }
+        return response;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.hugobenicio.mycerts.server.api;
+
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryIndex;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.report.CertificateJson;
+import br.com.hugobenicio.mycerts.core.report.Json;
+import br.com.hugobenicio.mycerts.core.snapshot.Snapshot;
+import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import io.javalin.http.NotFoundResponse;
+
+import java.time.Instant;
+
+import static java.lang.String.format;
+
+/**
+ * Read only JSON api over a snapshot file (see {@link Snapshot}), served straight from its memory mapping:
+ * <ul>
+ *     <li>{@code GET /api/snapshot}: size and creation date</li>
+ *     <li>{@code GET /api/snapshot/expiring?days=&limit=}: not expired certificates expiring within the given days,
+ *     sooner first. Only the snapshot columns are read, no certificate is decoded</li>
+ *     <li>{@code GET /api/snapshot/certificates/{fingerprint}}: a single certificate</li>
+ * </ul>
+ */
+public class SnapshotApi {
+
+    private static final int LIMIT_DEFAULT = 100;
+    private static final int LIMIT_MAX = 1000;
+    private static final int DAYS_MAX = 36_500;
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final Snapshot snapshot;
+
+    private final ExpiryIndex expiryIndex;
+
+    public SnapshotApi(Snapshot snapshot) {
+        this.snapshot = snapshot;
+        this.expiryIndex = snapshot.expiryIndex();
+    }
+
+    public void register(Javalin app) {
+        app.get("/api/snapshot", this::summary);
+        app.get("/api/snapshot/expiring", this::expiring);
+        app.get("/api/snapshot/certificates/{fingerprint}", this::get);
+    }
+
+    private void summary(Context ctx) {
+        ctx.contentType(ContentType.JSON).result(format("{\"path\":%s,\"certificates\":%d,\"createdAt\":%s}",
+                Json.quote(snapshot.path().toString()), snapshot.size(), Json.quote(snapshot.createdAt().toString())));
+    }
+
+    private void expiring(Context ctx) {
+        int days = intParam(ctx, "days", -1);
+        if (days < 0 || days > DAYS_MAX) {
+            throw new BadRequestResponse(format("query parameter days must be between 0 and %d", DAYS_MAX));
+        }
+        int limit = intParam(ctx, "limit", LIMIT_DEFAULT);
+        if (limit < 1 || limit > LIMIT_MAX) {
+            throw new BadRequestResponse(format("query parameter limit must be between 1 and %d", LIMIT_MAX));
+        }
+
+        long now = Instant.now().getEpochSecond();
+        long to = now + days * SECONDS_PER_DAY;
+        var json = new StringBuilder(16 * 1024);
+        json.append("{\"count\":").append(expiryIndex.count(now, to)).append(",\"items\":[");
+        final int[] remaining = {limit};
+        expiryIndex.forEachUntil(now, to, (notAfter, id) -> {
+            if (remaining[0] < limit) {
+                json.append(',');
+            }
+            json.append("{\"fingerprint\":\"").append(snapshot.fingerprint(id).toHex())
+                    .append("\",\"subject\":").append(Json.quote(snapshot.subject(id)))
+                    .append(",\"issuer\":").append(Json.quote(snapshot.issuer(id)))
+                    .append(",\"notAfter\":\"").append(Instant.ofEpochSecond(notAfter))
+                    .append("\"}");
+            return --remaining[0] > 0;
+        });
+        ctx.contentType(ContentType.JSON).result(json.append("]}").toString());
+    }
+
+    private void get(Context ctx) {
+        String hex = ctx.pathParam("fingerprint");
+        final Fingerprint fingerprint;
+        try {
+            fingerprint = Fingerprint.fromHex(hex);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestResponse(format("invalid fingerprint: %s", hex));
+        }
+        int id = snapshot.indexOf(fingerprint);
+        if (id < 0) {
+            throw new NotFoundResponse(format("certificate not found. fingerprint=%s", fingerprint));
+        }
+        ctx.contentType(ContentType.JSON).result(CertificateJson.toJson(snapshot.entry(id)));
+    }
+
+    private static int intParam(Context ctx, String name, int defaultValue) {
+        String value = ctx.queryParam(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestResponse(format("query parameter %s must be an integer", name));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.hugobenicio.mycerts.server.assets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build time step (see the server pom) that writes gzip variants of the text assets, so they are compressed once, at
+ * maximum level, instead of on every response.
+ *
+ * <p>Usage: {@code Precompressor <output dir> <input root>...}. Each compressible file under an input root is written
+ * to {@code <output dir>/<path relative to the root>.gz}, which is where {@link StaticAssets} looks for it in the
+ * classpath. Variants that don't save at least {@link #MIN_SAVING_PERCENT}% are skipped.
+ */
+public final class Precompressor {
+
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of("css", "js", "map", "svg", "ico", "html", "json", "txt");
+
+    private static final int MIN_SAVING_PERCENT = 10;
+
+    private Precompressor() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: Precompressor <output dir> <input root>...");
+            System.exit(2);
+        }
+        Path outputDir = Path.of(args[0]);
+
+        int written = 0;
+        long savedBytes = 0;
+        for (int i = 1; i < args.length; i++) {
+            Path root = Path.of(args[i]);
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(root)) {
+                files = walk.filter(Files::isRegularFile)
+                        .filter(file -> !file.startsWith(outputDir))
+                        .filter(Precompressor::isCompressible)
+                        .toList();
+            }
+            for (Path file : files) {
+                byte[] content = Files.readAllBytes(file);
+                byte[] compressed = gzip(content);
+                if (compressed.length > content.length * (100 - MIN_SAVING_PERCENT) / 100) {
+                    continue;
+                }
+                Path target = outputDir.resolve(root.relativize(file).toString() + ".gz");
+                Files.createDirectories(target.getParent());
+                Files.write(target, compressed);
+                written++;
+                savedBytes += content.length - compressed.length;
+            }
+        }
+        System.out.printf("precompressed %d asset(s), saving %d KiB%n", written, savedBytes / 1024);
+    }
+
+    private static boolean isCompressible(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSIBLE_EXTENSIONS.contains(name.substring(dot + 1));
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        var out = new ByteArrayOutputStream(content.length / 3 + 64);
+        try (OutputStream gzip = new GZIPOutputStream(out) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+}
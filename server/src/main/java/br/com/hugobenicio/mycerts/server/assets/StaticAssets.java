@@ -0,0 +1,163 @@
+package br.com.hugobenicio.mycerts.server.assets;
+
+import br.com.hugobenicio.mycerts.server.EntityTags;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.NotFoundResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Serves the static assets (the {@code public} resources and the webjars) from the classpath, picking the gzip
+ * variant written at build time by {@link Precompressor} when the client accepts it.
+ *
+ * <p>In production, assets are kept in memory after the first request and cached by clients: webjar urls carry their
+ * version, so they are immutable; the others are cached for a day. Otherwise assets are re-read on every request and
+ * revalidated by clients.
+ */
+public class StaticAssets {
+
+    private static final String PRECOMPRESSED_DIRECTORY = "precompressed/";
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final String ONE_DAY = "public, max-age=86400";
+
+    private static final String REVALIDATE = "no-cache";
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "css", "text/css; charset=utf-8",
+            "js", "text/javascript; charset=utf-8",
+            "map", "application/json",
+            "json", "application/json",
+            "svg", "image/svg+xml",
+            "png", "image/png",
+            "ico", "image/x-icon",
+            "woff2", "font/woff2",
+            "html", "text/html; charset=utf-8",
+            "txt", "text/plain; charset=utf-8");
+
+    /**
+     * An asset and its precompressed variant
+     *
+     * @param identity the asset content
+     * @param gzip the gzip variant (null if there is none)
+     * @param etag strong entity tag of the identity content (the gzip variant gets a suffix)
+     */
+    private record Asset(byte[] identity, byte[] gzip, String contentType, String etag) {}
+
+    private final boolean production;
+
+    /**
+     * Keyed by classpath resource. Only assets that exist are kept, so its size is bounded by the classpath
+     */
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+
+    public StaticAssets(boolean production) {
+        this.production = production;
+    }
+
+    public void register(Javalin app) {
+        app.get("/webjars/<path>", ctx -> serve(ctx, "META-INF/resources/webjars/" + path(ctx), IMMUTABLE));
+        app.get("/assets/<path>", ctx -> serve(ctx, "public/assets/" + path(ctx), ONE_DAY));
+        app.get("/favicon.ico", ctx -> serve(ctx, "public/favicon.ico", ONE_DAY));
+    }
+
+    private void serve(Context ctx, String resource, String cacheControl) {
+        Asset asset = production ? assets.get(resource) : null;
+        if (asset == null) {
+            asset = load(resource).orElseThrow(NotFoundResponse::new);
+            if (production) {
+                assets.put(resource, asset);
+            }
+        }
+
+        boolean gzip = asset.gzip() != null && acceptsGzip(ctx.header("Accept-Encoding"));
+        // each representation needs its own entity tag
+        String etag = gzip ? asset.etag().substring(0, asset.etag().length() - 1) + "-gz\"" : asset.etag();
+
+        ctx.header("Cache-Control", production ? cacheControl : REVALIDATE);
+        ctx.header("ETag", etag);
+        if (asset.gzip() != null) {
+            ctx.header("Vary", "Accept-Encoding");
+        }
+        if (EntityTags.notModified(ctx.header("If-None-Match"), etag)) {
+            ctx.status(HttpStatus.NOT_MODIFIED);
+            return;
+        }
+
+        ctx.contentType(asset.contentType());
+        if (gzip) {
+            ctx.header("Content-Encoding", "gzip");
+            ctx.result(asset.gzip());
+        } else {
+            ctx.result(asset.identity());
+        }
+    }
+
+    private static Optional<Asset> load(String resource) {
+        byte[] identity = readResource(resource);
+        if (identity == null) {
+            return Optional.empty();
+        }
+        byte[] gzip = readResource(PRECOMPRESSED_DIRECTORY + resource + ".gz");
+
+        var crc = new CRC32();
+        crc.update(identity);
+        String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + identity.length + "\"";
+        return Optional.of(new Asset(identity, gzip, contentType(resource), etag));
+    }
+
+    private static byte[] readResource(String resource) {
+        try (InputStream in = StaticAssets.class.getClassLoader().getResourceAsStream(resource)) {
+            return in != null ? in.readAllBytes() : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String path(Context ctx) {
+        String path = ctx.pathParam("path");
+        // resources are looked up by name, but don't let ".." climb out of the asset directories anyway
+        if (path.contains("..") || path.startsWith("/") || path.contains("\\")) {
+            throw new NotFoundResponse();
+        }
+        return path;
+    }
+
+    private static String contentType(String resource) {
+        String extension = resource.substring(resource.lastIndexOf('.') + 1);
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    /**
+     * @return whether the Accept-Encoding header accepts gzip (a {@code q=0} weight refuses it)
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].strip();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].strip().replace(" ", "");
+                if (parameter.equals("q=0") || parameter.matches("q=0\\.0*")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,25 @@
+package br.com.hugobenicio.mycerts.server.inventory;
+
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.inventory.RegisteredCertificate;
+import br.com.hugobenicio.mycerts.core.report.CertificateJson;
+import br.com.hugobenicio.mycerts.core.report.ReportEntry;
+
+/**
+ * What the api serves about a certificate. Everything is computed once, when the inventory snapshot is built:
+ * requests only copy the precomputed JSON. Searches go through the inventory
+ * {@link br.com.hugobenicio.mycerts.core.search.CertificateIndex} instead.
+ *
+ * @param fingerprint the certificate fingerprint
+ * @param notAfterEpochSecond the certificate expiration
+ * @param json the certificate as a JSON object
+ */
+public record CertificateView(Fingerprint fingerprint, long notAfterEpochSecond, String json) {
+
+    public static CertificateView of(RegisteredCertificate registered) {
+        return new CertificateView(
+                registered.fingerprint(),
+                registered.certificate().getNotAfter().getTime() / 1000,
+                CertificateJson.toJson(ReportEntry.of(registered)));
+    }
+}
@@ -0,0 +1,156 @@
+package br.com.hugobenicio.mycerts.server.inventory;
+
+import br.com.hugobenicio.mycerts.core.inventory.CertificateRegistry;
+import br.com.hugobenicio.mycerts.core.inventory.CertificateSource;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.inventory.Observation;
+import br.com.hugobenicio.mycerts.core.inventory.RegisteredCertificate;
+import br.com.hugobenicio.mycerts.core.inventory.store.InventoryStore;
+import br.com.hugobenicio.mycerts.core.scan.ScanResult;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+import br.com.hugobenicio.mycerts.core.search.CertificateIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The inventory served by the api. Readers get immutable snapshots without locking; every change publishes a new
+ * snapshot with a greater version, which is what response caches and ETags are keyed by. Changes are meant to come
+ * in batches: each publication busts the response caches, and only the certificates changed since the previous
+ * snapshot are rendered again.
+ */
+public class InventoryService implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryService.class);
+
+    private final CertificateRegistry registry = new CertificateRegistry();
+
+    /**
+     * Updated as certificates are added. Ids are insertion order positions in {@link #indexed}
+     */
+    private final CertificateIndex searchIndex = new CertificateIndex();
+
+    /**
+     * Fingerprints of the indexed certificates, by search index id
+     */
+    private final List<Fingerprint> indexed = new ArrayList<>();
+
+    /**
+     * Certificates added or observed again since the last published snapshot
+     */
+    private final Map<Fingerprint, RegisteredCertificate> changed = new LinkedHashMap<>();
+
+    /**
+     * Persistent inventory (null if in memory only)
+     */
+    private final InventoryStore store;
+
+    private final AtomicReference<InventorySnapshot> snapshot;
+
+    private InventoryService(InventoryStore store) {
+        this.store = store;
+        this.snapshot = new AtomicReference<>(InventorySnapshot.empty());
+    }
+
+    /**
+     * @param inventoryDir the persistent inventory to be served (null for an in memory one)
+     */
+    public static InventoryService open(Path inventoryDir) throws IOException {
+        if (inventoryDir == null) {
+            return new InventoryService(null);
+        }
+
+        var service = new InventoryService(InventoryStore.open(inventoryDir));
+        service.addObservations(service.store.observations());
+        return service;
+    }
+
+    public InventorySnapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Adds certificates and publishes a new snapshot
+     */
+    public synchronized void addObservations(Collection<Observation> observations) {
+        if (observations.isEmpty()) {
+            return;
+        }
+        register(observations);
+        publish();
+    }
+
+    /**
+     * Records the chains of successfully scanned endpoints (persisting them, if the inventory is persistent) and
+     * publishes a single new snapshot for all of them. Failed results are ignored.
+     *
+     * @throws IOException if persisting fails. The chains recorded so far are published anyway
+     */
+    public synchronized void recordEndpoints(Collection<ScanResult> results) throws IOException {
+        Instant now = Instant.now();
+        try {
+            for (ScanResult result : results) {
+                if (!result.isSuccess()) {
+                    continue;
+                }
+                ScanTarget target = result.target();
+                if (store != null) {
+                    store.recordEndpoint(target.host(), target.port(), target.sni(), result.certificates(), now);
+                }
+                var source = CertificateSource.endpoint(target.host(), target.port(), target.sni());
+                register(result.certificates().stream()
+                        .map(certificate -> new Observation(certificate, source))
+                        .toList());
+            }
+            if (store != null) {
+                store.flush();
+            }
+        } finally {
+            if (!changed.isEmpty()) {
+                publish();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private void register(Collection<Observation> observations) {
+        for (var observation : observations) {
+            int size = registry.size();
+            RegisteredCertificate entry = registry.register(observation);
+            if (registry.size() > size) {
+                searchIndex.add(indexed.size(), entry.certificate(), entry.fingerprint());
+                indexed.add(entry.fingerprint());
+            }
+            changed.put(entry.fingerprint(), entry);
+        }
+    }
+
+    private void publish() {
+        InventorySnapshot previous = snapshot.get();
+        long version = previous.version() + 1;
+        int changes = changed.size();
+        snapshot.set(InventorySnapshot.update(previous, version, changed.values(), searchIndex, List.copyOf(indexed)));
+        changed.clear();
+        log.atInfo().setMessage("inventory snapshot published")
+                .addKeyValue("version", version)
+                .addKeyValue("certificates", registry.size())
+                .addKeyValue("changed", changes)
+                .log();
+    }
+}
@@ -0,0 +1,171 @@
+package br.com.hugobenicio.mycerts.server.inventory;
+
+import br.com.hugobenicio.mycerts.core.expiry.ExpiryIndex;
+import br.com.hugobenicio.mycerts.core.inventory.Fingerprint;
+import br.com.hugobenicio.mycerts.core.inventory.RegisteredCertificate;
+import br.com.hugobenicio.mycerts.core.search.CertificateIndex;
+import br.com.hugobenicio.mycerts.core.search.SearchField;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable, versioned view of the inventory. Certificates are sorted by fingerprint (a stable order for cursor
+ * pagination) and their position in that order is their id in the expiry index.
+ *
+ * <p>The search index is shared with the inventory and keeps growing after the snapshot is taken: its ids are
+ * insertion order ids, mapped to snapshot ids, and the ones added later are left out.
+ *
+ * <p>Snapshots are {@linkplain #update derived} from the previous one, sharing the views of the certificates which
+ * didn't change.
+ */
+public final class InventorySnapshot {
+
+    private static final Comparator<CertificateView> BY_FINGERPRINT =
+            Comparator.comparing(CertificateView::fingerprint);
+
+    private final long version;
+
+    private final CertificateView[] certificates;
+
+    private final ExpiryIndex expiryIndex;
+
+    private final CertificateIndex searchIndex;
+
+    /**
+     * Snapshot ids by search index id
+     */
+    private final int[] searchIds;
+
+    private InventorySnapshot(long version, CertificateView[] certificates, CertificateIndex searchIndex,
+                              int[] searchIds) {
+        this.version = version;
+        this.certificates = certificates;
+        this.searchIndex = searchIndex;
+        this.searchIds = searchIds;
+
+        long[] notAfters = new long[certificates.length];
+        for (int id = 0; id < certificates.length; id++) {
+            notAfters[id] = certificates[id].notAfterEpochSecond();
+        }
+        this.expiryIndex = ExpiryIndex.of(notAfters);
+    }
+
+    /**
+     * Derives a snapshot from the previous one: only the changed certificates get new views, the others (and their
+     * JSON) are shared, so the cost is a merge of the sorted views instead of rendering the whole inventory again.
+     *
+     * @param changed the certificates added or observed again since the previous snapshot
+     * @param searchIndex the inventory search index (the same one given to the previous snapshot)
+     * @param indexed the fingerprints of the indexed certificates, by search index id
+     */
+    public static InventorySnapshot update(InventorySnapshot previous, long version,
+                                           Collection<RegisteredCertificate> changed, CertificateIndex searchIndex,
+                                           List<Fingerprint> indexed) {
+        CertificateView[] changedViews = changed.parallelStream()
+                .map(CertificateView::of)
+                .sorted(BY_FINGERPRINT)
+                .toArray(CertificateView[]::new);
+        CertificateView[] previousViews = previous.certificates;
+
+        // merge, the changed views replacing the previous ones with the same fingerprint
+        CertificateView[] certificates = new CertificateView[previousViews.length + changedViews.length];
+        int[] previousToNew = new int[previousViews.length];
+        int size = 0;
+        int p = 0;
+        int c = 0;
+        while (p < previousViews.length || c < changedViews.length) {
+            int comparison = p == previousViews.length ? 1
+                    : c == changedViews.length ? -1
+                    : previousViews[p].fingerprint().compareTo(changedViews[c].fingerprint());
+            if (comparison < 0) {
+                previousToNew[p] = size;
+                certificates[size++] = previousViews[p++];
+            } else if (comparison > 0) {
+                certificates[size++] = changedViews[c++];
+            } else {
+                previousToNew[p++] = size;
+                certificates[size++] = changedViews[c++];
+            }
+        }
+        certificates = Arrays.copyOf(certificates, size);
+
+        // the previously indexed certificates just moved, only the newly indexed ones are looked up
+        int[] searchIds = new int[indexed.size()];
+        int previouslyIndexed = Math.min(previous.searchIds.length, searchIds.length);
+        for (int i = 0; i < previouslyIndexed; i++) {
+            searchIds[i] = previousToNew[previous.searchIds[i]];
+        }
+        for (int i = previouslyIndexed; i < searchIds.length; i++) {
+            searchIds[i] = binarySearch(certificates, indexed.get(i));
+        }
+        return new InventorySnapshot(version, certificates, searchIndex, searchIds);
+    }
+
+    public static InventorySnapshot empty() {
+        return new InventorySnapshot(0, new CertificateView[0], new CertificateIndex(), new int[0]);
+    }
+
+    /**
+     * @return increases on every inventory change
+     */
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        return certificates.length;
+    }
+
+    public CertificateView get(int id) {
+        return certificates[id];
+    }
+
+    /**
+     * @return the id of the certificate or -1 if it's not in the inventory
+     */
+    public int indexOf(Fingerprint fingerprint) {
+        int position = binarySearch(certificates, fingerprint);
+        return position >= 0 ? position : -1;
+    }
+
+    /**
+     * @return the id of the first certificate whose fingerprint is greater than the given one (null means from the
+     * beginning)
+     */
+    public int firstAfter(Fingerprint fingerprint) {
+        if (fingerprint == null) {
+            return 0;
+        }
+        int position = binarySearch(certificates, fingerprint);
+        return position >= 0 ? position + 1 : -(position + 1);
+    }
+
+    public ExpiryIndex expiryIndex() {
+        return expiryIndex;
+    }
+
+    /**
+     * @return the ids of the certificates matching the query (see {@link SearchField}), in increasing order
+     */
+    public int[] search(SearchField field, String query) {
+        int[] matches = searchIndex.search(field, query);
+        int[] ids = new int[matches.length];
+        int count = 0;
+        for (int match : matches) {
+            if (match < searchIds.length) {
+                ids[count++] = searchIds[match];
+            }
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static int binarySearch(CertificateView[] certificates, Fingerprint fingerprint) {
+        return Arrays.binarySearch(certificates, 0, certificates.length,
+                new CertificateView(fingerprint, 0, null), BY_FINGERPRINT);
+    }
+}
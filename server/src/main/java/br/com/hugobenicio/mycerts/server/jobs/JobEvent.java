@@ -0,0 +1,16 @@
+package br.com.hugobenicio.mycerts.server.jobs;
+
+/**
+ * Something that happened in a job, as sent to its subscribers
+ *
+ * @param sequence position of the event in the job (starting at 1)
+ * @param type "result" (a target outcome) or "status" (the job status changed)
+ * @param json the event data, a JSON object
+ * @param ok false if it's a failed target outcome
+ * @param summary one line description of a target outcome (null for status events), for html fragments
+ */
+public record JobEvent(long sequence, String type, String json, boolean ok, String summary) {
+
+    public static final String RESULT = "result";
+    public static final String STATUS = "status";
+}
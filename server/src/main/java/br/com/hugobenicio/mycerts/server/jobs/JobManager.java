@@ -0,0 +1,288 @@
+package br.com.hugobenicio.mycerts.server.jobs;
+
+import br.com.hugobenicio.mycerts.core.LoadingCertificateException;
+import br.com.hugobenicio.mycerts.core.ingest.CertificateFileLoader;
+import br.com.hugobenicio.mycerts.core.ingest.InputBudget;
+import br.com.hugobenicio.mycerts.core.ingest.InputLimits;
+import br.com.hugobenicio.mycerts.core.inventory.Observation;
+import br.com.hugobenicio.mycerts.core.report.Json;
+import br.com.hugobenicio.mycerts.core.scan.FleetScanner;
+import br.com.hugobenicio.mycerts.core.scan.ScanOptions;
+import br.com.hugobenicio.mycerts.core.scan.ScanResult;
+import br.com.hugobenicio.mycerts.core.scan.ScanTarget;
+import br.com.hugobenicio.mycerts.server.inventory.InventoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Runs scan jobs in the background, off the request threads. At most {@code workers} jobs run at a time and at most
+ * {@code queueCapacity} wait for a worker: beyond that, submissions are rejected (backpressure) instead of piling up.
+ * Results are recorded in the inventory as they arrive, in bounded batches.
+ *
+ * <p>Thread-safe.
+ */
+public class JobManager implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(JobManager.class);
+
+    /**
+     * Max number of jobs remembered (finished jobs are forgotten, oldest first, beyond it)
+     */
+    private static final int RETAINED_JOBS = 256;
+
+    /**
+     * Max number of endpoint results recorded in the inventory at once
+     */
+    private static final int INVENTORY_BATCH_SIZE = 256;
+
+    /**
+     * Max time endpoint results wait to be recorded in the inventory (checked as results arrive)
+     */
+    private static final long INVENTORY_BATCH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final InventoryService inventoryService;
+
+    private final ScanOptions scanOptions;
+
+    private final InputLimits inputLimits;
+
+    private final ThreadPoolExecutor executor;
+
+    private final CertificateFileLoader certificateFileLoader = new CertificateFileLoader();
+
+    private final Map<String, ScanJob> jobs = new LinkedHashMap<>();
+
+    /**
+     * @param workers max number of jobs running at a time
+     * @param queueCapacity max number of jobs waiting for a worker
+     * @param scanOptions concurrency and timeouts of each endpoints job
+     * @param inputLimits size and certificate count limits of each key store job
+     */
+    public JobManager(InventoryService inventoryService, int workers, int queueCapacity, ScanOptions scanOptions,
+                      InputLimits inputLimits) {
+        this.inventoryService = inventoryService;
+        this.scanOptions = scanOptions;
+        this.inputLimits = inputLimits;
+        // jobs mostly wait on the network (and fork virtual threads of their own), so workers are virtual too
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), Thread.ofVirtual().name("job-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues a scan of the given endpoints
+     *
+     * @throws JobRejectedException if the queue is full
+     */
+    public ScanJob submitEndpoints(List<ScanTarget> targets) throws JobRejectedException {
+        var job = new ScanJob(newId(), ScanJob.Kind.ENDPOINTS, format("%d endpoint(s)", targets.size()), targets.size());
+        return submit(job, () -> runEndpoints(job, targets));
+    }
+
+    /**
+     * Queues the parsing of an uploaded key store (jks, p12) or pem bundle
+     *
+     * @param fileName the uploaded file name (its type is told by its content, see
+     *                 {@link br.com.hugobenicio.mycerts.core.ingest.InputType})
+     * @param content the uploaded file content
+     * @param password the key store password (may be null)
+     * @throws JobRejectedException if the queue is full
+     */
+    public ScanJob submitKeyStore(String fileName, byte[] content, char[] password) throws JobRejectedException {
+        var job = new ScanJob(newId(), ScanJob.Kind.KEYSTORE, fileName, 1);
+        return submit(job, () -> runKeyStore(job, fileName, content, password));
+    }
+
+    public Optional<ScanJob> job(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    /**
+     * @return the most recent jobs, newest first
+     */
+    public List<ScanJob> recentJobs(int max) {
+        synchronized (jobs) {
+            List<ScanJob> recent = new ArrayList<>(jobs.values());
+            return recent.reversed().stream().limit(max).toList();
+        }
+    }
+
+    /**
+     * @return number of jobs waiting for a worker
+     */
+    public int queuedJobs() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return number of jobs running (approximate)
+     */
+    public int runningJobs() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private ScanJob submit(ScanJob job, Runnable work) throws JobRejectedException {
+        // registered first: a worker may pick the job (and its id be polled) before execute() even returns
+        synchronized (jobs) {
+            jobs.put(job.id(), job);
+            evictFinishedJobs();
+        }
+        try {
+            executor.execute(() -> {
+                job.start();
+                try {
+                    work.run();
+                    job.finish(null);
+                } catch (RuntimeException e) {
+                    log.atWarn().setMessage("job failed")
+                            .addKeyValue("job", job.id())
+                            .addKeyValue("error", e.toString())
+                            .log();
+                    job.finish(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(job.id());
+            }
+            throw new JobRejectedException(format("too many jobs queued. queued=%d", executor.getQueue().size()));
+        }
+        log.atInfo().setMessage("job queued")
+                .addKeyValue("job", job.id())
+                .addKeyValue("kind", job.kind())
+                .addKeyValue("total", job.total())
+                .log();
+        return job;
+    }
+
+    /**
+     * Records the chains in the inventory in batches of at most {@link #INVENTORY_BATCH_SIZE} (or
+     * {@link #INVENTORY_BATCH_INTERVAL_NANOS} worth of) results: every inventory update publishes a new snapshot,
+     * which busts the api response caches
+     */
+    private void runEndpoints(ScanJob job, List<ScanTarget> targets) {
+        // consumer calls are serialized by the scanner
+        List<ScanResult> batch = new ArrayList<>();
+        long[] batchStartNanos = {System.nanoTime()};
+        try {
+            new FleetScanner(scanOptions).scan(targets, result -> {
+                job.recordResult(result.isSuccess(), resultSummary(result), resultJson(result));
+                if (result.isSuccess()) {
+                    batch.add(result);
+                }
+                if (batch.size() >= INVENTORY_BATCH_SIZE
+                        || System.nanoTime() - batchStartNanos[0] >= INVENTORY_BATCH_INTERVAL_NANOS) {
+                    recordInInventory(job, batch);
+                    batchStartNanos[0] = System.nanoTime();
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("job interrupted", e);
+        } finally {
+            recordInInventory(job, batch);
+        }
+    }
+
+    private void recordInInventory(ScanJob job, List<ScanResult> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            inventoryService.recordEndpoints(batch);
+        } catch (IOException e) {
+            log.atWarn().setMessage("failed to record endpoints in inventory")
+                    .addKeyValue("job", job.id())
+                    .addKeyValue("endpoints", batch.size())
+                    .addKeyValue("error", e.toString())
+                    .log();
+        }
+        batch.clear();
+    }
+
+    /**
+     * Parses the upload within the input limits. Closing the manager interrupts the worker, which stops the parsing at
+     * its next read.
+     */
+    private void runKeyStore(ScanJob job, String fileName, byte[] content, char[] password) {
+        var budget = new InputBudget(inputLimits);
+        try {
+            List<Observation> observations = certificateFileLoader.observeInput(new ByteArrayInputStream(content),
+                    "upload:" + fileName, password, budget);
+            inventoryService.addObservations(observations);
+            job.recordResult(true, format("%s: %d certificate(s)", fileName, observations.size()),
+                    format("{\"file\":%s,\"ok\":true,\"certificates\":%d}", Json.quote(fileName),
+                            observations.size()));
+        } catch (LoadingCertificateException e) {
+            String error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            job.recordResult(false, format("%s: %s", fileName, error),
+                    format("{\"file\":%s,\"ok\":false,\"error\":%s}", Json.quote(fileName),
+                            Json.quote(error)));
+        }
+    }
+
+    private static String resultSummary(ScanResult result) {
+        if (!result.isSuccess()) {
+            return format("%s: %s", result.target(), result.error());
+        }
+        if (result.certificates().isEmpty()) {
+            return format("%s: no certificates", result.target());
+        }
+        X509Certificate leaf = result.certificates().getFirst();
+        return format("%s: %s, expires %s", result.target(), leaf.getSubjectX500Principal().getName(),
+                leaf.getNotAfter().toInstant());
+    }
+
+    private static String resultJson(ScanResult result) {
+        var json = new StringBuilder(256);
+        json.append("{\"target\":").append(Json.quote(result.target().toString()))
+                .append(",\"ok\":").append(result.isSuccess())
+                .append(",\"elapsedMillis\":").append(result.elapsed().toMillis());
+        if (!result.isSuccess()) {
+            json.append(",\"error\":").append(Json.quote(result.error().toString()));
+        } else if (!result.certificates().isEmpty()) {
+            X509Certificate leaf = result.certificates().getFirst();
+            json.append(",\"chain\":").append(result.certificates().size())
+                    .append(",\"subject\":").append(Json.quote(leaf.getSubjectX500Principal().getName()))
+                    .append(",\"notAfter\":\"").append(leaf.getNotAfter().toInstant()).append('"');
+        }
+        return json.append('}').toString();
+    }
+
+    private void evictFinishedJobs() {
+        var iterator = jobs.values().iterator();
+        while (jobs.size() > RETAINED_JOBS && iterator.hasNext()) {
+            if (iterator.next().status().isFinished()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static String newId() {
+        return UUID.randomUUID().toString();
+    }
+}
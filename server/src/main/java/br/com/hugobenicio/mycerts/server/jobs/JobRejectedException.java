@@ -0,0 +1,11 @@
+package br.com.hugobenicio.mycerts.server.jobs;
+
+/**
+ * The job queue is full
+ */
+public class JobRejectedException extends Exception {
+
+    public JobRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.hugobenicio.mycerts.server.jobs;
+
+public enum JobStatus {
+    QUEUED, RUNNING, DONE, FAILED;
+
+    public boolean isFinished() {
+        return this == DONE || this == FAILED;
+    }
+}
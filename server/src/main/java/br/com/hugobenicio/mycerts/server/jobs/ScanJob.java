@@ -0,0 +1,230 @@
+package br.com.hugobenicio.mycerts.server.jobs;
+
+import br.com.hugobenicio.mycerts.core.report.Json;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A background scan (of endpoints or of an uploaded key store) and its event log. Subscribers (SSE streams, htmx
+ * polls) read the log from any position, so slow ones never hold up the scan.
+ *
+ * <p>Only the most recent events are kept ({@link #RETAINED_EVENTS} while running, {@link #RETAINED_FINISHED_EVENTS}
+ * once finished), so finished jobs don't hold on to the results of every target. Subscribers asking for older events
+ * resume from the oldest one kept; the job counters always cover every target.
+ *
+ * <p>Thread-safe.
+ */
+public class ScanJob {
+
+    public enum Kind { ENDPOINTS, KEYSTORE }
+
+    static final int RETAINED_EVENTS = 1024;
+
+    static final int RETAINED_FINISHED_EVENTS = 64;
+
+    private final String id;
+
+    private final Kind kind;
+
+    private final String description;
+
+    private final int total;
+
+    private final Instant createdAt = Instant.now();
+
+    private final AtomicInteger succeeded = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition newEvent = lock.newCondition();
+
+    /**
+     * The retained events: sequences {@code dropped + 1} to {@code dropped + events.size()}
+     */
+    private final List<JobEvent> events = new ArrayList<>();
+
+    private long dropped;
+
+    private volatile JobStatus status = JobStatus.QUEUED;
+
+    private volatile Instant finishedAt;
+
+    private volatile String error;
+
+    ScanJob(String id, Kind kind, String description, int total) {
+        this.id = id;
+        this.kind = kind;
+        this.description = description;
+        this.total = total;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    public int total() {
+        return total;
+    }
+
+    public int succeeded() {
+        return succeeded.get();
+    }
+
+    public int failed() {
+        return failed.get();
+    }
+
+    public JobStatus status() {
+        return status;
+    }
+
+    public String error() {
+        return error;
+    }
+
+    public Instant createdAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return time spent so far (or in total, once finished)
+     */
+    public Duration elapsed() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        return Duration.between(createdAt, end);
+    }
+
+    /**
+     * @return the events after the given sequence number (at most {@code max} of them)
+     */
+    public List<JobEvent> eventsAfter(long sequence, int max) {
+        lock.lock();
+        try {
+            int from = (int) (Math.min(Math.max(sequence, dropped), lastSequence()) - dropped);
+            int to = Math.min(events.size(), from + max);
+            return List.copyOf(events.subList(from, to));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the sequence number of the latest event (0 if there's none)
+     */
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return dropped + events.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until there are events after the given sequence number or the job finishes
+     *
+     * @return the new events (empty on timeout or if the job finished without new events)
+     */
+    public List<JobEvent> awaitEventsAfter(long sequence, int max, Duration timeout) throws InterruptedException {
+        long remainingNanos = timeout.toNanos();
+        lock.lock();
+        try {
+            while (lastSequence() <= sequence && !status.isFinished() && remainingNanos > 0) {
+                remainingNanos = newEvent.awaitNanos(remainingNanos);
+            }
+            return eventsAfter(sequence, max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the job state as a JSON object
+     */
+    public String toJson() {
+        var json = new StringBuilder(256);
+        json.append("{\"id\":").append(Json.quote(id))
+                .append(",\"kind\":\"").append(kind)
+                .append("\",\"description\":").append(Json.quote(description))
+                .append(",\"status\":\"").append(status)
+                .append("\",\"total\":").append(total)
+                .append(",\"succeeded\":").append(succeeded.get())
+                .append(",\"failed\":").append(failed.get())
+                .append(",\"elapsedMillis\":").append(elapsed().toMillis())
+                .append(",\"error\":").append(Json.quote(error))
+                .append('}');
+        return json.toString();
+    }
+
+    void start() {
+        setStatus(JobStatus.RUNNING);
+    }
+
+    /**
+     * @param summary one line description of the outcome, for html fragments
+     */
+    void recordResult(boolean success, String summary, String resultJson) {
+        (success ? succeeded : failed).incrementAndGet();
+        append(JobEvent.RESULT, resultJson, success, summary);
+    }
+
+    void finish(Exception failure) {
+        finishedAt = Instant.now();
+        if (failure != null) {
+            error = failure.getMessage() != null ? failure.getMessage() : failure.toString();
+        }
+        setStatus(failure == null ? JobStatus.DONE : JobStatus.FAILED);
+        lock.lock();
+        try {
+            trim(RETAINED_FINISHED_EVENTS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void setStatus(JobStatus status) {
+        this.status = status;
+        append(JobEvent.STATUS, toJson(), true, null);
+    }
+
+    private void append(String type, String json, boolean ok, String summary) {
+        lock.lock();
+        try {
+            events.add(new JobEvent(lastSequence() + 1, type, json, ok, summary));
+            // trimmed in chunks, so dropping from the head of the list stays amortized O(1) per event
+            if (events.size() >= 2 * RETAINED_EVENTS) {
+                trim(RETAINED_EVENTS);
+            }
+            newEvent.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all but the latest events. Must hold the lock
+     */
+    private void trim(int retained) {
+        int excess = events.size() - retained;
+        if (excess > 0) {
+            events.subList(0, excess).clear();
+            dropped += excess;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package br.com.hugobenicio.mycerts.server.metrics;
+
+import br.com.hugobenicio.mycerts.core.metrics.CoreMetrics;
+import br.com.hugobenicio.mycerts.server.inventory.InventoryService;
+import br.com.hugobenicio.mycerts.server.jobs.JobManager;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+/**
+ * {@code GET /metrics}: request, job, inventory and core tls metrics in the Prometheus text format
+ */
+public class MetricsApi {
+
+    private final RequestMetrics requestMetrics;
+
+    private final JobManager jobManager;
+
+    private final InventoryService inventoryService;
+
+    public MetricsApi(RequestMetrics requestMetrics, JobManager jobManager, InventoryService inventoryService) {
+        this.requestMetrics = requestMetrics;
+        this.jobManager = jobManager;
+        this.inventoryService = inventoryService;
+    }
+
+    public void register(Javalin app) {
+        app.get("/metrics", this::metrics);
+    }
+
+    private void metrics(Context ctx) {
+        var writer = new PrometheusWriter();
+        requestMetrics.write(writer);
+
+        writer.gauge("mycerts_jobs_queued", "Scan jobs waiting for a worker", null, jobManager.queuedJobs())
+                .gauge("mycerts_jobs_running", "Scan jobs running", null, jobManager.runningJobs())
+                .gauge("mycerts_inventory_certificates", "Certificates in the inventory", null,
+                        inventoryService.snapshot().size());
+
+        writer.summary("mycerts_tls_handshake_duration_seconds", "Connect plus tls handshake latency", null,
+                        CoreMetrics.TLS_HANDSHAKES.snapshot())
+                .counter("mycerts_tls_handshakes_resumed_total", "Tls handshakes that resumed a session", null,
+                        CoreMetrics.TLS_RESUMED_HANDSHAKES.sum())
+                .counter("mycerts_tls_handshakes_failed_total", "Tls handshakes that failed", null,
+                        CoreMetrics.TLS_FAILED_HANDSHAKES.sum())
+                .summary("mycerts_scan_target_duration_seconds", "Scan latency per target", null,
+                        CoreMetrics.SCAN_TARGETS.snapshot())
+                .counter("mycerts_scan_targets_failed_total", "Scan targets that failed", null,
+                        CoreMetrics.SCAN_FAILED_TARGETS.sum());
+
+        ctx.header("Cache-Control", "no-store");
+        ctx.contentType(PrometheusWriter.CONTENT_TYPE).result(writer.toString());
+    }
+}
@@ -0,0 +1,75 @@
+package br.com.hugobenicio.mycerts.server.metrics;
+
+import br.com.hugobenicio.mycerts.core.metrics.LatencyHistogram;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes metrics in the Prometheus text exposition format (version 0.0.4). Latency histograms are exposed as
+ * summaries, in seconds, since their log-linear buckets are too many to be exported one by one.
+ */
+public class PrometheusWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final StringBuilder out = new StringBuilder(8192);
+
+    private final Set<String> families = new HashSet<>();
+
+    public PrometheusWriter counter(String name, String help, String labels, long value) {
+        family(name, "counter", help);
+        sample(name, labels, Long.toString(value));
+        return this;
+    }
+
+    public PrometheusWriter gauge(String name, String help, String labels, long value) {
+        family(name, "gauge", help);
+        sample(name, labels, Long.toString(value));
+        return this;
+    }
+
+    public PrometheusWriter summary(String name, String help, String labels, LatencyHistogram.Snapshot snapshot) {
+        family(name, "summary", help);
+        String prefix = labels == null || labels.isEmpty() ? "" : labels + ",";
+        for (double quantile : QUANTILES) {
+            sample(name, prefix + "quantile=\"" + quantile + "\"", seconds(snapshot.valueAtQuantile(quantile)));
+        }
+        sample(name + "_sum", labels, seconds(snapshot.sumNanos()));
+        sample(name + "_count", labels, Long.toString(snapshot.count()));
+        return this;
+    }
+
+    /**
+     * @return a label value, escaped
+     */
+    public static String label(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void family(String name, String type, String help) {
+        if (families.add(name)) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        }
+    }
+
+    private void sample(String name, String labels, String value) {
+        out.append(name);
+        if (labels != null && !labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
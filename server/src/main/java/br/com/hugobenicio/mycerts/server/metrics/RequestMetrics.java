@@ -0,0 +1,63 @@
+package br.com.hugobenicio.mycerts.server.metrics;
+
+import br.com.hugobenicio.mycerts.core.metrics.LatencyHistogram;
+import br.com.hugobenicio.mycerts.server.RequestStateMiddleware;
+import io.javalin.http.Context;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per route latency histograms, per status counters and the number of requests in flight. Everything is lock-free:
+ * after the first request of a route, recording is a map lookup and a few atomic increments.
+ */
+public class RequestMetrics {
+
+    /**
+     * Requests that matched no route, and 404s in general, share this one, so random paths can't blow up the route
+     * count
+     */
+    private static final String UNMATCHED_ROUTE = "unmatched";
+
+    private final Map<String, LatencyHistogram> routes = new ConcurrentHashMap<>();
+
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+    private final LongAdder inFlight = new LongAdder();
+
+    public void beforeAllHandler(Context ctx) {
+        inFlight.increment();
+    }
+
+    public void afterAllHandler(Context ctx) {
+        inFlight.decrement();
+        routes.computeIfAbsent(route(ctx), route -> new LatencyHistogram())
+                .recordSince(RequestStateMiddleware.getStartNanos(ctx));
+        statuses.computeIfAbsent(ctx.res().getStatus(), status -> new LongAdder()).increment();
+    }
+
+    public void write(PrometheusWriter writer) {
+        writer.gauge("mycerts_http_requests_in_flight", "Requests being handled", null, inFlight.sum());
+        new TreeMap<>(statuses).forEach((status, count) ->
+                writer.counter("mycerts_http_responses_total", "Responses by status code",
+                        "status=\"" + status + "\"", count.sum()));
+        new TreeMap<>(routes).forEach((route, histogram) ->
+                writer.summary("mycerts_http_request_duration_seconds", "Request latency by route",
+                        "route=\"" + PrometheusWriter.label(route) + "\"", histogram.snapshot()));
+    }
+
+    private static String route(Context ctx) {
+        String path;
+        try {
+            path = ctx.endpointHandlerPath();
+        } catch (IllegalStateException e) {
+            path = null;
+        }
+        if (path == null || path.isEmpty() || ctx.res().getStatus() == 404) {
+            return UNMATCHED_ROUTE;
+        }
+        return ctx.method() + " " + path;
+    }
+}
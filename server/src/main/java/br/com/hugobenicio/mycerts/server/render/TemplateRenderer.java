@@ -0,0 +1,109 @@
+package br.com.hugobenicio.mycerts.server.render;
+
+import br.com.hugobenicio.mycerts.server.EntityTags;
+import com.github.jknack.handlebars.Template;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Renders a compiled template as an html response.
+ *
+ * <p>{@link #render(Context, Object)} keeps the output of recent models (which must have value semantics:
+ * {@code equals} and {@code hashCode}), so pages whose data didn't change cost a lookup instead of a template
+ * evaluation, and can be answered with a 304. {@link #stream(Context, Object)} is for models that change on every
+ * request: the template writes straight to the response, without an intermediate String.
+ *
+ * <p>Thread-safe.
+ */
+public class TemplateRenderer {
+
+    public static final String TEXT_HTML_UTF8 = "text/html; charset=utf-8";
+
+    /**
+     * A rendered page
+     *
+     * @param body the html, in UTF-8
+     * @param etag a strong ETag of the body
+     */
+    private record Rendered(byte[] body, String etag) {}
+
+    private final Template template;
+
+    private final Map<Object, Rendered> cache;
+
+    /**
+     * @param cacheSize max number of distinct models whose output is kept
+     */
+    public TemplateRenderer(Template template, int cacheSize) {
+        this.template = template;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Rendered> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Responds with the template output for the given model, rendering it only if it isn't cached yet
+     */
+    public void render(Context ctx, Object model) {
+        Rendered rendered;
+        synchronized (cache) {
+            rendered = cache.get(model);
+        }
+        if (rendered == null) {
+            // rendered outside the lock: concurrent misses of the same model may render it twice, which is harmless
+            rendered = renderToBytes(model);
+            synchronized (cache) {
+                cache.put(model, rendered);
+            }
+        }
+
+        ctx.header("ETag", rendered.etag());
+        ctx.header("Cache-Control", "no-cache");
+        if (EntityTags.notModified(ctx.header("If-None-Match"), rendered.etag())) {
+            ctx.status(HttpStatus.NOT_MODIFIED);
+            return;
+        }
+        ctx.contentType(TEXT_HTML_UTF8).result(rendered.body());
+    }
+
+    /**
+     * Responds with the template output for the given model, written straight to the response
+     */
+    public void stream(Context ctx, Object model) {
+        ctx.contentType(TEXT_HTML_UTF8);
+        try {
+            Writer writer = new OutputStreamWriter(ctx.outputStream(), StandardCharsets.UTF_8);
+            template.apply(model, writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Rendered renderToBytes(Object model) {
+        var out = new ByteArrayOutputStream(8192);
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            template.apply(model, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] body = out.toByteArray();
+
+        var crc = new CRC32();
+        crc.update(body);
+        return new Rendered(body, "\"" + Long.toHexString(crc.getValue()) + "-" + body.length + "\"");
+    }
+}